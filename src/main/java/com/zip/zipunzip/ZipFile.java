@@ -3,19 +3,32 @@ package com.zip.zipunzip;
 import static com.zip.zipunzip.util.FileUtils.assertFilesExist;
 import static com.zip.zipunzip.util.InternalZipConstants.CHARSET_UTF_8;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.headers.CentralDirectoryIndex;
 import com.zip.zipunzip.headers.HeaderReader;
+import com.zip.zipunzip.headers.HeaderUtil;
 import com.zip.zipunzip.headers.HeaderWriter;
+import com.zip.zipunzip.io.inputstream.DeflateCheckpointIndex;
+import com.zip.zipunzip.io.inputstream.DeflatedEntryChannel;
+import com.zip.zipunzip.io.inputstream.EntryChannel;
+import com.zip.zipunzip.io.inputstream.StoredEntryChannel;
+import com.zip.zipunzip.io.inputstream.ZipInputStream;
 import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.FileHeaderIndex;
 import com.zip.zipunzip.model.ZipModel;
 import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.CompressionMethod;
 import com.zip.zipunzip.model.enums.RandomAccessFileMode;
 import com.zip.zipunzip.progress.ProgressMonitor;
 import com.zip.zipunzip.tasks.AddFilesToZipTask;
@@ -26,17 +39,31 @@ import com.zip.zipunzip.tasks.ExtractAllFilesTask;
 import com.zip.zipunzip.tasks.ExtractAllFilesTask.ExtractAllFilesTaskParameters;
 import com.zip.zipunzip.tasks.MergeSplitZipFileTask;
 import com.zip.zipunzip.tasks.MergeSplitZipFileTask.MergeSplitZipFileTaskParameters;
+import com.zip.zipunzip.util.ArchiveCache;
+import com.zip.zipunzip.util.UnzipUtil;
+import com.zip.zipunzip.util.ZipFileCompactor;
 import com.zip.zipunzip.util.ZipUtil;
 
-public class ZipFile {
+public class ZipFile implements Closeable {
 
 	private File zipFile;
-	private ZipModel zipModel;
+	private volatile ZipModel zipModel;
 	private ProgressMonitor progressMonitor;
 	private boolean runInThread;
 	private char[] password;
 	private HeaderWriter headerWriter = new HeaderWriter();
 	private Charset charset = CHARSET_UTF_8;
+	private int numberOfThreads = 1;
+	private int numberOfKeyDerivationThreads = 0;
+	private boolean readWithMemoryMapping = false;
+	private boolean useCentralDirectoryIndex = false;
+	private CentralDirectoryIndex centralDirectoryIndex;
+	private boolean useArchiveCache = false;
+	private ArchiveCache.CachedArchive cachedArchive;
+	private long deflateCheckpointSpacing = DeflateCheckpointIndex.DEFAULT_SPACING;
+	private boolean useDeflateCheckpointIndexFile = false;
+	private Map<Long, DeflateCheckpointIndex> deflateCheckpointIndexes;
+	private final Object deflateCheckpointIndexLock = new Object();
 
 	
 	public ZipFile(String zipFile) {
@@ -100,6 +127,7 @@ public class ZipFile {
 	 * @throws ZipException
 	 */
 	private void createNewZipModel() {
+		releaseCachedArchive();
 		zipModel = new ZipModel();
 		zipModel.setZipFile(zipFile);
 	}
@@ -139,6 +167,10 @@ public class ZipFile {
 	 * @throws ZipException
 	 */
 	private void readZipInfo() throws ZipException {
+		readZipInfo(useArchiveCache);
+	}
+
+	private synchronized void readZipInfo(boolean fromArchiveCache) throws ZipException {
 		if (zipModel != null) {
 			return;
 		}
@@ -152,6 +184,21 @@ public class ZipFile {
 			throw new ZipException("no read access for the input zip file");
 		}
 
+		try {
+			// complete an in place removal of entries that was interrupted, before the headers are read
+			ZipFileCompactor.recoverIfNecessary(zipFile);
+		} catch (ZipException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new ZipException(e);
+		}
+
+		if (fromArchiveCache) {
+			cachedArchive = ArchiveCache.getDefault().acquire(zipFile, charset);
+			zipModel = cachedArchive.getZipModel();
+			return;
+		}
+
 		try (RandomAccessFile randomAccessFile = new RandomAccessFile(zipFile, RandomAccessFileMode.READ.getValue())) {
 			HeaderReader headerReader = new HeaderReader();
 			zipModel = headerReader.readAllHeaders(randomAccessFile, charset);
@@ -163,6 +210,29 @@ public class ZipFile {
 		}
 	}
 
+	/**
+	 * Reads the zip header information for a change to this zip file. A zip model
+	 * shared through the archive cache is given back, as it must not be changed,
+	 * and a copy of its own is read instead
+	 *
+	 * @throws ZipException
+	 */
+	private synchronized void readZipInfoForUpdate() throws ZipException {
+		if (cachedArchive != null) {
+			releaseCachedArchive();
+			zipModel = null;
+		}
+
+		readZipInfo(false);
+	}
+
+	private void releaseCachedArchive() {
+		if (cachedArchive != null) {
+			cachedArchive.release();
+			cachedArchive = null;
+		}
+	}
+
 	/**
 	 * Extracts all the files in the given zip file to the input destination path.
 	 *
@@ -193,7 +263,8 @@ public class ZipFile {
 		}
 
 		new ExtractAllFilesTask(progressMonitor, runInThread, zipModel, password)
-				.execute(new ExtractAllFilesTaskParameters(destinationPath, charset));
+				.execute(new ExtractAllFilesTaskParameters(destinationPath, numberOfThreads, numberOfKeyDerivationThreads,
+						readWithMemoryMapping, charset));
 	}
 	
 	/**
@@ -219,7 +290,7 @@ public class ZipFile {
 	    }
 
 	    new MergeSplitZipFileTask(progressMonitor, runInThread, zipModel).execute(
-	            new MergeSplitZipFileTaskParameters(outputZipFile, charset));
+	            new MergeSplitZipFileTaskParameters(outputZipFile, numberOfThreads, charset));
 	  }
 
 
@@ -242,7 +313,7 @@ public class ZipFile {
 	    }
 
 	    assertFilesExist(filesToAdd);
-	    readZipInfo();
+	    readZipInfoForUpdate();
 
 	    if (zipModel == null) {
 	      throw new ZipException("internal error: zip model is null");
@@ -252,8 +323,12 @@ public class ZipFile {
 	      throw new ZipException("Zip file already exists. Zip file format does not allow updating split/spanned files");
 	    }
 
-	    new AddFilesToZipTask(progressMonitor, runInThread, zipModel, password, headerWriter).execute(
-	        new AddFilesToZipTaskParameters(filesToAdd, parameters, charset));
+	    try {
+	      new AddFilesToZipTask(progressMonitor, runInThread, zipModel, password, headerWriter).execute(
+	          new AddFilesToZipTaskParameters(filesToAdd, parameters, charset));
+	    } finally {
+	      ArchiveCache.getDefault().invalidate(zipFile);
+	    }
 	  }
 
 	public Charset getCharset() {
@@ -267,6 +342,331 @@ public class ZipFile {
 		this.charset = charset;
 	}
 
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	/**
+	 * Sets the number of threads used to extract entries in {@link #extractAll(String)}. Each thread reads the
+	 * entries it extracts through its own file handle. A value of 1 extracts entries one after the other. The same
+	 * number of split files are copied at a time by {@link #mergeSplitFiles(File)}.
+	 *
+	 * @param numberOfThreads
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public int getNumberOfKeyDerivationThreads() {
+		return numberOfKeyDerivationThreads;
+	}
+
+	/**
+	 * Sets the number of background threads deriving the keys of AES encrypted entries in
+	 * {@link #extractAll(String)}. When more than zero, the salts of all AES entries are read from their local
+	 * headers before extraction starts and their keys are derived on these threads ahead of the entries.
+	 *
+	 * @param numberOfKeyDerivationThreads
+	 */
+	public void setNumberOfKeyDerivationThreads(int numberOfKeyDerivationThreads) {
+		this.numberOfKeyDerivationThreads = numberOfKeyDerivationThreads;
+	}
+
+	public boolean isReadWithMemoryMapping() {
+		return readWithMemoryMapping;
+	}
+
+	/**
+	 * When set, {@link #extractAll(String)} reads the zip file (and its split volumes) through memory mapped
+	 * buffers instead of a read call for every buffer of data. Meant for large archives on a local disk.
+	 *
+	 * @param readWithMemoryMapping
+	 */
+	public void setReadWithMemoryMapping(boolean readWithMemoryMapping) {
+		this.readWithMemoryMapping = readWithMemoryMapping;
+	}
+
+	public boolean isUseArchiveCache() {
+		return useArchiveCache;
+	}
+
+	/**
+	 * When set, the headers of the zip file are taken from the process wide
+	 * {@link ArchiveCache}, which reads them only the first time any ZipFile opens
+	 * the archive and again when the zip file has changed. The cached archive is held
+	 * until {@link #close()}. Adding files reads a copy of the headers of its own and
+	 * drops the cached one.
+	 *
+	 * @param useArchiveCache
+	 */
+	public void setUseArchiveCache(boolean useArchiveCache) {
+		this.useArchiveCache = useArchiveCache;
+	}
+
+	public long getDeflateCheckpointSpacing() {
+		return deflateCheckpointSpacing;
+	}
+
+	/**
+	 * Sets the uncompressed bytes between two checkpoints of the
+	 * {@link DeflateCheckpointIndex} built for a deflated entry the first time a
+	 * seekable channel over it is asked for. A read through the channel inflates at
+	 * most this many bytes before it gets to its position, and each checkpoint takes
+	 * 32 KB. The default is {@link DeflateCheckpointIndex#DEFAULT_SPACING}.
+	 *
+	 * @param deflateCheckpointSpacing
+	 */
+	public void setDeflateCheckpointSpacing(long deflateCheckpointSpacing) {
+		if (deflateCheckpointSpacing <= 0) {
+			throw new IllegalArgumentException("spacing of checkpoints has to be positive");
+		}
+		this.deflateCheckpointSpacing = deflateCheckpointSpacing;
+	}
+
+	public boolean isUseDeflateCheckpointIndexFile() {
+		return useDeflateCheckpointIndexFile;
+	}
+
+	/**
+	 * When set, the indexes built for seekable channels over deflated entries are
+	 * kept in a sidecar file next to the zip file, and read from it by the next
+	 * ZipFile of the archive, so that the entries are not inflated again. The
+	 * sidecar is ignored once the zip file changes. Otherwise the indexes are only
+	 * kept in memory, for the life of this ZipFile.
+	 *
+	 * @param useDeflateCheckpointIndexFile
+	 */
+	public void setUseDeflateCheckpointIndexFile(boolean useDeflateCheckpointIndexFile) {
+		this.useDeflateCheckpointIndexFile = useDeflateCheckpointIndexFile;
+	}
+
+	public boolean isUseCentralDirectoryIndex() {
+		return useCentralDirectoryIndex;
+	}
+
+	/**
+	 * When set, {@link #getFileHeader(String)} looks up entries through a {@link CentralDirectoryIndex} kept in a
+	 * sidecar file next to the zip file, instead of reading the whole central directory first. The sidecar is built on
+	 * the first lookup and rebuilt whenever the zip file changes. Meant for large archives which are opened again and
+	 * again to read a few entries.
+	 *
+	 * @param useCentralDirectoryIndex
+	 */
+	public void setUseCentralDirectoryIndex(boolean useCentralDirectoryIndex) {
+		this.useCentralDirectoryIndex = useCentralDirectoryIndex;
+	}
+
+	/**
+	 * Returns the file header of the entry with the name, matched exactly if possible, else ignoring case and the
+	 * kind of separator.
+	 *
+	 * @param fileName
+	 * @return file header, or null if the zip file has no entry with the name
+	 * @throws ZipException
+	 */
+	public synchronized FileHeader getFileHeader(String fileName) throws ZipException {
+		if (!useCentralDirectoryIndex || zipModel != null || !zipFile.exists()) {
+			readZipInfo();
+			return HeaderUtil.getFileHeader(zipModel, fileName);
+		}
+
+		try {
+			ZipFileCompactor.recoverIfNecessary(zipFile);
+			if (centralDirectoryIndex == null) {
+				centralDirectoryIndex = new CentralDirectoryIndex(zipFile, charset);
+			}
+			return centralDirectoryIndex.getFileHeader(fileName);
+		} catch (ZipException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new ZipException(e);
+		}
+	}
+
+	/**
+	 * Returns a stream of the uncompressed and decrypted data of the entry with the
+	 * name, looked up as with {@link #getFileHeader(String)}.
+	 *
+	 * @param fileName
+	 * @return stream of the entry, which has to be closed
+	 * @throws ZipException if the zip file has no entry with the name
+	 */
+	public ZipInputStream getInputStream(String fileName) throws ZipException {
+		FileHeader fileHeader = getFileHeader(fileName);
+		if (fileHeader == null) {
+			throw new ZipException("No file header found for file: " + fileName + ", cannot get input stream");
+		}
+
+		return getInputStream(fileHeader);
+	}
+
+	/**
+	 * Returns a stream of the uncompressed and decrypted data of the entry, which is
+	 * read from the offset of its local header in the central directory. Streams of
+	 * any number of entries can be read at once, from any number of threads, each
+	 * with a decompressor of its own. With {@link #setUseArchiveCache(boolean)} set,
+	 * streams read with positional reads on the channels the cached archive shares
+	 * between all its readers, from its read only zip model, and keep the archive in
+	 * use until they are closed. Otherwise each stream opens the zip file of its own.
+	 * With {@link #setUseCentralDirectoryIndex(boolean)} set, the stream of an entry
+	 * looked up through the index is opened without reading the central directory.
+	 *
+	 * @param fileHeader
+	 * @return stream of the entry, which has to be closed
+	 * @throws ZipException
+	 */
+	public ZipInputStream getInputStream(FileHeader fileHeader) throws ZipException {
+		if (fileHeader == null) {
+			throw new ZipException("input file header is null, cannot get input stream");
+		}
+
+		ZipModel zipModelForRead;
+		ArchiveCache.CachedArchive cachedArchiveForRead;
+		synchronized (this) {
+			if (useCentralDirectoryIndex && zipModel == null && centralDirectoryIndex != null) {
+				// the file header was looked up through the index, so the central directory is not read for it
+				try {
+					int numberOfThisDisk = centralDirectoryIndex.getNumberOfThisDisk();
+					return UnzipUtil.createZipInputStream(zipFile, numberOfThisDisk > 0, numberOfThisDisk, fileHeader,
+							password);
+				} catch (ZipException e) {
+					throw e;
+				} catch (IOException e) {
+					throw new ZipException(e);
+				}
+			}
+
+			readZipInfo();
+			if (zipModel == null || zipModel.getEndOfCentralDirectoryRecord() == null) {
+				throw new ZipException("zip model is null, cannot get input stream");
+			}
+
+			zipModelForRead = zipModel;
+			cachedArchiveForRead = cachedArchive;
+			if (cachedArchiveForRead != null) {
+				cachedArchiveForRead.retain();
+			}
+		}
+
+		try {
+			if (cachedArchiveForRead != null) {
+				return UnzipUtil.createZipInputStream(cachedArchiveForRead, fileHeader, password);
+			}
+			return UnzipUtil.createZipInputStream(zipModelForRead, fileHeader, password);
+		} catch (ZipException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new ZipException(e);
+		}
+	}
+
+	/**
+	 * Returns a seekable channel over the data of the entry with the name, looked up
+	 * as with {@link #getFileHeader(String)}.
+	 *
+	 * @param fileName
+	 * @return channel of the entry, which has to be closed
+	 * @throws ZipException if the zip file has no entry with the name, or the entry
+	 *                      is encrypted or compressed other than with deflate
+	 */
+	public EntryChannel getSeekableByteChannel(String fileName) throws ZipException {
+		FileHeader fileHeader = getFileHeader(fileName);
+		if (fileHeader == null) {
+			throw new ZipException("No file header found for file: " + fileName + ", cannot get seekable channel");
+		}
+
+		return getSeekableByteChannel(fileHeader);
+	}
+
+	/**
+	 * Returns a read only, seekable channel over the uncompressed data of an entry
+	 * without encryption. Reads can be made from many threads at once with
+	 * {@link EntryChannel#read(java.nio.ByteBuffer, long)}. For an entry stored with
+	 * {@link CompressionMethod#STORE}, reads at any position go straight to the
+	 * matching position in the zip file, or in its split volumes, and the data is
+	 * not checked against the crc of the entry. For an entry compressed with
+	 * {@link CompressionMethod#DEFLATE}, the first channel over it inflates the
+	 * whole entry once to build a {@link DeflateCheckpointIndex}, checking its crc,
+	 * and reads then inflate from the nearest checkpoint before their position, see
+	 * {@link #setDeflateCheckpointSpacing(long)} and
+	 * {@link #setUseDeflateCheckpointIndexFile(boolean)}. With
+	 * {@link #setUseArchiveCache(boolean)} set, the channel reads through the
+	 * channels of the cached archive. Otherwise it opens the zip file of its own.
+	 *
+	 * @param fileHeader
+	 * @return channel of the entry, which has to be closed
+	 * @throws ZipException if the entry is encrypted or compressed other than with
+	 *                      deflate
+	 */
+	public EntryChannel getSeekableByteChannel(FileHeader fileHeader) throws ZipException {
+		if (fileHeader == null) {
+			throw new ZipException("input file header is null, cannot get seekable channel");
+		}
+
+		ArchiveCache.CachedArchive archiveForRead;
+		synchronized (this) {
+			readZipInfo();
+			if (zipModel == null || zipModel.getEndOfCentralDirectoryRecord() == null) {
+				throw new ZipException("zip model is null, cannot get seekable channel");
+			}
+
+			if (cachedArchive != null) {
+				archiveForRead = cachedArchive;
+				archiveForRead.retain();
+			} else {
+				archiveForRead = ArchiveCache.openUncached(zipModel);
+			}
+		}
+
+		try {
+			if (!fileHeader.isEncrypted() && fileHeader.getCompressionMethod() == CompressionMethod.DEFLATE) {
+				DeflateCheckpointIndex index;
+				try {
+					index = getDeflateCheckpointIndex(archiveForRead, fileHeader);
+				} catch (IOException | RuntimeException e) {
+					archiveForRead.release();
+					throw e;
+				}
+				return new DeflatedEntryChannel(archiveForRead, fileHeader, index);
+			}
+			return new StoredEntryChannel(archiveForRead, fileHeader);
+		} catch (ZipException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new ZipException(e);
+		}
+	}
+
+	/**
+	 * Returns the index of the deflated entry kept in memory or in the sidecar, or
+	 * builds it if there is none for the entry as it is now
+	 */
+	private DeflateCheckpointIndex getDeflateCheckpointIndex(ArchiveCache.CachedArchive archiveForRead,
+			FileHeader fileHeader) throws IOException {
+		synchronized (deflateCheckpointIndexLock) {
+			if (deflateCheckpointIndexes == null) {
+				deflateCheckpointIndexes = new HashMap<>();
+				if (useDeflateCheckpointIndexFile) {
+					for (DeflateCheckpointIndex index : DeflateCheckpointIndex.readIndexFile(zipFile)) {
+						deflateCheckpointIndexes.put(index.getOffsetLocalHeader(), index);
+					}
+				}
+			}
+
+			DeflateCheckpointIndex index = deflateCheckpointIndexes.get(fileHeader.getOffsetLocalHeader());
+			if (index != null && index.matches(fileHeader) && index.getSpacing() == deflateCheckpointSpacing) {
+				return index;
+			}
+
+			index = DeflateCheckpointIndex.build(archiveForRead, fileHeader, deflateCheckpointSpacing);
+			deflateCheckpointIndexes.put(index.getOffsetLocalHeader(), index);
+			if (useDeflateCheckpointIndexFile) {
+				DeflateCheckpointIndex.writeIndexFile(zipFile, deflateCheckpointIndexes.values());
+			}
+			return index;
+		}
+	}
+
 	public List<FileHeader> getFileHeaders() throws ZipException {
 		readZipInfo();
 		if (zipModel == null || zipModel.getCentralDirectory() == null) {
@@ -275,6 +675,69 @@ public class ZipFile {
 		return zipModel.getCentralDirectory().getFileHeaders();
 	}
 
+	/**
+	 * Returns the index of the file headers by name, through which entries are
+	 * looked up and the contents of directories listed without a scan of all the
+	 * file headers.
+	 *
+	 * @return index of the file headers, or null if the zip file does not exist
+	 * @throws ZipException
+	 */
+	public FileHeaderIndex getFileHeaderIndex() throws ZipException {
+		readZipInfo();
+		if (zipModel == null || zipModel.getCentralDirectory() == null) {
+			return null;
+		}
+		return zipModel.getCentralDirectory().getFileHeaderIndex();
+	}
+
+	/**
+	 * Streams the file headers from a memory mapped central directory, without reading them into the zip model. Each
+	 * file header decodes its name, comment and extra fields only when they are asked for, and none of them are kept,
+	 * so listing or filtering an archive with millions of entries takes constant heap. The file headers are read only,
+	 * and do not reflect changes made to the zip file after this call.
+	 *
+	 * @return file headers in central directory order
+	 * @throws ZipException
+	 */
+	public Stream<FileHeader> streamFileHeaders() throws ZipException {
+		if (!zipFile.exists()) {
+			return Stream.empty();
+		}
+
+		if (!zipFile.canRead()) {
+			throw new ZipException("no read access for the input zip file");
+		}
+
+		try {
+			ZipFileCompactor.recoverIfNecessary(zipFile);
+		} catch (ZipException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new ZipException(e);
+		}
+
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(zipFile, RandomAccessFileMode.READ.getValue())) {
+			return new HeaderReader().mapCentralDirectory(randomAccessFile, charset).stream();
+		} catch (ZipException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new ZipException(e);
+		}
+	}
+
+	/**
+	 * Gives back the archive taken from the {@link ArchiveCache}, if any. Headers
+	 * are read again by the next operation.
+	 */
+	@Override
+	public synchronized void close() {
+		if (cachedArchive != null) {
+			releaseCachedArchive();
+			zipModel = null;
+		}
+	}
+
 	@Override
 	public String toString() {
 		return zipFile.toString();
@@ -5,34 +5,31 @@ package com.zip.zipunzip.crypto;
 import com.zip.zipunzip.crypto.PBKDF2.MacBasedPRF;
 import com.zip.zipunzip.crypto.PBKDF2.PBKDF2Engine;
 import com.zip.zipunzip.crypto.PBKDF2.PBKDF2Parameters;
-import com.zip.zipunzip.crypto.engine.AESEngine;
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.model.AESExtraDataRecord;
 import com.zip.zipunzip.model.enums.AesKeyStrength;
 
 import java.util.Arrays;
 
-import static com.zip.zipunzip.crypto.AesCipherUtil.prepareBuffAESIVBytes;
-import static com.zip.zipunzip.util.InternalZipConstants.AES_BLOCK_SIZE;
-
 public class AESDecrypter implements Decrypter {
 
   public static final int PASSWORD_VERIFIER_LENGTH = 2;
 
   private AESExtraDataRecord aesExtraDataRecord;
   private char[] password;
-  private AESEngine aesEngine;
+  private AesKeyPrefetcher aesKeyPrefetcher;
+  private AesCtrCipher aesCtrCipher;
   private MacBasedPRF mac;
 
-  private int nonce = 1;
-  private byte[] iv;
-  private byte[] counterBlock;
-
   public AESDecrypter(AESExtraDataRecord aesExtraDataRecord, char[] password, byte[] salt, byte[] passwordVerifier) throws ZipException {
+    this(aesExtraDataRecord, password, salt, passwordVerifier, null);
+  }
+
+  public AESDecrypter(AESExtraDataRecord aesExtraDataRecord, char[] password, byte[] salt, byte[] passwordVerifier,
+                      AesKeyPrefetcher aesKeyPrefetcher) throws ZipException {
     this.aesExtraDataRecord = aesExtraDataRecord;
     this.password = password;
-    iv = new byte[AES_BLOCK_SIZE];
-    counterBlock = new byte[AES_BLOCK_SIZE];
+    this.aesKeyPrefetcher = aesKeyPrefetcher;
     init(salt, passwordVerifier);
   }
 
@@ -43,7 +40,11 @@ public class AESDecrypter implements Decrypter {
       throw new ZipException("empty or null password provided for AES Decryptor");
     }
 
-    byte[] derivedKey = deriveKey(salt, password, aesKeyStrength.getKeyLength(), aesKeyStrength.getMacLength());
+    byte[] derivedKey = aesKeyPrefetcher == null ? null
+        : aesKeyPrefetcher.getPrefetchedKey(password, aesKeyStrength, salt);
+    if (derivedKey == null) {
+      derivedKey = deriveKey(salt, password, aesKeyStrength.getKeyLength(), aesKeyStrength.getMacLength());
+    }
     if (derivedKey == null || derivedKey.length != (aesKeyStrength.getKeyLength() + aesKeyStrength.getMacLength()
         + PASSWORD_VERIFIER_LENGTH)) {
       throw new ZipException("invalid derived key");
@@ -62,7 +63,7 @@ public class AESDecrypter implements Decrypter {
       throw new ZipException("Wrong Password", ZipException.Type.WRONG_PASSWORD);
     }
 
-    aesEngine = new AESEngine(aesKey);
+    aesCtrCipher = new AesCtrCipher(aesKey);
     mac = new MacBasedPRF("HmacSHA1");
     mac.init(macKey);
   }
@@ -70,25 +71,11 @@ public class AESDecrypter implements Decrypter {
   @Override
   public int decryptData(byte[] buff, int start, int len) throws ZipException {
 
-    for (int j = start; j < (start + len); j += AES_BLOCK_SIZE) {
-      int loopCount = (j + AES_BLOCK_SIZE <= (start + len)) ?
-          AES_BLOCK_SIZE : ((start + len) - j);
-
-      mac.update(buff, j, loopCount);
-      prepareBuffAESIVBytes(iv, nonce);
-      aesEngine.processBlock(iv, counterBlock);
-
-      for (int k = 0; k < loopCount; k++) {
-        buff[j + k] = (byte) (buff[j + k] ^ counterBlock[k]);
-      }
-
-      nonce++;
-    }
-
+    aesCtrCipher.decrypt(buff, start, len, mac);
     return len;
   }
 
-  private byte[] deriveKey(byte[] salt, char[] password, int keyLength, int macLength) {
+  static byte[] deriveKey(byte[] salt, char[] password, int keyLength, int macLength) {
     PBKDF2Parameters p = new PBKDF2Parameters("HmacSHA1", "ISO-8859-1", salt, 1000);
     PBKDF2Engine e = new PBKDF2Engine(p);
     return e.deriveKey(password, keyLength + macLength + PASSWORD_VERIFIER_LENGTH);
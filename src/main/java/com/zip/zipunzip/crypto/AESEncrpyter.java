@@ -5,35 +5,32 @@ package com.zip.zipunzip.crypto;
 import com.zip.zipunzip.crypto.PBKDF2.MacBasedPRF;
 import com.zip.zipunzip.crypto.PBKDF2.PBKDF2Engine;
 import com.zip.zipunzip.crypto.PBKDF2.PBKDF2Parameters;
-import com.zip.zipunzip.crypto.engine.AESEngine;
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.model.enums.AesKeyStrength;
 
 import java.util.Random;
 
-import static com.zip.zipunzip.crypto.AesCipherUtil.prepareBuffAESIVBytes;
-import static com.zip.zipunzip.util.InternalZipConstants.AES_BLOCK_SIZE;
-
 public class AESEncrpyter implements Encrypter {
 
   private static final int PASSWORD_VERIFIER_LENGTH = 2;
 
   private char[] password;
   private AesKeyStrength aesKeyStrength;
-  private AESEngine aesEngine;
+  private AesKeyPrefetcher aesKeyPrefetcher;
+  private AesCtrCipher aesCtrCipher;
   private MacBasedPRF mac;
 
   private boolean finished;
 
-  private int nonce = 1;
-  private int loopCount = 0;
-
-  private byte[] iv;
-  private byte[] counterBlock;
   private byte[] derivedPasswordVerifier;
   private byte[] saltBytes;
 
   public AESEncrpyter(char[] password, AesKeyStrength aesKeyStrength) throws ZipException {
+    this(password, aesKeyStrength, null);
+  }
+
+  public AESEncrpyter(char[] password, AesKeyStrength aesKeyStrength, AesKeyPrefetcher aesKeyPrefetcher)
+      throws ZipException {
     if (password == null || password.length == 0) {
       throw new ZipException("input password is empty or null");
     }
@@ -44,9 +41,8 @@ public class AESEncrpyter implements Encrypter {
 
     this.password = password;
     this.aesKeyStrength = aesKeyStrength;
+    this.aesKeyPrefetcher = aesKeyPrefetcher;
     this.finished = false;
-    counterBlock = new byte[AES_BLOCK_SIZE];
-    iv = new byte[AES_BLOCK_SIZE];
     init();
   }
 
@@ -55,8 +51,16 @@ public class AESEncrpyter implements Encrypter {
     int macLength = aesKeyStrength.getMacLength();
     int saltLength = aesKeyStrength.getSaltLength();
 
-    saltBytes = generateSalt(saltLength);
-    byte[] keyBytes = deriveKey(saltBytes, password, keyLength, macLength);
+    byte[] keyBytes;
+    AesKeyPrefetcher.PreGeneratedKey preGeneratedKey = aesKeyPrefetcher == null ? null
+        : aesKeyPrefetcher.takePreGeneratedKey(password, aesKeyStrength);
+    if (preGeneratedKey != null) {
+      saltBytes = preGeneratedKey.getSalt();
+      keyBytes = preGeneratedKey.getDerivedKey();
+    } else {
+      saltBytes = generateSalt(saltLength);
+      keyBytes = deriveKey(saltBytes, password, keyLength, macLength);
+    }
 
     if (keyBytes == null || keyBytes.length != (keyLength + macLength + PASSWORD_VERIFIER_LENGTH)) {
       throw new ZipException("invalid key generated, cannot decrypt file");
@@ -70,12 +74,12 @@ public class AESEncrpyter implements Encrypter {
     System.arraycopy(keyBytes, keyLength, macKey, 0, macLength);
     System.arraycopy(keyBytes, keyLength + macLength, derivedPasswordVerifier, 0, PASSWORD_VERIFIER_LENGTH);
 
-    aesEngine = new AESEngine(aesKey);
+    aesCtrCipher = new AesCtrCipher(aesKey);
     mac = new MacBasedPRF("HmacSHA1");
     mac.init(macKey);
   }
 
-  private byte[] deriveKey(byte[] salt, char[] password, int keyLength, int macLength) throws ZipException {
+  static byte[] deriveKey(byte[] salt, char[] password, int keyLength, int macLength) throws ZipException {
     try {
       PBKDF2Parameters p = new PBKDF2Parameters("HmacSHA1", "ISO-8859-1",
           salt, 1000);
@@ -108,25 +112,11 @@ public class AESEncrpyter implements Encrypter {
       this.finished = true;
     }
 
-    for (int j = start; j < (start + len); j += AES_BLOCK_SIZE) {
-      loopCount = (j + AES_BLOCK_SIZE <= (start + len)) ?
-          AES_BLOCK_SIZE : ((start + len) - j);
-
-      prepareBuffAESIVBytes(iv, nonce);
-      aesEngine.processBlock(iv, counterBlock);
-
-      for (int k = 0; k < loopCount; k++) {
-        buff[j + k] = (byte) (buff[j + k] ^ counterBlock[k]);
-      }
-
-      mac.update(buff, j, loopCount);
-      nonce++;
-    }
-
+    aesCtrCipher.encrypt(buff, start, len, mac);
     return len;
   }
 
-  private static byte[] generateSalt(int size) throws ZipException {
+  static byte[] generateSalt(int size) throws ZipException {
 
     if (size != 8 && size != 16) {
       throw new ZipException("invalid salt size, cannot generate salt");
@@ -0,0 +1,173 @@
+package com.zip.zipunzip.crypto;
+
+import com.zip.zipunzip.crypto.PBKDF2.MacBasedPRF;
+import com.zip.zipunzip.crypto.engine.AesBlockCipher;
+import com.zip.zipunzip.crypto.engine.AesCipherBackend;
+import com.zip.zipunzip.exception.ZipException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static com.zip.zipunzip.util.InternalZipConstants.AES_BLOCK_SIZE;
+
+/**
+ * Counter mode as used by WinZip AES: a little endian counter starting at 1 and one counter block for every
+ * 16 bytes of data, where a trailing partial block also consumes a counter. Keystream is generated for a whole
+ * buffer at once and xor-ed in bulk. Buffers of at least {@link #PARALLEL_THRESHOLD} bytes are cut into segments
+ * whose keystream is generated on the common fork join pool while the calling thread updates the mac, so the
+ * output is identical to processing the buffer one block at a time. Segments are only worth it when the pool has
+ * more than one worker. Counter blocks are encrypted through the default {@link AesCipherBackend}.
+ */
+class AesCtrCipher {
+
+  private static final int PARALLEL_THRESHOLD = 64 * 1024;
+  private static final int SEGMENT_SIZE = 16 * 1024;
+
+  private byte[] aesKey;
+  private AesCipherBackend aesCipherBackend;
+  private AesBlockCipher aesBlockCipher;
+  private int parallelThreshold;
+  private int parallelism;
+  private int nonce = 1;
+  private byte[] keystream = new byte[0];
+
+  AesCtrCipher(byte[] aesKey) throws ZipException {
+    this(aesKey, AesCipherBackend.getDefault());
+  }
+
+  AesCtrCipher(byte[] aesKey, AesCipherBackend aesCipherBackend) throws ZipException {
+    this(aesKey, aesCipherBackend, PARALLEL_THRESHOLD, ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * Buffers of at least parallelThreshold bytes are cut into segments if parallelism is more than 1, which lets
+   * tests run the segmented path on any machine
+   */
+  AesCtrCipher(byte[] aesKey, AesCipherBackend aesCipherBackend, int parallelThreshold, int parallelism)
+      throws ZipException {
+    this.aesKey = aesKey;
+    this.aesCipherBackend = aesCipherBackend;
+    this.aesBlockCipher = aesCipherBackend.createBlockCipher(aesKey);
+    this.parallelThreshold = parallelThreshold;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Encrypts the data in place and updates the mac with the encrypted data
+   */
+  void encrypt(byte[] buff, int start, int len, MacBasedPRF mac) throws ZipException {
+    if (!isParallel(len)) {
+      keystream = generateKeystream(aesBlockCipher, keystream, len, nonce);
+      xor(buff, start, keystream, len);
+      mac.update(buff, start, len);
+    } else {
+      // Segments are encrypted in place by the workers, the mac follows them in order
+      List<Future<?>> segments = new ArrayList<>();
+      for (int offset = 0; offset < len; offset += SEGMENT_SIZE) {
+        int segmentStart = start + offset;
+        int segmentLength = Math.min(SEGMENT_SIZE, len - offset);
+        int segmentNonce = nonce + offset / AES_BLOCK_SIZE;
+        segments.add(ForkJoinPool.commonPool().submit(() -> {
+          byte[] segmentKeystream = generateKeystream(aesCipherBackend.createBlockCipher(aesKey), null,
+              segmentLength, segmentNonce);
+          xor(buff, segmentStart, segmentKeystream, segmentLength);
+          return null;
+        }));
+      }
+
+      for (int i = 0; i < segments.size(); i++) {
+        waitForSegment(segments.get(i));
+        int offset = i * SEGMENT_SIZE;
+        mac.update(buff, start + offset, Math.min(SEGMENT_SIZE, len - offset));
+      }
+    }
+
+    nonce += numberOfBlocks(len);
+  }
+
+  /**
+   * Updates the mac with the encrypted data and decrypts it in place
+   */
+  void decrypt(byte[] buff, int start, int len, MacBasedPRF mac) throws ZipException {
+    if (!isParallel(len)) {
+      mac.update(buff, start, len);
+      keystream = generateKeystream(aesBlockCipher, keystream, len, nonce);
+      xor(buff, start, keystream, len);
+    } else {
+      // Keystream does not depend on the data, so it is generated while the mac reads the encrypted data
+      List<Future<byte[]>> segments = new ArrayList<>();
+      for (int offset = 0; offset < len; offset += SEGMENT_SIZE) {
+        int segmentLength = Math.min(SEGMENT_SIZE, len - offset);
+        int segmentNonce = nonce + offset / AES_BLOCK_SIZE;
+        segments.add(ForkJoinPool.commonPool().submit(() -> generateKeystream(
+            aesCipherBackend.createBlockCipher(aesKey), null, segmentLength, segmentNonce)));
+      }
+
+      mac.update(buff, start, len);
+
+      for (int i = 0; i < segments.size(); i++) {
+        int offset = i * SEGMENT_SIZE;
+        xor(buff, start + offset, waitForSegment(segments.get(i)), Math.min(SEGMENT_SIZE, len - offset));
+      }
+    }
+
+    nonce += numberOfBlocks(len);
+  }
+
+  private boolean isParallel(int len) {
+    return len >= parallelThreshold && parallelism > 1;
+  }
+
+  /**
+   * Fills the keystream buffer with the counter blocks for the data and encrypts them in place in one call
+   */
+  private static byte[] generateKeystream(AesBlockCipher aesBlockCipher, byte[] keystream, int len, int firstNonce)
+      throws ZipException {
+    int numberOfBlocks = numberOfBlocks(len);
+    if (keystream == null || keystream.length < numberOfBlocks * AES_BLOCK_SIZE) {
+      keystream = new byte[numberOfBlocks * AES_BLOCK_SIZE];
+    }
+
+    for (int i = 0; i < numberOfBlocks; i++) {
+      prepareCounterBlock(keystream, i * AES_BLOCK_SIZE, firstNonce + i);
+    }
+    aesBlockCipher.encryptBlocks(keystream, 0, numberOfBlocks * AES_BLOCK_SIZE, keystream, 0);
+
+    return keystream;
+  }
+
+  private static void prepareCounterBlock(byte[] buff, int offset, int nonce) {
+    buff[offset] = (byte) nonce;
+    buff[offset + 1] = (byte) (nonce >> 8);
+    buff[offset + 2] = (byte) (nonce >> 16);
+    buff[offset + 3] = (byte) (nonce >> 24);
+
+    for (int i = 4; i < AES_BLOCK_SIZE; i++) {
+      buff[offset + i] = 0;
+    }
+  }
+
+  private static void xor(byte[] buff, int start, byte[] keystream, int len) {
+    for (int i = 0; i < len; i++) {
+      buff[start + i] ^= keystream[i];
+    }
+  }
+
+  private static int numberOfBlocks(int len) {
+    return (len + AES_BLOCK_SIZE - 1) / AES_BLOCK_SIZE;
+  }
+
+  private static <R> R waitForSegment(Future<R> segment) throws ZipException {
+    try {
+      return segment.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ZipException(e);
+    } catch (ExecutionException e) {
+      throw new ZipException(e.getCause().getMessage(), e.getCause(), ZipException.Type.UNKNOWN);
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.zip.zipunzip.crypto;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Derives AES keys on a pool of background threads ahead of the entries that need them, so that the PBKDF2
+ * derivation for an entry is not done on the thread reading or writing it. For writing, salts and keys are
+ * generated for the entries about to be written and taken by {@link AESEncrpyter} in any order. For reading, keys
+ * are derived for the salts of the entries about to be extracted and looked up by salt in {@link AESDecrypter}.
+ * Either way keys are only derived for a window of {@link #getNumberOfKeysAhead()} entries ahead of the entry being
+ * read or written, which the caller moves along as it goes. Encrypters and decrypters fall back to deriving the key
+ * themselves when no prefetched key is available.
+ */
+public class AesKeyPrefetcher implements Closeable {
+
+  private static final int KEYS_AHEAD_PER_THREAD = 2;
+
+  private char[] password;
+  private int numberOfThreads;
+  private ExecutorService executorService;
+  private Map<AesKeyStrength, Deque<Future<PreGeneratedKey>>> preGeneratedKeys = new EnumMap<>(AesKeyStrength.class);
+  private Map<String, Future<byte[]>> prefetchedKeys = new ConcurrentHashMap<>();
+
+  public AesKeyPrefetcher(char[] password, int numberOfThreads) {
+    this.password = password;
+    this.numberOfThreads = Math.max(numberOfThreads, 1);
+    this.executorService = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+      Thread thread = new Thread(runnable);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @return number of entries ahead of the one being read or written to derive keys for, enough to keep the threads
+   * busy while the entries before are processed
+   */
+  public int getNumberOfKeysAhead() {
+    return numberOfThreads * KEYS_AHEAD_PER_THREAD;
+  }
+
+  /**
+   * Generates salts and derives keys for entries to be written until the given number of keys is waiting to be
+   * taken, so that called before each entry is started it keeps keys ready for the entries that follow
+   */
+  public synchronized void preGenerateKeys(AesKeyStrength aesKeyStrength, int numberOfKeys) {
+    Deque<Future<PreGeneratedKey>> keys = preGeneratedKeys.computeIfAbsent(aesKeyStrength, k -> new ArrayDeque<>());
+    while (keys.size() < numberOfKeys) {
+      keys.add(executorService.submit(() -> {
+        byte[] salt = AESEncrpyter.generateSalt(aesKeyStrength.getSaltLength());
+        return new PreGeneratedKey(salt, AESEncrpyter.deriveKey(salt, password, aesKeyStrength.getKeyLength(),
+            aesKeyStrength.getMacLength()));
+      }));
+    }
+  }
+
+  /**
+   * Derives the key for an entry to be read, encrypted with the given salt
+   */
+  public void prefetchKey(AesKeyStrength aesKeyStrength, byte[] salt) {
+    prefetchedKeys.computeIfAbsent(getPrefetchedKeyId(aesKeyStrength, salt), k -> executorService.submit(() ->
+        AESDecrypter.deriveKey(salt, password, aesKeyStrength.getKeyLength(), aesKeyStrength.getMacLength())));
+  }
+
+  /**
+   * @return the next pre-generated salt and key, or null if there is none for this password and key strength
+   */
+  PreGeneratedKey takePreGeneratedKey(char[] password, AesKeyStrength aesKeyStrength) throws ZipException {
+    if (!Arrays.equals(this.password, password)) {
+      return null;
+    }
+
+    Future<PreGeneratedKey> key;
+    synchronized (this) {
+      Deque<Future<PreGeneratedKey>> keys = preGeneratedKeys.get(aesKeyStrength);
+      key = keys == null ? null : keys.poll();
+    }
+
+    return key == null ? null : waitForKey(key);
+  }
+
+  /**
+   * @return the key derived for the salt, or null if it was not prefetched for this password and key strength
+   */
+  byte[] getPrefetchedKey(char[] password, AesKeyStrength aesKeyStrength, byte[] salt) throws ZipException {
+    if (!Arrays.equals(this.password, password)) {
+      return null;
+    }
+
+    Future<byte[]> key = prefetchedKeys.remove(getPrefetchedKeyId(aesKeyStrength, salt));
+    return key == null ? null : waitForKey(key);
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+  }
+
+  private String getPrefetchedKeyId(AesKeyStrength aesKeyStrength, byte[] salt) {
+    return aesKeyStrength.name() + Arrays.toString(salt);
+  }
+
+  private <R> R waitForKey(Future<R> key) throws ZipException {
+    try {
+      return key.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ZipException(e);
+    } catch (ExecutionException e) {
+      throw new ZipException(e.getCause().getMessage(), e.getCause(), ZipException.Type.UNKNOWN);
+    }
+  }
+
+  static class PreGeneratedKey {
+    private byte[] salt;
+    private byte[] derivedKey;
+
+    PreGeneratedKey(byte[] salt, byte[] derivedKey) {
+      this.salt = salt;
+      this.derivedKey = derivedKey;
+    }
+
+    byte[] getSalt() {
+      return salt;
+    }
+
+    byte[] getDerivedKey() {
+      return derivedKey;
+    }
+  }
+}
@@ -2,6 +2,10 @@
 
 package com.zip.zipunzip.crypto.PBKDF2;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+
 import static com.zip.zipunzip.util.ZipUtil.convertCharArrayToByteArray;
 
 /*
@@ -11,6 +15,11 @@ import static com.zip.zipunzip.util.ZipUtil.convertCharArrayToByteArray;
 
 public class PBKDF2Engine {
 
+  private static final String HMAC_SHA1 = "HmacSHA1";
+  private static final String JDK_PBKDF2_HMAC_SHA1 = "PBKDF2WithHmacSHA1";
+
+  private static volatile boolean jdkKeyDerivationEnabled = false;
+
   private PBKDF2Parameters parameters;
   private PRF prf;
 
@@ -33,6 +42,10 @@ public class PBKDF2Engine {
       throw new NullPointerException();
     }
 
+    if (prf == null && HMAC_SHA1.equalsIgnoreCase(parameters.getHashAlgorithm())) {
+      return deriveHmacSha1Key(inputPassword, dkLen == 0 ? 20 : dkLen);
+    }
+
     p = convertCharArrayToByteArray(inputPassword);
 
     assertPRF(p);
@@ -60,6 +73,53 @@ public class PBKDF2Engine {
     return true;
   }
 
+  /**
+   * Uses the JDK implementation of PBKDF2WithHmacSHA1 for key derivation when enabled. The JDK encodes the
+   * password as UTF-8 where this engine takes the low byte of each char, so it is only used for passwords of
+   * ASCII characters, for which both give the same key.
+   *
+   * @param jdkKeyDerivationEnabled true to derive HmacSHA1 keys with the JDK implementation where possible
+   */
+  public static void setJdkKeyDerivationEnabled(boolean jdkKeyDerivationEnabled) {
+    PBKDF2Engine.jdkKeyDerivationEnabled = jdkKeyDerivationEnabled;
+  }
+
+  public static boolean isJdkKeyDerivationEnabled() {
+    return jdkKeyDerivationEnabled;
+  }
+
+  private byte[] deriveHmacSha1Key(char[] inputPassword, int dkLen) {
+    byte[] salt = parameters.getSalt() == null ? new byte[0] : parameters.getSalt();
+
+    if (jdkKeyDerivationEnabled && salt.length > 0 && isAscii(inputPassword)) {
+      try {
+        PBEKeySpec keySpec = new PBEKeySpec(inputPassword, salt, parameters.getIterationCount(), dkLen * 8);
+        try {
+          return SecretKeyFactory.getInstance(JDK_PBKDF2_HMAC_SHA1).generateSecret(keySpec).getEncoded();
+        } finally {
+          keySpec.clearPassword();
+        }
+      } catch (GeneralSecurityException e) {
+        // fall through to the precomputed pad implementation
+      }
+    }
+
+    byte[] password = convertCharArrayToByteArray(inputPassword);
+    return PBKDF2HmacSha1.forPassword(password).deriveKey(salt, parameters.getIterationCount(), dkLen);
+  }
+
+  private boolean isAscii(char[] password) {
+    if (password.length == 0) {
+      return false;
+    }
+    for (char c : password) {
+      if (c >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void assertPRF(byte[] P) {
     if (prf == null) {
       prf = new MacBasedPRF(parameters.getHashAlgorithm());
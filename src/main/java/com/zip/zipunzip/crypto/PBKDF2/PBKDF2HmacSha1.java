@@ -0,0 +1,234 @@
+package com.zip.zipunzip.crypto.PBKDF2;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/*
+ * PBKDF2 with HmacSHA1 where the SHA-1 states after hashing the inner and outer key pads are computed once per
+ * password and copied for every iteration, so that an iteration costs two SHA-1 compressions instead of the four
+ * of a javax.crypto.Mac, which re-hashes both pads on every call.
+ *
+ * From the second iteration on, the message of both the inner and the outer hash is the 20 byte digest of the one
+ * before, so SHA-1 is done here on the five words of the digest with the padding of a 20 byte message behind the
+ * pad block, and the digests are never turned into bytes. The iterations allocate nothing, all state is kept in
+ * scratch arrays made once per derivation. The pad states of the last password are kept, as all entries of a zip
+ * file usually share their password.
+ */
+class PBKDF2HmacSha1 {
+
+  private static final int BLOCK_SIZE = 64;
+  private static final int HASH_WORDS = 5;
+  private static final int HASH_LENGTH = HASH_WORDS * 4;
+  // bit length of a digest hashed behind a pad block, which ends its padding
+  private static final int DIGEST_AFTER_PAD_BIT_LENGTH = (BLOCK_SIZE + HASH_LENGTH) * 8;
+  private static final int[] INITIAL_STATE = {0x67452301, 0xefcdab89, 0x98badcfe, 0x10325476, 0xc3d2e1f0};
+
+  private static volatile PBKDF2HmacSha1 lastUsed;
+
+  private final byte[] password;
+  private final int[] innerPadState;
+  private final int[] outerPadState;
+
+  private PBKDF2HmacSha1(byte[] password) {
+    this.password = password.clone();
+    int[] w = new int[80];
+    byte[] block = new byte[2 * BLOCK_SIZE];
+
+    byte[] key = password;
+    if (key.length > BLOCK_SIZE) {
+      int[] keyHash = INITIAL_STATE.clone();
+      hashBytes(keyHash, 0, key, w, block);
+      key = toBytes(keyHash);
+    }
+
+    byte[] pad = new byte[BLOCK_SIZE];
+    for (int i = 0; i < BLOCK_SIZE; i++) {
+      pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x36);
+    }
+    innerPadState = INITIAL_STATE.clone();
+    compressBlock(innerPadState, pad, 0, w);
+
+    for (int i = 0; i < BLOCK_SIZE; i++) {
+      pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x5c);
+    }
+    outerPadState = INITIAL_STATE.clone();
+    compressBlock(outerPadState, pad, 0, w);
+  }
+
+  /**
+   * @return the pad states of the password, those of the last password if it is the same
+   */
+  static PBKDF2HmacSha1 forPassword(byte[] password) {
+    PBKDF2HmacSha1 cached = lastUsed;
+    if (cached != null && MessageDigest.isEqual(cached.password, password)) {
+      return cached;
+    }
+
+    PBKDF2HmacSha1 pbkdf2HmacSha1 = new PBKDF2HmacSha1(password);
+    lastUsed = pbkdf2HmacSha1;
+    return pbkdf2HmacSha1;
+  }
+
+  byte[] deriveKey(byte[] salt, int iterationCount, int dkLen) {
+    byte[] derivedKey = new byte[dkLen];
+    int[] w = new int[80];
+    int[] u = new int[HASH_WORDS];
+    int[] t = new int[HASH_WORDS];
+    byte[] block = new byte[2 * BLOCK_SIZE];
+    byte[] saltAndBlockIndex = Arrays.copyOf(salt, salt.length + 4);
+
+    for (int blockIndex = 1, offset = 0; offset < dkLen; blockIndex++, offset += HASH_LENGTH) {
+      // U1 = PRF(P, S || INT(i))
+      saltAndBlockIndex[salt.length] = (byte) (blockIndex >>> 24);
+      saltAndBlockIndex[salt.length + 1] = (byte) (blockIndex >>> 16);
+      saltAndBlockIndex[salt.length + 2] = (byte) (blockIndex >>> 8);
+      saltAndBlockIndex[salt.length + 3] = (byte) blockIndex;
+
+      System.arraycopy(innerPadState, 0, u, 0, HASH_WORDS);
+      hashBytes(u, BLOCK_SIZE, saltAndBlockIndex, w, block);
+      hashDigestAfterPad(outerPadState, u, w);
+      System.arraycopy(u, 0, t, 0, HASH_WORDS);
+
+      // Uc = PRF(P, Uc-1), T = U1 ^ U2 ^ ... ^ Uc
+      for (int i = 1; i < iterationCount; i++) {
+        hashDigestAfterPad(innerPadState, u, w);
+        hashDigestAfterPad(outerPadState, u, w);
+
+        for (int j = 0; j < HASH_WORDS; j++) {
+          t[j] ^= u[j];
+        }
+      }
+
+      for (int j = 0; j < HASH_LENGTH && offset + j < dkLen; j++) {
+        derivedKey[offset + j] = (byte) (t[j >> 2] >>> (24 - 8 * (j & 3)));
+      }
+    }
+
+    return derivedKey;
+  }
+
+  /**
+   * Hashes the digest in place, as the message which follows a pad block hashed into the pad state
+   */
+  private static void hashDigestAfterPad(int[] padState, int[] digest, int[] w) {
+    System.arraycopy(digest, 0, w, 0, HASH_WORDS);
+    w[5] = 0x80000000;
+    for (int i = 6; i < 15; i++) {
+      w[i] = 0;
+    }
+    w[15] = DIGEST_AFTER_PAD_BIT_LENGTH;
+    compress(padState, w, digest);
+  }
+
+  /**
+   * Hashes the data with its padding into the state, which has already hashed the given number of bytes
+   */
+  private static void hashBytes(int[] state, long bytesHashed, byte[] data, int[] w, byte[] block) {
+    int offset = 0;
+    for (; data.length - offset >= BLOCK_SIZE; offset += BLOCK_SIZE) {
+      compressBlock(state, data, offset, w);
+    }
+
+    int remaining = data.length - offset;
+    int paddedLength = remaining + 9 <= BLOCK_SIZE ? BLOCK_SIZE : 2 * BLOCK_SIZE;
+    Arrays.fill(block, (byte) 0);
+    System.arraycopy(data, offset, block, 0, remaining);
+    block[remaining] = (byte) 0x80;
+    long bitLength = (bytesHashed + data.length) * 8;
+    for (int i = 0; i < 8; i++) {
+      block[paddedLength - 1 - i] = (byte) (bitLength >>> (8 * i));
+    }
+
+    for (int i = 0; i < paddedLength; i += BLOCK_SIZE) {
+      compressBlock(state, block, i, w);
+    }
+  }
+
+  private static void compressBlock(int[] state, byte[] data, int offset, int[] w) {
+    for (int i = 0; i < 16; i++, offset += 4) {
+      w[i] = (data[offset] << 24) | ((data[offset + 1] & 0xff) << 16) | ((data[offset + 2] & 0xff) << 8)
+          | (data[offset + 3] & 0xff);
+    }
+    compress(state, w, state);
+  }
+
+  /**
+   * SHA-1 compression of the 16 words at the start of w, starting from the state and writing the new state to result,
+   * which may be the state itself
+   */
+  private static void compress(int[] state, int[] w, int[] result) {
+    for (int i = 16; i < 80; i++) {
+      int x = w[i - 3] ^ w[i - 8] ^ w[i - 14] ^ w[i - 16];
+      w[i] = (x << 1) | (x >>> 31);
+    }
+
+    int a = state[0];
+    int b = state[1];
+    int c = state[2];
+    int d = state[3];
+    int e = state[4];
+
+    for (int i = 0; i < 20; i += 5) {
+      e += ((a << 5) | (a >>> 27)) + ((b & c) | (~b & d)) + w[i] + 0x5a827999;
+      b = (b << 30) | (b >>> 2);
+      d += ((e << 5) | (e >>> 27)) + ((a & b) | (~a & c)) + w[i + 1] + 0x5a827999;
+      a = (a << 30) | (a >>> 2);
+      c += ((d << 5) | (d >>> 27)) + ((e & a) | (~e & b)) + w[i + 2] + 0x5a827999;
+      e = (e << 30) | (e >>> 2);
+      b += ((c << 5) | (c >>> 27)) + ((d & e) | (~d & a)) + w[i + 3] + 0x5a827999;
+      d = (d << 30) | (d >>> 2);
+      a += ((b << 5) | (b >>> 27)) + ((c & d) | (~c & e)) + w[i + 4] + 0x5a827999;
+      c = (c << 30) | (c >>> 2);
+    }
+    for (int i = 20; i < 40; i += 5) {
+      e += ((a << 5) | (a >>> 27)) + (b ^ c ^ d) + w[i] + 0x6ed9eba1;
+      b = (b << 30) | (b >>> 2);
+      d += ((e << 5) | (e >>> 27)) + (a ^ b ^ c) + w[i + 1] + 0x6ed9eba1;
+      a = (a << 30) | (a >>> 2);
+      c += ((d << 5) | (d >>> 27)) + (e ^ a ^ b) + w[i + 2] + 0x6ed9eba1;
+      e = (e << 30) | (e >>> 2);
+      b += ((c << 5) | (c >>> 27)) + (d ^ e ^ a) + w[i + 3] + 0x6ed9eba1;
+      d = (d << 30) | (d >>> 2);
+      a += ((b << 5) | (b >>> 27)) + (c ^ d ^ e) + w[i + 4] + 0x6ed9eba1;
+      c = (c << 30) | (c >>> 2);
+    }
+    for (int i = 40; i < 60; i += 5) {
+      e += ((a << 5) | (a >>> 27)) + ((b & c) | (b & d) | (c & d)) + w[i] + 0x8f1bbcdc;
+      b = (b << 30) | (b >>> 2);
+      d += ((e << 5) | (e >>> 27)) + ((a & b) | (a & c) | (b & c)) + w[i + 1] + 0x8f1bbcdc;
+      a = (a << 30) | (a >>> 2);
+      c += ((d << 5) | (d >>> 27)) + ((e & a) | (e & b) | (a & b)) + w[i + 2] + 0x8f1bbcdc;
+      e = (e << 30) | (e >>> 2);
+      b += ((c << 5) | (c >>> 27)) + ((d & e) | (d & a) | (e & a)) + w[i + 3] + 0x8f1bbcdc;
+      d = (d << 30) | (d >>> 2);
+      a += ((b << 5) | (b >>> 27)) + ((c & d) | (c & e) | (d & e)) + w[i + 4] + 0x8f1bbcdc;
+      c = (c << 30) | (c >>> 2);
+    }
+    for (int i = 60; i < 80; i += 5) {
+      e += ((a << 5) | (a >>> 27)) + (b ^ c ^ d) + w[i] + 0xca62c1d6;
+      b = (b << 30) | (b >>> 2);
+      d += ((e << 5) | (e >>> 27)) + (a ^ b ^ c) + w[i + 1] + 0xca62c1d6;
+      a = (a << 30) | (a >>> 2);
+      c += ((d << 5) | (d >>> 27)) + (e ^ a ^ b) + w[i + 2] + 0xca62c1d6;
+      e = (e << 30) | (e >>> 2);
+      b += ((c << 5) | (c >>> 27)) + (d ^ e ^ a) + w[i + 3] + 0xca62c1d6;
+      d = (d << 30) | (d >>> 2);
+      a += ((b << 5) | (b >>> 27)) + (c ^ d ^ e) + w[i + 4] + 0xca62c1d6;
+      c = (c << 30) | (c >>> 2);
+    }
+
+    result[0] = state[0] + a;
+    result[1] = state[1] + b;
+    result[2] = state[2] + c;
+    result[3] = state[3] + d;
+    result[4] = state[4] + e;
+  }
+
+  private static byte[] toBytes(int[] hash) {
+    byte[] bytes = new byte[HASH_LENGTH];
+    for (int j = 0; j < HASH_LENGTH; j++) {
+      bytes[j] = (byte) (hash[j >> 2] >>> (24 - 8 * (j & 3)));
+    }
+    return bytes;
+  }
+}
@@ -5,7 +5,7 @@ import com.zip.zipunzip.exception.ZipException;
 import static com.zip.zipunzip.util.InternalZipConstants.AES_BLOCK_SIZE;
 
 
-public class AESEngine {
+public class AESEngine implements AesBlockCipher {
 
   private int rounds;
   private int[][] workingKey = null;
@@ -53,6 +53,13 @@ public class AESEngine {
     return W;
   }
 
+  @Override
+  public void encryptBlocks(byte[] in, int inOff, int length, byte[] out, int outOff) throws ZipException {
+    for (int i = 0; i < length; i += AES_BLOCK_SIZE) {
+      processBlock(in, inOff + i, out, outOff + i);
+    }
+  }
+
   public int processBlock(byte[] in, byte[] out) throws ZipException {
     return processBlock(in, 0, out, 0);
   }
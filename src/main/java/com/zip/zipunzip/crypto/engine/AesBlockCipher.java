@@ -0,0 +1,20 @@
+package com.zip.zipunzip.crypto.engine;
+
+import com.zip.zipunzip.exception.ZipException;
+
+/**
+ * Encrypts whole AES blocks with a fixed key. Used to turn a run of counter blocks into keystream, so an
+ * implementation only needs the forward cipher.
+ */
+public interface AesBlockCipher {
+
+  /**
+   * @param in input blocks
+   * @param inOff offset of the first input block
+   * @param length number of bytes to encrypt, a multiple of the AES block size
+   * @param out output buffer, may be the input buffer
+   * @param outOff offset of the first output block
+   * @throws ZipException
+   */
+  void encryptBlocks(byte[] in, int inOff, int length, byte[] out, int outOff) throws ZipException;
+}
@@ -0,0 +1,46 @@
+package com.zip.zipunzip.crypto.engine;
+
+import com.zip.zipunzip.exception.ZipException;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Implementations available for the AES block cipher used by WinZip AES encryption and decryption. {@link #JCE}
+ * is the default and falls back to {@link #AES_ENGINE} when the JDK cannot provide AES for the key, for example
+ * 256 bit keys on JDKs with the limited strength crypto policy.
+ */
+public enum AesCipherBackend {
+
+  JCE {
+    @Override
+    public AesBlockCipher createBlockCipher(byte[] key) throws ZipException {
+      try {
+        return new JceAesBlockCipher(key);
+      } catch (GeneralSecurityException e) {
+        return AES_ENGINE.createBlockCipher(key);
+      }
+    }
+  },
+
+  AES_ENGINE {
+    @Override
+    public AesBlockCipher createBlockCipher(byte[] key) throws ZipException {
+      return new AESEngine(key);
+    }
+  };
+
+  private static volatile AesCipherBackend defaultBackend = JCE;
+
+  public abstract AesBlockCipher createBlockCipher(byte[] key) throws ZipException;
+
+  public static AesCipherBackend getDefault() {
+    return defaultBackend;
+  }
+
+  public static void setDefault(AesCipherBackend aesCipherBackend) {
+    if (aesCipherBackend == null) {
+      throw new IllegalArgumentException("aes cipher backend cannot be null");
+    }
+    defaultBackend = aesCipherBackend;
+  }
+}
@@ -0,0 +1,32 @@
+package com.zip.zipunzip.crypto.engine;
+
+import com.zip.zipunzip.exception.ZipException;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * AES block cipher backed by the JDK's AES/ECB/NoPadding implementation, which the JVM compiles to the CPU's AES
+ * instructions where available. ECB is used rather than the JDK's CTR mode because WinZip AES increments its
+ * counter as a little endian number, while the JDK increments a big endian one.
+ */
+public class JceAesBlockCipher implements AesBlockCipher {
+
+  private Cipher cipher;
+
+  public JceAesBlockCipher(byte[] key) throws GeneralSecurityException {
+    cipher = Cipher.getInstance("AES/ECB/NoPadding");
+    cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+  }
+
+  @Override
+  public void encryptBlocks(byte[] in, int inOff, int length, byte[] out, int outOff) throws ZipException {
+    try {
+      cipher.update(in, inOff, length, out, outOff);
+    } catch (ShortBufferException e) {
+      throw new ZipException(e);
+    }
+  }
+}
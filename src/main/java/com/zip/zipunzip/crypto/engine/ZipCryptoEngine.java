@@ -1,5 +1,7 @@
 package com.zip.zipunzip.crypto.engine;
 
+import java.nio.ByteBuffer;
+
 public class ZipCryptoEngine {
 
   private final int keys[] = new int[3];
@@ -43,4 +45,116 @@ public class ZipCryptoEngine {
     int temp = keys[2] | 2;
     return (byte) ((temp * (temp ^ 1)) >>> 8);
   }
+
+  /**
+   * Encrypts the data in place, the same as calling {@link #decryptByte()} and {@link #updateKeys(byte)} with
+   * the plain byte for every byte, but with the keys held in locals for the whole buffer
+   */
+  public void encrypt(byte[] buff, int start, int len) {
+    int[] crcTable = CRC_TABLE;
+    int key0 = keys[0];
+    int key1 = keys[1];
+    int key2 = keys[2];
+
+    for (int i = start, end = start + len; i < end; i++) {
+      int temp = key2 | 2;
+      int plain = buff[i];
+      buff[i] = (byte) (plain ^ ((temp * (temp ^ 1)) >>> 8));
+
+      key0 = (key0 >>> 8) ^ crcTable[(key0 ^ plain) & 0xff];
+      key1 = (key1 + (key0 & 0xff)) * 134775813 + 1;
+      key2 = (key2 >>> 8) ^ crcTable[(key2 ^ (key1 >>> 24)) & 0xff];
+    }
+
+    keys[0] = key0;
+    keys[1] = key1;
+    keys[2] = key2;
+  }
+
+  /**
+   * Decrypts the data in place, the same as calling {@link #decryptByte()} and {@link #updateKeys(byte)} with
+   * the decrypted byte for every byte, but with the keys held in locals for the whole buffer
+   */
+  public void decrypt(byte[] buff, int start, int len) {
+    int[] crcTable = CRC_TABLE;
+    int key0 = keys[0];
+    int key1 = keys[1];
+    int key2 = keys[2];
+
+    for (int i = start, end = start + len; i < end; i++) {
+      int temp = key2 | 2;
+      int plain = buff[i] ^ ((temp * (temp ^ 1)) >>> 8);
+      buff[i] = (byte) plain;
+
+      key0 = (key0 >>> 8) ^ crcTable[(key0 ^ plain) & 0xff];
+      key1 = (key1 + (key0 & 0xff)) * 134775813 + 1;
+      key2 = (key2 >>> 8) ^ crcTable[(key2 ^ (key1 >>> 24)) & 0xff];
+    }
+
+    keys[0] = key0;
+    keys[1] = key1;
+    keys[2] = key2;
+  }
+
+  /**
+   * Encrypts the remaining bytes of the buffer in place and advances its position to its limit
+   */
+  public void encrypt(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      encrypt(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      buffer.position(buffer.limit());
+      return;
+    }
+
+    int[] crcTable = CRC_TABLE;
+    int key0 = keys[0];
+    int key1 = keys[1];
+    int key2 = keys[2];
+
+    for (int i = buffer.position(), end = buffer.limit(); i < end; i++) {
+      int temp = key2 | 2;
+      int plain = buffer.get(i);
+      buffer.put(i, (byte) (plain ^ ((temp * (temp ^ 1)) >>> 8)));
+
+      key0 = (key0 >>> 8) ^ crcTable[(key0 ^ plain) & 0xff];
+      key1 = (key1 + (key0 & 0xff)) * 134775813 + 1;
+      key2 = (key2 >>> 8) ^ crcTable[(key2 ^ (key1 >>> 24)) & 0xff];
+    }
+
+    keys[0] = key0;
+    keys[1] = key1;
+    keys[2] = key2;
+    buffer.position(buffer.limit());
+  }
+
+  /**
+   * Decrypts the remaining bytes of the buffer in place and advances its position to its limit
+   */
+  public void decrypt(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      decrypt(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      buffer.position(buffer.limit());
+      return;
+    }
+
+    int[] crcTable = CRC_TABLE;
+    int key0 = keys[0];
+    int key1 = keys[1];
+    int key2 = keys[2];
+
+    for (int i = buffer.position(), end = buffer.limit(); i < end; i++) {
+      int temp = key2 | 2;
+      int plain = buffer.get(i) ^ ((temp * (temp ^ 1)) >>> 8);
+      buffer.put(i, (byte) plain);
+
+      key0 = (key0 >>> 8) ^ crcTable[(key0 ^ plain) & 0xff];
+      key1 = (key1 + (key0 & 0xff)) * 134775813 + 1;
+      key2 = (key2 >>> 8) ^ crcTable[(key2 ^ (key1 >>> 24)) & 0xff];
+    }
+
+    keys[0] = key0;
+    keys[1] = key1;
+    keys[2] = key2;
+    buffer.position(buffer.limit());
+  }
 }
@@ -0,0 +1,387 @@
+package com.zip.zipunzip.headers;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.FileHeaderIndex;
+import com.zip.zipunzip.model.enums.RandomAccessFileMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static com.zip.zipunzip.util.InternalZipConstants.CHARSET_UTF_8;
+
+/**
+ * Index of the central directory of a zip file, kept in a sidecar file next to it, so that a file header can be
+ * looked up without reading the central directory into a zip model. The sidecar is mapped, and a lookup probes its
+ * hash table of names and reads the one matching file header from the mapped central directory, which takes the same
+ * time however many entries the zip file has.
+ * <p>
+ * The sidecar is keyed by the path, length and modification time of the zip file and by the charset. When any of them
+ * no longer match, or a file header found through the index does not match its record, the sidecar is rebuilt. If the
+ * sidecar cannot be written, the index is kept in memory only.
+ * <p>
+ * Layout of the sidecar, little endian: a header of signature, version, length and modification time of the zip file,
+ * offset and size of the central directory, number of entries, size of the hash table, size of the names, lengths of
+ * the zip file path and charset name, the number of the last split file, and the zip file path and charset name as
+ * utf-8. It is followed by a record for each entry of
+ * {@link #RECORD_SIZE} bytes, the utf-8 names of all entries and the hash table, whose slots hold the index of an entry
+ * plus one, or zero when empty.
+ */
+public class CentralDirectoryIndex {
+
+  static final int RECORD_SIZE = 44;
+
+  private static final int SIGNATURE = 0x5844495a; // "ZIDX"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 60;
+  private static final String INDEX_FILE_SUFFIX = ".cdi";
+
+  private File zipFile;
+  private Charset charset;
+
+  private ByteBuffer index;
+  private long zipFileLength;
+  private long zipFileLastModified;
+  private long offsetStartOfCentralDirectory;
+  private int sizeOfCentralDirectory;
+  private int numberOfEntries;
+  private int numberOfThisDisk;
+  private int hashTableSize;
+  private int recordsOffset;
+  private int namesOffset;
+  private int hashTableOffset;
+
+  private ByteBuffer centralDirectory;
+
+  public CentralDirectoryIndex(File zipFile, Charset charset) throws IOException {
+    this.zipFile = zipFile;
+    this.charset = charset == null ? CHARSET_UTF_8 : charset;
+    load(false);
+  }
+
+  public static File getIndexFile(File zipFile) {
+    return new File(zipFile.getPath() + INDEX_FILE_SUFFIX);
+  }
+
+  public int getNumberOfEntries() {
+    return numberOfEntries;
+  }
+
+  /**
+   * @return number of the disk of the end of central directory record, which is the last split file, or 0 if the zip
+   * file is not split
+   */
+  public int getNumberOfThisDisk() {
+    return numberOfThisDisk;
+  }
+
+  /**
+   * @return false if the zip file changed since the index was built
+   */
+  public boolean isUpToDate() {
+    return zipFile.length() == zipFileLength && zipFile.lastModified() == zipFileLastModified;
+  }
+
+  /**
+   * Looks up a file header the same way as {@link HeaderUtil#getFileHeader}: by its exact name, ignoring case,
+   * ignoring case with either separator, and finally ignoring case and separators. Where more than one file header
+   * matches, the first one in the central directory is taken.
+   *
+   * @return a read only file header which decodes its fields from the mapped central directory, or null if there is
+   * none with the name
+   */
+  public FileHeader getFileHeader(String fileName) throws IOException {
+    if (fileName == null || fileName.isEmpty()) {
+      throw new ZipException("file name is null, cannot determine file header for fileName: " + fileName);
+    }
+
+    if (!isUpToDate()) {
+      load(true);
+    }
+
+    int entry = findEntry(fileName);
+    if (entry == -1) {
+      return null;
+    }
+
+    FileHeader fileHeader = readFileHeader(entry);
+    if (fileHeader == null) {
+      // the zip file changed without its length or modification time changing
+      load(true);
+      entry = findEntry(fileName);
+      fileHeader = entry == -1 ? null : readFileHeader(entry);
+    }
+    return fileHeader;
+  }
+
+  private int findEntry(String fileName) {
+    String normalizedName = FileHeaderIndex.normalizeName(fileName);
+    int hash = normalizedName.hashCode();
+
+    int bestEntry = -1;
+    int bestMatch = Integer.MAX_VALUE;
+    for (int slot = getSlot(hash); ; slot = (slot + 1) & (hashTableSize - 1)) {
+      int entry = index.getInt(hashTableOffset + slot * 4) - 1;
+      if (entry == -1) {
+        break;
+      }
+
+      int record = recordsOffset + entry * RECORD_SIZE;
+      if (index.getInt(record + 4) != hash) {
+        continue;
+      }
+
+      int match = getMatch(fileName, normalizedName, readName(record));
+      if (match < bestMatch || (match == bestMatch && entry < bestEntry)) {
+        bestMatch = match;
+        bestEntry = entry;
+      }
+    }
+
+    return bestMatch == Integer.MAX_VALUE ? -1 : bestEntry;
+  }
+
+  /**
+   * @return how closely a name matches the name looked up, lower is closer, or {@link Integer#MAX_VALUE} if it does
+   * not match at all
+   */
+  private int getMatch(String fileName, String normalizedName, String candidate) {
+    if (candidate.equals(fileName)) {
+      return 0;
+    } else if (candidate.equalsIgnoreCase(fileName)) {
+      return 1;
+    } else if (candidate.equalsIgnoreCase(fileName.replace('\\', '/'))) {
+      return 2;
+    } else if (candidate.equalsIgnoreCase(fileName.replace('/', '\\'))) {
+      return 3;
+    } else if (FileHeaderIndex.normalizeName(candidate).equals(normalizedName)) {
+      return 4;
+    }
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * @return the file header of the entry, or null if it does not match the record of the entry
+   */
+  private FileHeader readFileHeader(int entry) throws IOException {
+    if (centralDirectory == null) {
+      try (RandomAccessFile zipRaf = new RandomAccessFile(zipFile, RandomAccessFileMode.READ.getValue())) {
+        if (offsetStartOfCentralDirectory + sizeOfCentralDirectory > zipRaf.length()) {
+          return null;
+        }
+        centralDirectory = zipRaf.getChannel()
+            .map(FileChannel.MapMode.READ_ONLY, offsetStartOfCentralDirectory, sizeOfCentralDirectory)
+            .order(ByteOrder.LITTLE_ENDIAN);
+      }
+    }
+
+    int record = recordsOffset + entry * RECORD_SIZE;
+    int position = index.getInt(record);
+    try {
+      HeaderReader.verifyFileHeader(centralDirectory, position, entry);
+    } catch (ZipException e) {
+      return null;
+    }
+
+    FileHeader fileHeader = new MappedFileHeader(centralDirectory, position, charset);
+    if (fileHeader.getOffsetLocalHeader() != index.getLong(record + 16)
+        || fileHeader.getCompressedSize() != index.getLong(record + 24)
+        || fileHeader.getUncompressedSize() != index.getLong(record + 32)
+        || (int) fileHeader.getCrc() != index.getInt(record + 40)
+        || !readName(record).equals(fileHeader.getFileName())) {
+      return null;
+    }
+    return fileHeader;
+  }
+
+  private String readName(int record) {
+    return new String(HeaderReader.getBytes(index, namesOffset + index.getInt(record + 8), index.getInt(record + 12)),
+        CHARSET_UTF_8);
+  }
+
+  private int getSlot(int hash) {
+    return (hash ^ (hash >>> 16)) & (hashTableSize - 1);
+  }
+
+  /**
+   * Maps the sidecar if it is valid for the zip file, and builds and writes it otherwise
+   */
+  private void load(boolean rebuild) throws IOException {
+    File indexFile = getIndexFile(zipFile);
+    long length = zipFile.length();
+    long lastModified = zipFile.lastModified();
+    centralDirectory = null;
+
+    if (!rebuild && indexFile.exists()) {
+      try (RandomAccessFile indexRaf = new RandomAccessFile(indexFile, RandomAccessFileMode.READ.getValue())) {
+        ByteBuffer mappedIndex = indexRaf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, indexRaf.length())
+            .order(ByteOrder.LITTLE_ENDIAN);
+        if (isValid(mappedIndex, length, lastModified)) {
+          readHeader(mappedIndex);
+          return;
+        }
+      } catch (IOException e) {
+        // an unreadable sidecar is rebuilt like an outdated one
+      }
+    }
+
+    ByteBuffer builtIndex = build(length, lastModified);
+    readHeader(builtIndex);
+    write(indexFile, builtIndex);
+  }
+
+  private boolean isValid(ByteBuffer mappedIndex, long length, long lastModified) throws IOException {
+    if (mappedIndex.capacity() < HEADER_SIZE
+        || mappedIndex.getInt(0) != SIGNATURE
+        || mappedIndex.getInt(4) != VERSION
+        || mappedIndex.getLong(8) != length
+        || mappedIndex.getLong(16) != lastModified) {
+      return false;
+    }
+
+    int zipPathLength = mappedIndex.getInt(48);
+    int charsetNameLength = mappedIndex.getInt(52);
+    if (zipPathLength < 0 || charsetNameLength < 0
+        || (long) HEADER_SIZE + zipPathLength + charsetNameLength > mappedIndex.capacity()) {
+      return false;
+    }
+
+    String zipPath = new String(HeaderReader.getBytes(mappedIndex, HEADER_SIZE, zipPathLength), CHARSET_UTF_8);
+    String charsetName = new String(HeaderReader.getBytes(mappedIndex, HEADER_SIZE + zipPathLength,
+        charsetNameLength), CHARSET_UTF_8);
+    if (!zipPath.equals(zipFile.getCanonicalPath()) || !charsetName.equals(charset.name())) {
+      return false;
+    }
+
+    long expectedSize = (long) HEADER_SIZE + zipPathLength + charsetNameLength
+        + (long) mappedIndex.getInt(36) * RECORD_SIZE + mappedIndex.getInt(44) + (long) mappedIndex.getInt(40) * 4;
+    return expectedSize == mappedIndex.capacity();
+  }
+
+  private void readHeader(ByteBuffer index) {
+    this.index = index;
+    zipFileLength = index.getLong(8);
+    zipFileLastModified = index.getLong(16);
+    offsetStartOfCentralDirectory = index.getLong(24);
+    sizeOfCentralDirectory = index.getInt(32);
+    numberOfEntries = index.getInt(36);
+    hashTableSize = index.getInt(40);
+    numberOfThisDisk = index.getInt(56);
+    recordsOffset = HEADER_SIZE + index.getInt(48) + index.getInt(52);
+    namesOffset = recordsOffset + numberOfEntries * RECORD_SIZE;
+    hashTableOffset = namesOffset + index.getInt(44);
+  }
+
+  private ByteBuffer build(long length, long lastModified) throws IOException {
+    MappedCentralDirectory mappedCentralDirectory;
+    try (RandomAccessFile zipRaf = new RandomAccessFile(zipFile, RandomAccessFileMode.READ.getValue())) {
+      mappedCentralDirectory = new HeaderReader().mapCentralDirectory(zipRaf, charset);
+    }
+
+    if (mappedCentralDirectory.getNumberOfEntries() > Integer.MAX_VALUE / RECORD_SIZE) {
+      throw new ZipException("Too many entries to index: " + mappedCentralDirectory.getNumberOfEntries());
+    }
+
+    int entries = (int) mappedCentralDirectory.getNumberOfEntries();
+    ByteBuffer centralDirectoryBuffer = mappedCentralDirectory.getBuffer();
+    ByteBuffer records = ByteBuffer.allocate(entries * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    ByteArrayOutputStream names = new ByteArrayOutputStream();
+    int tableSize = Integer.highestOneBit(Math.max(16, entries * 2 - 1)) << 1;
+    ByteBuffer table = ByteBuffer.allocate(tableSize * 4).order(ByteOrder.LITTLE_ENDIAN);
+
+    int position = 0;
+    for (int entry = 0; entry < entries; entry++) {
+      FileHeader fileHeader = new MappedFileHeader(centralDirectoryBuffer, position, charset);
+      String fileName = fileHeader.getFileName() == null ? "" : fileHeader.getFileName();
+      byte[] nameBytes = fileName.getBytes(CHARSET_UTF_8);
+      int hash = FileHeaderIndex.normalizeName(fileName).hashCode();
+
+      int record = entry * RECORD_SIZE;
+      records.putInt(record, position);
+      records.putInt(record + 4, hash);
+      records.putInt(record + 8, names.size());
+      records.putInt(record + 12, nameBytes.length);
+      records.putLong(record + 16, fileHeader.getOffsetLocalHeader());
+      records.putLong(record + 24, fileHeader.getCompressedSize());
+      records.putLong(record + 32, fileHeader.getUncompressedSize());
+      records.putInt(record + 40, (int) fileHeader.getCrc());
+      names.write(nameBytes);
+
+      if (!fileName.isEmpty()) {
+        int slot = (hash ^ (hash >>> 16)) & (tableSize - 1);
+        while (table.getInt(slot * 4) != 0) {
+          slot = (slot + 1) & (tableSize - 1);
+        }
+        table.putInt(slot * 4, entry + 1);
+      }
+
+      position = HeaderReader.getEndOfFileHeader(centralDirectoryBuffer, position);
+    }
+
+    byte[] zipPath = zipFile.getCanonicalPath().getBytes(CHARSET_UTF_8);
+    byte[] charsetName = charset.name().getBytes(CHARSET_UTF_8);
+    long indexSize = (long) HEADER_SIZE + zipPath.length + charsetName.length + records.capacity() + names.size()
+        + table.capacity();
+    if (indexSize > Integer.MAX_VALUE) {
+      throw new ZipException("Central directory index too large: " + indexSize + " bytes");
+    }
+
+    ByteBuffer builtIndex = ByteBuffer.allocate((int) indexSize).order(ByteOrder.LITTLE_ENDIAN);
+    builtIndex.putInt(SIGNATURE);
+    builtIndex.putInt(VERSION);
+    builtIndex.putLong(length);
+    builtIndex.putLong(lastModified);
+    builtIndex.putLong(mappedCentralDirectory.getOffsetStartOfCentralDirectory());
+    builtIndex.putInt(centralDirectoryBuffer.limit());
+    builtIndex.putInt(entries);
+    builtIndex.putInt(tableSize);
+    builtIndex.putInt(names.size());
+    builtIndex.putInt(zipPath.length);
+    builtIndex.putInt(charsetName.length);
+    builtIndex.putInt(mappedCentralDirectory.getNumberOfThisDisk());
+    builtIndex.put(zipPath);
+    builtIndex.put(charsetName);
+    builtIndex.put(records.array());
+    builtIndex.put(names.toByteArray());
+    builtIndex.put(table.array());
+    return builtIndex;
+  }
+
+  /**
+   * Writes the sidecar to a temporary file and moves it into place, so that a sidecar is never seen half written
+   */
+  private void write(File indexFile, ByteBuffer builtIndex) {
+    File temporaryFile = null;
+    try {
+      temporaryFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+      try (RandomAccessFile temporaryRaf = new RandomAccessFile(temporaryFile, RandomAccessFileMode.WRITE.getValue())) {
+        ByteBuffer source = builtIndex.duplicate();
+        source.clear();
+        while (source.hasRemaining()) {
+          temporaryRaf.getChannel().write(source);
+        }
+      }
+
+      try {
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      // the index still works from memory, it is only rebuilt on the next open
+      if (temporaryFile != null) {
+        temporaryFile.delete();
+      }
+    }
+  }
+}
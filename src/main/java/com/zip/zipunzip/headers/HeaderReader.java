@@ -4,25 +4,42 @@ package com.zip.zipunzip.headers;
 
 import static com.zip.zipunzip.headers.HeaderUtil.decodeStringWithCharset;
 import static com.zip.zipunzip.util.BitUtils.isBitSet;
+import static com.zip.zipunzip.util.InternalZipConstants.CENHDR;
 import static com.zip.zipunzip.util.InternalZipConstants.ENDHDR;
+import static com.zip.zipunzip.util.InternalZipConstants.MAX_ALLOWED_ZIP_COMMENT_LENGTH;
+import static com.zip.zipunzip.util.InternalZipConstants.ZIP64_ENDHDR;
+import static com.zip.zipunzip.util.InternalZipConstants.ZIP64_ENDLOCHDR;
+import static com.zip.zipunzip.util.InternalZipConstants.ZIP_64_NUMBER_OF_ENTRIES_LIMIT;
+import static com.zip.zipunzip.util.InternalZipConstants.ZIP_64_SIZE_LIMIT;
 import static com.zip.zipunzip.util.ZipUtil.readFully;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.AESExtraDataRecord;
+import com.zip.zipunzip.model.AbstractFileHeader;
 import com.zip.zipunzip.model.CentralDirectory;
 import com.zip.zipunzip.model.DataDescriptor;
 import com.zip.zipunzip.model.DigitalSignature;
 import com.zip.zipunzip.model.EndOfCentralDirectoryRecord;
+import com.zip.zipunzip.model.ExtraDataRecord;
 import com.zip.zipunzip.model.FileHeader;
 import com.zip.zipunzip.model.LocalFileHeader;
+import com.zip.zipunzip.model.Zip64EndOfCentralDirectoryLocator;
+import com.zip.zipunzip.model.Zip64EndOfCentralDirectoryRecord;
+import com.zip.zipunzip.model.Zip64ExtendedInfo;
 import com.zip.zipunzip.model.ZipModel;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import com.zip.zipunzip.model.enums.AesVersion;
 import com.zip.zipunzip.model.enums.CompressionMethod;
 import com.zip.zipunzip.model.enums.EncryptionMethod;
 import com.zip.zipunzip.util.RawIO;
@@ -35,9 +52,46 @@ public class HeaderReader {
   private ZipModel zipModel;
   private RawIO rawIO = new RawIO();
   private byte[] intBuff = new byte[4];
+  private long offsetEndOfCentralDirectory;
 
   public ZipModel readAllHeaders(RandomAccessFile zipRaf, Charset charset) throws IOException {
+    readEndOfCentralDirectory(zipRaf, charset);
 
+    if (zipModel.getEndOfCentralDirectoryRecord().getTotalNumberOfEntriesInCentralDirectory() == 0) {
+      return zipModel;
+    }
+
+    zipModel.setCentralDirectory(readCentralDirectory(zipRaf, rawIO, charset));
+
+    return zipModel;
+  }
+
+  /**
+   * Maps the central directory into memory instead of reading it into file headers. The entries are validated here,
+   * so that they can be walked later on without further checks.
+   */
+  public MappedCentralDirectory mapCentralDirectory(RandomAccessFile zipRaf, Charset charset) throws IOException {
+    readEndOfCentralDirectory(zipRaf, charset);
+
+    long offSetStartCentralDir = getOffsetStartOfCentralDirectory();
+    long centralDirEntryCount = getNumberOfEntriesInCentralDirectory();
+    int sizeOfCentralDir = getSizeOfCentralDirectory(offSetStartCentralDir);
+
+    ByteBuffer centralDirBuffer = zipRaf.getChannel()
+        .map(FileChannel.MapMode.READ_ONLY, offSetStartCentralDir, sizeOfCentralDir)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    int pos = 0;
+    for (int i = 0; i < centralDirEntryCount; i++) {
+      verifyFileHeader(centralDirBuffer, pos, i);
+      pos = getEndOfFileHeader(centralDirBuffer, pos);
+    }
+
+    return new MappedCentralDirectory(centralDirBuffer, offSetStartCentralDir, centralDirEntryCount,
+        zipModel.getEndOfCentralDirectoryRecord().getNumberOfThisDisk(), charset);
+  }
+
+  private void readEndOfCentralDirectory(RandomAccessFile zipRaf, Charset charset) throws IOException {
     if (zipRaf.length() < ENDHDR) {
       throw new ZipException("Zip file size less than minimum expected zip file size. " +
           "Probably not a zip file or a corrupted zip file");
@@ -52,162 +106,443 @@ public class HeaderReader {
     } catch (IOException e) {
       throw new ZipException("Zip headers not found. Probably not a zip file or a corrupted zip file", e);
     }
+  }
 
-    if (zipModel.getEndOfCentralDirectoryRecord().getTotalNumberOfEntriesInCentralDirectory() == 0) {
-      return zipModel;
+  /**
+   * Reads the end of the file in one go, as the end of central directory record is followed by at most 64 KB of
+   * comment, and looks for the record in that buffer rather than seeking to and reading every position separately
+   */
+  private EndOfCentralDirectoryRecord readEndOfCentralDirectoryRecord(RandomAccessFile zipRaf, RawIO rawIO, Charset charset)
+      throws IOException {
+    long zipFileLength = zipRaf.length();
+    byte[] tail = new byte[(int) Math.min(zipFileLength, ENDHDR + MAX_ALLOWED_ZIP_COMMENT_LENGTH)];
+    long tailOffset = zipFileLength - tail.length;
+    zipRaf.seek(tailOffset);
+    zipRaf.readFully(tail);
+
+    int pos = findEndOfCentralDirectoryRecord(tail, rawIO);
+    if (pos == -1) {
+      throw new ZipException("Zip headers not found. Probably not a zip file");
     }
 
-    zipModel.setCentralDirectory(readCentralDirectory(zipRaf, rawIO, charset));
+    EndOfCentralDirectoryRecord endOfCentralDirectoryRecord = new EndOfCentralDirectoryRecord();
+    endOfCentralDirectoryRecord.setSignature(HeaderSignature.END_OF_CENTRAL_DIRECTORY);
+    endOfCentralDirectoryRecord.setNumberOfThisDisk(rawIO.readShortLittleEndian(tail, pos + 4));
+    endOfCentralDirectoryRecord.setNumberOfThisDiskStartOfCentralDir(rawIO.readShortLittleEndian(tail, pos + 6));
+    endOfCentralDirectoryRecord.setTotalNumberOfEntriesInCentralDirectoryOnThisDisk(
+        rawIO.readShortLittleEndian(tail, pos + 8));
+    endOfCentralDirectoryRecord.setTotalNumberOfEntriesInCentralDirectory(rawIO.readShortLittleEndian(tail, pos + 10));
+    endOfCentralDirectoryRecord.setSizeOfCentralDirectory(rawIO.readIntLittleEndian(tail, pos + 12));
+    endOfCentralDirectoryRecord.setOffsetOfStartOfCentralDirectory(
+        rawIO.readIntLittleEndian(tail, pos + 16) & 0xFFFFFFFFL);
+
+    int commentLength = Math.min(rawIO.readShortLittleEndian(tail, pos + 20), tail.length - pos - ENDHDR);
+    if (commentLength > 0) {
+      byte[] commentBuff = new byte[commentLength];
+      System.arraycopy(tail, pos + ENDHDR, commentBuff, 0, commentLength);
+      endOfCentralDirectoryRecord.setComment(decodeStringWithCharset(commentBuff, false, charset));
+    }
 
-    return zipModel;
+    offsetEndOfCentralDirectory = tailOffset + pos;
+    zipModel.setSplitArchive(endOfCentralDirectoryRecord.getNumberOfThisDisk() > 0);
+    readZip64EndOfCentralDirectory(zipRaf, tail, tailOffset, offsetEndOfCentralDirectory, rawIO);
+    return endOfCentralDirectoryRecord;
   }
 
-  private EndOfCentralDirectoryRecord readEndOfCentralDirectoryRecord(RandomAccessFile zipRaf, RawIO rawIO, Charset charset)
-      throws IOException {
-    long zipFileLengthWithoutEndHeader = zipRaf.length() - ENDHDR;
-    long pos = zipFileLengthWithoutEndHeader;
+  /**
+   * @return position of the end of central directory record in the buffer, or -1 if there is none. The last record
+   * whose comment ends exactly at the end of the file is taken if there is one, otherwise the last record.
+   */
+  private int findEndOfCentralDirectoryRecord(byte[] tail, RawIO rawIO) {
+    int lastSignaturePosition = -1;
 
-    EndOfCentralDirectoryRecord endOfCentralDirectoryRecord = new EndOfCentralDirectoryRecord();
+    for (int pos = tail.length - ENDHDR; pos >= 0; pos--) {
+      if (tail[pos] != 'P' || tail[pos + 1] != 'K' || tail[pos + 2] != 5 || tail[pos + 3] != 6) {
+        continue;
+      }
+
+      if (pos + ENDHDR + rawIO.readShortLittleEndian(tail, pos + 20) == tail.length) {
+        return pos;
+      }
+      if (lastSignaturePosition == -1) {
+        lastSignaturePosition = pos;
+      }
+    }
 
-    int counter = 0;
-    int headerSignature;
-    do {
-      zipRaf.seek(pos--);
-      counter++;
-    } while (((headerSignature = rawIO.readIntLittleEndian(zipRaf))
-        != HeaderSignature.END_OF_CENTRAL_DIRECTORY.getValue()) && counter <= zipFileLengthWithoutEndHeader);
+    return lastSignaturePosition;
+  }
 
-    if (headerSignature != HeaderSignature.END_OF_CENTRAL_DIRECTORY.getValue()) {
-      throw new ZipException("Zip headers not found. Probably not a zip file");
+  /**
+   * Reads the zip64 end of central directory locator, which is right in front of the end of central directory record,
+   * and the zip64 end of central directory record it points to, if the zip file has them
+   */
+  private void readZip64EndOfCentralDirectory(RandomAccessFile zipRaf, byte[] tail, long tailOffset,
+                                              long offsetEndOfCentralDirectory, RawIO rawIO) throws IOException {
+    long offsetLocator = offsetEndOfCentralDirectory - ZIP64_ENDLOCHDR;
+    if (offsetLocator < 0) {
+      return;
     }
 
-    endOfCentralDirectoryRecord.setSignature(HeaderSignature.END_OF_CENTRAL_DIRECTORY);
-    endOfCentralDirectoryRecord.setNumberOfThisDisk(rawIO.readShortLittleEndian(zipRaf));
-    endOfCentralDirectoryRecord.setNumberOfThisDiskStartOfCentralDir(rawIO.readShortLittleEndian(zipRaf));
-    endOfCentralDirectoryRecord.setTotalNumberOfEntriesInCentralDirectoryOnThisDisk(
-        rawIO.readShortLittleEndian(zipRaf));
-    endOfCentralDirectoryRecord.setTotalNumberOfEntriesInCentralDirectory(rawIO.readShortLittleEndian(zipRaf));
-    endOfCentralDirectoryRecord.setSizeOfCentralDirectory(rawIO.readIntLittleEndian(zipRaf));
+    byte[] locatorBuff;
+    int locatorPos;
+    if (offsetLocator >= tailOffset) {
+      locatorBuff = tail;
+      locatorPos = (int) (offsetLocator - tailOffset);
+    } else {
+      locatorBuff = new byte[ZIP64_ENDLOCHDR];
+      locatorPos = 0;
+      zipRaf.seek(offsetLocator);
+      zipRaf.readFully(locatorBuff);
+    }
 
-    zipRaf.readFully(intBuff);
-    endOfCentralDirectoryRecord.setOffsetOfStartOfCentralDirectory(rawIO.readLongLittleEndian(intBuff, 0));
+    if (rawIO.readIntLittleEndian(locatorBuff, locatorPos)
+        != (int) HeaderSignature.ZIP64_END_CENTRAL_DIRECTORY_LOCATOR.getValue()) {
+      return;
+    }
 
-    zipModel.setSplitArchive(endOfCentralDirectoryRecord.getNumberOfThisDisk() > 0);
-    return endOfCentralDirectoryRecord;
+    Zip64EndOfCentralDirectoryLocator zip64EndOfCentralDirectoryLocator = new Zip64EndOfCentralDirectoryLocator();
+    zip64EndOfCentralDirectoryLocator.setSignature(HeaderSignature.ZIP64_END_CENTRAL_DIRECTORY_LOCATOR);
+    zip64EndOfCentralDirectoryLocator.setNumberOfDiskStartOfZip64EndOfCentralDirectoryRecord(
+        rawIO.readIntLittleEndian(locatorBuff, locatorPos + 4));
+    zip64EndOfCentralDirectoryLocator.setOffsetZip64EndOfCentralDirectoryRecord(
+        readLongLittleEndian(locatorBuff, locatorPos + 8, rawIO));
+    zip64EndOfCentralDirectoryLocator.setTotalNumberOfDiscs(rawIO.readIntLittleEndian(locatorBuff, locatorPos + 16));
+
+    long offsetRecord = zip64EndOfCentralDirectoryLocator.getOffsetZip64EndOfCentralDirectoryRecord();
+    if (offsetRecord < 0 || offsetRecord > offsetLocator - ZIP64_ENDHDR) {
+      throw new ZipException("Invalid offset for zip64 end of central directory record");
+    }
+
+    byte[] recordBuff;
+    int recordPos;
+    if (offsetRecord >= tailOffset) {
+      recordBuff = tail;
+      recordPos = (int) (offsetRecord - tailOffset);
+    } else {
+      recordBuff = new byte[ZIP64_ENDHDR];
+      recordPos = 0;
+      zipRaf.seek(offsetRecord);
+      zipRaf.readFully(recordBuff);
+    }
+
+    if (rawIO.readIntLittleEndian(recordBuff, recordPos)
+        != (int) HeaderSignature.ZIP64_END_CENTRAL_DIRECTORY_RECORD.getValue()) {
+      throw new ZipException("Invalid signature for zip64 end of central directory record");
+    }
+
+    Zip64EndOfCentralDirectoryRecord zip64EndOfCentralDirectoryRecord = new Zip64EndOfCentralDirectoryRecord();
+    zip64EndOfCentralDirectoryRecord.setSignature(HeaderSignature.ZIP64_END_CENTRAL_DIRECTORY_RECORD);
+    zip64EndOfCentralDirectoryRecord.setSizeOfZip64EndCentralDirectoryRecord(
+        readLongLittleEndian(recordBuff, recordPos + 4, rawIO));
+    zip64EndOfCentralDirectoryRecord.setVersionMadeBy(rawIO.readShortLittleEndian(recordBuff, recordPos + 12));
+    zip64EndOfCentralDirectoryRecord.setVersionNeededToExtract(rawIO.readShortLittleEndian(recordBuff, recordPos + 14));
+    zip64EndOfCentralDirectoryRecord.setNumberOfThisDisk(rawIO.readIntLittleEndian(recordBuff, recordPos + 16));
+    zip64EndOfCentralDirectoryRecord.setNumberOfThisDiskStartOfCentralDirectory(
+        rawIO.readIntLittleEndian(recordBuff, recordPos + 20));
+    zip64EndOfCentralDirectoryRecord.setTotalNumberOfEntriesInCentralDirectoryOnThisDisk(
+        readLongLittleEndian(recordBuff, recordPos + 24, rawIO));
+    zip64EndOfCentralDirectoryRecord.setTotalNumberOfEntriesInCentralDirectory(
+        readLongLittleEndian(recordBuff, recordPos + 32, rawIO));
+    zip64EndOfCentralDirectoryRecord.setSizeOfCentralDirectory(readLongLittleEndian(recordBuff, recordPos + 40, rawIO));
+    zip64EndOfCentralDirectoryRecord.setOffsetStartCentralDirectoryWRTStartDiskNumber(
+        readLongLittleEndian(recordBuff, recordPos + 48, rawIO));
+
+    zipModel.setZip64EndOfCentralDirectoryLocator(zip64EndOfCentralDirectoryLocator);
+    zipModel.setZip64EndOfCentralDirectoryRecord(zip64EndOfCentralDirectoryRecord);
+    zipModel.setZip64Format(true);
   }
 
+  private long readLongLittleEndian(byte[] buff, int pos, RawIO rawIO) {
+    return (rawIO.readIntLittleEndian(buff, pos) & 0xFFFFFFFFL)
+        | (rawIO.readIntLittleEndian(buff, pos + 4) & 0xFFFFFFFFL) << 32;
+  }
+
+  /**
+   * Reads the whole central directory with one read and parses the file headers from that buffer
+   */
   private CentralDirectory readCentralDirectory(RandomAccessFile zipRaf, RawIO rawIO, Charset charset) throws IOException {
     CentralDirectory centralDirectory = new CentralDirectory();
-    List<FileHeader> fileHeaders = new ArrayList<>();
 
-    long offSetStartCentralDir = getOffsetCentralDirectory(zipModel);
-    long centralDirEntryCount = getNumberOfEntriesInCentralDirectory(zipModel);
-
-    if (zipModel.isZip64Format()) {
-      offSetStartCentralDir = zipModel.getZip64EndOfCentralDirectoryRecord()
-          .getOffsetStartCentralDirectoryWRTStartDiskNumber();
-      centralDirEntryCount = (int) zipModel.getZip64EndOfCentralDirectoryRecord()
-          .getTotalNumberOfEntriesInCentralDirectory();
-    }
+    long offSetStartCentralDir = getOffsetStartOfCentralDirectory();
+    long centralDirEntryCount = getNumberOfEntriesInCentralDirectory();
+    int sizeOfCentralDir = getSizeOfCentralDirectory(offSetStartCentralDir);
 
+    byte[] centralDirBytes = new byte[sizeOfCentralDir];
     zipRaf.seek(offSetStartCentralDir);
+    zipRaf.readFully(centralDirBytes);
+    ByteBuffer centralDirBuffer = ByteBuffer.wrap(centralDirBytes).order(ByteOrder.LITTLE_ENDIAN);
 
-    byte[] shortBuff = new byte[2];
-    byte[] intBuff = new byte[4];
+    List<FileHeader> fileHeaders = new ArrayList<>((int) Math.min(centralDirEntryCount, sizeOfCentralDir / CENHDR));
+    int pos = 0;
 
     for (int i = 0; i < centralDirEntryCount; i++) {
+      verifyFileHeader(centralDirBuffer, pos, i);
+
       FileHeader fileHeader = new FileHeader();
-      if (rawIO.readIntLittleEndian(zipRaf) != HeaderSignature.CENTRAL_DIRECTORY.getValue()) {
-        throw new ZipException("Expected central directory entry not found (#" + (i + 1) + ")");
+      readFixedFields(centralDirBuffer, pos, fileHeader);
+      fileHeader.setGeneralPurposeFlag(getBytes(centralDirBuffer, pos + 8, 2));
+      fileHeader.setCrcRawData(getBytes(centralDirBuffer, pos + 16, 4));
+      fileHeader.setInternalFileAttributes(getBytes(centralDirBuffer, pos + 36, 2));
+      fileHeader.setExternalFileAttributes(getBytes(centralDirBuffer, pos + 38, 4));
+
+      String fileName = readFileName(centralDirBuffer, pos, fileHeader, charset);
+      fileHeader.setFileName(fileName);
+      fileHeader.setDirectory(isDirectory(fileName));
+
+      readExtraDataRecords(centralDirBuffer, pos + CENHDR + fileHeader.getFileNameLength(),
+          fileHeader.getExtraFieldLength(), fileHeader);
+      fileHeader.setFileComment(readFileComment(centralDirBuffer, pos, fileHeader, charset));
+      readEncryptionMethod(fileHeader);
+
+      fileHeaders.add(fileHeader);
+      pos = getEndOfFileHeader(centralDirBuffer, pos);
+    }
+
+    centralDirectory.setFileHeaders(fileHeaders);
+
+    DigitalSignature digitalSignature = new DigitalSignature();
+    if (pos + 6 <= sizeOfCentralDir
+        && centralDirBuffer.getInt(pos) == (int) HeaderSignature.DIGITAL_SIGNATURE.getValue()) {
+      digitalSignature.setSignature(HeaderSignature.DIGITAL_SIGNATURE);
+      digitalSignature.setSizeOfData(getUnsignedShort(centralDirBuffer, pos + 4));
+
+      int sizeOfData = Math.min(digitalSignature.getSizeOfData(), sizeOfCentralDir - pos - 6);
+      if (sizeOfData > 0) {
+        digitalSignature.setSignatureData(new String(centralDirBytes, pos + 6, sizeOfData));
       }
-      fileHeader.setSignature(HeaderSignature.CENTRAL_DIRECTORY);
-      fileHeader.setVersionMadeBy(rawIO.readShortLittleEndian(zipRaf));
-      fileHeader.setVersionNeededToExtract(rawIO.readShortLittleEndian(zipRaf));
+    }
 
-      byte[] generalPurposeFlags = new byte[2];
-      zipRaf.readFully(generalPurposeFlags);
-      fileHeader.setEncrypted(isBitSet(generalPurposeFlags[0], 0));
-      fileHeader.setDataDescriptorExists(isBitSet(generalPurposeFlags[0], 3));
-      fileHeader.setFileNameUTF8Encoded(isBitSet(generalPurposeFlags[1], 3));
-      fileHeader.setGeneralPurposeFlag(generalPurposeFlags.clone());
+    return centralDirectory;
+  }
 
-      fileHeader.setCompressionMethod(CompressionMethod.getCompressionMethodFromCode(rawIO.readShortLittleEndian(
-          zipRaf)));
-      fileHeader.setLastModifiedTime(rawIO.readIntLittleEndian(zipRaf));
+  private long getOffsetStartOfCentralDirectory() {
+    if (zipModel.isZip64Format()) {
+      return zipModel.getZip64EndOfCentralDirectoryRecord().getOffsetStartCentralDirectoryWRTStartDiskNumber();
+    }
+    return zipModel.getEndOfCentralDirectoryRecord().getOffsetOfStartOfCentralDirectory();
+  }
 
-      zipRaf.readFully(intBuff);
-      fileHeader.setCrc(rawIO.readLongLittleEndian(intBuff, 0));
-      fileHeader.setCrcRawData(intBuff);
+  private long getNumberOfEntriesInCentralDirectory() {
+    if (zipModel.isZip64Format()) {
+      return zipModel.getZip64EndOfCentralDirectoryRecord().getTotalNumberOfEntriesInCentralDirectory();
+    }
+    return zipModel.getEndOfCentralDirectoryRecord().getTotalNumberOfEntriesInCentralDirectory();
+  }
 
-      fileHeader.setCompressedSize(rawIO.readLongLittleEndian(zipRaf, 4));
-      fileHeader.setUncompressedSize(rawIO.readLongLittleEndian(zipRaf, 4));
+  /**
+   * The central directory ends where the zip64 end of central directory record, or else the end of central directory
+   * record, starts, so a wrong size in those records cannot cut it short
+   */
+  private int getSizeOfCentralDirectory(long offSetStartCentralDir) throws ZipException {
+    long offsetEndOfCentralDir = offsetEndOfCentralDirectory;
+    if (zipModel.isZip64Format()) {
+      offsetEndOfCentralDir = zipModel.getZip64EndOfCentralDirectoryLocator()
+          .getOffsetZip64EndOfCentralDirectoryRecord();
+    }
 
-      int fileNameLength = rawIO.readShortLittleEndian(zipRaf);
-      fileHeader.setFileNameLength(fileNameLength);
+    long sizeOfCentralDir = offsetEndOfCentralDir - offSetStartCentralDir;
+    if (offSetStartCentralDir < 0 || sizeOfCentralDir < 0) {
+      throw new ZipException("Invalid offset for start of central directory");
+    }
+    if (sizeOfCentralDir > Integer.MAX_VALUE - 8) {
+      throw new ZipException("Central directory too large: " + sizeOfCentralDir + " bytes");
+    }
+    return (int) sizeOfCentralDir;
+  }
 
-      fileHeader.setExtraFieldLength(rawIO.readShortLittleEndian(zipRaf));
+  /**
+   * Checks that a file header starts at the position and that it ends within the central directory
+   *
+   * @param i index of the file header, for the error message
+   */
+  static void verifyFileHeader(ByteBuffer buffer, int pos, int i) throws ZipException {
+    if (pos + CENHDR > buffer.limit()
+        || buffer.getInt(pos) != (int) HeaderSignature.CENTRAL_DIRECTORY.getValue()) {
+      throw new ZipException("Expected central directory entry not found (#" + (i + 1) + ")");
+    }
+    if (getEndOfFileHeader(buffer, pos) > buffer.limit()) {
+      throw new ZipException("Central directory entry exceeds the central directory (#" + (i + 1) + ")");
+    }
+  }
 
-      int fileCommentLength = rawIO.readShortLittleEndian(zipRaf);
-      fileHeader.setFileCommentLength(fileCommentLength);
+  static int getEndOfFileHeader(ByteBuffer buffer, int pos) {
+    return pos + CENHDR + getUnsignedShort(buffer, pos + 28) + getUnsignedShort(buffer, pos + 30)
+        + getUnsignedShort(buffer, pos + 32);
+  }
 
-      fileHeader.setDiskNumberStart(rawIO.readShortLittleEndian(zipRaf));
+  /**
+   * Reads the fields of the file header at the position which have a fixed size and need no allocation
+   */
+  static void readFixedFields(ByteBuffer buffer, int pos, FileHeader fileHeader) throws ZipException {
+    fileHeader.setSignature(HeaderSignature.CENTRAL_DIRECTORY);
+    fileHeader.setVersionMadeBy(getUnsignedShort(buffer, pos + 4));
+    fileHeader.setVersionNeededToExtract(getUnsignedShort(buffer, pos + 6));
+
+    fileHeader.setEncrypted(isBitSet(buffer.get(pos + 8), 0));
+    fileHeader.setDataDescriptorExists(isBitSet(buffer.get(pos + 8), 3));
+    fileHeader.setFileNameUTF8Encoded(isBitSet(buffer.get(pos + 9), 3));
+
+    fileHeader.setCompressionMethod(CompressionMethod.getCompressionMethodFromCode(getUnsignedShort(buffer, pos + 10)));
+    fileHeader.setLastModifiedTime(buffer.getInt(pos + 12));
+    fileHeader.setCrc(getUnsignedInt(buffer, pos + 16));
+    fileHeader.setCompressedSize(getUnsignedInt(buffer, pos + 20));
+    fileHeader.setUncompressedSize(getUnsignedInt(buffer, pos + 24));
+    fileHeader.setFileNameLength(getUnsignedShort(buffer, pos + 28));
+    fileHeader.setExtraFieldLength(getUnsignedShort(buffer, pos + 30));
+    fileHeader.setFileCommentLength(getUnsignedShort(buffer, pos + 32));
+    fileHeader.setDiskNumberStart(getUnsignedShort(buffer, pos + 34));
+    fileHeader.setOffsetLocalHeader(getUnsignedInt(buffer, pos + 42));
+  }
 
-      zipRaf.readFully(shortBuff);
-      fileHeader.setInternalFileAttributes(shortBuff.clone());
+  static String readFileName(ByteBuffer buffer, int pos, FileHeader fileHeader, Charset charset) {
+    if (fileHeader.getFileNameLength() == 0) {
+      return null;
+    }
 
-      zipRaf.readFully(intBuff);
-      fileHeader.setExternalFileAttributes(intBuff.clone());
+    String fileName = decodeStringWithCharset(getBytes(buffer, pos + CENHDR, fileHeader.getFileNameLength()),
+        fileHeader.isFileNameUTF8Encoded(), charset);
 
-      zipRaf.readFully(intBuff);
-      fileHeader.setOffsetLocalHeader(rawIO.readLongLittleEndian(intBuff, 0));
+    if (fileName.contains(":\\")) {
+      fileName = fileName.substring(fileName.indexOf(":\\") + 2);
+    }
+    return fileName;
+  }
 
-      if (fileNameLength > 0) {
-        byte[] fileNameBuff = new byte[fileNameLength];
-        zipRaf.readFully(fileNameBuff);
-        String fileName = decodeStringWithCharset(fileNameBuff, fileHeader.isFileNameUTF8Encoded(), charset);
+  static boolean isDirectory(String fileName) {
+    return fileName != null && (fileName.endsWith("/") || fileName.endsWith("\\"));
+  }
 
-        if (fileName.contains(":\\")) {
-          fileName = fileName.substring(fileName.indexOf(":\\") + 2);
-        }
+  static String readFileComment(ByteBuffer buffer, int pos, FileHeader fileHeader, Charset charset) {
+    if (fileHeader.getFileCommentLength() == 0) {
+      return null;
+    }
 
-        fileHeader.setFileName(fileName);
-        fileHeader.setDirectory(fileName.endsWith("/") || fileName.endsWith("\\"));
+    int offsetFileComment = pos + CENHDR + fileHeader.getFileNameLength() + fileHeader.getExtraFieldLength();
+    return decodeStringWithCharset(getBytes(buffer, offsetFileComment, fileHeader.getFileCommentLength()),
+        fileHeader.isFileNameUTF8Encoded(), charset);
+  }
+
+  static void readEncryptionMethod(FileHeader fileHeader) {
+    if (fileHeader.isEncrypted()) {
+      if (fileHeader.getAesExtraDataRecord() != null) {
+        fileHeader.setEncryptionMethod(EncryptionMethod.AES);
       } else {
-        fileHeader.setFileName(null);
+        fileHeader.setEncryptionMethod(EncryptionMethod.ZIP_STANDARD);
       }
+    }
+  }
 
-      if (fileCommentLength > 0) {
-        byte[] fileCommentBuff = new byte[fileCommentLength];
-        zipRaf.readFully(fileCommentBuff);
-        fileHeader.setFileComment(decodeStringWithCharset(fileCommentBuff, fileHeader.isFileNameUTF8Encoded(), charset));
-      }
+  static byte[] getBytes(ByteBuffer buffer, int pos, int length) {
+    byte[] bytes = new byte[length];
+    ((ByteBuffer) buffer.duplicate().position(pos)).get(bytes);
+    return bytes;
+  }
 
-      if (fileHeader.isEncrypted()) {
-        if (fileHeader.getAesExtraDataRecord() != null) {
-          fileHeader.setEncryptionMethod(EncryptionMethod.AES);
-        } else {
-          fileHeader.setEncryptionMethod(EncryptionMethod.ZIP_STANDARD);
-        }
+  /**
+   * Reads all extra data records of a file header, and from those the zip64 extended information and the aes
+   * extra data record
+   */
+  static void readExtraDataRecords(ByteBuffer buffer, int pos, int extraFieldLength, AbstractFileHeader fileHeader)
+      throws ZipException {
+    if (extraFieldLength < 4) {
+      return;
+    }
+
+    List<ExtraDataRecord> extraDataRecords = new ArrayList<>();
+    int end = pos + extraFieldLength;
+    while (pos + 4 <= end) {
+      ExtraDataRecord extraDataRecord = new ExtraDataRecord();
+      extraDataRecord.setHeader(getUnsignedShort(buffer, pos));
+      int sizeOfData = Math.min(getUnsignedShort(buffer, pos + 2), end - pos - 4);
+      extraDataRecord.setSizeOfData(sizeOfData);
+
+      extraDataRecord.setData(getBytes(buffer, pos + 4, sizeOfData));
+
+      if (extraDataRecord.getHeader() == HeaderSignature.ZIP64_EXTRA_FIELD_SIGNATURE.getValue()) {
+        readZip64ExtendedInfo(buffer, pos + 4, sizeOfData, fileHeader);
+      } else if (extraDataRecord.getHeader() == HeaderSignature.AES_EXTRA_DATA_RECORD.getValue()) {
+        readAesExtraDataRecord(buffer, pos + 4, sizeOfData, fileHeader);
       }
 
-      fileHeaders.add(fileHeader);
+      extraDataRecords.add(extraDataRecord);
+      pos += 4 + sizeOfData;
     }
 
-    centralDirectory.setFileHeaders(fileHeaders);
+    fileHeader.setExtraDataRecords(extraDataRecords);
+  }
 
-    DigitalSignature digitalSignature = new DigitalSignature();
-    if (rawIO.readIntLittleEndian(zipRaf) == HeaderSignature.DIGITAL_SIGNATURE.getValue()) {
-      digitalSignature.setSignature(HeaderSignature.DIGITAL_SIGNATURE);
-      digitalSignature.setSizeOfData(rawIO.readShortLittleEndian(zipRaf));
+  /**
+   * The zip64 extended information holds, in this order, only those of the uncompressed size, compressed size,
+   * offset of the local header and disk number start which do not fit into the header
+   */
+  private static void readZip64ExtendedInfo(ByteBuffer buffer, int pos, int sizeOfData, AbstractFileHeader fileHeader) {
+    Zip64ExtendedInfo zip64ExtendedInfo = new Zip64ExtendedInfo();
+    zip64ExtendedInfo.setSignature(HeaderSignature.ZIP64_EXTRA_FIELD_SIGNATURE);
+    zip64ExtendedInfo.setSize(sizeOfData);
+
+    int end = pos + sizeOfData;
+    if (fileHeader.getUncompressedSize() == ZIP_64_SIZE_LIMIT && pos + 8 <= end) {
+      zip64ExtendedInfo.setUncompressedSize(buffer.getLong(pos));
+      fileHeader.setUncompressedSize(zip64ExtendedInfo.getUncompressedSize());
+      pos += 8;
+    }
+    if (fileHeader.getCompressedSize() == ZIP_64_SIZE_LIMIT && pos + 8 <= end) {
+      zip64ExtendedInfo.setCompressedSize(buffer.getLong(pos));
+      fileHeader.setCompressedSize(zip64ExtendedInfo.getCompressedSize());
+      pos += 8;
+    }
 
-      if (digitalSignature.getSizeOfData() > 0) {
-        byte[] signatureDataBuff = new byte[digitalSignature.getSizeOfData()];
-        zipRaf.readFully(signatureDataBuff);
-        digitalSignature.setSignatureData(new String(signatureDataBuff));
+    if (fileHeader instanceof FileHeader) {
+      FileHeader centralDirectoryFileHeader = (FileHeader) fileHeader;
+      if (centralDirectoryFileHeader.getOffsetLocalHeader() == ZIP_64_SIZE_LIMIT && pos + 8 <= end) {
+        zip64ExtendedInfo.setOffsetLocalHeader(buffer.getLong(pos));
+        centralDirectoryFileHeader.setOffsetLocalHeader(zip64ExtendedInfo.getOffsetLocalHeader());
+        pos += 8;
+      }
+      if (centralDirectoryFileHeader.getDiskNumberStart() == ZIP_64_NUMBER_OF_ENTRIES_LIMIT && pos + 4 <= end) {
+        zip64ExtendedInfo.setDiskNumberStart(buffer.getInt(pos));
+        centralDirectoryFileHeader.setDiskNumberStart(zip64ExtendedInfo.getDiskNumberStart());
       }
     }
 
-    return centralDirectory;
+    fileHeader.setZip64ExtendedInfo(zip64ExtendedInfo);
+  }
+
+  private static void readAesExtraDataRecord(ByteBuffer buffer, int pos, int sizeOfData, AbstractFileHeader fileHeader)
+      throws ZipException {
+    if (sizeOfData < 7) {
+      throw new ZipException("Invalid aes extra data record for " + fileHeader.getFileName());
+    }
+
+    AESExtraDataRecord aesExtraDataRecord = new AESExtraDataRecord();
+    aesExtraDataRecord.setSignature(HeaderSignature.AES_EXTRA_DATA_RECORD);
+    aesExtraDataRecord.setDataSize(sizeOfData);
+
+    try {
+      aesExtraDataRecord.setAesVersion(AesVersion.getFromVersionNumber(getUnsignedShort(buffer, pos)));
+    } catch (IllegalArgumentException e) {
+      throw new ZipException(e.getMessage() + " for " + fileHeader.getFileName());
+    }
+
+    aesExtraDataRecord.setVendorID(new String(getBytes(buffer, pos + 2, 2)));
+
+    AesKeyStrength aesKeyStrength = AesKeyStrength.getAesKeyStrengthFromRawCode(buffer.get(pos + 4) & 0xff);
+    if (aesKeyStrength == null) {
+      throw new ZipException("Invalid aes key strength for " + fileHeader.getFileName());
+    }
+    aesExtraDataRecord.setAesKeyStrength(aesKeyStrength);
+    aesExtraDataRecord.setCompressionMethod(CompressionMethod.getCompressionMethodFromCode(
+        getUnsignedShort(buffer, pos + 5)));
+
+    fileHeader.setAesExtraDataRecord(aesExtraDataRecord);
+  }
+
+  private static int getUnsignedShort(ByteBuffer buffer, int pos) {
+    return buffer.getShort(pos) & 0xffff;
+  }
+
+  private static long getUnsignedInt(ByteBuffer buffer, int pos) {
+    return buffer.getInt(pos) & 0xFFFFFFFFL;
   }
 
   public LocalFileHeader readLocalFileHeader(InputStream inputStream, Charset charset) throws IOException {
@@ -245,7 +580,8 @@ public class HeaderReader {
     int fileNameLength = rawIO.readShortLittleEndian(inputStream);
     localFileHeader.setFileNameLength(fileNameLength);
 
-    localFileHeader.setExtraFieldLength(rawIO.readShortLittleEndian(inputStream));
+    int extraFieldLength = rawIO.readShortLittleEndian(inputStream);
+    localFileHeader.setExtraFieldLength(extraFieldLength);
 
     if (fileNameLength > 0) {
       byte[] fileNameBuf = new byte[fileNameLength];
@@ -269,10 +605,19 @@ public class HeaderReader {
       localFileHeader.setFileName(null);
     }
 
+    if (extraFieldLength > 0) {
+      byte[] extraFieldBuff = new byte[extraFieldLength];
+      if (readFully(inputStream, extraFieldBuff) != extraFieldLength) {
+        throw new ZipException("Could not read enough bytes for extra field");
+      }
+      readExtraDataRecords(ByteBuffer.wrap(extraFieldBuff).order(ByteOrder.LITTLE_ENDIAN), 0, extraFieldLength,
+          localFileHeader);
+    }
+
     if (localFileHeader.isEncrypted()) {
 
-      if (localFileHeader.getEncryptionMethod() == EncryptionMethod.AES) {
-        //Do nothing
+      if (localFileHeader.getAesExtraDataRecord() != null) {
+        localFileHeader.setEncryptionMethod(EncryptionMethod.AES);
       } else {
         if (BigInteger.valueOf(localFileHeader.getGeneralPurposeFlag()[0]).testBit(6)) {
           localFileHeader.setEncryptionMethod(EncryptionMethod.ZIP_STANDARD_VARIANT_STRONG);
@@ -315,14 +660,4 @@ public class HeaderReader {
 
     return dataDescriptor;
   }
-
-  
-
-  private long getOffsetCentralDirectory(ZipModel zipModel) {
-    return zipModel.getEndOfCentralDirectoryRecord().getOffsetOfStartOfCentralDirectory();
-  }
-
-  private long getNumberOfEntriesInCentralDirectory(ZipModel zipModel) {
-    return zipModel.getEndOfCentralDirectoryRecord().getTotalNumberOfEntriesInCentralDirectory();
-  }
 }
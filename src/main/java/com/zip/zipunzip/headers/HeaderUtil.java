@@ -2,11 +2,13 @@ package com.zip.zipunzip.headers;
 
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.FileHeaderIndex;
 import com.zip.zipunzip.model.ZipModel;
 import com.zip.zipunzip.util.InternalZipConstants;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static com.zip.zipunzip.util.InternalZipConstants.ZIP_STANDARD_CHARSET;
@@ -15,15 +17,27 @@ import static com.zip.zipunzip.util.ZipUtil.isStringNotNullAndNotEmpty;
 public class HeaderUtil {
 
   public static FileHeader getFileHeader(ZipModel zipModel, String fileName) throws ZipException {
-    FileHeader fileHeader = getFileHeaderWithExactMatch(zipModel, fileName);
+    FileHeaderIndex fileHeaderIndex = getFileHeaderIndex(zipModel, fileName);
+    if (fileHeaderIndex == null) {
+      return null;
+    }
+
+    FileHeader fileHeader = fileHeaderIndex.getByExactName(fileName);
 
     if (fileHeader == null) {
-      fileName = fileName.replaceAll("\\\\", "/");
-      fileHeader = getFileHeaderWithExactMatch(zipModel, fileName);
+      fileHeader = fileHeaderIndex.getByNameIgnoreCase(fileName);
 
       if (fileHeader == null) {
-        fileName = fileName.replaceAll("/", "\\\\");
-        fileHeader = getFileHeaderWithExactMatch(zipModel, fileName);
+        fileHeader = fileHeaderIndex.getByNameIgnoreCase(fileName.replace('\\', '/'));
+
+        if (fileHeader == null) {
+          fileHeader = fileHeaderIndex.getByNameIgnoreCase(fileName.replace('/', '\\'));
+
+          if (fileHeader == null) {
+            // entries whose names mix both separators
+            fileHeader = fileHeaderIndex.getByNormalizedName(fileName);
+          }
+        }
       }
     }
 
@@ -48,38 +62,86 @@ public class HeaderUtil {
       throw new ZipException("file name in file header is empty or null, cannot determine index of file header");
     }
 
-    List<FileHeader> fileHeadersFromCentralDir = zipModel.getCentralDirectory().getFileHeaders();
-    for (int i = 0; i < fileHeadersFromCentralDir.size(); i++) {
-      FileHeader fileHeaderFromCentralDir = fileHeadersFromCentralDir.get(i);
-      String fileNameForHdr = fileHeaderFromCentralDir.getFileName();
-      if (!isStringNotNullAndNotEmpty(fileNameForHdr)) {
-        continue;
-      }
+    FileHeaderIndex fileHeaderIndex = zipModel.getCentralDirectory().getFileHeaderIndex();
+    FileHeader fileHeaderFromCentralDir = fileHeaderIndex.getByNameIgnoreCase(fileName);
+    if (fileHeaderFromCentralDir == null) {
+      return -1;
+    }
 
-      if (fileName.equalsIgnoreCase(fileNameForHdr)) {
-        return i;
-      }
+    return fileHeaderIndex.indexOf(fileHeaderFromCentralDir);
+  }
+
+  /**
+   * @param directory path of the directory in the zip file. Empty for the root of the zip file
+   * @return file headers of the entries directly in the directory, sorted by name
+   */
+  public static List<FileHeader> getFileHeadersInDirectory(ZipModel zipModel, String directory) throws ZipException {
+    if (zipModel == null || zipModel.getCentralDirectory() == null) {
+      throw new ZipException("zip model or central directory is null, cannot list directory: " + directory);
+    }
+
+    return zipModel.getCentralDirectory().getFileHeaderIndex().getFileHeadersInDirectory(directory);
+  }
+
+  /**
+   * @return file headers of all entries whose name starts with the prefix, sorted by name
+   */
+  public static List<FileHeader> getFileHeadersWithPrefix(ZipModel zipModel, String prefix) throws ZipException {
+    if (zipModel == null || zipModel.getCentralDirectory() == null) {
+      throw new ZipException("zip model or central directory is null, cannot list entries with prefix: " + prefix);
     }
-    return -1;
+
+    return zipModel.getCentralDirectory().getFileHeaderIndex().getFileHeadersWithPrefix(prefix);
   }
 
   public static String decodeStringWithCharset(byte[] data, boolean isUtf8Encoded, Charset charset) {
+    return decodeStringWithCharset(data, 0, data.length, isUtf8Encoded, charset);
+  }
+
+  /**
+   * Decodes names which are plain ascii, as most are, without going through a charset decoder when the charset
+   * decodes ascii bytes to the same characters
+   */
+  public static String decodeStringWithCharset(byte[] data, int offset, int length, boolean isUtf8Encoded,
+                                               Charset charset) {
+    if (isAscii(data, offset, length) && isAsciiCompatible(charset)) {
+      return new String(data, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
     if(charset != null) {
-      return new String(data, charset);
+      return new String(data, offset, length, charset);
     }
 
     if (isUtf8Encoded) {
-      return new String(data, InternalZipConstants.CHARSET_UTF_8);
+      return new String(data, offset, length, InternalZipConstants.CHARSET_UTF_8);
     }
 
     try {
-      return new String(data, ZIP_STANDARD_CHARSET);
+      return new String(data, offset, length, ZIP_STANDARD_CHARSET);
     } catch (UnsupportedEncodingException e) {
-      return new String(data);
+      return new String(data, offset, length);
+    }
+  }
+
+  private static boolean isAscii(byte[] data, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (data[i] < 0) {
+        return false;
+      }
     }
+    return true;
   }
 
-  private static FileHeader getFileHeaderWithExactMatch(ZipModel zipModel, String fileName) throws ZipException {
+  private static boolean isAsciiCompatible(Charset charset) {
+    // null stands for utf-8 or the zip standard charset, both of which decode ascii bytes as ascii
+    return charset == null
+        || charset.equals(InternalZipConstants.CHARSET_UTF_8)
+        || charset.equals(StandardCharsets.US_ASCII)
+        || charset.equals(StandardCharsets.ISO_8859_1)
+        || charset.name().equals("IBM437");
+  }
+
+  private static FileHeaderIndex getFileHeaderIndex(ZipModel zipModel, String fileName) throws ZipException {
     if (zipModel == null) {
       throw new ZipException("zip model is null, cannot determine file header with exact match for fileName: "
           + fileName);
@@ -104,17 +166,6 @@ public class HeaderUtil {
       return null;
     }
 
-    for (FileHeader fileHeader : zipModel.getCentralDirectory().getFileHeaders()) {
-      String fileNameForHdr = fileHeader.getFileName();
-      if (!isStringNotNullAndNotEmpty(fileNameForHdr)) {
-        continue;
-      }
-
-      if (fileName.equalsIgnoreCase(fileNameForHdr)) {
-        return fileHeader;
-      }
-    }
-
-    return null;
+    return zipModel.getCentralDirectory().getFileHeaderIndex();
   }
 }
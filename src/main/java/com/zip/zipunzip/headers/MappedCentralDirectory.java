@@ -0,0 +1,102 @@
+package com.zip.zipunzip.headers;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.FileHeader;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Central directory of a zip file which stays memory mapped, as an alternative to reading all of it into file headers
+ * for archives too large for that. Entries are walked in central directory order and handed out as views which decode
+ * their fields on demand, see {@link HeaderReader#mapCentralDirectory}. A view is not kept by the central directory,
+ * so listing or filtering the entries takes constant heap, however many there are. The mapping is released when the
+ * central directory and all views over it are no longer referenced.
+ */
+public class MappedCentralDirectory implements Iterable<FileHeader> {
+
+  private ByteBuffer buffer;
+  private long offsetStartOfCentralDirectory;
+  private long numberOfEntries;
+  private int numberOfThisDisk;
+  private Charset charset;
+
+  MappedCentralDirectory(ByteBuffer buffer, long offsetStartOfCentralDirectory, long numberOfEntries,
+                         int numberOfThisDisk, Charset charset) {
+    this.buffer = buffer;
+    this.offsetStartOfCentralDirectory = offsetStartOfCentralDirectory;
+    this.numberOfEntries = numberOfEntries;
+    this.numberOfThisDisk = numberOfThisDisk;
+    this.charset = charset;
+  }
+
+  public long getNumberOfEntries() {
+    return numberOfEntries;
+  }
+
+  /**
+   * @return number of the disk of the end of central directory record, which is the last split file, or 0 if the zip
+   * file is not split
+   */
+  public int getNumberOfThisDisk() {
+    return numberOfThisDisk;
+  }
+
+  long getOffsetStartOfCentralDirectory() {
+    return offsetStartOfCentralDirectory;
+  }
+
+  ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  @Override
+  public Iterator<FileHeader> iterator() {
+    return new Iterator<FileHeader>() {
+      private long index = 0;
+      private int position = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < numberOfEntries;
+      }
+
+      @Override
+      public FileHeader next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        try {
+          FileHeader fileHeader = new MappedFileHeader(buffer, position, charset);
+          position = HeaderReader.getEndOfFileHeader(buffer, position);
+          index++;
+          return fileHeader;
+        } catch (ZipException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+  }
+
+  @Override
+  public Spliterator<FileHeader> spliterator() {
+    return Spliterators.spliterator(iterator(), numberOfEntries,
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+  }
+
+  /**
+   * @return the file headers in central directory order. Errors in an entry, such as an unknown compression method,
+   * are thrown as an {@link UncheckedIOException} wrapping a {@link ZipException}
+   */
+  public Stream<FileHeader> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+}
@@ -0,0 +1,254 @@
+package com.zip.zipunzip.headers;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.AESExtraDataRecord;
+import com.zip.zipunzip.model.ExtraDataRecord;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.Zip64ExtendedInfo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static com.zip.zipunzip.util.InternalZipConstants.CENHDR;
+import static com.zip.zipunzip.util.InternalZipConstants.ZIP_64_NUMBER_OF_ENTRIES_LIMIT;
+import static com.zip.zipunzip.util.InternalZipConstants.ZIP_64_SIZE_LIMIT;
+
+/**
+ * File header which is a view over its entry in a mapped central directory. Fields of a fixed size are read when the
+ * view is created. The name, the comment, the extra data records and the byte array attributes are only decoded when
+ * first asked for, so that walking a central directory allocates little more than the views themselves. The extra
+ * data records are read up front for encrypted entries and for entries whose sizes or offset are in the zip64
+ * extended information, as the encryption method and those values depend on them. A group is decoded by one thread
+ * and only marked as read once all its fields are set, so views can be shared between threads.
+ */
+class MappedFileHeader extends FileHeader {
+
+  private ByteBuffer buffer;
+  private int position;
+  private Charset charset;
+
+  private volatile boolean fileNameRead;
+  private volatile boolean fileCommentRead;
+  private volatile boolean extraDataRecordsRead;
+  private volatile boolean attributesRead;
+  private boolean readingExtraDataRecords;
+
+  MappedFileHeader(ByteBuffer buffer, int position, Charset charset) throws ZipException {
+    this.buffer = buffer;
+    this.position = position;
+    this.charset = charset;
+
+    HeaderReader.readFixedFields(buffer, position, this);
+
+    if (isEncrypted() || getCompressedSize() == ZIP_64_SIZE_LIMIT || getUncompressedSize() == ZIP_64_SIZE_LIMIT
+        || getOffsetLocalHeader() == ZIP_64_SIZE_LIMIT || getDiskNumberStart() == ZIP_64_NUMBER_OF_ENTRIES_LIMIT) {
+      readExtraDataRecords();
+      HeaderReader.readEncryptionMethod(this);
+    }
+  }
+
+  @Override
+  public String getFileName() {
+    readFileName();
+    return super.getFileName();
+  }
+
+  @Override
+  public void setFileName(String fileName) {
+    readFileName();
+    super.setFileName(fileName);
+  }
+
+  @Override
+  public boolean isDirectory() {
+    readFileName();
+    return super.isDirectory();
+  }
+
+  @Override
+  public void setDirectory(boolean directory) {
+    readFileName();
+    super.setDirectory(directory);
+  }
+
+  @Override
+  public String getFileComment() {
+    readFileComment();
+    return super.getFileComment();
+  }
+
+  @Override
+  public void setFileComment(String fileComment) {
+    readFileComment();
+    super.setFileComment(fileComment);
+  }
+
+  @Override
+  public List<ExtraDataRecord> getExtraDataRecords() {
+    readExtraDataRecordsUnchecked();
+    return super.getExtraDataRecords();
+  }
+
+  @Override
+  public void setExtraDataRecords(List<ExtraDataRecord> extraDataRecords) {
+    readExtraDataRecordsUnchecked();
+    super.setExtraDataRecords(extraDataRecords);
+  }
+
+  @Override
+  public AESExtraDataRecord getAesExtraDataRecord() {
+    readExtraDataRecordsUnchecked();
+    return super.getAesExtraDataRecord();
+  }
+
+  @Override
+  public void setAesExtraDataRecord(AESExtraDataRecord aesExtraDataRecord) {
+    readExtraDataRecordsUnchecked();
+    super.setAesExtraDataRecord(aesExtraDataRecord);
+  }
+
+  @Override
+  public Zip64ExtendedInfo getZip64ExtendedInfo() {
+    readExtraDataRecordsUnchecked();
+    return super.getZip64ExtendedInfo();
+  }
+
+  @Override
+  public void setZip64ExtendedInfo(Zip64ExtendedInfo zip64ExtendedInfo) {
+    readExtraDataRecordsUnchecked();
+    super.setZip64ExtendedInfo(zip64ExtendedInfo);
+  }
+
+  @Override
+  public byte[] getGeneralPurposeFlag() {
+    readAttributes();
+    return super.getGeneralPurposeFlag();
+  }
+
+  @Override
+  public void setGeneralPurposeFlag(byte[] generalPurposeFlag) {
+    readAttributes();
+    super.setGeneralPurposeFlag(generalPurposeFlag);
+  }
+
+  @Override
+  public byte[] getCrcRawData() {
+    readAttributes();
+    return super.getCrcRawData();
+  }
+
+  @Override
+  public void setCrcRawData(byte[] crcRawData) {
+    readAttributes();
+    super.setCrcRawData(crcRawData);
+  }
+
+  @Override
+  public byte[] getInternalFileAttributes() {
+    readAttributes();
+    return super.getInternalFileAttributes();
+  }
+
+  @Override
+  public void setInternalFileAttributes(byte[] internalFileAttributes) {
+    readAttributes();
+    super.setInternalFileAttributes(internalFileAttributes);
+  }
+
+  @Override
+  public byte[] getExternalFileAttributes() {
+    readAttributes();
+    return super.getExternalFileAttributes();
+  }
+
+  @Override
+  public void setExternalFileAttributes(byte[] externalFileAttributes) {
+    readAttributes();
+    super.setExternalFileAttributes(externalFileAttributes);
+  }
+
+  private void readFileName() {
+    if (fileNameRead) {
+      return;
+    }
+
+    synchronized (this) {
+      if (fileNameRead) {
+        return;
+      }
+
+      String fileName = HeaderReader.readFileName(buffer, position, this, charset);
+      super.setFileName(fileName);
+      super.setDirectory(HeaderReader.isDirectory(fileName));
+      fileNameRead = true;
+    }
+  }
+
+  private void readFileComment() {
+    if (fileCommentRead) {
+      return;
+    }
+
+    synchronized (this) {
+      if (fileCommentRead) {
+        return;
+      }
+
+      super.setFileComment(HeaderReader.readFileComment(buffer, position, this, charset));
+      fileCommentRead = true;
+    }
+  }
+
+  private void readExtraDataRecords() throws ZipException {
+    if (extraDataRecordsRead) {
+      return;
+    }
+
+    synchronized (this) {
+      // the records are set through the overridden setters, which come back here while they are being read
+      if (extraDataRecordsRead || readingExtraDataRecords) {
+        return;
+      }
+
+      readingExtraDataRecords = true;
+      try {
+        HeaderReader.readExtraDataRecords(buffer, position + CENHDR + getFileNameLength(), getExtraFieldLength(),
+            this);
+      } finally {
+        readingExtraDataRecords = false;
+        extraDataRecordsRead = true;
+      }
+    }
+  }
+
+  /**
+   * Getters cannot throw, and the extra data records of entries which could fail to parse, which are the aes
+   * encrypted ones, were read when the view was created
+   */
+  private void readExtraDataRecordsUnchecked() {
+    try {
+      readExtraDataRecords();
+    } catch (ZipException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+  private void readAttributes() {
+    if (attributesRead) {
+      return;
+    }
+
+    synchronized (this) {
+      if (attributesRead) {
+        return;
+      }
+
+      super.setGeneralPurposeFlag(HeaderReader.getBytes(buffer, position + 8, 2));
+      super.setCrcRawData(HeaderReader.getBytes(buffer, position + 16, 4));
+      super.setInternalFileAttributes(HeaderReader.getBytes(buffer, position + 36, 2));
+      super.setExternalFileAttributes(HeaderReader.getBytes(buffer, position + 38, 4));
+      attributesRead = true;
+    }
+  }
+}
@@ -9,6 +9,7 @@ import java.io.InputStream;
 import java.util.Arrays;
 
 import com.zip.zipunzip.crypto.AESDecrypter;
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.model.AESExtraDataRecord;
 import com.zip.zipunzip.model.LocalFileHeader;
@@ -29,14 +30,15 @@ class AesCipherInputStream extends CipherInputStream<AESDecrypter> {
   private int lengthToCopyInThisIteration = 0;
   private int aes16ByteBlockReadLength = 0;
 
-  public AesCipherInputStream(ZipEntryInputStream zipEntryInputStream, LocalFileHeader localFileHeader, char[] password)
-      throws IOException {
-    super(zipEntryInputStream, localFileHeader, password);
+  public AesCipherInputStream(ZipEntryInputStream zipEntryInputStream, LocalFileHeader localFileHeader, char[] password,
+                              AesKeyPrefetcher aesKeyPrefetcher) throws IOException {
+    super(zipEntryInputStream, localFileHeader, password, aesKeyPrefetcher);
   }
 
   @Override
   protected AESDecrypter initializeDecrypter(LocalFileHeader localFileHeader, char[] password) throws IOException {
-    return new AESDecrypter(localFileHeader.getAesExtraDataRecord(), password, getSalt(localFileHeader), getPasswordVerifier());
+    return new AESDecrypter(localFileHeader.getAesExtraDataRecord(), password, getSalt(localFileHeader),
+        getPasswordVerifier(), getAesKeyPrefetcher());
   }
 
   @Override
@@ -0,0 +1,87 @@
+package com.zip.zipunzip.io.inputstream;
+
+import com.zip.zipunzip.util.ArchiveCache.CachedArchive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the volumes of a cached archive with positional reads on the channels the archive shares between all its
+ * readers, starting at a position in one volume and continuing into the next volumes at the end of each. The volume
+ * and position to read from are kept by the stream, so streams over the same archive can be read by different
+ * threads at once. The stream holds one use of the archive, which it releases on close.
+ */
+public class CachedArchiveInputStream extends InputStream {
+
+  private CachedArchive cachedArchive;
+  private int diskNumber;
+  private long position;
+  private byte[] singleByteArray = new byte[1];
+  private boolean closed;
+
+  /**
+   * @param cachedArchive archive to read, of which this stream takes over one use
+   * @param diskNumber volume to start reading from
+   * @param position position in that volume to start reading from
+   */
+  public CachedArchiveInputStream(CachedArchive cachedArchive, int diskNumber, long position) {
+    this.cachedArchive = cachedArchive;
+    this.diskNumber = diskNumber;
+    this.position = position;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int readLen = read(singleByteArray);
+    if (readLen == -1) {
+      return -1;
+    }
+
+    return singleByteArray[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b) throws IOException {
+    return read(b, 0, b.length);
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("stream closed");
+    }
+
+    if (len == 0) {
+      return 0;
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+    while (buffer.hasRemaining()) {
+      int readLen = cachedArchive.read(diskNumber, buffer, position);
+
+      if (readLen == -1) {
+        if (diskNumber == cachedArchive.getNumberOfVolumes() - 1) {
+          break;
+        }
+        diskNumber++;
+        position = 0;
+      } else {
+        position += readLen;
+      }
+    }
+
+    int readLen = buffer.position() - off;
+    return readLen == 0 ? -1 : readLen;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    cachedArchive.release();
+  }
+}
@@ -1,5 +1,6 @@
 package com.zip.zipunzip.io.inputstream;
 
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
 import com.zip.zipunzip.crypto.Decrypter;
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.io.inputstream.ZipEntryInputStream;
@@ -19,9 +20,16 @@ abstract class CipherInputStream<T extends Decrypter> extends InputStream {
   private byte[] lastReadRawDataCache;
   private byte[] singleByteBuffer = new byte[1];
   private LocalFileHeader localFileHeader;
+  private AesKeyPrefetcher aesKeyPrefetcher;
 
   public CipherInputStream(ZipEntryInputStream zipEntryInputStream, LocalFileHeader localFileHeader, char[] password) throws IOException, ZipException {
+    this(zipEntryInputStream, localFileHeader, password, null);
+  }
+
+  public CipherInputStream(ZipEntryInputStream zipEntryInputStream, LocalFileHeader localFileHeader, char[] password,
+                           AesKeyPrefetcher aesKeyPrefetcher) throws IOException, ZipException {
     this.zipEntryInputStream = zipEntryInputStream;
+    this.aesKeyPrefetcher = aesKeyPrefetcher;
     this.decrypter = initializeDecrypter(localFileHeader, password);
     this.localFileHeader = localFileHeader;
 
@@ -67,6 +75,10 @@ abstract class CipherInputStream<T extends Decrypter> extends InputStream {
     return lastReadRawDataCache;
   }
 
+  protected AesKeyPrefetcher getAesKeyPrefetcher() {
+    return aesKeyPrefetcher;
+  }
+
   protected int readRaw(byte[] b) throws IOException {
     return zipEntryInputStream.readRawFully(b);
   }
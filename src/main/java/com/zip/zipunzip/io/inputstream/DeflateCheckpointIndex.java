@@ -0,0 +1,646 @@
+package com.zip.zipunzip.io.inputstream;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+import com.zip.zipunzip.util.ArchiveCache.CachedArchive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static com.zip.zipunzip.util.InternalZipConstants.BUFF_SIZE;
+
+/**
+ * Access points into the deflate data of an entry, from which it can be inflated without inflating what comes before
+ * them. Each checkpoint is the start of a deflate block, given by its position in the uncompressed data, the byte of the
+ * compressed data it starts in and the number of bits of that byte which still belong to the block before, along with
+ * the last 32 KB of uncompressed data before it, which the block may refer back to.
+ * <p>
+ * The index is built by inflating the entry once, with a checkpoint at the start of the first block after every
+ * {@code spacing} bytes of uncompressed data, and the data is checked against the crc of the entry on the way. As
+ * java.util.zip.Inflater tells neither where a block ends nor the bit it ends at, this pass is made by an inflater
+ * written in Java, which is slower than the native one but only runs once. A larger spacing keeps the index smaller,
+ * at 32 KB per checkpoint, and a smaller one makes reads start closer to where they are asked for.
+ * <p>
+ * The indexes of the entries of a zip file can be kept in a sidecar file next to it, see
+ * {@link #writeIndexFile(File, Collection)}, in which the windows are deflated.
+ */
+public class DeflateCheckpointIndex {
+
+  /**
+   * Uncompressed bytes between two checkpoints, unless set otherwise
+   */
+  public static final long DEFAULT_SPACING = 1024 * 1024;
+
+  static final int WINDOW_SIZE = 32 * 1024;
+
+  private static final int SIGNATURE = 0x4943445a; // "ZDCI"
+  private static final int VERSION = 1;
+  private static final String INDEX_FILE_SUFFIX = ".dci";
+
+  private long offsetLocalHeader;
+  private long compressedSize;
+  private long uncompressedSize;
+  private long crc;
+  private long spacing;
+  private long[] uncompressedOffsets;
+  private long[] compressedOffsets;
+  private byte[] bitOffsets;
+  private byte[][] windows;
+
+  private DeflateCheckpointIndex() {
+  }
+
+  /**
+   * Inflates the entry once to build its index
+   *
+   * @param cachedArchive archive of the entry, which stays in use by the caller
+   * @param fileHeader file header of a deflated entry without encryption
+   * @param spacing uncompressed bytes between two checkpoints
+   * @return index of the entry
+   * @throws ZipException if the entry is not deflated or is encrypted, or its data is not valid or does not match its
+   *                      crc
+   */
+  public static DeflateCheckpointIndex build(CachedArchive cachedArchive, FileHeader fileHeader, long spacing)
+      throws IOException {
+    if (fileHeader.isEncrypted() || fileHeader.getCompressionMethod() != CompressionMethod.DEFLATE) {
+      throw new ZipException("Entry " + fileHeader.getFileName() + " is not deflated or is encrypted, cannot index it");
+    }
+    if (spacing <= 0) {
+      throw new IllegalArgumentException("spacing of checkpoints has to be positive: " + spacing);
+    }
+
+    DeflateCheckpointIndex index = new DeflateCheckpointIndex();
+    index.offsetLocalHeader = fileHeader.getOffsetLocalHeader();
+    index.compressedSize = fileHeader.getCompressedSize();
+    index.uncompressedSize = fileHeader.getUncompressedSize();
+    index.crc = fileHeader.getCrc();
+    index.spacing = spacing;
+
+    cachedArchive.retain();
+    try (StoredEntryChannel compressedData = new StoredEntryChannel(cachedArchive, fileHeader, true)) {
+      new BlockInflater(compressedData, fileHeader.getFileName()).inflate(index);
+    }
+    return index;
+  }
+
+  public static File getIndexFile(File zipFile) {
+    return new File(zipFile.getPath() + INDEX_FILE_SUFFIX);
+  }
+
+  /**
+   * Reads the indexes kept in the sidecar of the zip file
+   *
+   * @return indexes, or an empty list if there is no sidecar, it cannot be read, or the zip file changed since it was
+   * written
+   */
+  public static List<DeflateCheckpointIndex> readIndexFile(File zipFile) {
+    File indexFile = getIndexFile(zipFile);
+    if (!indexFile.exists()) {
+      return Collections.emptyList();
+    }
+
+    try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+      if (inputStream.readInt() != SIGNATURE
+          || inputStream.readInt() != VERSION
+          || inputStream.readLong() != zipFile.length()
+          || inputStream.readLong() != zipFile.lastModified()) {
+        return Collections.emptyList();
+      }
+
+      int numberOfIndexes = inputStream.readInt();
+      List<DeflateCheckpointIndex> indexes = new ArrayList<>();
+      for (int i = 0; i < numberOfIndexes; i++) {
+        indexes.add(read(inputStream));
+      }
+      return indexes;
+    } catch (IOException | DataFormatException | RuntimeException e) {
+      // an unreadable sidecar is ignored like an outdated one, the indexes are built again
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Writes the indexes into the sidecar of the zip file, replacing the indexes it had. The sidecar is written to a
+   * temporary file and moved into place, and if it cannot be written, the indexes are only kept by the caller.
+   */
+  public static void writeIndexFile(File zipFile, Collection<DeflateCheckpointIndex> indexes) {
+    File indexFile = getIndexFile(zipFile);
+    File temporaryFile = null;
+    try {
+      temporaryFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+      try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(temporaryFile)))) {
+        outputStream.writeInt(SIGNATURE);
+        outputStream.writeInt(VERSION);
+        outputStream.writeLong(zipFile.length());
+        outputStream.writeLong(zipFile.lastModified());
+        outputStream.writeInt(indexes.size());
+        for (DeflateCheckpointIndex index : indexes) {
+          index.write(outputStream);
+        }
+      }
+
+      try {
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      if (temporaryFile != null) {
+        temporaryFile.delete();
+      }
+    }
+  }
+
+  /**
+   * @return true if the index was built for the entry as it is described by the file header
+   */
+  public boolean matches(FileHeader fileHeader) {
+    return fileHeader.getOffsetLocalHeader() == offsetLocalHeader
+        && fileHeader.getCompressedSize() == compressedSize
+        && fileHeader.getUncompressedSize() == uncompressedSize
+        && fileHeader.getCrc() == crc;
+  }
+
+  public long getOffsetLocalHeader() {
+    return offsetLocalHeader;
+  }
+
+  public long getUncompressedSize() {
+    return uncompressedSize;
+  }
+
+  public long getSpacing() {
+    return spacing;
+  }
+
+  public int getNumberOfCheckpoints() {
+    return uncompressedOffsets.length;
+  }
+
+  /**
+   * @return the last checkpoint at or before the position in the uncompressed data
+   */
+  int findCheckpoint(long uncompressedPosition) {
+    int checkpoint = Arrays.binarySearch(uncompressedOffsets, uncompressedPosition);
+    return checkpoint >= 0 ? checkpoint : Math.max(0, -checkpoint - 2);
+  }
+
+  long getUncompressedOffset(int checkpoint) {
+    return uncompressedOffsets[checkpoint];
+  }
+
+  long getCompressedOffset(int checkpoint) {
+    return compressedOffsets[checkpoint];
+  }
+
+  int getBitOffset(int checkpoint) {
+    return bitOffsets[checkpoint];
+  }
+
+  byte[] getWindow(int checkpoint) {
+    return windows[checkpoint];
+  }
+
+  private void write(DataOutputStream outputStream) throws IOException {
+    outputStream.writeLong(offsetLocalHeader);
+    outputStream.writeLong(compressedSize);
+    outputStream.writeLong(uncompressedSize);
+    outputStream.writeLong(crc);
+    outputStream.writeLong(spacing);
+    outputStream.writeInt(uncompressedOffsets.length);
+
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    byte[] buffer = new byte[WINDOW_SIZE + WINDOW_SIZE / 16 + 64];
+    try {
+      for (int i = 0; i < uncompressedOffsets.length; i++) {
+        outputStream.writeLong(uncompressedOffsets[i]);
+        outputStream.writeLong(compressedOffsets[i]);
+        outputStream.writeByte(bitOffsets[i]);
+
+        deflater.reset();
+        deflater.setInput(windows[i]);
+        deflater.finish();
+        int deflatedLength = 0;
+        while (!deflater.finished()) {
+          deflatedLength += deflater.deflate(buffer, deflatedLength, buffer.length - deflatedLength);
+        }
+        outputStream.writeInt(windows[i].length);
+        outputStream.writeInt(deflatedLength);
+        outputStream.write(buffer, 0, deflatedLength);
+      }
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static DeflateCheckpointIndex read(DataInputStream inputStream) throws IOException, DataFormatException {
+    DeflateCheckpointIndex index = new DeflateCheckpointIndex();
+    index.offsetLocalHeader = inputStream.readLong();
+    index.compressedSize = inputStream.readLong();
+    index.uncompressedSize = inputStream.readLong();
+    index.crc = inputStream.readLong();
+    index.spacing = inputStream.readLong();
+
+    int numberOfCheckpoints = inputStream.readInt();
+    index.uncompressedOffsets = new long[numberOfCheckpoints];
+    index.compressedOffsets = new long[numberOfCheckpoints];
+    index.bitOffsets = new byte[numberOfCheckpoints];
+    index.windows = new byte[numberOfCheckpoints][];
+
+    Inflater inflater = new Inflater(true);
+    byte[] buffer = new byte[WINDOW_SIZE + WINDOW_SIZE / 16 + 64];
+    try {
+      for (int i = 0; i < numberOfCheckpoints; i++) {
+        index.uncompressedOffsets[i] = inputStream.readLong();
+        index.compressedOffsets[i] = inputStream.readLong();
+        index.bitOffsets[i] = inputStream.readByte();
+
+        int windowLength = inputStream.readInt();
+        int deflatedLength = inputStream.readInt();
+        if (windowLength < 0 || windowLength > WINDOW_SIZE || deflatedLength < 0 || deflatedLength > buffer.length) {
+          throw new ZipException("invalid window in deflate checkpoint index");
+        }
+        inputStream.readFully(buffer, 0, deflatedLength);
+
+        inflater.reset();
+        inflater.setInput(buffer, 0, deflatedLength);
+        byte[] window = new byte[windowLength];
+        int inflatedLength = 0;
+        while (inflatedLength < windowLength) {
+          int n = inflater.inflate(window, inflatedLength, windowLength - inflatedLength);
+          if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+            throw new EOFException("window in deflate checkpoint index is cut short");
+          }
+          inflatedLength += n;
+        }
+        index.windows[i] = window;
+      }
+    } finally {
+      inflater.end();
+    }
+
+    return index;
+  }
+
+  /**
+   * Inflates raw deflate data in Java, one block at a time, so that the bit each block starts at is known. The
+   * uncompressed data is only kept for the window of the last 32 KB and to update the crc.
+   */
+  private static class BlockInflater {
+
+    private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59,
+        67, 83, 99, 115, 131, 163, 195, 227, 258};
+    private static final int[] LENGTH_EXTRA_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4,
+        4, 4, 5, 5, 5, 5, 0};
+    private static final int[] DISTANCE_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385,
+        513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+    private static final int[] DISTANCE_EXTRA_BITS = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9,
+        9, 10, 10, 11, 11, 12, 12, 13, 13};
+    private static final int[] CODE_LENGTH_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+    private static final int MAX_CODE_LENGTH = 15;
+    // twice the window, so that the data not yet added to the crc is never overwritten while the window is kept
+    private static final int OUTPUT_MASK = 2 * WINDOW_SIZE - 1;
+
+    private final StoredEntryChannel compressedData;
+    private final String fileName;
+    private final long compressedSize;
+
+    private final byte[] input = new byte[BUFF_SIZE];
+    private long inputOffset;
+    private int inputPosition;
+    private int inputLength;
+    private long bitBuffer;
+    private int bitCount;
+
+    private final byte[] output = new byte[OUTPUT_MASK + 1];
+    private long outputLength;
+    private long checkedLength;
+    private final CRC32 crc32 = new CRC32();
+
+    private int[] fixedLiteralTable;
+    private int[] fixedDistanceTable;
+
+    BlockInflater(StoredEntryChannel compressedData, String fileName) throws IOException {
+      this.compressedData = compressedData;
+      this.fileName = fileName;
+      this.compressedSize = compressedData.size();
+    }
+
+    void inflate(DeflateCheckpointIndex index) throws IOException {
+      List<long[]> checkpoints = new ArrayList<>();
+      List<byte[]> windows = new ArrayList<>();
+      long nextCheckpoint = 0;
+
+      boolean lastBlock;
+      do {
+        if (outputLength >= nextCheckpoint) {
+          long bitPosition = (inputOffset + inputPosition) * 8 - bitCount;
+          checkpoints.add(new long[] {outputLength, bitPosition >>> 3, bitPosition & 7});
+          windows.add(getWindow());
+          nextCheckpoint = outputLength + index.spacing;
+        }
+
+        lastBlock = readBits(1) == 1;
+        int blockType = readBits(2);
+        if (blockType == 0) {
+          inflateStoredBlock();
+        } else if (blockType == 1) {
+          if (fixedLiteralTable == null) {
+            createFixedTables();
+          }
+          inflateHuffmanBlock(fixedLiteralTable, fixedDistanceTable);
+        } else if (blockType == 2) {
+          inflateDynamicBlock();
+        } else {
+          throw invalidData("invalid block type");
+        }
+      } while (!lastBlock);
+
+      updateCrc();
+      if (outputLength != index.uncompressedSize) {
+        throw new ZipException("Deflate data of entry " + fileName + " inflates to " + outputLength
+            + " bytes instead of its size of " + index.uncompressedSize);
+      }
+      if (crc32.getValue() != index.crc) {
+        throw new ZipException("Reached end of entry, but crc verification failed for " + fileName);
+      }
+
+      index.uncompressedOffsets = new long[checkpoints.size()];
+      index.compressedOffsets = new long[checkpoints.size()];
+      index.bitOffsets = new byte[checkpoints.size()];
+      index.windows = windows.toArray(new byte[0][]);
+      for (int i = 0; i < checkpoints.size(); i++) {
+        index.uncompressedOffsets[i] = checkpoints.get(i)[0];
+        index.compressedOffsets[i] = checkpoints.get(i)[1];
+        index.bitOffsets[i] = (byte) checkpoints.get(i)[2];
+      }
+    }
+
+    private void inflateStoredBlock() throws IOException {
+      // the length starts at the next byte
+      bitBuffer >>>= bitCount & 7;
+      bitCount -= bitCount & 7;
+
+      int length = readBits(16);
+      if ((~readBits(16) & 0xffff) != length) {
+        throw invalidData("invalid stored block lengths");
+      }
+
+      for (int i = 0; i < length; i++) {
+        output[(int) outputLength++ & OUTPUT_MASK] = (byte) readBits(8);
+        if (outputLength - checkedLength >= WINDOW_SIZE) {
+          updateCrc();
+        }
+      }
+    }
+
+    private void inflateDynamicBlock() throws IOException {
+      int numberOfLiteralCodes = readBits(5) + 257;
+      int numberOfDistanceCodes = readBits(5) + 1;
+      int numberOfCodeLengthCodes = readBits(4) + 4;
+      if (numberOfLiteralCodes > 286 || numberOfDistanceCodes > 30) {
+        throw invalidData("too many length or distance symbols");
+      }
+
+      int[] codeLengthCodeLengths = new int[19];
+      for (int i = 0; i < numberOfCodeLengthCodes; i++) {
+        codeLengthCodeLengths[CODE_LENGTH_ORDER[i]] = readBits(3);
+      }
+      int[] codeLengthTable = createTable(codeLengthCodeLengths, 0, 19);
+
+      int[] codeLengths = new int[numberOfLiteralCodes + numberOfDistanceCodes];
+      for (int i = 0; i < codeLengths.length; ) {
+        int symbol = decode(codeLengthTable);
+        if (symbol < 16) {
+          codeLengths[i++] = symbol;
+          continue;
+        }
+
+        int codeLength = 0;
+        int repeat;
+        if (symbol == 16) {
+          if (i == 0) {
+            throw invalidData("invalid bit length repeat");
+          }
+          codeLength = codeLengths[i - 1];
+          repeat = 3 + readBits(2);
+        } else if (symbol == 17) {
+          repeat = 3 + readBits(3);
+        } else {
+          repeat = 11 + readBits(7);
+        }
+        if (i + repeat > codeLengths.length) {
+          throw invalidData("invalid bit length repeat");
+        }
+        Arrays.fill(codeLengths, i, i + repeat, codeLength);
+        i += repeat;
+      }
+
+      if (codeLengths[256] == 0) {
+        throw invalidData("invalid code -- missing end-of-block");
+      }
+
+      inflateHuffmanBlock(createTable(codeLengths, 0, numberOfLiteralCodes),
+          createTable(codeLengths, numberOfLiteralCodes, numberOfDistanceCodes));
+    }
+
+    private void inflateHuffmanBlock(int[] literalTable, int[] distanceTable) throws IOException {
+      while (true) {
+        int symbol = decode(literalTable);
+        if (symbol < 256) {
+          output[(int) outputLength++ & OUTPUT_MASK] = (byte) symbol;
+        } else if (symbol == 256) {
+          return;
+        } else {
+          symbol -= 257;
+          if (symbol >= LENGTH_BASE.length) {
+            throw invalidData("invalid literal/length code");
+          }
+          int length = LENGTH_BASE[symbol] + readBits(LENGTH_EXTRA_BITS[symbol]);
+
+          int distanceSymbol = decode(distanceTable);
+          if (distanceSymbol >= DISTANCE_BASE.length) {
+            throw invalidData("invalid distance code");
+          }
+          int distance = DISTANCE_BASE[distanceSymbol] + readBits(DISTANCE_EXTRA_BITS[distanceSymbol]);
+          if (distance > outputLength) {
+            throw invalidData("invalid distance too far back");
+          }
+
+          for (int i = 0; i < length; i++) {
+            output[(int) outputLength & OUTPUT_MASK] = output[(int) (outputLength - distance) & OUTPUT_MASK];
+            outputLength++;
+          }
+        }
+
+        if (outputLength - checkedLength >= WINDOW_SIZE) {
+          updateCrc();
+        }
+      }
+    }
+
+    /**
+     * A table over the next bits of the input, as many as the longest code, whose entries hold the symbol shifted left
+     * by four and the length of its code, or zero for bits which start no code. Codes are stored with their bits in
+     * reverse, as deflate packs them starting from the most significant bit.
+     */
+    private int[] createTable(int[] codeLengths, int offset, int numberOfSymbols) throws ZipException {
+      int[] lengthCounts = new int[MAX_CODE_LENGTH + 1];
+      int maxLength = 0;
+      for (int i = 0; i < numberOfSymbols; i++) {
+        lengthCounts[codeLengths[offset + i]]++;
+        maxLength = Math.max(maxLength, codeLengths[offset + i]);
+      }
+      lengthCounts[0] = 0;
+
+      int left = 1;
+      for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+        left = (left << 1) - lengthCounts[length];
+        if (left < 0) {
+          throw invalidData("over-subscribed code");
+        }
+      }
+      // as with zlib, an incomplete code is only allowed if it is a single code of one bit
+      if (left > 0 && maxLength > 1) {
+        throw invalidData("incomplete code");
+      }
+
+      int[] nextCode = new int[MAX_CODE_LENGTH + 1];
+      for (int length = 1, code = 0; length <= MAX_CODE_LENGTH; length++) {
+        code = (code + lengthCounts[length - 1]) << 1;
+        nextCode[length] = code;
+      }
+
+      int[] table = new int[1 << maxLength];
+      for (int symbol = 0; symbol < numberOfSymbols; symbol++) {
+        int length = codeLengths[offset + symbol];
+        if (length == 0) {
+          continue;
+        }
+
+        int code = nextCode[length]++;
+        int reversedCode = Integer.reverse(code) >>> (32 - length);
+        for (int i = reversedCode; i < table.length; i += 1 << length) {
+          table[i] = symbol << 4 | length;
+        }
+      }
+      return table;
+    }
+
+    private void createFixedTables() throws ZipException {
+      int[] literalLengths = new int[288];
+      Arrays.fill(literalLengths, 0, 144, 8);
+      Arrays.fill(literalLengths, 144, 256, 9);
+      Arrays.fill(literalLengths, 256, 280, 7);
+      Arrays.fill(literalLengths, 280, 288, 8);
+      fixedLiteralTable = createTable(literalLengths, 0, 288);
+
+      int[] distanceLengths = new int[32];
+      Arrays.fill(distanceLengths, 5);
+      fixedDistanceTable = createTable(distanceLengths, 0, 32);
+    }
+
+    private int decode(int[] table) throws IOException {
+      fillBits(Integer.numberOfTrailingZeros(table.length));
+      int entry = table[(int) bitBuffer & (table.length - 1)];
+      int length = entry & 15;
+      if (length == 0) {
+        throw invalidData("invalid code");
+      }
+      if (length > bitCount) {
+        throw new EOFException("Unexpected end of deflate data of entry " + fileName);
+      }
+
+      bitBuffer >>>= length;
+      bitCount -= length;
+      return entry >>> 4;
+    }
+
+    private int readBits(int count) throws IOException {
+      fillBits(count);
+      if (bitCount < count) {
+        throw new EOFException("Unexpected end of deflate data of entry " + fileName);
+      }
+
+      int bits = (int) (bitBuffer & ((1L << count) - 1));
+      bitBuffer >>>= count;
+      bitCount -= count;
+      return bits;
+    }
+
+    /**
+     * Adds bytes to the bit buffer until it holds the count of bits, or the compressed data ends
+     */
+    private void fillBits(int count) throws IOException {
+      while (bitCount < count) {
+        if (inputPosition == inputLength && !readInput()) {
+          return;
+        }
+        bitBuffer |= (input[inputPosition++] & 0xffL) << bitCount;
+        bitCount += 8;
+      }
+    }
+
+    private boolean readInput() throws IOException {
+      inputOffset += inputLength;
+      inputPosition = 0;
+      inputLength = 0;
+      if (inputOffset >= compressedSize) {
+        return false;
+      }
+
+      ByteBuffer buffer = ByteBuffer.wrap(input, 0, (int) Math.min(input.length, compressedSize - inputOffset));
+      int readLen = compressedData.read(buffer, inputOffset);
+      if (readLen <= 0) {
+        return false;
+      }
+      inputLength = readLen;
+      return true;
+    }
+
+    private byte[] getWindow() {
+      byte[] window = new byte[(int) Math.min(WINDOW_SIZE, outputLength)];
+      for (int i = 0; i < window.length; i++) {
+        window[i] = output[(int) (outputLength - window.length + i) & OUTPUT_MASK];
+      }
+      return window;
+    }
+
+    private void updateCrc() {
+      while (checkedLength < outputLength) {
+        int start = (int) checkedLength & OUTPUT_MASK;
+        int length = (int) Math.min(outputLength - checkedLength, output.length - start);
+        crc32.update(output, start, length);
+        checkedLength += length;
+      }
+    }
+
+    private ZipException invalidData(String message) {
+      return new ZipException("Invalid deflate data in entry " + fileName + ": " + message);
+    }
+  }
+}
@@ -0,0 +1,314 @@
+package com.zip.zipunzip.io.inputstream;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+import com.zip.zipunzip.util.ArchiveCache.CachedArchive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.zip.zipunzip.util.InternalZipConstants.BUFF_SIZE;
+
+/**
+ * Read only channel over the uncompressed data of a deflated entry without encryption. A read starts inflating at the
+ * last checkpoint of the {@link DeflateCheckpointIndex} of the entry before its position, so it inflates at most the
+ * spacing of the checkpoints before it gets to the data asked for. The inflater is kept between reads, so a read that
+ * goes on where the last one ended, or a bit after it, inflates on without starting at a checkpoint again. Reads from
+ * several threads at once each inflate from a checkpoint of their own. The data is checked against the crc of the
+ * entry when the index is built, not on each read.
+ * <p>
+ * The channel holds one use of the archive, which it releases on close.
+ */
+public class DeflatedEntryChannel extends EntryChannel {
+
+  private StoredEntryChannel compressedData;
+  private DeflateCheckpointIndex index;
+  private String fileName;
+  private long size;
+
+  private final ReentrantLock cursorLock = new ReentrantLock();
+  private Cursor cursor;
+
+  /**
+   * @param cachedArchive archive of the entry, of which this channel takes over one use, also if creating it fails
+   * @param fileHeader file header of the entry
+   * @param index index built for the entry
+   * @throws ZipException if the entry is not deflated or is encrypted, the index was built for another entry, or its
+   *                      local file header is not valid
+   */
+  public DeflatedEntryChannel(CachedArchive cachedArchive, FileHeader fileHeader, DeflateCheckpointIndex index)
+      throws IOException {
+    this.fileName = fileHeader.getFileName();
+    if (fileHeader.isEncrypted() || fileHeader.getCompressionMethod() != CompressionMethod.DEFLATE
+        || !index.matches(fileHeader)) {
+      cachedArchive.release();
+      throw new ZipException("Entry " + fileName + " is not deflated, is encrypted, or does not match the index");
+    }
+
+    this.compressedData = new StoredEntryChannel(cachedArchive, fileHeader, true);
+    this.index = index;
+    this.size = fileHeader.getUncompressedSize();
+  }
+
+  @Override
+  public int read(ByteBuffer dst, long position) throws IOException {
+    ensureOpen();
+    if (position < 0) {
+      throw new IllegalArgumentException("negative position: " + position);
+    }
+
+    if (position >= size) {
+      return dst.hasRemaining() ? -1 : 0;
+    }
+    if (!dst.hasRemaining()) {
+      return 0;
+    }
+
+    if (cursorLock.tryLock()) {
+      try {
+        if (cursor == null) {
+          cursor = new Cursor();
+        }
+        return cursor.read(dst, position);
+      } finally {
+        cursorLock.unlock();
+      }
+    }
+
+    // the kept inflater is busy with a read of another thread
+    Cursor readCursor = new Cursor();
+    try {
+      return readCursor.read(dst, position);
+    } finally {
+      readCursor.end();
+    }
+  }
+
+  @Override
+  public long size() throws IOException {
+    ensureOpen();
+    return size;
+  }
+
+  @Override
+  protected void implCloseChannel() throws IOException {
+    cursorLock.lock();
+    try {
+      if (cursor != null) {
+        cursor.end();
+        cursor = null;
+      }
+    } finally {
+      cursorLock.unlock();
+    }
+
+    compressedData.close();
+  }
+
+  /**
+   * Deflate data of an empty block with dynamic codes, whose length in bits is a multiple of eight plus the bit offset.
+   * Put before the rest of the byte a checkpoint starts in, its bits take the place of the bits of that byte which
+   * belong to the block before, so that java.util.zip.Inflater, which can only start at the first bit of its input,
+   * reads the block of the checkpoint from the right bit.
+   * <p>
+   * The block has a code of one bit for the end of block only and no distance codes. Its length is 93 bits plus the
+   * number of zero code lengths which are written one by one instead of being repeated, which is chosen from 0 to 7 to
+   * give the needed length.
+   *
+   * @param bitOffset bits of the byte which belong to the block before the checkpoint, from 1 to 7
+   * @param firstByte byte the checkpoint starts in
+   */
+  static byte[] createAlignmentBlock(int bitOffset, int firstByte) {
+    BitWriter bitWriter = new BitWriter();
+    int zeroLengthsWrittenSingly = ((bitOffset - 93) % 8 + 8) % 8;
+
+    // not the last block, dynamic codes, 257 literal/length codes, 1 distance code, 18 code length codes
+    bitWriter.writeBits(0, 1);
+    bitWriter.writeBits(2, 2);
+    bitWriter.writeBits(0, 5);
+    bitWriter.writeBits(0, 5);
+    bitWriter.writeBits(14, 4);
+
+    // code lengths of the code length codes, in the order 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14,
+    // 1, giving 0 a code of one bit, 0, and 1 and 18 codes of two bits, 10 and 11
+    int[] codeLengthCodeLengths = {0, 0, 2, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2};
+    for (int codeLength : codeLengthCodeLengths) {
+      bitWriter.writeBits(codeLength, 3);
+    }
+
+    // 256 literals without a code, 1 bit for the end of block, no distance code
+    for (int i = 0; i < zeroLengthsWrittenSingly; i++) {
+      bitWriter.writeCode(0, 1);
+    }
+    bitWriter.writeCode(3, 2);
+    bitWriter.writeBits(138 - 11, 7);
+    bitWriter.writeCode(3, 2);
+    bitWriter.writeBits(256 - zeroLengthsWrittenSingly - 138 - 11, 7);
+    bitWriter.writeCode(2, 2);
+    bitWriter.writeCode(0, 1);
+
+    // end of block
+    bitWriter.writeCode(0, 1);
+
+    return bitWriter.finish(firstByte & (0xff << bitOffset));
+  }
+
+  private static class BitWriter {
+
+    private ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    private int bitBuffer;
+    private int bitCount;
+
+    void writeBits(int value, int count) {
+      bitBuffer |= value << bitCount;
+      bitCount += count;
+      while (bitCount >= 8) {
+        outputStream.write(bitBuffer);
+        bitBuffer >>>= 8;
+        bitCount -= 8;
+      }
+    }
+
+    /**
+     * Writes a huffman code, which deflate packs starting from its most significant bit
+     */
+    void writeCode(int code, int length) {
+      writeBits(Integer.reverse(code) >>> (32 - length), length);
+    }
+
+    /**
+     * @param lastBits bits to fill the last byte with, above the bits written
+     */
+    byte[] finish(int lastBits) {
+      outputStream.write(bitBuffer | lastBits);
+      return outputStream.toByteArray();
+    }
+  }
+
+  /**
+   * An inflater and the position in the entry it has inflated up to
+   */
+  private class Cursor {
+
+    private Inflater inflater;
+    private byte[] input = new byte[BUFF_SIZE];
+    private byte[] skipBuffer;
+    private long compressedPosition;
+    private long uncompressedPosition = -1;
+
+    int read(ByteBuffer dst, long position) throws IOException {
+      int checkpoint = index.findCheckpoint(position);
+      if (uncompressedPosition < index.getUncompressedOffset(checkpoint) || uncompressedPosition > position) {
+        start(checkpoint);
+      }
+
+      try {
+        skip(position - uncompressedPosition);
+
+        int readLen = 0;
+        byte[] buffer = dst.hasArray() ? null : getSkipBuffer();
+        while (dst.hasRemaining() && uncompressedPosition < size) {
+          int len = (int) Math.min(dst.remaining(), size - uncompressedPosition);
+          int n;
+          if (buffer == null) {
+            n = inflate(dst.array(), dst.arrayOffset() + dst.position(), len);
+            dst.position(dst.position() + n);
+          } else {
+            n = inflate(buffer, 0, Math.min(len, buffer.length));
+            dst.put(buffer, 0, n);
+          }
+          readLen += n;
+        }
+        return readLen;
+      } catch (IOException | RuntimeException e) {
+        // the inflater is left at an unknown position
+        uncompressedPosition = -1;
+        throw e;
+      }
+    }
+
+    void end() {
+      if (inflater != null) {
+        InflaterPool.returnInflater(inflater);
+        inflater = null;
+      }
+      uncompressedPosition = -1;
+    }
+
+    private void start(int checkpoint) throws IOException {
+      if (inflater == null) {
+        inflater = InflaterPool.borrowInflater();
+      } else {
+        inflater.reset();
+      }
+
+      byte[] window = index.getWindow(checkpoint);
+      if (window.length > 0) {
+        inflater.setDictionary(window);
+      }
+
+      compressedPosition = index.getCompressedOffset(checkpoint);
+      int bitOffset = index.getBitOffset(checkpoint);
+      if (bitOffset > 0) {
+        ByteBuffer firstByte = ByteBuffer.allocate(1);
+        if (compressedData.read(firstByte, compressedPosition) != 1) {
+          throw new EOFException("Unexpected end of deflate data of entry " + fileName);
+        }
+        inflater.setInput(createAlignmentBlock(bitOffset, firstByte.get(0)));
+        compressedPosition++;
+      }
+
+      uncompressedPosition = index.getUncompressedOffset(checkpoint);
+    }
+
+    private void skip(long length) throws IOException {
+      byte[] buffer = getSkipBuffer();
+      while (length > 0) {
+        length -= inflate(buffer, 0, (int) Math.min(buffer.length, length));
+      }
+    }
+
+    private int inflate(byte[] b, int off, int len) throws IOException {
+      try {
+        while (true) {
+          int n = inflater.inflate(b, off, len);
+          if (n > 0) {
+            uncompressedPosition += n;
+            return n;
+          }
+
+          if (inflater.finished() || inflater.needsDictionary()) {
+            throw new EOFException("Deflate data of entry " + fileName + " ends before its size");
+          }
+          if (inflater.needsInput()) {
+            readInput();
+          }
+        }
+      } catch (DataFormatException e) {
+        throw new ZipException("Invalid deflate data in entry " + fileName + ": " + e.getMessage());
+      }
+    }
+
+    private void readInput() throws IOException {
+      int readLen = compressedData.read(ByteBuffer.wrap(input), compressedPosition);
+      if (readLen <= 0) {
+        throw new EOFException("Unexpected end of deflate data of entry " + fileName);
+      }
+      inflater.setInput(input, 0, readLen);
+      compressedPosition += readLen;
+    }
+
+    private byte[] getSkipBuffer() {
+      if (skipBuffer == null) {
+        skipBuffer = new byte[BUFF_SIZE * 4];
+      }
+      return skipBuffer;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.zip.zipunzip.io.inputstream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Read only channel over the uncompressed data of an entry, which can be read from any position. Reads with
+ * {@link #read(ByteBuffer, long)} do not use the position of the channel and can be made from any number of threads
+ * at once, the relative reads share the position of the channel.
+ */
+public abstract class EntryChannel implements SeekableByteChannel {
+
+  private long position;
+  private volatile boolean open = true;
+
+  /**
+   * Reads from the entry at a position, without changing the position of the channel
+   *
+   * @param dst buffer to read into, up to its limit
+   * @param position position in the entry to read from
+   * @return number of bytes read, or -1 if the position is at or after the end of the entry
+   * @throws IOException if the zip file cannot be read or its data is not valid
+   */
+  public abstract int read(ByteBuffer dst, long position) throws IOException;
+
+  @Override
+  public synchronized int read(ByteBuffer dst) throws IOException {
+    int readLen = read(dst, position);
+    if (readLen > 0) {
+      position += readLen;
+    }
+    return readLen;
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public synchronized long position() throws IOException {
+    ensureOpen();
+    return position;
+  }
+
+  @Override
+  public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+    ensureOpen();
+    if (newPosition < 0) {
+      throw new IllegalArgumentException("negative position: " + newPosition);
+    }
+
+    position = newPosition;
+    return this;
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!open) {
+      return;
+    }
+
+    open = false;
+    implCloseChannel();
+  }
+
+  /**
+   * Releases what the channel holds, called once on the first close
+   */
+  protected abstract void implCloseChannel() throws IOException;
+
+  protected void ensureOpen() throws ClosedChannelException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+  }
+}
@@ -20,7 +20,7 @@ public class InflaterInputStream extends DecompressedInputStream {
 
   public InflaterInputStream(CipherInputStream cipherInputStream) {
     super(cipherInputStream);
-    this.inflater = new Inflater(true);
+    this.inflater = InflaterPool.borrowInflater();
     buff = new byte[InternalZipConstants.BUFF_SIZE];
   }
 
@@ -42,6 +42,11 @@ public class InflaterInputStream extends DecompressedInputStream {
 
   @Override
   public int read(byte[] b, int off, int len) throws IOException {
+    if (inflater == null) {
+      // given back at the end of the entry
+      return -1;
+    }
+
     try {
       int n;
       while ((n = inflater.inflate(b, off, len)) == 0) {
@@ -60,12 +65,16 @@ public class InflaterInputStream extends DecompressedInputStream {
 
   @Override
   public void endOfEntryReached(InputStream inputStream) throws IOException {
-    if (inflater != null) {
-      inflater.end();
-    }
+    returnInflater();
     super.endOfEntryReached(inputStream);
   }
 
+  @Override
+  public void close() throws IOException {
+    returnInflater();
+    super.close();
+  }
+
   @Override
   public void pushBackInputStreamIfNecessary(PushbackInputStream pushbackInputStream) throws IOException {
     int n = inflater.getRemaining();
@@ -75,6 +84,13 @@ public class InflaterInputStream extends DecompressedInputStream {
     }
   }
 
+  private void returnInflater() {
+    if (inflater != null) {
+      InflaterPool.returnInflater(inflater);
+      inflater = null;
+    }
+  }
+
   private void fill() throws IOException {
     len = super.read(buff, 0, buff.length);
     if (len == -1) {
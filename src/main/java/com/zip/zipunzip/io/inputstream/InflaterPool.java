@@ -0,0 +1,53 @@
+package com.zip.zipunzip.io.inputstream;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/**
+ * Inflaters for raw deflate data that are reset and kept for the next entry instead of being ended, so that reading
+ * many small entries does not allocate and free the native state of an inflater for each of them. At most
+ * {@link #MAX_IDLE_INFLATERS} are kept, any further ones are ended when they are given back.
+ */
+class InflaterPool {
+
+  private static final int MAX_IDLE_INFLATERS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+
+  private static final ConcurrentLinkedDeque<Inflater> idleInflaters = new ConcurrentLinkedDeque<>();
+  private static final AtomicInteger numberOfIdleInflaters = new AtomicInteger();
+
+  private InflaterPool() {
+  }
+
+  static Inflater borrowInflater() {
+    Inflater inflater = idleInflaters.pollFirst();
+    if (inflater == null) {
+      return new Inflater(true);
+    }
+
+    numberOfIdleInflaters.decrementAndGet();
+    return inflater;
+  }
+
+  /**
+   * Gives back an inflater, which must not be used by the caller afterwards
+   */
+  static void returnInflater(Inflater inflater) {
+    if (numberOfIdleInflaters.incrementAndGet() > MAX_IDLE_INFLATERS) {
+      numberOfIdleInflaters.decrementAndGet();
+      inflater.end();
+      return;
+    }
+
+    inflater.reset();
+    idleInflaters.addFirst(inflater);
+  }
+
+  static int getNumberOfIdleInflaters() {
+    return numberOfIdleInflaters.get();
+  }
+
+  static int getMaximumNumberOfIdleInflaters() {
+    return MAX_IDLE_INFLATERS;
+  }
+}
@@ -0,0 +1,194 @@
+package com.zip.zipunzip.io.inputstream;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a zip file, or the volumes of a split zip file, through memory mapped buffers instead of a read call per
+ * buffer. A volume is mapped as a whole, or in windows of {@link #MAX_WINDOW_SIZE} bytes when it is larger. Reads
+ * continue into the next volume at the end of a volume, and a mapping is released as soon as the reader moves to
+ * another window or volume, or is closed.
+ */
+public class MappedSplitInputStream extends SplitInputStream {
+
+  private static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+  private final long maxWindowSize;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position = 0;
+
+  public MappedSplitInputStream(File zipFile, boolean isSplitZipArchive, int lastSplitZipFileNumber)
+      throws FileNotFoundException {
+    this(zipFile, isSplitZipArchive, lastSplitZipFileNumber, MAX_WINDOW_SIZE);
+  }
+
+  MappedSplitInputStream(File zipFile, boolean isSplitZipArchive, int lastSplitZipFileNumber, long maxWindowSize)
+      throws FileNotFoundException {
+    super(zipFile, isSplitZipArchive, lastSplitZipFileNumber);
+    this.maxWindowSize = maxWindowSize;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+
+    int readLen = 0;
+    while (readLen < len) {
+      if (window == null || !window.hasRemaining()) {
+        if (!mapWindowForNextRead()) {
+          break;
+        }
+      }
+
+      int lengthToCopy = Math.min(len - readLen, window.remaining());
+      window.get(b, off + readLen, lengthToCopy);
+      readLen += lengthToCopy;
+    }
+
+    return readLen == 0 ? -1 : readLen;
+  }
+
+  /**
+   * Skips by moving through the mappings without copying, continuing into the next volume like a read
+   */
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = 0;
+    while (skipped < n) {
+      if (window == null || !window.hasRemaining()) {
+        if (!mapWindowForNextRead()) {
+          break;
+        }
+      }
+
+      int lengthToSkip = (int) Math.min(n - skipped, window.remaining());
+      window.position(window.position() + lengthToSkip);
+      skipped += lengthToSkip;
+    }
+
+    return skipped;
+  }
+
+  /**
+   * @return the number of bytes left in the current volume, 0 at the end of a volume even if another one follows
+   */
+  @Override
+  public int available() throws IOException {
+    long currentPosition = window == null ? position : windowStart + window.position();
+    long remaining = getRandomAccessFile().getChannel().size() - currentPosition;
+    return (int) Math.max(0, Math.min(remaining, Integer.MAX_VALUE));
+  }
+
+  @Override
+  protected void seek(long position) throws IOException {
+    if (window != null && position >= windowStart && position <= windowStart + window.limit()) {
+      window.position((int) (position - windowStart));
+      return;
+    }
+
+    releaseWindow();
+    this.position = position;
+  }
+
+  @Override
+  protected void openSplitFile(int zipFileIndex) throws IOException {
+    releaseWindow();
+    position = 0;
+    super.openSplitFile(zipFileIndex);
+  }
+
+  @Override
+  public void close() throws IOException {
+    releaseWindow();
+    super.close();
+  }
+
+  /**
+   * Maps the window following the current one, moving on to the next volume at the end of a volume
+   *
+   * @return false if the end of the last volume was reached
+   */
+  private boolean mapWindowForNextRead() throws IOException {
+    if (window != null) {
+      position = windowStart + window.limit();
+      releaseWindow();
+    }
+
+    FileChannel fileChannel = getRandomAccessFile().getChannel();
+    while (position >= fileChannel.size()) {
+      if (!hasNextSplitFile()) {
+        return false;
+      }
+      openSplitFile(getCurrentSplitFileCounter() + 1);
+      fileChannel = getRandomAccessFile().getChannel();
+    }
+
+    window = fileChannel.map(FileChannel.MapMode.READ_ONLY, position,
+        Math.min(fileChannel.size() - position, maxWindowSize));
+    windowStart = position;
+    return true;
+  }
+
+  private void releaseWindow() {
+    if (window != null) {
+      position = windowStart + window.position();
+      MappedBufferCleaner.unmap(window);
+      window = null;
+    }
+  }
+
+  /**
+   * Unmaps buffers right away instead of when they are garbage collected, which keeps the number of live
+   * mappings bounded and lets the file be deleted or replaced on Windows. Buffers are never handed out by this
+   * stream, so nothing can access a mapping after it is released.
+   */
+  private static class MappedBufferCleaner {
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+      Object unsafe = null;
+      Method invokeCleaner = null;
+      try {
+        // Java 9 and later
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        unsafe = theUnsafe.get(null);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        invokeCleaner = null;
+      }
+      UNSAFE = unsafe;
+      INVOKE_CLEANER = invokeCleaner;
+    }
+
+    static void unmap(MappedByteBuffer buffer) {
+      try {
+        if (INVOKE_CLEANER != null) {
+          INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } else {
+          // Java 8
+          Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+          cleanerMethod.setAccessible(true);
+          Object cleaner = cleanerMethod.invoke(buffer);
+          if (cleaner != null) {
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+          }
+        }
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // The mapping is released when the buffer is garbage collected
+      }
+    }
+  }
+}
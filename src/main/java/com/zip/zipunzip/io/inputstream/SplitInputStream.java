@@ -49,8 +49,7 @@ public class SplitInputStream extends InputStream {
     int readLen = randomAccessFile.read(b, off, len);
 
     if ((readLen != len || readLen == -1) && isSplitZipArchive) {
-      openRandomAccessFileForIndex(currentSplitFileCounter + 1);
-      currentSplitFileCounter++;
+      openSplitFile(currentSplitFileCounter + 1);
 
       if (readLen < 0) readLen = 0;
       int newlyRead = randomAccessFile.read(b, readLen, len - readLen);
@@ -63,20 +62,36 @@ public class SplitInputStream extends InputStream {
   public void prepareExtractionForFileHeader(FileHeader fileHeader) throws IOException {
 
     if (isSplitZipArchive && (currentSplitFileCounter != fileHeader.getDiskNumberStart())) {
-      openRandomAccessFileForIndex(fileHeader.getDiskNumberStart());
-      currentSplitFileCounter = fileHeader.getDiskNumberStart();
+      openSplitFile(fileHeader.getDiskNumberStart());
     }
 
-    randomAccessFile.seek(fileHeader.getOffsetLocalHeader());
+    seek(fileHeader.getOffsetLocalHeader());
   }
 
-  private void openRandomAccessFileForIndex(int zipFileIndex) throws IOException {
+  protected void seek(long position) throws IOException {
+    randomAccessFile.seek(position);
+  }
+
+  protected void openSplitFile(int zipFileIndex) throws IOException {
     File nextSplitFile = getNextSplitFileName(zipFileIndex);
     if (!nextSplitFile.exists()) {
       throw new FileNotFoundException("zip split file does not exist: " + nextSplitFile);
     }
     randomAccessFile.close();
     randomAccessFile = new RandomAccessFile(nextSplitFile, RandomAccessFileMode.READ.getValue());
+    currentSplitFileCounter = zipFileIndex;
+  }
+
+  protected boolean hasNextSplitFile() {
+    return isSplitZipArchive && currentSplitFileCounter != lastSplitZipFileNumber;
+  }
+
+  protected int getCurrentSplitFileCounter() {
+    return currentSplitFileCounter;
+  }
+
+  protected RandomAccessFile getRandomAccessFile() {
+    return randomAccessFile;
   }
 
   private File getNextSplitFileName(int zipFileIndex) throws IOException {
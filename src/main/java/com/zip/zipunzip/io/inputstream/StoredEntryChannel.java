@@ -0,0 +1,185 @@
+package com.zip.zipunzip.io.inputstream;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.headers.HeaderSignature;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+import com.zip.zipunzip.util.ArchiveCache.CachedArchive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.zip.zipunzip.util.InternalZipConstants.LOCHDR;
+
+/**
+ * Read only channel over the data of an entry which is stored without compression and encryption, so that its bytes
+ * lie in the zip file as they are. A position in the entry maps straight to a position in one of the volumes, so a
+ * read can start anywhere in the entry without reading what comes before it, and continues over as many volumes of a
+ * split archive as the data spans. As the data is not read as a whole, it is not checked against the crc of the
+ * entry.
+ *
+ * <p>The channel holds one use of the archive, which it releases on close.
+ */
+public class StoredEntryChannel extends EntryChannel {
+
+  private CachedArchive cachedArchive;
+  private String fileName;
+  private long size;
+  // a segment is the part of the data that lies in one volume
+  private long[] segmentStarts;
+  private int[] segmentDiskNumbers;
+  private long[] segmentOffsets;
+
+  /**
+   * @param cachedArchive archive of the entry, of which this channel takes over one use, also if creating it fails
+   * @param fileHeader file header of the entry
+   * @throws ZipException if the entry is compressed or encrypted, or its local file header is not valid
+   */
+  public StoredEntryChannel(CachedArchive cachedArchive, FileHeader fileHeader) throws IOException {
+    this(cachedArchive, fileHeader, false);
+  }
+
+  /**
+   * @param rawData if true, the channel reads the data of the entry as it lies in the zip file, whatever its
+   *                compression and encryption
+   */
+  StoredEntryChannel(CachedArchive cachedArchive, FileHeader fileHeader, boolean rawData) throws IOException {
+    this.cachedArchive = cachedArchive;
+    this.fileName = fileHeader.getFileName();
+    try {
+      if (!rawData && (fileHeader.isEncrypted() || fileHeader.getCompressionMethod() != CompressionMethod.STORE)) {
+        throw new ZipException("Entry " + fileName + " is compressed or encrypted, only entries stored as they are "
+            + "can be read with a seekable channel");
+      }
+
+      size = fileHeader.getCompressedSize();
+      int diskNumber = cachedArchive.getZipModel().isSplitArchive() ? fileHeader.getDiskNumberStart() : 0;
+      long dataOffset = fileHeader.getOffsetLocalHeader() + readLengthOfLocalFileHeader(diskNumber,
+          fileHeader.getOffsetLocalHeader());
+      mapSegments(diskNumber, dataOffset);
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int read(ByteBuffer dst, long position) throws IOException {
+    ensureOpen();
+    if (position < 0) {
+      throw new IllegalArgumentException("negative position: " + position);
+    }
+
+    if (position >= size) {
+      return dst.hasRemaining() ? -1 : 0;
+    }
+
+    int limit = dst.limit();
+    int readLen = 0;
+    try {
+      while (dst.hasRemaining() && position < size) {
+        int segment = findSegment(position);
+        long segmentEnd = segment + 1 < segmentStarts.length ? segmentStarts[segment + 1] : size;
+        dst.limit(dst.position() + (int) Math.min(dst.remaining(), segmentEnd - position));
+
+        int n = cachedArchive.read(segmentDiskNumbers[segment], dst,
+            segmentOffsets[segment] + position - segmentStarts[segment]);
+        if (n == -1) {
+          throw new EOFException("zip file ends within the data of entry " + fileName);
+        }
+
+        dst.limit(limit);
+        position += n;
+        readLen += n;
+      }
+    } finally {
+      dst.limit(limit);
+    }
+
+    return readLen;
+  }
+
+  @Override
+  public long size() throws IOException {
+    ensureOpen();
+    return size;
+  }
+
+  @Override
+  protected void implCloseChannel() {
+    cachedArchive.release();
+  }
+
+  private int readLengthOfLocalFileHeader(int diskNumber, long offsetLocalHeader) throws IOException {
+    byte[] localFileHeader = new byte[LOCHDR];
+    cachedArchive.retain();
+    try (CachedArchiveInputStream inputStream = new CachedArchiveInputStream(cachedArchive, diskNumber,
+        offsetLocalHeader)) {
+      if (inputStream.read(localFileHeader) != LOCHDR) {
+        throw new ZipException("Could not read local file header of entry " + fileName);
+      }
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(localFileHeader).order(ByteOrder.LITTLE_ENDIAN);
+    if ((buffer.getInt(0) & 0xffffffffL) != HeaderSignature.LOCAL_FILE_HEADER.getValue()) {
+      throw new ZipException("Could not locate local file header for entry " + fileName);
+    }
+
+    return LOCHDR + (buffer.getShort(26) & 0xffff) + (buffer.getShort(28) & 0xffff);
+  }
+
+  /**
+   * Splits the data at the ends of the volumes it spans
+   */
+  private void mapSegments(int diskNumber, long dataOffset) throws IOException {
+    int lastDiskNumber = cachedArchive.getNumberOfVolumes() - 1;
+    List<long[]> segments = new ArrayList<>();
+    long entryPosition = 0;
+
+    long volumeSize = cachedArchive.getVolumeSize(diskNumber);
+    while (dataOffset >= volumeSize && diskNumber < lastDiskNumber) {
+      // the local file header ends at the end of a volume or reaches into the next one
+      dataOffset -= volumeSize;
+      diskNumber++;
+      volumeSize = cachedArchive.getVolumeSize(diskNumber);
+    }
+
+    while (true) {
+      long lengthInVolume = Math.min(size - entryPosition, Math.max(0, volumeSize - dataOffset));
+      if (lengthInVolume > 0 || segments.isEmpty()) {
+        segments.add(new long[] {entryPosition, diskNumber, dataOffset});
+      }
+      entryPosition += lengthInVolume;
+
+      if (entryPosition == size) {
+        break;
+      }
+      if (diskNumber == lastDiskNumber) {
+        throw new ZipException("Data of entry " + fileName + " ends beyond the end of the zip file");
+      }
+
+      diskNumber++;
+      dataOffset = 0;
+      volumeSize = cachedArchive.getVolumeSize(diskNumber);
+    }
+
+    segmentStarts = new long[segments.size()];
+    segmentDiskNumbers = new int[segments.size()];
+    segmentOffsets = new long[segments.size()];
+    for (int i = 0; i < segments.size(); i++) {
+      segmentStarts[i] = segments.get(i)[0];
+      segmentDiskNumbers[i] = (int) segments.get(i)[1];
+      segmentOffsets[i] = segments.get(i)[2];
+    }
+  }
+
+  private int findSegment(long position) {
+    int segment = Arrays.binarySearch(segmentStarts, position);
+    return segment >= 0 ? segment : -segment - 2;
+  }
+}
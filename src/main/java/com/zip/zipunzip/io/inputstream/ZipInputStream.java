@@ -16,6 +16,7 @@
 
 package com.zip.zipunzip.io.inputstream;
 
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.headers.HeaderReader;
 import com.zip.zipunzip.headers.HeaderSignature;
@@ -59,6 +60,7 @@ public class ZipInputStream extends InputStream {
   private byte[] endOfEntryBuffer;
   private boolean canSkipExtendedLocalFileHeader = false;
   private Charset charset;
+  private AesKeyPrefetcher aesKeyPrefetcher;
 
   public ZipInputStream(InputStream inputStream) {
     this(inputStream, null, InternalZipConstants.CHARSET_UTF_8);
@@ -177,6 +179,13 @@ public class ZipInputStream extends InputStream {
     return inputStream.available();
   }
 
+  /**
+   * Sets the prefetcher to take the keys of AES encrypted entries from, if their keys were prefetched
+   */
+  public void setAesKeyPrefetcher(AesKeyPrefetcher aesKeyPrefetcher) {
+    this.aesKeyPrefetcher = aesKeyPrefetcher;
+  }
+
   private void endOfCompressedDataReached() throws IOException {
     //With inflater, without knowing the compressed or uncompressed size, we over read necessary data
     //In such cases, we have to push back the inputstream to the end of data
@@ -202,7 +211,7 @@ public class ZipInputStream extends InputStream {
     }
 
     if (localFileHeader.getEncryptionMethod() == EncryptionMethod.AES) {
-      return new AesCipherInputStream(zipEntryInputStream, localFileHeader, password);
+      return new AesCipherInputStream(zipEntryInputStream, localFileHeader, password, aesKeyPrefetcher);
     } else {
       return new ZipStandardCipherInputStream(zipEntryInputStream, localFileHeader, password);
     }
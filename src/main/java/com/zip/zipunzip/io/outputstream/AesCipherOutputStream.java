@@ -1,6 +1,7 @@
 package com.zip.zipunzip.io.outputstream;
 
 import com.zip.zipunzip.crypto.AESEncrpyter;
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.model.ZipParameters;
 
@@ -14,13 +15,14 @@ class AesCipherOutputStream extends CipherOutputStream<AESEncrpyter> {
   private byte[] pendingBuffer = new byte[AES_BLOCK_SIZE];
   private int pendingBufferLength = 0;
 
-  public AesCipherOutputStream(ZipEntryOutputStream outputStream, ZipParameters zipParameters, char[] password) throws IOException, ZipException {
-    super(outputStream, zipParameters, password);
+  public AesCipherOutputStream(ZipEntryOutputStream outputStream, ZipParameters zipParameters, char[] password,
+                               AesKeyPrefetcher aesKeyPrefetcher) throws IOException, ZipException {
+    super(outputStream, zipParameters, password, aesKeyPrefetcher);
   }
 
   @Override
   protected AESEncrpyter initializeEncrypter(OutputStream outputStream, ZipParameters zipParameters, char[] password) throws IOException, ZipException {
-    AESEncrpyter encrypter = new AESEncrpyter(password, zipParameters.getAesKeyStrength());
+    AESEncrpyter encrypter = new AESEncrpyter(password, zipParameters.getAesKeyStrength(), getAesKeyPrefetcher());
     writeAesEncryptionHeaderData(encrypter);
     return encrypter;
   }
@@ -2,6 +2,7 @@
 
 package com.zip.zipunzip.io.outputstream;
 
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
 import com.zip.zipunzip.crypto.Encrypter;
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.io.outputstream.ZipEntryOutputStream;
@@ -14,10 +15,17 @@ abstract class CipherOutputStream<T extends Encrypter> extends OutputStream {
 
   private ZipEntryOutputStream zipEntryOutputStream;
   private T encrypter;
+  private AesKeyPrefetcher aesKeyPrefetcher;
 
   public CipherOutputStream(ZipEntryOutputStream zipEntryOutputStream, ZipParameters zipParameters, char[] password)
       throws IOException, ZipException {
+    this(zipEntryOutputStream, zipParameters, password, null);
+  }
+
+  public CipherOutputStream(ZipEntryOutputStream zipEntryOutputStream, ZipParameters zipParameters, char[] password,
+                            AesKeyPrefetcher aesKeyPrefetcher) throws IOException, ZipException {
     this.zipEntryOutputStream = zipEntryOutputStream;
+    this.aesKeyPrefetcher = aesKeyPrefetcher;
     this.encrypter = initializeEncrypter(zipEntryOutputStream, zipParameters, password);
   }
 
@@ -58,6 +66,10 @@ abstract class CipherOutputStream<T extends Encrypter> extends OutputStream {
     return encrypter;
   }
 
+  protected AesKeyPrefetcher getAesKeyPrefetcher() {
+    return aesKeyPrefetcher;
+  }
+
   protected abstract T initializeEncrypter(OutputStream outputStream, ZipParameters zipParameters, char[] password)
       throws IOException, ZipException;
 }
@@ -37,6 +37,18 @@ abstract class CompressedOutputStream extends OutputStream {
     cipherOutputStream.close();
   }
 
+  /**
+   * @return true if this stream computes the crc of the uncompressed data itself, in which case callers
+   * should take it from {@link #getCrc()} instead of computing it again
+   */
+  public boolean isCrcComputed() {
+    return false;
+  }
+
+  public long getCrc() {
+    return 0;
+  }
+
   public long getCompressedSize() {
     return cipherOutputStream.getNumberOfBytesWrittenForThisEntry();
   }
@@ -0,0 +1,102 @@
+package com.zip.zipunzip.io.outputstream;
+
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds the compression and encryption chain for the data of a single zip entry. Shared by
+ * {@link ZipOutputStream} and {@link EntryDataOutputStream} so that both produce identical entry data.
+ */
+class CompressedOutputStreamFactory {
+
+  private AesKeyPrefetcher aesKeyPrefetcher;
+  private ExecutorService deflateExecutorService;
+  private boolean ownsDeflateExecutorService = false;
+
+  CompressedOutputStream createCompressedOutputStream(ZipEntryOutputStream zipEntryOutputStream,
+                                                      ZipParameters zipParameters, char[] password)
+      throws IOException {
+    CipherOutputStream cipherOutputStream = createCipherOutputStream(zipEntryOutputStream, zipParameters, password);
+    return createCompressedOutputStream(cipherOutputStream, zipParameters);
+  }
+
+  private CipherOutputStream createCipherOutputStream(ZipEntryOutputStream zipEntryOutputStream,
+                                                      ZipParameters zipParameters, char[] password)
+      throws IOException {
+    if (!zipParameters.isEncryptFiles()) {
+      return new NoCipherOutputStream(zipEntryOutputStream, zipParameters, null);
+    }
+
+    if (password == null || password.length == 0) {
+      throw new ZipException("password not set");
+    }
+
+    if (zipParameters.getEncryptionMethod() == EncryptionMethod.AES) {
+      return new AesCipherOutputStream(zipEntryOutputStream, zipParameters, password, aesKeyPrefetcher);
+    } else if (zipParameters.getEncryptionMethod() == EncryptionMethod.ZIP_STANDARD) {
+      return new ZipStandardCipherOutputStream(zipEntryOutputStream, zipParameters, password);
+    } else {
+      throw new ZipException("Invalid encryption method");
+    }
+  }
+
+  private CompressedOutputStream createCompressedOutputStream(CipherOutputStream cipherOutputStream,
+                                                              ZipParameters zipParameters) {
+    if (zipParameters.getCompressionMethod() == CompressionMethod.DEFLATE) {
+      if (isBlockParallelDeflateApplicable(zipParameters)) {
+        return new ParallelDeflaterOutputStream(cipherOutputStream, zipParameters.getCompressionLevel(),
+            getDeflateExecutorService(zipParameters), zipParameters.getNumberOfDeflateThreads(),
+            zipParameters.getDeflateBlockSize());
+      }
+      return new DeflaterOutputStream(cipherOutputStream, zipParameters.getCompressionLevel());
+    }
+
+    return new StoreOutputStream(cipherOutputStream);
+  }
+
+  void setAesKeyPrefetcher(AesKeyPrefetcher aesKeyPrefetcher) {
+    this.aesKeyPrefetcher = aesKeyPrefetcher;
+  }
+
+  void setDeflateExecutorService(ExecutorService deflateExecutorService) {
+    this.deflateExecutorService = deflateExecutorService;
+  }
+
+  /**
+   * Shuts down the executor for block parallel deflate if it was created by this factory. An executor which was
+   * set is left to its owner.
+   */
+  void close() {
+    if (ownsDeflateExecutorService) {
+      deflateExecutorService.shutdownNow();
+      deflateExecutorService = null;
+      ownsDeflateExecutorService = false;
+    }
+  }
+
+  private ExecutorService getDeflateExecutorService(ZipParameters zipParameters) {
+    // Streams used directly, without a task to share an executor, get one for all of their entries
+    if (deflateExecutorService == null) {
+      deflateExecutorService = Executors.newFixedThreadPool(zipParameters.getNumberOfDeflateThreads(), runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      });
+      ownsDeflateExecutorService = true;
+    }
+    return deflateExecutorService;
+  }
+
+  private boolean isBlockParallelDeflateApplicable(ZipParameters zipParameters) {
+    // Entries which fit in a single block gain nothing from being split
+    return zipParameters.getNumberOfDeflateThreads() > 1
+        && (zipParameters.getEntrySize() < 0 || zipParameters.getEntrySize() > zipParameters.getDeflateBlockSize());
+  }
+}
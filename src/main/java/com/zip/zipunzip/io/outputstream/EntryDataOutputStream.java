@@ -0,0 +1,106 @@
+package com.zip.zipunzip.io.outputstream;
+
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
+import com.zip.zipunzip.headers.FileHeaderFactory;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.util.InternalZipConstants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+/**
+ * Compresses and encrypts the data of a single zip entry without writing any zip headers. The resulting
+ * data can be added to an archive later with {@link ZipOutputStream#putPreparedEntry}, which lets several
+ * entries be prepared concurrently while still being written to the archive in order.
+ */
+public class EntryDataOutputStream extends OutputStream {
+
+  private OutputStream outputStream;
+  private char[] password;
+  private Charset charset;
+  private CompressedOutputStream compressedOutputStream;
+  private FileHeader fileHeader;
+  private FileHeaderFactory fileHeaderFactory = new FileHeaderFactory();
+  private CompressedOutputStreamFactory compressedOutputStreamFactory = new CompressedOutputStreamFactory();
+  private CRC32 crc32 = new CRC32();
+  private long uncompressedSizeForThisEntry = 0;
+
+  public EntryDataOutputStream(OutputStream outputStream, char[] password, Charset charset) {
+    if (charset == null) {
+      charset = InternalZipConstants.CHARSET_UTF_8;
+    }
+
+    this.outputStream = outputStream;
+    this.password = password;
+    this.charset = charset;
+  }
+
+  public void putNextEntry(ZipParameters zipParameters) throws IOException {
+    fileHeader = fileHeaderFactory.generateFileHeader(zipParameters, false, 0, charset);
+    ZipEntryOutputStream zipEntryOutputStream = new ZipEntryOutputStream(outputStream);
+    compressedOutputStream = compressedOutputStreamFactory.createCompressedOutputStream(zipEntryOutputStream,
+        zipParameters, password);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b});
+  }
+
+  @Override
+  public void write(byte[] b) throws IOException {
+    write(b, 0, b.length);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (!compressedOutputStream.isCrcComputed()) {
+      crc32.update(b, off, len);
+    }
+    compressedOutputStream.write(b, off, len);
+    uncompressedSizeForThisEntry += len;
+  }
+
+  /**
+   * Finishes the data of the current entry
+   *
+   * @return file header with crc and sizes of the entry. Offset and disk number are assigned when the
+   * entry is written to the archive.
+   * @throws IOException
+   */
+  public FileHeader closeEntry() throws IOException {
+    compressedOutputStream.closeEntry();
+
+    fileHeader.setCompressedSize(compressedOutputStream.getCompressedSize());
+    fileHeader.setUncompressedSize(uncompressedSizeForThisEntry);
+
+    if (ZipOutputStream.writeCrc(fileHeader)) {
+      fileHeader.setCrc(compressedOutputStream.isCrcComputed() ? compressedOutputStream.getCrc() : crc32.getValue());
+    }
+
+    compressedOutputStream.close();
+    FileHeader closedFileHeader = fileHeader;
+    fileHeader = null;
+    uncompressedSizeForThisEntry = 0;
+    crc32.reset();
+    return closedFileHeader;
+  }
+
+  @Override
+  public void close() throws IOException {
+    compressedOutputStreamFactory.close();
+    outputStream.close();
+  }
+
+  public void setAesKeyPrefetcher(AesKeyPrefetcher aesKeyPrefetcher) {
+    compressedOutputStreamFactory.setAesKeyPrefetcher(aesKeyPrefetcher);
+  }
+
+  public void setDeflateExecutorService(ExecutorService deflateExecutorService) {
+    compressedOutputStreamFactory.setDeflateExecutorService(deflateExecutorService);
+  }
+}
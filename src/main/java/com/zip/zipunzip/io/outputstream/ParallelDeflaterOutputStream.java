@@ -0,0 +1,186 @@
+package com.zip.zipunzip.io.outputstream;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.enums.CompressionLevel;
+import com.zip.zipunzip.util.CrcUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static com.zip.zipunzip.util.InternalZipConstants.BUFF_SIZE;
+
+/**
+ * Deflates the data of one entry on several threads. Input is cut into fixed size blocks, each block is
+ * compressed by its own raw Deflater primed with the last 32 KB of the previous block as dictionary and ended
+ * with a sync flush, so that the compressed blocks concatenate into a single standard deflate stream. Only the
+ * last block is finished. The crc of the entry is combined from the crc of each block. Blocks are compressed on
+ * the executor passed in, which is shared by all entries of an add operation and shut down by its owner.
+ */
+class ParallelDeflaterOutputStream extends CompressedOutputStream {
+
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+
+  private int compressionLevel;
+  private int blockSize;
+  private int maxBlocksInFlight;
+  private ExecutorService executorService;
+  private Deque<Future<CompressedBlock>> blocksInFlight = new ArrayDeque<>();
+  private byte[] currentBlock;
+  private int currentBlockLength = 0;
+  private byte[] dictionary;
+  private long crc = 0;
+  private boolean entryClosed = false;
+
+  public ParallelDeflaterOutputStream(CipherOutputStream cipherOutputStream, CompressionLevel compressionLevel,
+                                      ExecutorService executorService, int numberOfThreads, int blockSize) {
+    super(cipherOutputStream);
+    this.compressionLevel = compressionLevel.getLevel();
+    this.blockSize = Math.max(blockSize, DICTIONARY_SIZE);
+    this.maxBlocksInFlight = numberOfThreads * 2;
+    this.currentBlock = new byte[this.blockSize];
+    this.executorService = executorService;
+  }
+
+  public void write(byte[] b) throws IOException {
+    write(b, 0, b.length);
+  }
+
+  public void write(int bval) throws IOException {
+    byte[] b = new byte[1];
+    b[0] = (byte) bval;
+    write(b, 0, 1);
+  }
+
+  public void write(byte[] buf, int off, int len) throws IOException {
+    while (len > 0) {
+      int lengthToCopy = Math.min(len, blockSize - currentBlockLength);
+      System.arraycopy(buf, off, currentBlock, currentBlockLength, lengthToCopy);
+      currentBlockLength += lengthToCopy;
+      off += lengthToCopy;
+      len -= lengthToCopy;
+
+      if (currentBlockLength == blockSize) {
+        submitCurrentBlock(false);
+      }
+    }
+  }
+
+  public void closeEntry() throws IOException {
+    if (!entryClosed) {
+      submitCurrentBlock(true);
+      while (!blocksInFlight.isEmpty()) {
+        writeNextCompressedBlock();
+      }
+      entryClosed = true;
+    }
+    super.closeEntry();
+  }
+
+  @Override
+  public void close() throws IOException {
+    // Blocks of an entry that was not closed are abandoned, the executor itself stays with its owner
+    for (Future<CompressedBlock> blockInFlight : blocksInFlight) {
+      blockInFlight.cancel(true);
+    }
+    blocksInFlight.clear();
+    super.close();
+  }
+
+  @Override
+  public boolean isCrcComputed() {
+    return true;
+  }
+
+  @Override
+  public long getCrc() {
+    return crc;
+  }
+
+  private void submitCurrentBlock(boolean lastBlock) throws IOException {
+    byte[] block = currentBlock;
+    int blockLength = currentBlockLength;
+    byte[] blockDictionary = dictionary;
+
+    if (!lastBlock) {
+      dictionary = Arrays.copyOfRange(block, blockLength - DICTIONARY_SIZE, blockLength);
+      currentBlock = new byte[blockSize];
+      currentBlockLength = 0;
+    }
+
+    blocksInFlight.add(executorService.submit(() -> compressBlock(block, blockLength, blockDictionary, lastBlock)));
+
+    while (blocksInFlight.size() >= maxBlocksInFlight) {
+      writeNextCompressedBlock();
+    }
+  }
+
+  private void writeNextCompressedBlock() throws IOException {
+    CompressedBlock compressedBlock;
+    try {
+      compressedBlock = blocksInFlight.poll().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ZipException(e);
+    } catch (ExecutionException e) {
+      throw new ZipException(e.getCause().getMessage(), e.getCause(), ZipException.Type.UNKNOWN);
+    }
+
+    super.write(compressedBlock.compressedData, 0, compressedBlock.compressedData.length);
+    crc = CrcUtil.combineCrc32(crc, compressedBlock.crc, compressedBlock.uncompressedLength);
+  }
+
+  private CompressedBlock compressBlock(byte[] block, int blockLength, byte[] blockDictionary, boolean lastBlock) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(block, 0, blockLength);
+
+    Deflater deflater = new Deflater(compressionLevel, true);
+    try {
+      if (blockDictionary != null) {
+        deflater.setDictionary(blockDictionary);
+      }
+      deflater.setInput(block, 0, blockLength);
+
+      ByteArrayOutputStream compressedData = new ByteArrayOutputStream(blockLength / 2 + 64);
+      byte[] buff = new byte[BUFF_SIZE];
+      int len;
+
+      if (lastBlock) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          len = deflater.deflate(buff, 0, buff.length);
+          compressedData.write(buff, 0, len);
+        }
+      } else {
+        // A sync flush ends the block on a byte boundary without marking it as the last block of the stream
+        do {
+          len = deflater.deflate(buff, 0, buff.length, Deflater.SYNC_FLUSH);
+          compressedData.write(buff, 0, len);
+        } while (len == buff.length);
+      }
+
+      return new CompressedBlock(compressedData.toByteArray(), blockLength, crc32.getValue());
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static class CompressedBlock {
+    private byte[] compressedData;
+    private int uncompressedLength;
+    private long crc;
+
+    CompressedBlock(byte[] compressedData, int uncompressedLength, long crc) {
+      this.compressedData = compressedData;
+      this.uncompressedLength = uncompressedLength;
+      this.crc = crc;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.zip.zipunzip.io.outputstream;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Output stream which keeps written data in memory up to a threshold and moves it to a temporary file
+ * once the threshold is exceeded. Used to hold prepared entry data until it can be written to the archive.
+ */
+public class SpillingOutputStream extends OutputStream {
+
+  private long memoryThreshold;
+  private File spillDirectory;
+  private ByteArrayOutputStream memoryBuffer = new ByteArrayOutputStream();
+  private File spillFile;
+  private OutputStream spillOutputStream;
+  private long size = 0;
+
+  public SpillingOutputStream(long memoryThreshold, File spillDirectory) {
+    this.memoryThreshold = memoryThreshold;
+    this.spillDirectory = spillDirectory;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b});
+  }
+
+  @Override
+  public void write(byte[] b) throws IOException {
+    write(b, 0, b.length);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (spillOutputStream == null && size + len > memoryThreshold) {
+      spillToFile();
+    }
+
+    if (spillOutputStream != null) {
+      spillOutputStream.write(b, off, len);
+    } else {
+      memoryBuffer.write(b, off, len);
+    }
+    size += len;
+  }
+
+  /**
+   * @return stream over all data written so far. The stream has to be closed before calling this method
+   * @throws IOException
+   */
+  public InputStream getInputStream() throws IOException {
+    if (spillFile != null) {
+      return new FileInputStream(spillFile);
+    }
+
+    return new ByteArrayInputStream(memoryBuffer.toByteArray());
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public boolean isSpilledToFile() {
+    return spillFile != null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (spillOutputStream != null) {
+      spillOutputStream.close();
+    }
+  }
+
+  /**
+   * Releases the buffered data and deletes the temporary file if one was created
+   */
+  public void delete() {
+    memoryBuffer = new ByteArrayOutputStream();
+
+    try {
+      close();
+    } catch (IOException e) {
+      // Ignore, file is deleted below
+    }
+
+    if (spillFile != null) {
+      spillFile.delete();
+    }
+  }
+
+  private void spillToFile() throws IOException {
+    spillFile = File.createTempFile("zipunzip", ".tmp", spillDirectory);
+    spillOutputStream = new BufferedOutputStream(new FileOutputStream(spillFile));
+    memoryBuffer.writeTo(spillOutputStream);
+    memoryBuffer = new ByteArrayOutputStream();
+  }
+}
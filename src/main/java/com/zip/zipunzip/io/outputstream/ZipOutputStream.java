@@ -1,18 +1,12 @@
 package com.zip.zipunzip.io.outputstream;
 
-import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
 import com.zip.zipunzip.headers.FileHeaderFactory;
 import com.zip.zipunzip.headers.HeaderSignature;
 import com.zip.zipunzip.headers.HeaderWriter;
-import com.zip.zipunzip.io.outputstream.AesCipherOutputStream;
-import com.zip.zipunzip.io.outputstream.CipherOutputStream;
 import com.zip.zipunzip.io.outputstream.CompressedOutputStream;
 import com.zip.zipunzip.io.outputstream.CountingOutputStream;
-import com.zip.zipunzip.io.outputstream.DeflaterOutputStream;
-import com.zip.zipunzip.io.outputstream.NoCipherOutputStream;
-import com.zip.zipunzip.io.outputstream.StoreOutputStream;
 import com.zip.zipunzip.io.outputstream.ZipEntryOutputStream;
-import com.zip.zipunzip.io.outputstream.ZipStandardCipherOutputStream;
 import com.zip.zipunzip.model.FileHeader;
 import com.zip.zipunzip.model.LocalFileHeader;
 import com.zip.zipunzip.model.ZipModel;
@@ -24,8 +18,10 @@ import com.zip.zipunzip.util.InternalZipConstants;
 import com.zip.zipunzip.util.RawIO;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
 import java.util.zip.CRC32;
 
 public class ZipOutputStream extends OutputStream {
@@ -38,6 +34,7 @@ public class ZipOutputStream extends OutputStream {
   private LocalFileHeader localFileHeader;
   private FileHeaderFactory fileHeaderFactory = new FileHeaderFactory();
   private HeaderWriter headerWriter = new HeaderWriter();
+  private CompressedOutputStreamFactory compressedOutputStreamFactory = new CompressedOutputStreamFactory();
   private CRC32 crc32 = new CRC32();
   private RawIO rawIO = new RawIO();
   private long uncompressedSizeForThisEntry = 0;
@@ -93,7 +90,9 @@ public class ZipOutputStream extends OutputStream {
 
   public void write(byte[] b, int off, int len) throws IOException {
     ensureStreamOpen();
-    crc32.update(b, off, len);
+    if (!compressedOutputStream.isCrcComputed()) {
+      crc32.update(b, off, len);
+    }
     compressedOutputStream.write(b, off, len);
     uncompressedSizeForThisEntry += len;
   }
@@ -109,8 +108,9 @@ public class ZipOutputStream extends OutputStream {
     localFileHeader.setUncompressedSize(uncompressedSizeForThisEntry);
 
     if (writeCrc(fileHeader)) {
-      fileHeader.setCrc(crc32.getValue());
-      localFileHeader.setCrc(crc32.getValue());
+      long crc = compressedOutputStream.isCrcComputed() ? compressedOutputStream.getCrc() : crc32.getValue();
+      fileHeader.setCrc(crc);
+      localFileHeader.setCrc(crc);
     }
 
     zipModel.getLocalFileHeaders().add(localFileHeader);
@@ -123,8 +123,43 @@ public class ZipOutputStream extends OutputStream {
     return fileHeader;
   }
 
+  /**
+   * Writes an entry whose data was already compressed and encrypted elsewhere, for example by an
+   * {@link EntryDataOutputStream}. The local file header is written with the final crc and sizes of the
+   * given file header, so it does not have to be updated once the data is written.
+   *
+   * @param preparedFileHeader file header returned when closing the entry data
+   * @param entryData compressed and encrypted data of the entry
+   * @return the file header as added to the central directory
+   * @throws IOException
+   */
+  public FileHeader putPreparedEntry(FileHeader preparedFileHeader, InputStream entryData) throws IOException {
+    ensureStreamOpen();
+
+    preparedFileHeader.setDiskNumberStart(countingOutputStream.getCurrentSplitFileCounter());
+    preparedFileHeader.setOffsetLocalHeader(countingOutputStream.getOffsetForNextEntry());
+
+    LocalFileHeader preparedLocalFileHeader = fileHeaderFactory.generateLocalFileHeader(preparedFileHeader);
+    headerWriter.writeLocalFileHeader(zipModel, preparedLocalFileHeader, countingOutputStream, charset);
+
+    byte[] buff = new byte[InternalZipConstants.BUFF_SIZE];
+    int readLen;
+    while ((readLen = entryData.read(buff)) != -1) {
+      countingOutputStream.write(buff, 0, readLen);
+    }
+
+    zipModel.getLocalFileHeaders().add(preparedLocalFileHeader);
+    zipModel.getCentralDirectory().getFileHeaders().add(preparedFileHeader);
+
+    if (preparedLocalFileHeader.isDataDescriptorExists()) {
+      headerWriter.writeExtendedLocalHeader(preparedLocalFileHeader, countingOutputStream);
+    }
+    return preparedFileHeader;
+  }
+
   @Override
   public void close() throws IOException {
+    compressedOutputStreamFactory.close();
     zipModel.getEndOfCentralDirectoryRecord().setOffsetOfStartOfCentralDirectory(countingOutputStream.getNumberOfBytesWritten());
     headerWriter.finalizeZipFile(zipModel, countingOutputStream, charset);
     countingOutputStream.close();
@@ -136,6 +171,21 @@ public class ZipOutputStream extends OutputStream {
     zipModel.getEndOfCentralDirectoryRecord().setComment(comment);
   }
 
+  /**
+   * Sets the prefetcher to take pre-generated salts and keys of AES encrypted entries from
+   */
+  public void setAesKeyPrefetcher(AesKeyPrefetcher aesKeyPrefetcher) {
+    compressedOutputStreamFactory.setAesKeyPrefetcher(aesKeyPrefetcher);
+  }
+
+  /**
+   * Sets the executor to compress the blocks of entries written with block parallel deflate on. The caller shuts it
+   * down; without one, the stream creates its own and shuts it down when closed.
+   */
+  public void setDeflateExecutorService(ExecutorService deflateExecutorService) {
+    compressedOutputStreamFactory.setDeflateExecutorService(deflateExecutorService);
+  }
+
   private void ensureStreamOpen() throws IOException {
     if (streamClosed) {
       throw new IOException("Stream is closed");
@@ -180,36 +230,7 @@ public class ZipOutputStream extends OutputStream {
 
   private CompressedOutputStream initializeCompressedOutputStream(ZipParameters zipParameters) throws IOException {
     ZipEntryOutputStream zipEntryOutputStream = new ZipEntryOutputStream(countingOutputStream);
-    CipherOutputStream cipherOutputStream = initializeCipherOutputStream(zipEntryOutputStream, zipParameters);
-    return initializeCompressedOutputStream(cipherOutputStream, zipParameters);
-  }
-
-  private CipherOutputStream initializeCipherOutputStream(ZipEntryOutputStream zipEntryOutputStream,
-                                                          ZipParameters zipParameters) throws IOException {
-    if (!zipParameters.isEncryptFiles()) {
-      return new NoCipherOutputStream(zipEntryOutputStream, zipParameters, null);
-    }
-
-    if (password == null || password.length == 0) {
-      throw new ZipException("password not set");
-    }
-
-    if (zipParameters.getEncryptionMethod() == EncryptionMethod.AES) {
-      return new AesCipherOutputStream(zipEntryOutputStream, zipParameters, password);
-    } else if (zipParameters.getEncryptionMethod() == EncryptionMethod.ZIP_STANDARD) {
-      return new ZipStandardCipherOutputStream(zipEntryOutputStream, zipParameters, password);
-    } else {
-      throw new ZipException("Invalid encryption method");
-    }
-  }
-
-  private CompressedOutputStream initializeCompressedOutputStream(CipherOutputStream cipherOutputStream,
-                                                                  ZipParameters zipParameters) {
-    if (zipParameters.getCompressionMethod() == CompressionMethod.DEFLATE) {
-      return new DeflaterOutputStream(cipherOutputStream, zipParameters.getCompressionLevel());
-    }
-
-    return new StoreOutputStream(cipherOutputStream);
+    return compressedOutputStreamFactory.createCompressedOutputStream(zipEntryOutputStream, zipParameters, password);
   }
 
   private void verifyZipParameters(ZipParameters zipParameters) {
@@ -221,7 +242,7 @@ public class ZipOutputStream extends OutputStream {
     }
   }
 
-  private boolean writeCrc(FileHeader fileHeader) {
+  static boolean writeCrc(FileHeader fileHeader) {
     boolean isAesEncrypted = fileHeader.isEncrypted() && fileHeader.getEncryptionMethod().equals(EncryptionMethod.AES);
 
     if (!isAesEncrypted) {
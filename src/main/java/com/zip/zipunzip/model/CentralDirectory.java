@@ -1,11 +1,15 @@
 package com.zip.zipunzip.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
 
 public class CentralDirectory {
 
-  private List<FileHeader> fileHeaders = new ArrayList<>();
+  private IndexedFileHeaders fileHeaders = new IndexedFileHeaders(new ArrayList<>());
   private DigitalSignature digitalSignature = new DigitalSignature();
 
   public List<FileHeader> getFileHeaders() {
@@ -13,7 +17,28 @@ public class CentralDirectory {
   }
 
   public void setFileHeaders(List<FileHeader> fileHeaders) {
-    this.fileHeaders = fileHeaders;
+    this.fileHeaders.verifyNotReadOnly();
+    this.fileHeaders = new IndexedFileHeaders(new ArrayList<>(fileHeaders));
+  }
+
+  /**
+   * Index of the file headers by name, built on first use and kept up to date as file headers are added to or
+   * removed from {@link #getFileHeaders()}
+   */
+  public FileHeaderIndex getFileHeaderIndex() {
+    return fileHeaders.getFileHeaderIndex();
+  }
+
+  /**
+   * Makes the list of file headers refuse any change, so that the central directory can be read by any number of
+   * threads once it has been published to them. The index is still built on first use, by one thread only.
+   */
+  public void setReadOnly() {
+    fileHeaders.readOnly = true;
+  }
+
+  public boolean isReadOnly() {
+    return fileHeaders.readOnly;
   }
 
   public DigitalSignature getDigitalSignature() {
@@ -24,5 +49,138 @@ public class CentralDirectory {
     this.digitalSignature = digitalSignature;
   }
 
+  /**
+   * List of file headers which passes every change on to the index, once the index has been built
+   */
+  private static class IndexedFileHeaders extends AbstractList<FileHeader> implements RandomAccess {
+
+    private ArrayList<FileHeader> fileHeaders;
+    private volatile FileHeaderIndex fileHeaderIndex;
+    private volatile boolean readOnly;
+
+    private IndexedFileHeaders(ArrayList<FileHeader> fileHeaders) {
+      this.fileHeaders = fileHeaders;
+    }
+
+    private FileHeaderIndex getFileHeaderIndex() {
+      FileHeaderIndex index = fileHeaderIndex;
+      if (index == null) {
+        synchronized (this) {
+          index = fileHeaderIndex;
+          if (index == null) {
+            index = new FileHeaderIndex(fileHeaders);
+            fileHeaderIndex = index;
+          }
+        }
+      }
+      return index;
+    }
+
+    private void verifyNotReadOnly() {
+      if (readOnly) {
+        throw new UnsupportedOperationException("file headers of a read only central directory cannot be changed");
+      }
+    }
+
+    @Override
+    public FileHeader get(int index) {
+      return fileHeaders.get(index);
+    }
 
+    @Override
+    public int size() {
+      return fileHeaders.size();
+    }
+
+    /**
+     * Finds the position of this very file header through the index instead of a scan
+     */
+    @Override
+    public int indexOf(Object o) {
+      if (!(o instanceof FileHeader)) {
+        return super.indexOf(o);
+      }
+      return getFileHeaderIndex().indexOf((FileHeader) o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      int index = indexOf(o);
+      if (index < 0) {
+        return false;
+      }
+      remove(index);
+      return true;
+    }
+
+    @Override
+    public FileHeader set(int index, FileHeader fileHeader) {
+      verifyNotReadOnly();
+      FileHeader replacedFileHeader = fileHeaders.set(index, fileHeader);
+      if (fileHeaderIndex != null) {
+        fileHeaderIndex.remove(replacedFileHeader);
+        fileHeaderIndex.add(fileHeader, false);
+      }
+      return replacedFileHeader;
+    }
+
+    @Override
+    public void add(int index, FileHeader fileHeader) {
+      verifyNotReadOnly();
+      fileHeaders.add(index, fileHeader);
+      modCount++;
+      if (fileHeaderIndex != null) {
+        fileHeaderIndex.add(fileHeader, index == fileHeaders.size() - 1);
+      }
+    }
+
+    @Override
+    public FileHeader remove(int index) {
+      verifyNotReadOnly();
+      FileHeader removedFileHeader = fileHeaders.remove(index);
+      modCount++;
+      if (fileHeaderIndex != null) {
+        fileHeaderIndex.remove(removedFileHeader);
+      }
+      return removedFileHeader;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends FileHeader> fileHeadersToAdd) {
+      verifyNotReadOnly();
+      for (FileHeader fileHeader : fileHeadersToAdd) {
+        add(fileHeader);
+      }
+      return !fileHeadersToAdd.isEmpty();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super FileHeader> filter) {
+      verifyNotReadOnly();
+      List<FileHeader> removedFileHeaders = new ArrayList<>();
+      boolean removed = fileHeaders.removeIf(fileHeader -> filter.test(fileHeader) && removedFileHeaders.add(fileHeader));
+      if (removed) {
+        modCount++;
+        if (fileHeaderIndex != null) {
+          for (FileHeader removedFileHeader : removedFileHeaders) {
+            fileHeaderIndex.remove(removedFileHeader);
+          }
+        }
+      }
+      return removed;
+    }
+
+    @Override
+    public void clear() {
+      verifyNotReadOnly();
+      fileHeaders.clear();
+      modCount++;
+      fileHeaderIndex = null;
+    }
+  }
 }
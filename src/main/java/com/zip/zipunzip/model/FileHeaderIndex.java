@@ -0,0 +1,396 @@
+package com.zip.zipunzip.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of the file headers of a central directory by name. Names are looked up as they are, ignoring case, and
+ * ignoring case with '\' taken as '/'. A trie over the path segments of the names, with '\' taken as '/', lists the
+ * entries in a directory or under a prefix. Where names collide, the first file header in the central directory
+ * wins, the same as with a scan of the file headers. Positions of the file headers in the central directory are kept
+ * as long as file headers are only appended, and looked up again on the next use after any other change.
+ */
+public class FileHeaderIndex {
+
+  private Map<String, FileHeader> exactNames;
+  private Map<String, FileHeader> caseInsensitiveNames;
+  private Map<String, FileHeader> normalizedNames;
+  private Set<String> collidingNames = new HashSet<>();
+  private volatile PathNode root;
+  private volatile Map<FileHeader, Integer> positions;
+  private List<FileHeader> fileHeaders;
+
+  FileHeaderIndex(List<FileHeader> fileHeaders) {
+    this.fileHeaders = fileHeaders;
+
+    int initialCapacity = Math.max(16, fileHeaders.size() * 4 / 3 + 1);
+    exactNames = new HashMap<>(initialCapacity);
+    caseInsensitiveNames = new HashMap<>(initialCapacity);
+    normalizedNames = new HashMap<>(initialCapacity);
+
+    for (FileHeader fileHeader : fileHeaders) {
+      add(fileHeader, true);
+    }
+  }
+
+  public FileHeader getByExactName(String fileName) {
+    return exactNames.get(fileName);
+  }
+
+  public FileHeader getByNameIgnoreCase(String fileName) {
+    return caseInsensitiveNames.get(foldCase(fileName));
+  }
+
+  /**
+   * Looks up a name ignoring case and regardless of whether '/' or '\' separates its path segments
+   */
+  public FileHeader getByNormalizedName(String fileName) {
+    return normalizedNames.get(normalizeName(fileName));
+  }
+
+  /**
+   * @return position of this very file header in the central directory, or -1 if it is not in it
+   */
+  public int indexOf(FileHeader fileHeader) {
+    Integer position = getPositions().get(fileHeader);
+    return position == null ? -1 : position;
+  }
+
+  /**
+   * Lists the entries directly in a directory. Sub directories are listed only if they have an entry of their own.
+   *
+   * @param directory path of the directory, with or without a trailing separator. Empty for the root of the zip file
+   * @return file headers of the entries directly in the directory, sorted by name
+   */
+  public List<FileHeader> getFileHeadersInDirectory(String directory) {
+    PathNode directoryNode = findNode(splitPath(directory));
+    if (directoryNode == null || directoryNode.children == null) {
+      return Collections.emptyList();
+    }
+
+    List<FileHeader> fileHeadersInDirectory = new ArrayList<>();
+    for (PathNode child : directoryNode.children.values()) {
+      if (child.fileHeader != null) {
+        fileHeadersInDirectory.add(child.fileHeader);
+      }
+    }
+    return fileHeadersInDirectory;
+  }
+
+  /**
+   * Lists the names of what is directly in a directory, which includes sub directories that have no entry of their
+   * own but only appear in the names of the entries under them.
+   *
+   * @param directory path of the directory, with or without a trailing separator. Empty for the root of the zip file
+   * @return last path segments of the entries and sub directories directly in the directory, sorted
+   */
+  public List<String> getNamesInDirectory(String directory) {
+    PathNode directoryNode = findNode(splitPath(directory));
+    if (directoryNode == null || directoryNode.children == null) {
+      return Collections.emptyList();
+    }
+
+    return new ArrayList<>(directoryNode.children.keySet());
+  }
+
+  /**
+   * @param path path in the zip file, where '\' is taken as '/'. Empty for the root of the zip file
+   * @return true if an entry has the path or lies under it
+   */
+  public boolean hasPath(String path) {
+    return findNode(splitPath(path)) != null;
+  }
+
+  /**
+   * @param prefix start of the names to list, where '\' is taken as '/'
+   * @return file headers of all entries whose name starts with the prefix, sorted by name
+   */
+  public List<FileHeader> getFileHeadersWithPrefix(String prefix) {
+    String normalizedPrefix = normalizeSeparators(prefix);
+    int lastSeparator = normalizedPrefix.lastIndexOf('/');
+    PathNode parentNode = findNode(splitPath(normalizedPrefix.substring(0, lastSeparator + 1)));
+    if (parentNode == null || parentNode.children == null) {
+      return Collections.emptyList();
+    }
+
+    String partialSegment = normalizedPrefix.substring(lastSeparator + 1);
+    List<FileHeader> fileHeadersWithPrefix = new ArrayList<>();
+    for (Map.Entry<String, PathNode> child : parentNode.children.tailMap(partialSegment).entrySet()) {
+      if (!child.getKey().startsWith(partialSegment)) {
+        break;
+      }
+      child.getValue().collectFileHeaders(fileHeadersWithPrefix);
+    }
+    return fileHeadersWithPrefix;
+  }
+
+  /**
+   * @param appended true if the file header is the last one in the central directory, so that it cannot take the
+   *                 place of a file header with the same name
+   */
+  void add(FileHeader fileHeader, boolean appended) {
+    Map<FileHeader, Integer> currentPositions = positions;
+    if (currentPositions != null) {
+      if (appended) {
+        currentPositions.putIfAbsent(fileHeader, fileHeaders.size() - 1);
+      } else {
+        positions = null;
+      }
+    }
+
+    String fileName = fileHeader.getFileName();
+    if (fileName == null || fileName.isEmpty()) {
+      return;
+    }
+
+    boolean collides = putIfAbsent(exactNames, fileName, fileHeader);
+    collides |= putIfAbsent(caseInsensitiveNames, foldCase(fileName), fileHeader);
+    collides |= putIfAbsent(normalizedNames, normalizeName(fileName), fileHeader);
+    if (collides) {
+      collidingNames.add(normalizeName(fileName));
+      if (!appended) {
+        // inserted in front of other file headers, which may have to give way to it
+        reindexCollidingName(fileName);
+      }
+    }
+
+    if (root != null) {
+      addToTrie(root, fileHeader, appended);
+    }
+  }
+
+  private void addToTrie(PathNode trieRoot, FileHeader fileHeader, boolean appended) {
+    String fileName = fileHeader.getFileName();
+    if (fileName == null || fileName.isEmpty()) {
+      return;
+    }
+
+    PathNode node = trieRoot;
+    for (String segment : splitPath(fileName)) {
+      if (node.children == null) {
+        node.children = new TreeMap<>();
+      }
+      node = node.children.computeIfAbsent(segment, s -> new PathNode());
+    }
+    if (node.fileHeader == null) {
+      node.fileHeader = fileHeader;
+    } else if (!appended) {
+      reindexPathNode(node, fileName);
+    }
+    node.numberOfFileHeaders++;
+  }
+
+  void remove(FileHeader fileHeader) {
+    positions = null;
+
+    String fileName = fileHeader.getFileName();
+    if (fileName == null || fileName.isEmpty()) {
+      return;
+    }
+
+    exactNames.remove(fileName, fileHeader);
+    caseInsensitiveNames.remove(foldCase(fileName), fileHeader);
+    normalizedNames.remove(normalizeName(fileName), fileHeader);
+    if (collidingNames.contains(normalizeName(fileName))) {
+      reindexCollidingName(fileName);
+    }
+
+    if (root != null) {
+      removeFromTrie(root, splitPath(fileName), 0, fileHeader);
+    }
+  }
+
+  /**
+   * Maps a name which more than one file header has to the first of those file headers again. Only needed for
+   * colliding names, and those are rare, so a scan is fine here.
+   */
+  private void reindexCollidingName(String fileName) {
+    String caseInsensitiveName = foldCase(fileName);
+    String normalizedName = normalizeName(fileName);
+    exactNames.remove(fileName);
+    caseInsensitiveNames.remove(caseInsensitiveName);
+    normalizedNames.remove(normalizedName);
+
+    for (FileHeader fileHeader : fileHeaders) {
+      String fileNameForHdr = fileHeader.getFileName();
+      if (fileNameForHdr == null || fileNameForHdr.isEmpty()) {
+        continue;
+      }
+
+      if (fileNameForHdr.equals(fileName)) {
+        exactNames.putIfAbsent(fileName, fileHeader);
+      }
+      String caseInsensitiveNameForHdr = foldCase(fileNameForHdr);
+      if (caseInsensitiveNameForHdr.equals(caseInsensitiveName)) {
+        caseInsensitiveNames.putIfAbsent(caseInsensitiveName, fileHeader);
+      }
+      if (normalizeName(fileNameForHdr).equals(normalizedName)) {
+        normalizedNames.putIfAbsent(normalizedName, fileHeader);
+      }
+    }
+  }
+
+  private boolean removeFromTrie(PathNode node, List<String> segments, int depth, FileHeader fileHeader) {
+    if (depth == segments.size()) {
+      node.numberOfFileHeaders--;
+      if (node.fileHeader == fileHeader) {
+        node.fileHeader = null;
+        if (node.numberOfFileHeaders > 0) {
+          reindexPathNode(node, fileHeader.getFileName());
+        }
+      }
+    } else if (node.children != null) {
+      PathNode child = node.children.get(segments.get(depth));
+      if (child != null && removeFromTrie(child, segments, depth + 1, fileHeader)) {
+        node.children.remove(segments.get(depth));
+      }
+    }
+    return node != root && node.fileHeader == null && (node.children == null || node.children.isEmpty());
+  }
+
+  /**
+   * Points a path in the trie at the first file header with that path again, when more than one file header has it
+   */
+  private void reindexPathNode(PathNode node, String fileName) {
+    List<String> segments = splitPath(fileName);
+    for (FileHeader fileHeader : fileHeaders) {
+      if (fileHeader.getFileName() != null && splitPath(fileHeader.getFileName()).equals(segments)) {
+        node.fileHeader = fileHeader;
+        return;
+      }
+    }
+  }
+
+  private PathNode findNode(List<String> segments) {
+    PathNode node = getRoot();
+    for (String segment : segments) {
+      if (node.children == null) {
+        return null;
+      }
+      node = node.children.get(segment);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * The trie is only needed for listings, so it is built when the first one is asked for. It is built by one thread
+   * and published whole, as threads may list the entries of a read only central directory at once.
+   */
+  private PathNode getRoot() {
+    PathNode trieRoot = root;
+    if (trieRoot == null) {
+      synchronized (this) {
+        trieRoot = root;
+        if (trieRoot == null) {
+          trieRoot = new PathNode();
+          for (FileHeader fileHeader : fileHeaders) {
+            addToTrie(trieRoot, fileHeader, true);
+          }
+          root = trieRoot;
+        }
+      }
+    }
+    return trieRoot;
+  }
+
+  /**
+   * Positions are built on first use like the trie, and again after a change other than an append
+   */
+  private Map<FileHeader, Integer> getPositions() {
+    Map<FileHeader, Integer> currentPositions = positions;
+    if (currentPositions == null) {
+      synchronized (this) {
+        currentPositions = positions;
+        if (currentPositions == null) {
+          currentPositions = new IdentityHashMap<>(fileHeaders.size());
+          for (int i = 0; i < fileHeaders.size(); i++) {
+            currentPositions.putIfAbsent(fileHeaders.get(i), i);
+          }
+          positions = currentPositions;
+        }
+      }
+    }
+    return currentPositions;
+  }
+
+  private static boolean putIfAbsent(Map<String, FileHeader> names, String name, FileHeader fileHeader) {
+    return names.putIfAbsent(name, fileHeader) != null;
+  }
+
+  /**
+   * @return the name with its case folded and '\' taken as '/', which is the same for all names that
+   * {@link #getByNormalizedName(String)} takes as equal
+   */
+  public static String normalizeName(String fileName) {
+    return foldCase(normalizeSeparators(fileName));
+  }
+
+  private static List<String> splitPath(String fileName) {
+    List<String> segments = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i <= fileName.length(); i++) {
+      if (i == fileName.length() || fileName.charAt(i) == '/' || fileName.charAt(i) == '\\') {
+        if (i > start) {
+          segments.add(fileName.substring(start, i));
+        }
+        start = i + 1;
+      }
+    }
+    return segments;
+  }
+
+  private static String normalizeSeparators(String fileName) {
+    return fileName.indexOf('\\') == -1 ? fileName : fileName.replace('\\', '/');
+  }
+
+  /**
+   * Folds the case of each character the way {@link String#equalsIgnoreCase(String)} compares them, without
+   * allocating for names that are already lower case ascii
+   */
+  private static String foldCase(String fileName) {
+    int i = 0;
+    while (i < fileName.length()) {
+      char c = fileName.charAt(i);
+      if (c >= 0x80 || (c >= 'A' && c <= 'Z')) {
+        break;
+      }
+      i++;
+    }
+    if (i == fileName.length()) {
+      return fileName;
+    }
+
+    char[] folded = fileName.toCharArray();
+    for (; i < folded.length; i++) {
+      folded[i] = Character.toLowerCase(Character.toUpperCase(folded[i]));
+    }
+    return new String(folded);
+  }
+
+  private static class PathNode {
+    private TreeMap<String, PathNode> children;
+    private FileHeader fileHeader;
+    private int numberOfFileHeaders;
+
+    private void collectFileHeaders(List<FileHeader> collectedFileHeaders) {
+      if (fileHeader != null) {
+        collectedFileHeaders.add(fileHeader);
+      }
+      if (children != null) {
+        for (PathNode child : children.values()) {
+          child.collectFileHeaders(collectedFileHeaders);
+        }
+      }
+    }
+  }
+}
@@ -28,6 +28,13 @@ public class ZipParameters {
   private boolean overrideExistingFilesInZip = true;
   private String rootFolderNameInZip;
   private String fileComment;
+  private int numberOfThreads = 1;
+  private long parallelCompressionMemoryBudget = 64 * 1024 * 1024;
+  private int numberOfDeflateThreads = 1;
+  private int deflateBlockSize = 128 * 1024;
+  private boolean precomputeCrcForZipStandard = false;
+  private int numberOfKeyDerivationThreads = 0;
+  private boolean overrideExistingFilesInPlace = false;
 
   public ZipParameters() {
   }
@@ -51,6 +58,13 @@ public class ZipParameters {
     this.overrideExistingFilesInZip = zipParameters.isOverrideExistingFilesInZip();
     this.rootFolderNameInZip = zipParameters.getRootFolderNameInZip();
     this.fileComment = zipParameters.getFileComment();
+    this.numberOfThreads = zipParameters.getNumberOfThreads();
+    this.parallelCompressionMemoryBudget = zipParameters.getParallelCompressionMemoryBudget();
+    this.numberOfDeflateThreads = zipParameters.getNumberOfDeflateThreads();
+    this.deflateBlockSize = zipParameters.getDeflateBlockSize();
+    this.precomputeCrcForZipStandard = zipParameters.isPrecomputeCrcForZipStandard();
+    this.numberOfKeyDerivationThreads = zipParameters.getNumberOfKeyDerivationThreads();
+    this.overrideExistingFilesInPlace = zipParameters.isOverrideExistingFilesInPlace();
   }
 
   public CompressionMethod getCompressionMethod() {
@@ -204,4 +218,102 @@ public class ZipParameters {
   public void setFileComment(String fileComment) {
     this.fileComment = fileComment;
   }
+
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * Number of threads used to compress and encrypt entries. With more than one thread, entries are prepared
+   * concurrently and written to the zip file in the order they were added. A value of 1 uses the serial path.
+   *
+   * @param numberOfThreads
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    this.numberOfThreads = numberOfThreads;
+  }
+
+  public long getParallelCompressionMemoryBudget() {
+    return parallelCompressionMemoryBudget;
+  }
+
+  /**
+   * Maximum number of bytes held in memory for entries which were compressed but not yet written to the
+   * zip file. Entry data which does not fit is held in temporary files next to the zip file.
+   *
+   * @param parallelCompressionMemoryBudget
+   */
+  public void setParallelCompressionMemoryBudget(long parallelCompressionMemoryBudget) {
+    this.parallelCompressionMemoryBudget = parallelCompressionMemoryBudget;
+  }
+
+  public int getNumberOfDeflateThreads() {
+    return numberOfDeflateThreads;
+  }
+
+  /**
+   * Number of threads used to deflate the data of a single entry. With more than one thread, the entry is split
+   * into blocks of {@link #getDeflateBlockSize()} bytes which are compressed concurrently and joined into one
+   * standard deflate stream. Useful for very large entries; independent of {@link #setNumberOfThreads(int)}.
+   *
+   * @param numberOfDeflateThreads
+   */
+  public void setNumberOfDeflateThreads(int numberOfDeflateThreads) {
+    this.numberOfDeflateThreads = numberOfDeflateThreads;
+  }
+
+  public int getDeflateBlockSize() {
+    return deflateBlockSize;
+  }
+
+  public void setDeflateBlockSize(int deflateBlockSize) {
+    this.deflateBlockSize = deflateBlockSize;
+  }
+
+  public boolean isPrecomputeCrcForZipStandard() {
+    return precomputeCrcForZipStandard;
+  }
+
+  /**
+   * By default files encrypted with {@link EncryptionMethod#ZIP_STANDARD} are read only once and written with a
+   * data descriptor, using the last modified time for the password check byte of the encryption header. When set,
+   * the crc of each file is calculated before the file is compressed and used for the check byte instead, which
+   * needs an extra pass over the file but keeps crc and sizes in the local file header only.
+   *
+   * @param precomputeCrcForZipStandard
+   */
+  public void setPrecomputeCrcForZipStandard(boolean precomputeCrcForZipStandard) {
+    this.precomputeCrcForZipStandard = precomputeCrcForZipStandard;
+  }
+
+  public int getNumberOfKeyDerivationThreads() {
+    return numberOfKeyDerivationThreads;
+  }
+
+  /**
+   * Number of background threads deriving the keys of {@link EncryptionMethod#AES} encrypted entries. When more
+   * than zero, salts and keys for all files being added are generated on these threads ahead of the entries, instead
+   * of when each entry is started. Worthwhile for many small files, where key derivation dominates.
+   *
+   * @param numberOfKeyDerivationThreads
+   */
+  public void setNumberOfKeyDerivationThreads(int numberOfKeyDerivationThreads) {
+    this.numberOfKeyDerivationThreads = numberOfKeyDerivationThreads;
+  }
+
+  public boolean isOverrideExistingFilesInPlace() {
+    return overrideExistingFilesInPlace;
+  }
+
+  /**
+   * When overriding existing files, removes their old entries by moving the data after them within the zip file,
+   * instead of copying the whole zip file to a temporary file. Needs no extra disk space and leaves the data in front
+   * of the first overridden entry untouched. Progress is journaled next to the zip file, and a removal interrupted
+   * by a crash is completed the next time the zip file is read.
+   *
+   * @param overrideExistingFilesInPlace
+   */
+  public void setOverrideExistingFilesInPlace(boolean overrideExistingFilesInPlace) {
+    this.overrideExistingFilesInPlace = overrideExistingFilesInPlace;
+  }
 }
@@ -0,0 +1,211 @@
+package com.zip.zipunzip.nio;
+
+import com.zip.zipunzip.ZipFile;
+import com.zip.zipunzip.io.inputstream.EntryChannel;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+import static com.zip.zipunzip.util.InternalZipConstants.BUFF_SIZE;
+
+/**
+ * Channel over an entry which reads it as a stream for as long as it is read in order, which is what most readers of a
+ * channel do. Only when the position is moved backwards, or further forwards than {@link #MAX_SKIP_LENGTH}, the
+ * channel switches to a seekable {@link EntryChannel} of the zip file if the entry has one, which for a deflated entry
+ * means building its checkpoint index. Encrypted entries, and entries of other compression methods, are read again
+ * from their start on a backwards move instead.
+ */
+class EntryStreamChannel implements SeekableByteChannel {
+
+  private static final long MAX_SKIP_LENGTH = 1024 * 1024;
+
+  private final ZipFile zipFile;
+  private final FileHeader fileHeader;
+  private final long size;
+  private InputStream inputStream;
+  private long streamPosition;
+  private EntryChannel entryChannel;
+  private long position;
+  private byte[] buffer;
+  private boolean open = true;
+
+  EntryStreamChannel(ZipFile zipFile, FileHeader fileHeader) throws IOException {
+    this.zipFile = zipFile;
+    this.fileHeader = fileHeader;
+    this.size = fileHeader.getUncompressedSize();
+
+    if (!fileHeader.isEncrypted() && fileHeader.getCompressionMethod() == CompressionMethod.STORE) {
+      // as cheap to read in order as a stream, and seeks for free
+      entryChannel = zipFile.getSeekableByteChannel(fileHeader);
+    }
+  }
+
+  @Override
+  public synchronized int read(ByteBuffer dst) throws IOException {
+    ensureOpen();
+    if (position >= size) {
+      return dst.hasRemaining() ? -1 : 0;
+    }
+
+    if (entryChannel == null && position != streamPosition) {
+      moveStream();
+    }
+
+    int readLen;
+    if (entryChannel != null) {
+      readLen = entryChannel.read(dst, position);
+    } else {
+      readLen = readStream(dst);
+      if (readLen > 0) {
+        streamPosition += readLen;
+      }
+    }
+
+    if (readLen > 0) {
+      position += readLen;
+    }
+    return readLen;
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public synchronized long position() throws IOException {
+    ensureOpen();
+    return position;
+  }
+
+  @Override
+  public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+    ensureOpen();
+    if (newPosition < 0) {
+      throw new IllegalArgumentException("negative position: " + newPosition);
+    }
+
+    position = newPosition;
+    return this;
+  }
+
+  @Override
+  public synchronized long size() throws IOException {
+    ensureOpen();
+    return size;
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public synchronized boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!open) {
+      return;
+    }
+
+    open = false;
+    try {
+      if (inputStream != null) {
+        inputStream.close();
+      }
+    } finally {
+      if (entryChannel != null) {
+        entryChannel.close();
+      }
+    }
+  }
+
+  /**
+   * Brings the stream to the position, by skipping forwards, switching to a seekable channel or reading again from the
+   * start of the entry
+   */
+  private void moveStream() throws IOException {
+    if (position > streamPosition && position - streamPosition <= MAX_SKIP_LENGTH) {
+      skipStream(position - streamPosition);
+      return;
+    }
+
+    if (!fileHeader.isEncrypted() && fileHeader.getCompressionMethod() == CompressionMethod.DEFLATE) {
+      entryChannel = zipFile.getSeekableByteChannel(fileHeader);
+      closeStream();
+      return;
+    }
+
+    if (position < streamPosition) {
+      closeStream();
+    }
+    skipStream(position - streamPosition);
+  }
+
+  private void skipStream(long length) throws IOException {
+    byte[] skipBuffer = getBuffer();
+    while (length > 0) {
+      int readLen = getInputStream().read(skipBuffer, 0, (int) Math.min(skipBuffer.length, length));
+      if (readLen == -1) {
+        throw new IOException("Unexpected end of entry " + fileHeader.getFileName());
+      }
+      length -= readLen;
+      streamPosition += readLen;
+    }
+  }
+
+  private int readStream(ByteBuffer dst) throws IOException {
+    if (dst.hasArray()) {
+      int readLen = getInputStream().read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+      if (readLen > 0) {
+        dst.position(dst.position() + readLen);
+      }
+      return readLen;
+    }
+
+    byte[] readBuffer = getBuffer();
+    int readLen = getInputStream().read(readBuffer, 0, Math.min(readBuffer.length, dst.remaining()));
+    if (readLen > 0) {
+      dst.put(readBuffer, 0, readLen);
+    }
+    return readLen;
+  }
+
+  private InputStream getInputStream() throws IOException {
+    if (inputStream == null) {
+      inputStream = zipFile.getInputStream(fileHeader);
+      streamPosition = 0;
+    }
+    return inputStream;
+  }
+
+  private void closeStream() throws IOException {
+    if (inputStream != null) {
+      inputStream.close();
+      inputStream = null;
+    }
+    streamPosition = 0;
+  }
+
+  private byte[] getBuffer() {
+    if (buffer == null) {
+      buffer = new byte[BUFF_SIZE * 4];
+    }
+    return buffer;
+  }
+
+  private void ensureOpen() throws ClosedChannelException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+  }
+}
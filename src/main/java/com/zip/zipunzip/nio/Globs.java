@@ -0,0 +1,112 @@
+package com.zip.zipunzip.nio;
+
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Translates glob patterns into regular expressions, with the syntax of {@link java.nio.file.FileSystem#getPathMatcher}
+ */
+class Globs {
+
+  private static final String REGEX_META_CHARACTERS = ".^$+{[]|()";
+  private static final String GLOB_META_CHARACTERS = "\\*?[{";
+
+  private Globs() {
+  }
+
+  static String toRegex(String glob) {
+    StringBuilder regex = new StringBuilder("^");
+    boolean inGroup = false;
+
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      switch (c) {
+        case '\\':
+          if (++i == glob.length()) {
+            throw new PatternSyntaxException("No character to escape", glob, i - 1);
+          }
+          char escaped = glob.charAt(i);
+          if (GLOB_META_CHARACTERS.indexOf(escaped) != -1 || REGEX_META_CHARACTERS.indexOf(escaped) != -1) {
+            regex.append('\\');
+          }
+          regex.append(escaped);
+          break;
+        case '*':
+          if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+            // crosses directory boundaries
+            regex.append(".*");
+            i++;
+          } else {
+            regex.append("[^/]*");
+          }
+          break;
+        case '?':
+          regex.append("[^/]");
+          break;
+        case '[':
+          i = appendBracketExpression(glob, i, regex);
+          break;
+        case '{':
+          if (inGroup) {
+            throw new PatternSyntaxException("Cannot nest groups", glob, i);
+          }
+          regex.append("(?:(?:");
+          inGroup = true;
+          break;
+        case '}':
+          if (inGroup) {
+            regex.append("))");
+            inGroup = false;
+          } else {
+            regex.append('}');
+          }
+          break;
+        case ',':
+          regex.append(inGroup ? ")|(?:" : ",");
+          break;
+        default:
+          if (REGEX_META_CHARACTERS.indexOf(c) != -1) {
+            regex.append('\\');
+          }
+          regex.append(c);
+      }
+    }
+
+    if (inGroup) {
+      throw new PatternSyntaxException("Missing '}'", glob, glob.length() - 1);
+    }
+    return regex.append('$').toString();
+  }
+
+  /**
+   * Appends a bracket expression, which never matches '/'
+   *
+   * @return index of the closing ']'
+   */
+  private static int appendBracketExpression(String glob, int start, StringBuilder regex) {
+    regex.append("[[^/]&&[");
+    int i = start + 1;
+    if (i < glob.length() && glob.charAt(i) == '!') {
+      regex.append('^');
+      i++;
+    } else if (i < glob.length() && glob.charAt(i) == '^') {
+      regex.append("\\^");
+      i++;
+    }
+
+    for (; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == ']') {
+        regex.append("]]");
+        return i;
+      }
+      if (c == '/') {
+        throw new PatternSyntaxException("Explicit 'name separator' in class", glob, i);
+      }
+      if (c == '\\' || c == '[' || c == '&' && i + 1 < glob.length() && glob.charAt(i + 1) == '&') {
+        regex.append('\\');
+      }
+      regex.append(c);
+    }
+    throw new PatternSyntaxException("Missing ']'", glob, glob.length() - 1);
+  }
+}
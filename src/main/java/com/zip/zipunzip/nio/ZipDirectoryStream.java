@@ -0,0 +1,73 @@
+package com.zip.zipunzip.nio;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Entries directly in a directory of a zip file, listed when the stream is opened
+ */
+class ZipDirectoryStream implements DirectoryStream<Path> {
+
+  private final ZipPath directory;
+  private final List<String> names;
+  private final Filter<? super Path> filter;
+  private volatile boolean open = true;
+  private boolean iteratorReturned;
+
+  ZipDirectoryStream(ZipPath directory, List<String> names, Filter<? super Path> filter) {
+    this.directory = directory;
+    this.names = names;
+    this.filter = filter;
+  }
+
+  @Override
+  public synchronized Iterator<Path> iterator() {
+    if (!open) {
+      throw new IllegalStateException("directory stream is closed");
+    }
+    if (iteratorReturned) {
+      throw new IllegalStateException("iterator already returned");
+    }
+    iteratorReturned = true;
+
+    return new Iterator<Path>() {
+      private int nextIndex;
+      private Path next;
+
+      @Override
+      public boolean hasNext() {
+        while (next == null && open && nextIndex < names.size()) {
+          Path path = directory.resolve(names.get(nextIndex++));
+          try {
+            if (filter == null || filter.accept(path)) {
+              next = path;
+            }
+          } catch (IOException e) {
+            throw new DirectoryIteratorException(e);
+          }
+        }
+        return next != null;
+      }
+
+      @Override
+      public Path next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Path path = next;
+        next = null;
+        return path;
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    open = false;
+  }
+}
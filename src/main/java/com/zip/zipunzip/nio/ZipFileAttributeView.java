@@ -0,0 +1,76 @@
+package com.zip.zipunzip.nio;
+
+import java.io.IOException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Basic attribute view of an entry, which can be read but not changed
+ */
+class ZipFileAttributeView implements BasicFileAttributeView {
+
+  static final String NAME = "basic";
+
+  private final ZipPath path;
+
+  ZipFileAttributeView(ZipPath path) {
+    this.path = path;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public ZipFileAttributes readAttributes() throws IOException {
+    return path.getFileSystem().readAttributes(path);
+  }
+
+  @Override
+  public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  /**
+   * @param attributes names of the attributes, separated by ',', or "*" for all of them, optionally prefixed with
+   *                   "basic:"
+   */
+  Map<String, Object> readAttributes(String attributes) throws IOException {
+    int colon = attributes.indexOf(':');
+    if (colon != -1) {
+      String viewName = attributes.substring(0, colon);
+      if (!viewName.equals(NAME)) {
+        throw new UnsupportedOperationException("View '" + viewName + "' not available");
+      }
+      attributes = attributes.substring(colon + 1);
+    }
+
+    ZipFileAttributes fileAttributes = readAttributes();
+    Map<String, Object> allAttributes = new LinkedHashMap<>();
+    allAttributes.put("lastModifiedTime", fileAttributes.lastModifiedTime());
+    allAttributes.put("lastAccessTime", fileAttributes.lastAccessTime());
+    allAttributes.put("creationTime", fileAttributes.creationTime());
+    allAttributes.put("size", fileAttributes.size());
+    allAttributes.put("isRegularFile", fileAttributes.isRegularFile());
+    allAttributes.put("isDirectory", fileAttributes.isDirectory());
+    allAttributes.put("isSymbolicLink", fileAttributes.isSymbolicLink());
+    allAttributes.put("isOther", fileAttributes.isOther());
+    allAttributes.put("fileKey", fileAttributes.fileKey());
+
+    Map<String, Object> readAttributes = new LinkedHashMap<>();
+    for (String attribute : attributes.split(",")) {
+      if (attribute.equals("*")) {
+        readAttributes.putAll(allAttributes);
+      } else if (allAttributes.containsKey(attribute)) {
+        readAttributes.put(attribute, allAttributes.get(attribute));
+      } else {
+        throw new IllegalArgumentException("'" + attribute + "' not recognized");
+      }
+    }
+    return readAttributes;
+  }
+}
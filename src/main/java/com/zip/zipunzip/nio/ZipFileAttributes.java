@@ -0,0 +1,75 @@
+package com.zip.zipunzip.nio;
+
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.util.ZipUtil;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Basic attributes of an entry, taken from its file header. A directory without an entry of its own, and the root
+ * directory, take the time of the zip file.
+ */
+public class ZipFileAttributes implements BasicFileAttributes {
+
+  private final FileHeader fileHeader;
+  private final FileTime lastModifiedTime;
+
+  ZipFileAttributes(FileHeader fileHeader, FileTime zipFileLastModifiedTime) {
+    this.fileHeader = fileHeader;
+    this.lastModifiedTime = fileHeader == null ? zipFileLastModifiedTime
+        : FileTime.fromMillis(ZipUtil.dosToJavaTme(fileHeader.getLastModifiedTime()));
+  }
+
+  /**
+   * @return file header of the entry, or null for a directory without an entry of its own
+   */
+  public FileHeader getFileHeader() {
+    return fileHeader;
+  }
+
+  @Override
+  public FileTime lastModifiedTime() {
+    return lastModifiedTime;
+  }
+
+  @Override
+  public FileTime lastAccessTime() {
+    return lastModifiedTime;
+  }
+
+  @Override
+  public FileTime creationTime() {
+    return lastModifiedTime;
+  }
+
+  @Override
+  public boolean isRegularFile() {
+    return !isDirectory();
+  }
+
+  @Override
+  public boolean isDirectory() {
+    return fileHeader == null || fileHeader.isDirectory() || fileHeader.getFileName().endsWith("/");
+  }
+
+  @Override
+  public boolean isSymbolicLink() {
+    return false;
+  }
+
+  @Override
+  public boolean isOther() {
+    return false;
+  }
+
+  @Override
+  public long size() {
+    return isDirectory() ? 0 : fileHeader.getUncompressedSize();
+  }
+
+  @Override
+  public Object fileKey() {
+    return null;
+  }
+}
@@ -0,0 +1,68 @@
+package com.zip.zipunzip.nio;
+
+import java.nio.file.FileStore;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileStoreAttributeView;
+
+/**
+ * The zip file as the store of the entries of a {@link ZipFileSystem}, which is read only and has no space to write to
+ */
+class ZipFileStore extends FileStore {
+
+  private final ZipFileSystem zipFileSystem;
+
+  ZipFileStore(ZipFileSystem zipFileSystem) {
+    this.zipFileSystem = zipFileSystem;
+  }
+
+  @Override
+  public String name() {
+    return zipFileSystem.getZipPath().toString();
+  }
+
+  @Override
+  public String type() {
+    return ZipFileSystemProvider.SCHEME;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
+  @Override
+  public long getTotalSpace() {
+    return zipFileSystem.getZipPath().toFile().length();
+  }
+
+  @Override
+  public long getUsableSpace() {
+    return 0;
+  }
+
+  @Override
+  public long getUnallocatedSpace() {
+    return 0;
+  }
+
+  @Override
+  public boolean supportsFileAttributeView(Class<? extends FileAttributeView> type) {
+    return type == BasicFileAttributeView.class;
+  }
+
+  @Override
+  public boolean supportsFileAttributeView(String name) {
+    return name.equals(ZipFileAttributeView.NAME);
+  }
+
+  @Override
+  public <V extends FileStoreAttributeView> V getFileStoreAttributeView(Class<V> type) {
+    return null;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) {
+    throw new UnsupportedOperationException("'" + attribute + "' not recognized");
+  }
+}
@@ -0,0 +1,314 @@
+package com.zip.zipunzip.nio;
+
+import com.zip.zipunzip.ZipFile;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.FileHeaderIndex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Read only file system over the entries of a zip file, which reads through a {@link ZipFile} with the archive cache
+ * set. The headers of the zip file are read once and shared with every other ZipFile and file system of the archive,
+ * entries are looked up and directories listed through the {@link FileHeaderIndex} of its central directory, and
+ * entries are streamed from the zip file without being extracted to temporary files. Streams and channels of entries
+ * can be read by any number of threads at once, each with a decompressor of its own.
+ * <p>
+ * Split zip files and entries encrypted with AES or ZipCrypto can be read, for the latter with the password given in
+ * the environment under {@link #PASSWORD}. Directories without an entry of their own, which only appear in the names of
+ * the entries under them, are listed and read like the others. The file system shows the zip file as it was when the
+ * file system was created.
+ */
+public class ZipFileSystem extends FileSystem {
+
+  /**
+   * Key of the password for encrypted entries in the environment, as a char[] or a String
+   */
+  public static final String PASSWORD = "password";
+
+  /**
+   * Key of the charset of the names of entries without the utf-8 flag in the environment, as a Charset or its name
+   */
+  public static final String CHARSET = "charset";
+
+  private static final String GLOB_SYNTAX = "glob";
+  private static final String REGEX_SYNTAX = "regex";
+
+  private final ZipFileSystemProvider provider;
+  private final Path zipPath;
+  private final ZipFile zipFile;
+  private final FileHeaderIndex fileHeaderIndex;
+  private final FileTime zipFileLastModifiedTime;
+  private final ZipPath rootDirectory;
+  private final ZipFileStore fileStore;
+  private volatile boolean open = true;
+
+  ZipFileSystem(ZipFileSystemProvider provider, Path zipPath, Map<String, ?> env) throws IOException {
+    this.provider = provider;
+    this.zipPath = zipPath;
+    this.rootDirectory = new ZipPath(this, "/");
+    this.fileStore = new ZipFileStore(this);
+
+    zipFile = new ZipFile(zipPath.toFile(), getPassword(env));
+    zipFile.setUseArchiveCache(true);
+    Charset charset = getCharset(env);
+    if (charset != null) {
+      zipFile.setCharset(charset);
+    }
+
+    try {
+      fileHeaderIndex = zipFile.getFileHeaderIndex();
+      if (fileHeaderIndex == null) {
+        throw new NoSuchFileException(zipPath.toString());
+      }
+      zipFileLastModifiedTime = FileTime.fromMillis(zipPath.toFile().lastModified());
+    } catch (IOException e) {
+      zipFile.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public ZipFileSystemProvider provider() {
+    return provider;
+  }
+
+  /**
+   * Closes the file system. Streams and channels which are still open can be read to their end.
+   */
+  @Override
+  public void close() {
+    if (!open) {
+      return;
+    }
+
+    open = false;
+    zipFile.close();
+    provider.removeFileSystem(this);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
+  @Override
+  public String getSeparator() {
+    return "/";
+  }
+
+  @Override
+  public Iterable<Path> getRootDirectories() {
+    return Collections.singletonList(rootDirectory);
+  }
+
+  @Override
+  public Iterable<FileStore> getFileStores() {
+    return Collections.singletonList(fileStore);
+  }
+
+  @Override
+  public Set<String> supportedFileAttributeViews() {
+    return Collections.singleton(ZipFileAttributeView.NAME);
+  }
+
+  @Override
+  public ZipPath getPath(String first, String... more) {
+    StringBuilder path = new StringBuilder(first);
+    for (String segment : more) {
+      if (segment.isEmpty()) {
+        continue;
+      }
+      if (path.length() > 0) {
+        path.append('/');
+      }
+      path.append(segment);
+    }
+    return new ZipPath(this, path.toString());
+  }
+
+  @Override
+  public PathMatcher getPathMatcher(String syntaxAndPattern) {
+    int colon = syntaxAndPattern.indexOf(':');
+    if (colon <= 0) {
+      throw new IllegalArgumentException("syntax and pattern expected as syntax:pattern, got " + syntaxAndPattern);
+    }
+
+    String syntax = syntaxAndPattern.substring(0, colon);
+    String pattern = syntaxAndPattern.substring(colon + 1);
+    Pattern regex;
+    if (syntax.equalsIgnoreCase(GLOB_SYNTAX)) {
+      regex = Pattern.compile(Globs.toRegex(pattern));
+    } else if (syntax.equalsIgnoreCase(REGEX_SYNTAX)) {
+      regex = Pattern.compile(pattern);
+    } else {
+      throw new UnsupportedOperationException("Syntax '" + syntax + "' not recognized");
+    }
+
+    return path -> regex.matcher(path.toString()).matches();
+  }
+
+  @Override
+  public UserPrincipalLookupService getUserPrincipalLookupService() {
+    throw new UnsupportedOperationException("zip file systems have no user principals");
+  }
+
+  @Override
+  public WatchService newWatchService() {
+    throw new UnsupportedOperationException("zip file systems cannot be watched");
+  }
+
+  @Override
+  public String toString() {
+    return zipPath.toString();
+  }
+
+  Path getZipPath() {
+    return zipPath;
+  }
+
+  ZipPath getRootDirectory() {
+    return rootDirectory;
+  }
+
+  ZipFileStore getFileStore() {
+    return fileStore;
+  }
+
+  boolean exists(ZipPath path) {
+    String entryName = path.getEntryName();
+    return entryName.isEmpty() || getFileHeader(entryName) != null || fileHeaderIndex.hasPath(entryName);
+  }
+
+  ZipFileAttributes readAttributes(ZipPath path) throws IOException {
+    ensureOpen();
+    String entryName = path.getEntryName();
+    if (entryName.isEmpty()) {
+      return new ZipFileAttributes(null, zipFileLastModifiedTime);
+    }
+
+    FileHeader fileHeader = getFileHeader(entryName);
+    if (fileHeader == null && !fileHeaderIndex.hasPath(entryName)) {
+      throw new NoSuchFileException(path.toString());
+    }
+    return new ZipFileAttributes(fileHeader, zipFileLastModifiedTime);
+  }
+
+  InputStream newInputStream(ZipPath path) throws IOException {
+    return zipFile.getInputStream(getRegularFileHeader(path));
+  }
+
+  SeekableByteChannel newByteChannel(ZipPath path) throws IOException {
+    return new EntryStreamChannel(zipFile, getRegularFileHeader(path));
+  }
+
+  DirectoryStream<Path> newDirectoryStream(ZipPath directory, DirectoryStream.Filter<? super Path> filter)
+      throws IOException {
+    if (!readAttributes(directory).isDirectory()) {
+      throw new NotDirectoryException(directory.toString());
+    }
+    return new ZipDirectoryStream(directory, fileHeaderIndex.getNamesInDirectory(directory.getEntryName()), filter);
+  }
+
+  void ensureOpen() {
+    if (!open) {
+      throw new ClosedFileSystemException();
+    }
+  }
+
+  private FileHeader getRegularFileHeader(ZipPath path) throws IOException {
+    ZipFileAttributes attributes = readAttributes(path);
+    if (attributes.isDirectory()) {
+      throw new FileSystemException(path.toString(), null, "is a directory");
+    }
+    return attributes.getFileHeader();
+  }
+
+  /**
+   * Looks up the entry with the name, or the entry of a directory, whose name ends with '/'
+   */
+  /**
+   * Entries are looked up by their exact name, and otherwise by their name with '\' taken as '/', the way they
+   * are listed. The lookup of the index for that ignores case as well, so its result has to match the case.
+   */
+  private FileHeader getFileHeader(String entryName) {
+    FileHeader fileHeader = fileHeaderIndex.getByExactName(entryName);
+    if (fileHeader == null) {
+      fileHeader = fileHeaderIndex.getByExactName(entryName + "/");
+    }
+    if (fileHeader == null) {
+      fileHeader = getFileHeaderWithNormalizedSeparators(entryName);
+    }
+    if (fileHeader == null) {
+      fileHeader = getFileHeaderWithNormalizedSeparators(entryName + "/");
+    }
+    return fileHeader;
+  }
+
+  private FileHeader getFileHeaderWithNormalizedSeparators(String entryName) {
+    FileHeader fileHeader = fileHeaderIndex.getByNormalizedName(entryName);
+    if (fileHeader == null || !fileHeader.getFileName().replace('\\', '/').equals(entryName)) {
+      return null;
+    }
+    return fileHeader;
+  }
+
+  private static char[] getPassword(Map<String, ?> env) {
+    if (env == null) {
+      return null;
+    }
+
+    Object password = env.get(PASSWORD);
+    if (password == null) {
+      return null;
+    }
+    if (password instanceof char[]) {
+      return (char[]) password;
+    }
+    if (password instanceof String) {
+      return ((String) password).toCharArray();
+    }
+    throw new IllegalArgumentException("password has to be a char[] or a String");
+  }
+
+  private static Charset getCharset(Map<String, ?> env) {
+    if (env == null) {
+      return null;
+    }
+
+    Object charset = env.get(CHARSET);
+    if (charset == null) {
+      return null;
+    }
+    if (charset instanceof Charset) {
+      return (Charset) charset;
+    }
+    if (charset instanceof String) {
+      return Charset.forName((String) charset);
+    }
+    throw new IllegalArgumentException("charset has to be a Charset or the name of one");
+  }
+}
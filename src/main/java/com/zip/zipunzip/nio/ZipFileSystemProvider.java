@@ -0,0 +1,320 @@
+package com.zip.zipunzip.nio;
+
+import com.zip.zipunzip.headers.HeaderSignature;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystems;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.zip.zipunzip.util.InternalZipConstants.ENDHDR;
+import static com.zip.zipunzip.util.InternalZipConstants.MAX_ALLOWED_ZIP_COMMENT_LENGTH;
+
+/**
+ * Provider of read only {@link ZipFileSystem}s, for the "zipunzip" scheme. The URI of a zip file system is the scheme
+ * followed by the URI of the zip file, as in {@code zipunzip:file:///data/logs.zip}, and a path in it is appended after
+ * '!', as in {@code zipunzip:file:///data/logs.zip!/2024/app.log}. Zip file systems created from a URI are kept by the
+ * provider until they are closed, those created from a path of the zip file are not.
+ * <p>
+ * The provider is registered as a service, so that {@link java.nio.file.FileSystems#newFileSystem(URI, Map)} finds it.
+ */
+public class ZipFileSystemProvider extends FileSystemProvider {
+
+  public static final String SCHEME = "zipunzip";
+
+  private static final String ENTRY_SEPARATOR = "!";
+
+  private final Map<Path, ZipFileSystem> fileSystems = new HashMap<>();
+
+  @Override
+  public String getScheme() {
+    return SCHEME;
+  }
+
+  @Override
+  public ZipFileSystem newFileSystem(URI uri, Map<String, ?> env) throws IOException {
+    Path zipPath = getZipPath(uri);
+    synchronized (fileSystems) {
+      Path realPath = zipPath.toRealPath();
+      if (fileSystems.containsKey(realPath)) {
+        throw new FileSystemAlreadyExistsException(realPath.toString());
+      }
+
+      ZipFileSystem zipFileSystem = new ZipFileSystem(this, realPath, env);
+      fileSystems.put(realPath, zipFileSystem);
+      return zipFileSystem;
+    }
+  }
+
+  @Override
+  public ZipFileSystem newFileSystem(Path path, Map<String, ?> env) throws IOException {
+    if (path.getFileSystem() != FileSystems.getDefault()) {
+      throw new UnsupportedOperationException("zip file has to be a file of the default file system");
+    }
+    if (!Files.isRegularFile(path)) {
+      throw new NoSuchFileException(path.toString());
+    }
+    if (!isZipFile(path)) {
+      throw new UnsupportedOperationException("not a zip file: " + path);
+    }
+    return new ZipFileSystem(this, path.toAbsolutePath(), env);
+  }
+
+  /**
+   * A zip file starts with a local file header, with the marker of a split zip file, or with the end of central
+   * directory record if it is empty. Zip files with data in front, like self extracting ones, are recognized by the
+   * end of central directory record within the last 64 KB.
+   */
+  private static boolean isZipFile(Path path) throws IOException {
+    try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = fileChannel.size();
+      if (size < ENDHDR) {
+        return false;
+      }
+
+      ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(fileChannel, head, 0);
+      long signature = head.getInt(0) & 0xFFFFFFFFL;
+      if (signature == HeaderSignature.LOCAL_FILE_HEADER.getValue() || signature == HeaderSignature.SPLIT_ZIP.getValue()
+          || signature == HeaderSignature.END_OF_CENTRAL_DIRECTORY.getValue()) {
+        return true;
+      }
+
+      ByteBuffer tail = ByteBuffer.allocate((int) Math.min(size, ENDHDR + MAX_ALLOWED_ZIP_COMMENT_LENGTH))
+          .order(ByteOrder.LITTLE_ENDIAN);
+      readFully(fileChannel, tail, size - tail.capacity());
+      for (int pos = tail.capacity() - ENDHDR; pos >= 0; pos--) {
+        if ((tail.getInt(pos) & 0xFFFFFFFFL) == HeaderSignature.END_OF_CENTRAL_DIRECTORY.getValue()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static void readFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (fileChannel.read(buffer, position + buffer.position()) == -1) {
+        throw new EOFException("unexpected end of file at " + (position + buffer.position()));
+      }
+    }
+  }
+
+  @Override
+  public ZipFileSystem getFileSystem(URI uri) {
+    synchronized (fileSystems) {
+      ZipFileSystem zipFileSystem = null;
+      try {
+        zipFileSystem = fileSystems.get(getZipPath(uri).toRealPath());
+      } catch (IOException e) {
+        // no file system for a zip file which does not exist
+      }
+      if (zipFileSystem == null) {
+        throw new FileSystemNotFoundException(uri.toString());
+      }
+      return zipFileSystem;
+    }
+  }
+
+  @Override
+  public Path getPath(URI uri) {
+    String schemeSpecificPart = uri.getSchemeSpecificPart();
+    int separator = schemeSpecificPart.indexOf(ENTRY_SEPARATOR);
+    if (separator == -1) {
+      throw new IllegalArgumentException("URI: " + uri + " does not contain path info ex. zipunzip:file:/c:/foo.zip!/BAR");
+    }
+    return getFileSystem(uri).getPath(schemeSpecificPart.substring(separator + 1));
+  }
+
+  @Override
+  public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs)
+      throws IOException {
+    checkReadOnly(options);
+    ZipPath zipPath = toZipPath(path);
+    return zipPath.getFileSystem().newByteChannel(zipPath);
+  }
+
+  @Override
+  public InputStream newInputStream(Path path, OpenOption... options) throws IOException {
+    for (OpenOption option : options) {
+      checkReadOnly(option);
+    }
+    ZipPath zipPath = toZipPath(path);
+    return zipPath.getFileSystem().newInputStream(zipPath);
+  }
+
+  @Override
+  public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter)
+      throws IOException {
+    ZipPath zipPath = toZipPath(dir);
+    return zipPath.getFileSystem().newDirectoryStream(zipPath, filter);
+  }
+
+  @Override
+  public void createDirectory(Path dir, FileAttribute<?>... attrs) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  @Override
+  public void delete(Path path) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  @Override
+  public void copy(Path source, Path target, CopyOption... options) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  @Override
+  public void move(Path source, Path target, CopyOption... options) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  @Override
+  public boolean isSameFile(Path path, Path path2) throws IOException {
+    if (path.equals(path2)) {
+      return true;
+    }
+    if (!(path2 instanceof ZipPath) || path.getFileSystem() != path2.getFileSystem()) {
+      return false;
+    }
+    return toZipPath(path).toRealPath().equals(toZipPath(path2).toRealPath());
+  }
+
+  @Override
+  public boolean isHidden(Path path) {
+    return false;
+  }
+
+  @Override
+  public FileStore getFileStore(Path path) throws IOException {
+    ZipPath zipPath = toZipPath(path);
+    zipPath.getFileSystem().readAttributes(zipPath);
+    return zipPath.getFileSystem().getFileStore();
+  }
+
+  @Override
+  public void checkAccess(Path path, AccessMode... modes) throws IOException {
+    ZipPath zipPath = toZipPath(path);
+    zipPath.getFileSystem().readAttributes(zipPath);
+    for (AccessMode mode : modes) {
+      if (mode != AccessMode.READ) {
+        throw new AccessDeniedException(path.toString());
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+    if (type == BasicFileAttributeView.class) {
+      return (V) new ZipFileAttributeView(toZipPath(path));
+    }
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+      throws IOException {
+    if (type != BasicFileAttributes.class && type != ZipFileAttributes.class) {
+      throw new UnsupportedOperationException("attributes of type " + type.getName() + " are not supported");
+    }
+    ZipPath zipPath = toZipPath(path);
+    return (A) zipPath.getFileSystem().readAttributes(zipPath);
+  }
+
+  @Override
+  public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+    return new ZipFileAttributeView(toZipPath(path)).readAttributes(attributes);
+  }
+
+  @Override
+  public void setAttribute(Path path, String attribute, Object value, LinkOption... options) {
+    throw new ReadOnlyFileSystemException();
+  }
+
+  void removeFileSystem(ZipFileSystem zipFileSystem) {
+    synchronized (fileSystems) {
+      fileSystems.remove(zipFileSystem.getZipPath(), zipFileSystem);
+    }
+  }
+
+  /**
+   * @return path of the zip file in the URI, which is everything after the scheme up to the first '!'
+   */
+  private Path getZipPath(URI uri) {
+    if (!SCHEME.equalsIgnoreCase(uri.getScheme())) {
+      throw new IllegalArgumentException("URI scheme is not '" + SCHEME + "'");
+    }
+
+    String schemeSpecificPart = uri.getRawSchemeSpecificPart();
+    int separator = schemeSpecificPart.indexOf(ENTRY_SEPARATOR);
+    if (separator != -1) {
+      schemeSpecificPart = schemeSpecificPart.substring(0, separator);
+    }
+
+    try {
+      return Paths.get(new URI(schemeSpecificPart)).toAbsolutePath();
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private static ZipPath toZipPath(Path path) {
+    if (path == null) {
+      throw new NullPointerException();
+    }
+    if (!(path instanceof ZipPath)) {
+      throw new ProviderMismatchException();
+    }
+
+    ZipPath zipPath = (ZipPath) path;
+    zipPath.getFileSystem().ensureOpen();
+    return zipPath;
+  }
+
+  private static void checkReadOnly(Set<? extends OpenOption> options) {
+    for (OpenOption option : options) {
+      checkReadOnly(option);
+    }
+  }
+
+  private static void checkReadOnly(OpenOption option) {
+    if (option == StandardOpenOption.WRITE || option == StandardOpenOption.APPEND
+        || option == StandardOpenOption.CREATE_NEW || option == StandardOpenOption.DELETE_ON_CLOSE
+        || option == StandardOpenOption.TRUNCATE_EXISTING) {
+      throw new ReadOnlyFileSystemException();
+    }
+  }
+}
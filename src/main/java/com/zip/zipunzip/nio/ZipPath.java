@@ -0,0 +1,367 @@
+package com.zip.zipunzip.nio;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Path of an entry in a {@link ZipFileSystem}. Paths use '/' as separator and are compared as they are, with case. An
+ * absolute path starts at the root of the zip file, and the name of its entry is the path without the leading '/'.
+ */
+public class ZipPath implements Path {
+
+  private final ZipFileSystem zipFileSystem;
+  private final String path;
+  private volatile int[] offsets;
+
+  ZipPath(ZipFileSystem zipFileSystem, String path) {
+    this.zipFileSystem = zipFileSystem;
+    this.path = normalizeSeparators(path);
+  }
+
+  @Override
+  public ZipFileSystem getFileSystem() {
+    return zipFileSystem;
+  }
+
+  @Override
+  public boolean isAbsolute() {
+    return path.startsWith("/");
+  }
+
+  @Override
+  public ZipPath getRoot() {
+    return isAbsolute() ? zipFileSystem.getRootDirectory() : null;
+  }
+
+  @Override
+  public ZipPath getFileName() {
+    int[] nameOffsets = getOffsets();
+    if (nameOffsets.length == 0) {
+      return path.isEmpty() ? this : null;
+    }
+    if (nameOffsets.length == 1 && !isAbsolute()) {
+      return this;
+    }
+    return new ZipPath(zipFileSystem, path.substring(nameOffsets[nameOffsets.length - 1]));
+  }
+
+  @Override
+  public ZipPath getParent() {
+    int[] nameOffsets = getOffsets();
+    if (nameOffsets.length == 0) {
+      return null;
+    }
+    if (nameOffsets.length == 1) {
+      return getRoot();
+    }
+    return new ZipPath(zipFileSystem, path.substring(0, nameOffsets[nameOffsets.length - 1] - 1));
+  }
+
+  @Override
+  public int getNameCount() {
+    return path.isEmpty() ? 1 : getOffsets().length;
+  }
+
+  @Override
+  public ZipPath getName(int index) {
+    return subpath(index, index + 1);
+  }
+
+  @Override
+  public ZipPath subpath(int beginIndex, int endIndex) {
+    if (path.isEmpty() && beginIndex == 0 && endIndex == 1) {
+      return this;
+    }
+
+    int[] nameOffsets = getOffsets();
+    if (beginIndex < 0 || beginIndex >= nameOffsets.length || endIndex > nameOffsets.length
+        || beginIndex >= endIndex) {
+      throw new IllegalArgumentException("invalid subpath " + beginIndex + ", " + endIndex + " of " + path);
+    }
+
+    int end = endIndex == nameOffsets.length ? path.length() : nameOffsets[endIndex] - 1;
+    return new ZipPath(zipFileSystem, path.substring(nameOffsets[beginIndex], end));
+  }
+
+  @Override
+  public boolean startsWith(Path other) {
+    ZipPath otherPath = checkPath(other);
+    if (otherPath.isAbsolute() != isAbsolute() || otherPath.getFileSystem() != zipFileSystem) {
+      return false;
+    }
+    if (otherPath.path.isEmpty()) {
+      return path.isEmpty();
+    }
+
+    List<String> names = getNames();
+    List<String> otherNames = otherPath.getNames();
+    return otherNames.size() <= names.size() && names.subList(0, otherNames.size()).equals(otherNames);
+  }
+
+  @Override
+  public boolean startsWith(String other) {
+    return startsWith(new ZipPath(zipFileSystem, other));
+  }
+
+  @Override
+  public boolean endsWith(Path other) {
+    ZipPath otherPath = checkPath(other);
+    if (otherPath.getFileSystem() != zipFileSystem) {
+      return false;
+    }
+    if (otherPath.isAbsolute()) {
+      return otherPath.path.equals(path);
+    }
+    if (otherPath.path.isEmpty()) {
+      return path.isEmpty();
+    }
+
+    List<String> names = getNames();
+    List<String> otherNames = otherPath.getNames();
+    return otherNames.size() <= names.size()
+        && names.subList(names.size() - otherNames.size(), names.size()).equals(otherNames);
+  }
+
+  @Override
+  public boolean endsWith(String other) {
+    return endsWith(new ZipPath(zipFileSystem, other));
+  }
+
+  @Override
+  public ZipPath normalize() {
+    List<String> normalizedNames = new ArrayList<>();
+    for (String name : getNames()) {
+      if (name.equals(".")) {
+        continue;
+      }
+      if (name.equals("..") && !normalizedNames.isEmpty() && !normalizedNames.get(normalizedNames.size() - 1)
+          .equals("..")) {
+        normalizedNames.remove(normalizedNames.size() - 1);
+        continue;
+      }
+      if (name.equals("..") && isAbsolute()) {
+        // the parent of the root is the root
+        continue;
+      }
+      normalizedNames.add(name);
+    }
+
+    return new ZipPath(zipFileSystem, (isAbsolute() ? "/" : "") + String.join("/", normalizedNames));
+  }
+
+  @Override
+  public ZipPath resolve(Path other) {
+    ZipPath otherPath = checkPath(other);
+    if (otherPath.isAbsolute()) {
+      return otherPath;
+    }
+    if (otherPath.path.isEmpty()) {
+      return this;
+    }
+    if (path.isEmpty()) {
+      return otherPath;
+    }
+    return new ZipPath(zipFileSystem, path.endsWith("/") ? path + otherPath.path : path + "/" + otherPath.path);
+  }
+
+  @Override
+  public ZipPath resolve(String other) {
+    return resolve(new ZipPath(zipFileSystem, other));
+  }
+
+  @Override
+  public Path resolveSibling(Path other) {
+    checkPath(other);
+    ZipPath parent = getParent();
+    return parent == null ? other : parent.resolve(other);
+  }
+
+  @Override
+  public Path resolveSibling(String other) {
+    return resolveSibling(new ZipPath(zipFileSystem, other));
+  }
+
+  @Override
+  public ZipPath relativize(Path other) {
+    ZipPath otherPath = checkPath(other);
+    if (otherPath.isAbsolute() != isAbsolute()) {
+      throw new IllegalArgumentException("'other' is different type of Path");
+    }
+
+    List<String> names = path.isEmpty() ? new ArrayList<>() : getNames();
+    List<String> otherNames = otherPath.path.isEmpty() ? new ArrayList<>() : otherPath.getNames();
+    int commonNames = 0;
+    while (commonNames < names.size() && commonNames < otherNames.size()
+        && names.get(commonNames).equals(otherNames.get(commonNames))) {
+      commonNames++;
+    }
+
+    List<String> relativeNames = new ArrayList<>();
+    for (int i = commonNames; i < names.size(); i++) {
+      relativeNames.add("..");
+    }
+    relativeNames.addAll(otherNames.subList(commonNames, otherNames.size()));
+    return new ZipPath(zipFileSystem, String.join("/", relativeNames));
+  }
+
+  @Override
+  public URI toUri() {
+    try {
+      String entryPath = new URI(null, null, toAbsolutePath().path, null).getRawPath();
+      return new URI(ZipFileSystemProvider.SCHEME + ":" + zipFileSystem.getZipPath().toUri() + "!" + entryPath);
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public ZipPath toAbsolutePath() {
+    return isAbsolute() ? this : zipFileSystem.getRootDirectory().resolve(this);
+  }
+
+  @Override
+  public ZipPath toRealPath(LinkOption... options) throws IOException {
+    ZipPath realPath = toAbsolutePath().normalize();
+    if (!zipFileSystem.exists(realPath)) {
+      throw new NoSuchFileException(toString());
+    }
+    return realPath;
+  }
+
+  @Override
+  public File toFile() {
+    throw new UnsupportedOperationException("a path in a zip file is not a file of the default file system");
+  }
+
+  @Override
+  public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+    throw new UnsupportedOperationException("zip file systems cannot be watched");
+  }
+
+  @Override
+  public WatchKey register(WatchService watcher, WatchEvent.Kind<?>... events) {
+    throw new UnsupportedOperationException("zip file systems cannot be watched");
+  }
+
+  @Override
+  public Iterator<Path> iterator() {
+    List<Path> names = new ArrayList<>();
+    for (int i = 0; i < getNameCount(); i++) {
+      names.add(getName(i));
+    }
+    return names.iterator();
+  }
+
+  @Override
+  public int compareTo(Path other) {
+    return path.compareTo(checkPath(other).path);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof ZipPath)) {
+      return false;
+    }
+
+    ZipPath otherPath = (ZipPath) o;
+    return otherPath.zipFileSystem == zipFileSystem && otherPath.path.equals(path);
+  }
+
+  @Override
+  public int hashCode() {
+    return path.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return path;
+  }
+
+  /**
+   * @return name of the entry of the path in the zip file, without a leading or trailing '/', or empty for the root
+   */
+  String getEntryName() {
+    String absolutePath = toAbsolutePath().normalize().path;
+    return absolutePath.substring(1);
+  }
+
+  private List<String> getNames() {
+    int[] nameOffsets = getOffsets();
+    List<String> names = new ArrayList<>(nameOffsets.length);
+    for (int i = 0; i < nameOffsets.length; i++) {
+      int end = i + 1 < nameOffsets.length ? nameOffsets[i + 1] - 1 : path.length();
+      names.add(path.substring(nameOffsets[i], end));
+    }
+    return names;
+  }
+
+  /**
+   * @return offsets at which the names of the path start
+   */
+  private int[] getOffsets() {
+    int[] nameOffsets = offsets;
+    if (nameOffsets == null) {
+      List<Integer> starts = new ArrayList<>();
+      for (int i = 0; i < path.length(); i++) {
+        if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/')) {
+          starts.add(i);
+        }
+      }
+
+      nameOffsets = new int[starts.size()];
+      for (int i = 0; i < nameOffsets.length; i++) {
+        nameOffsets[i] = starts.get(i);
+      }
+      offsets = nameOffsets;
+    }
+    return nameOffsets;
+  }
+
+  private static ZipPath checkPath(Path path) {
+    if (path == null) {
+      throw new NullPointerException();
+    }
+    if (!(path instanceof ZipPath)) {
+      throw new ProviderMismatchException();
+    }
+    return (ZipPath) path;
+  }
+
+  /**
+   * Drops repeated and trailing separators
+   */
+  private static String normalizeSeparators(String path) {
+    if (path.indexOf('\u0000') != -1) {
+      throw new InvalidPathException(path, "nul character not allowed");
+    }
+
+    StringBuilder normalizedPath = new StringBuilder(path.length());
+    char previous = 0;
+    for (int i = 0; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (c == '/' && previous == '/') {
+        continue;
+      }
+      normalizedPath.append(c);
+      previous = c;
+    }
+
+    if (normalizedPath.length() > 1 && previous == '/') {
+      normalizedPath.setLength(normalizedPath.length() - 1);
+    }
+    return normalizedPath.toString();
+  }
+}
@@ -3,7 +3,9 @@
 package com.zip.zipunzip.progress;
 
 /**
- * If Zip4j is set to run in thread mode, this class helps retrieve current progress
+ * If Zip4j is set to run in thread mode, this class helps retrieve current progress. Progress is updated by the
+ * threads doing the work and read by any other thread, so all its fields are volatile, and a task is started with
+ * {@link #startTask(Task)}, which lets only one task be busy at a time.
  */
 public class ProgressMonitor {
 
@@ -11,31 +13,34 @@ public class ProgressMonitor {
   public enum Result { SUCCESS, WORK_IN_PROGRESS, ERROR, CANCELLED }
   public enum Task { NONE, ADD_ENTRY, REMOVE_ENTRY, CALCULATE_CRC, EXTRACT_ENTRY, MERGE_ZIP_FILES, SET_COMMENT}
 
-  private State state;
-  private long totalWork;
-  private long workCompleted;
-  private int percentDone;
-  private Task currentTask;
-  private String fileName;
-  private Result result;
-  private Exception exception;
-  private boolean cancelAllTasks;
-  private boolean pause;
+  private volatile State state;
+  private volatile long totalWork;
+  private volatile long workCompleted;
+  private volatile int percentDone;
+  private volatile Task currentTask;
+  private volatile String fileName;
+  private volatile Result result;
+  private volatile Exception exception;
+  private volatile boolean cancelAllTasks;
+  private volatile boolean pause;
 
   public ProgressMonitor() {
     reset();
   }
 
   public void updateWorkCompleted(long workCompleted) {
-    this.workCompleted += workCompleted;
-
-    if (totalWork > 0) {
-      percentDone = (int) ((this.workCompleted * 100 / totalWork));
-      if (percentDone > 100) {
-        percentDone = 100;
+    synchronized (this) {
+      this.workCompleted += workCompleted;
+
+      if (totalWork > 0) {
+        percentDone = (int) ((this.workCompleted * 100 / totalWork));
+        if (percentDone > 100) {
+          percentDone = 100;
+        }
       }
     }
 
+    // waits outside of the lock, so that each worker thread pauses on its own and the monitor can still be ended
     while (pause) {
       try {
         Thread.sleep(150);
@@ -45,19 +50,36 @@ public class ProgressMonitor {
     }
   }
 
-  public void endProgressMonitor() {
+  /**
+   * Resets the progress and moves from READY to BUSY in one step, so that of two tasks started at the same time on
+   * the same monitor only one gets to run
+   *
+   * @return false if the monitor was busy with another task already
+   */
+  public synchronized boolean startTask(Task task) {
+    if (state == State.BUSY) {
+      return false;
+    }
+
+    fullReset();
+    state = State.BUSY;
+    currentTask = task;
+    return true;
+  }
+
+  public synchronized void endProgressMonitor() {
     result = Result.SUCCESS;
     percentDone = 100;
     reset();
   }
 
-  public void endProgressMonitor(Exception e) {
+  public synchronized void endProgressMonitor(Exception e) {
     result = Result.ERROR;
     exception = e;
     reset();
   }
 
-  public void fullReset() {
+  public synchronized void fullReset() {
     reset();
     fileName = null;
     totalWork = 0;
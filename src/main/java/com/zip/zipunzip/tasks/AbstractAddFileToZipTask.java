@@ -1,7 +1,10 @@
 package com.zip.zipunzip.tasks;
 
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.headers.HeaderWriter;
+import com.zip.zipunzip.io.outputstream.EntryDataOutputStream;
+import com.zip.zipunzip.io.outputstream.SpillingOutputStream;
 import com.zip.zipunzip.io.outputstream.SplitOutputStream;
 import com.zip.zipunzip.io.outputstream.ZipOutputStream;
 import com.zip.zipunzip.model.FileHeader;
@@ -19,12 +22,22 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.zip.zipunzip.headers.HeaderUtil.getFileHeader;
 import static com.zip.zipunzip.model.enums.CompressionMethod.DEFLATE;
 import static com.zip.zipunzip.model.enums.CompressionMethod.STORE;
+import static com.zip.zipunzip.model.enums.EncryptionMethod.AES;
 import static com.zip.zipunzip.model.enums.EncryptionMethod.NONE;
 import static com.zip.zipunzip.model.enums.EncryptionMethod.ZIP_STANDARD;
 import static com.zip.zipunzip.progress.ProgressMonitor.Task.ADD_ENTRY;
@@ -54,14 +67,29 @@ public abstract class AbstractAddFileToZipTask<T> extends AsyncZipTask<T> {
 
     List<File> updatedFilesToAdd = removeFilesIfExists(filesToAdd, zipParameters, progressMonitor, charset);
 
+    ExecutorService deflateExecutorService = createDeflateExecutorService(zipParameters);
+    ExecutorService crcExecutorService = createCrcExecutorService(zipParameters);
     try (SplitOutputStream splitOutputStream = new SplitOutputStream(zipModel.getZipFile(), zipModel.getSplitLength());
-         ZipOutputStream zipOutputStream = initializeOutputStream(splitOutputStream, charset)) {
+         ZipOutputStream zipOutputStream = initializeOutputStream(splitOutputStream, charset);
+         AesKeyPrefetcher aesKeyPrefetcher = startAesKeyPrefetch(updatedFilesToAdd, zipParameters)) {
+      zipOutputStream.setAesKeyPrefetcher(aesKeyPrefetcher);
+      zipOutputStream.setDeflateExecutorService(deflateExecutorService);
+
+      if (zipParameters.getNumberOfThreads() > 1 && updatedFilesToAdd.size() > 1) {
+        addFilesToZipInParallel(updatedFilesToAdd, zipOutputStream, aesKeyPrefetcher, deflateExecutorService,
+            crcExecutorService, progressMonitor, zipParameters, charset);
+        return;
+      }
+
       byte[] readBuff = new byte[BUFF_SIZE];
       int readLen = -1;
 
-      for (File fileToAdd : updatedFilesToAdd) {
+      for (int i = 0; i < updatedFilesToAdd.size(); i++) {
+        File fileToAdd = updatedFilesToAdd.get(i);
         verifyIfTaskIsCancelled();
-        ZipParameters clonedZipParameters = cloneAndAdjustZipParameters(zipParameters, fileToAdd, progressMonitor);
+        preGenerateAesKeys(aesKeyPrefetcher, updatedFilesToAdd, i, zipParameters);
+        ZipParameters clonedZipParameters = cloneAndAdjustZipParameters(zipParameters, fileToAdd, progressMonitor,
+            crcExecutorService);
         progressMonitor.setFileName(fileToAdd.getAbsolutePath());
 
         zipOutputStream.putNextEntry(clonedZipParameters);
@@ -83,7 +111,194 @@ public abstract class AbstractAddFileToZipTask<T> extends AsyncZipTask<T> {
 
         updateLocalFileHeader(fileHeader, splitOutputStream);
       }
+    } finally {
+      if (deflateExecutorService != null) {
+        deflateExecutorService.shutdownNow();
+      }
+      if (crcExecutorService != null) {
+        crcExecutorService.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Compresses and encrypts entries on a pool of worker threads while the calling thread writes the finished
+   * entries to the zip file in the order they were added. At most two entries per thread are in flight at any
+   * time and their data is held in memory up to the configured budget, beyond which it goes to temporary files.
+   */
+  private void addFilesToZipInParallel(List<File> filesToAdd, ZipOutputStream zipOutputStream,
+                                       AesKeyPrefetcher aesKeyPrefetcher, ExecutorService deflateExecutorService,
+                                       ExecutorService crcExecutorService, ProgressMonitor progressMonitor,
+                                       ZipParameters zipParameters, Charset charset)
+      throws IOException {
+    int maxEntriesInFlight = zipParameters.getNumberOfThreads() * 2;
+    long memoryThresholdPerEntry = Math.max(BUFF_SIZE,
+        zipParameters.getParallelCompressionMemoryBudget() / maxEntriesInFlight);
+    File spillDirectory = zipModel.getZipFile().getAbsoluteFile().getParentFile();
+
+    ExecutorService executorService = Executors.newFixedThreadPool(zipParameters.getNumberOfThreads());
+    Deque<Future<PreparedEntry>> entriesInFlight = new ArrayDeque<>();
+    int nextFileIndex = 0;
+
+    try {
+      while (nextFileIndex < filesToAdd.size() || !entriesInFlight.isEmpty()) {
+        while (nextFileIndex < filesToAdd.size() && entriesInFlight.size() < maxEntriesInFlight) {
+          preGenerateAesKeys(aesKeyPrefetcher, filesToAdd, nextFileIndex, zipParameters);
+          File fileToAdd = filesToAdd.get(nextFileIndex++);
+          entriesInFlight.add(executorService.submit(() -> prepareEntry(fileToAdd, zipParameters, charset,
+              aesKeyPrefetcher, deflateExecutorService, crcExecutorService, memoryThresholdPerEntry,
+              spillDirectory)));
+        }
+
+        verifyIfTaskIsCancelled();
+        PreparedEntry preparedEntry = waitForResult(entriesInFlight.poll());
+        progressMonitor.setFileName(preparedEntry.file.getAbsolutePath());
+
+        try (InputStream inputStream = preparedEntry.entryData.getInputStream()) {
+          zipOutputStream.putPreparedEntry(preparedEntry.fileHeader, inputStream);
+        } finally {
+          preparedEntry.entryData.delete();
+        }
+
+        progressMonitor.updateWorkCompleted(getWorkForPreparedEntry(preparedEntry.fileHeader, zipParameters));
+      }
+    } finally {
+      executorService.shutdownNow();
+      discardPreparedEntries(executorService, entriesInFlight);
+    }
+  }
+
+  private PreparedEntry prepareEntry(File fileToAdd, ZipParameters zipParameters, Charset charset,
+                                     AesKeyPrefetcher aesKeyPrefetcher, ExecutorService deflateExecutorService,
+                                     ExecutorService crcExecutorService, long memoryThreshold, File spillDirectory)
+      throws IOException {
+    ZipParameters clonedZipParameters = cloneAndAdjustZipParameters(zipParameters, fileToAdd, null,
+        crcExecutorService);
+    SpillingOutputStream entryData = new SpillingOutputStream(memoryThreshold, spillDirectory);
+
+    try (EntryDataOutputStream entryDataOutputStream = new EntryDataOutputStream(entryData, password, charset)) {
+      entryDataOutputStream.setAesKeyPrefetcher(aesKeyPrefetcher);
+      entryDataOutputStream.setDeflateExecutorService(deflateExecutorService);
+      entryDataOutputStream.putNextEntry(clonedZipParameters);
+
+      if (!fileToAdd.isDirectory()) {
+        byte[] readBuff = new byte[BUFF_SIZE];
+        int readLen;
+
+        try (InputStream inputStream = new FileInputStream(fileToAdd)) {
+          while ((readLen = inputStream.read(readBuff)) != -1) {
+            entryDataOutputStream.write(readBuff, 0, readLen);
+
+            if (Thread.currentThread().isInterrupted()) {
+              throw new ZipException("Task cancelled", ZipException.Type.TASK_CANCELLED_EXCEPTION);
+            }
+          }
+        }
+      }
+
+      FileHeader fileHeader = entryDataOutputStream.closeEntry();
+      if (!fileToAdd.isDirectory()) {
+        fileHeader.setExternalFileAttributes(FileUtils.getFileAttributes(fileToAdd));
+      }
+
+      return new PreparedEntry(fileToAdd, fileHeader, entryData);
+    } catch (IOException | RuntimeException e) {
+      entryData.delete();
+      throw e;
+    }
+  }
+
+  /**
+   * Creates the prefetcher to derive the keys of the files to be added in the background, if enabled for AES
+   * encryption. Keys are derived as the files are added, see {@link #preGenerateAesKeys}.
+   *
+   * @return the prefetcher to take the keys from, or null if keys are derived as each entry is started
+   */
+  private AesKeyPrefetcher startAesKeyPrefetch(List<File> filesToAdd, ZipParameters zipParameters) {
+    if (!zipParameters.isEncryptFiles() || zipParameters.getEncryptionMethod() != AES
+        || zipParameters.getNumberOfKeyDerivationThreads() < 1) {
+      return null;
+    }
+
+    // Directories are added without encryption
+    for (File fileToAdd : filesToAdd) {
+      if (!fileToAdd.isDirectory()) {
+        return new AesKeyPrefetcher(password, zipParameters.getNumberOfKeyDerivationThreads());
+      }
     }
+    return null;
+  }
+
+  /**
+   * Creates the executor which all entries of this operation compress their blocks on with block parallel deflate.
+   *
+   * @return the executor, or null if block parallel deflate is not enabled
+   */
+  private ExecutorService createDeflateExecutorService(ZipParameters zipParameters) {
+    if (zipParameters.getCompressionMethod() != DEFLATE
+        || zipParameters.getNumberOfDeflateThreads() < 2) {
+      return null;
+    }
+    return Executors.newFixedThreadPool(zipParameters.getNumberOfDeflateThreads());
+  }
+
+  /**
+   * Creates the executor which all files of this operation have the ranges of their crc checksummed on, when the crc
+   * is computed before the entry is written. The ranges do not wait for anything, so the workers which add entries in
+   * parallel can all wait for their crc on the same executor.
+   *
+   * @return the executor, or null if there is no crc to compute up front or a single thread to compute it with
+   */
+  private ExecutorService createCrcExecutorService(ZipParameters zipParameters) {
+    if (!isCrcPrecomputed(zipParameters) || zipParameters.getNumberOfThreads() < 2) {
+      return null;
+    }
+    return Executors.newFixedThreadPool(zipParameters.getNumberOfThreads());
+  }
+
+  /**
+   * Has keys derived for the encrypted files among the next few from the one about to be started, so that the keys
+   * are derived a bounded window ahead of the files being added
+   */
+  private void preGenerateAesKeys(AesKeyPrefetcher aesKeyPrefetcher, List<File> filesToAdd, int fileIndex,
+                                  ZipParameters zipParameters) {
+    if (aesKeyPrefetcher == null || filesToAdd.get(fileIndex).isDirectory()) {
+      return;
+    }
+
+    int numberOfEncryptedFiles = 0;
+    int endIndex = Math.min(filesToAdd.size(), fileIndex + aesKeyPrefetcher.getNumberOfKeysAhead());
+    for (int i = fileIndex; i < endIndex; i++) {
+      if (!filesToAdd.get(i).isDirectory()) {
+        numberOfEncryptedFiles++;
+      }
+    }
+    aesKeyPrefetcher.preGenerateKeys(zipParameters.getAesKeyStrength(), numberOfEncryptedFiles);
+  }
+
+  private void discardPreparedEntries(ExecutorService executorService, Deque<Future<PreparedEntry>> entriesInFlight) {
+    try {
+      executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    for (Future<PreparedEntry> future : entriesInFlight) {
+      if (future.isDone() && !future.isCancelled()) {
+        try {
+          future.get().entryData.delete();
+        } catch (InterruptedException | ExecutionException e) {
+          // Entry failed and already cleaned up after itself
+        }
+      }
+    }
+  }
+
+  private long getWorkForPreparedEntry(FileHeader fileHeader, ZipParameters zipParameters) {
+    if (isCrcPrecomputed(zipParameters)) {
+      return fileHeader.getUncompressedSize() * 2; // for CRC calculation
+    }
+    return fileHeader.getUncompressedSize();
   }
 
   long calculateWorkForFiles(List<File> filesToAdd, ZipParameters zipParameters) throws ZipException {
@@ -94,7 +309,7 @@ public abstract class AbstractAddFileToZipTask<T> extends AsyncZipTask<T> {
         continue;
       }
 
-      if (zipParameters.isEncryptFiles() && zipParameters.getEncryptionMethod() == EncryptionMethod.ZIP_STANDARD) {
+      if (isCrcPrecomputed(zipParameters)) {
         totalWork += (fileToAdd.length() * 2); // for CRC calculation
       } else {
         totalWork += fileToAdd.length();
@@ -150,7 +365,8 @@ public abstract class AbstractAddFileToZipTask<T> extends AsyncZipTask<T> {
   }
 
   private ZipParameters cloneAndAdjustZipParameters(ZipParameters zipParameters, File fileToAdd,
-                                                    ProgressMonitor progressMonitor) throws IOException {
+                                                    ProgressMonitor progressMonitor,
+                                                    ExecutorService crcExecutorService) throws IOException {
     ZipParameters clonedZipParameters = new ZipParameters(zipParameters);
     clonedZipParameters.setLastModifiedFileTime(javaToDosTime((fileToAdd.lastModified())));
 
@@ -173,10 +389,23 @@ public abstract class AbstractAddFileToZipTask<T> extends AsyncZipTask<T> {
       clonedZipParameters.setEncryptionMethod(EncryptionMethod.NONE);
       clonedZipParameters.setEncryptFiles(false);
     } else {
-      if (clonedZipParameters.isEncryptFiles() && clonedZipParameters.getEncryptionMethod() == ZIP_STANDARD) {
-        progressMonitor.setCurrentTask(CALCULATE_CRC);
-        clonedZipParameters.setEntryCRC(computeFileCrc(fileToAdd, progressMonitor));
-        progressMonitor.setCurrentTask(ADD_ENTRY);
+      if (isZipStandardEncryption(clonedZipParameters) && !isCrcPrecomputed(clonedZipParameters)) {
+        // Zip standard encryption needs a key byte in the encryption header before any data is written. With a
+        // data descriptor this byte comes from the last modified time instead of the crc, so the file is read once
+        clonedZipParameters.setWriteExtendedLocalFileHeader(true);
+      } else if (isCrcPrecomputed(clonedZipParameters)) {
+        if (progressMonitor == null) {
+          // Entry is being prepared on a worker thread, progress is reported once the entry is written. A large file
+          // still has its ranges checksummed on the crc executor of the operation, so that it does not hold up the
+          // others when it is among the last entries in flight; smaller files are checksummed on the worker itself
+          clonedZipParameters.setEntryCRC(computeFileCrc(fileToAdd, null, crcExecutorService,
+              zipParameters.getNumberOfThreads()));
+        } else {
+          progressMonitor.setCurrentTask(CALCULATE_CRC);
+          clonedZipParameters.setEntryCRC(computeFileCrc(fileToAdd, progressMonitor, crcExecutorService,
+              zipParameters.getNumberOfThreads()));
+          progressMonitor.setCurrentTask(ADD_ENTRY);
+        }
       }
 
       if (fileToAdd.length() == 0) {
@@ -187,6 +416,14 @@ public abstract class AbstractAddFileToZipTask<T> extends AsyncZipTask<T> {
     return clonedZipParameters;
   }
 
+  private boolean isZipStandardEncryption(ZipParameters zipParameters) {
+    return zipParameters.isEncryptFiles() && zipParameters.getEncryptionMethod() == ZIP_STANDARD;
+  }
+
+  private boolean isCrcPrecomputed(ZipParameters zipParameters) {
+    return isZipStandardEncryption(zipParameters) && zipParameters.isPrecomputeCrcForZipStandard();
+  }
+
   private List<File> removeFilesIfExists(List<File> files, ZipParameters zipParameters, ProgressMonitor progressMonitor, Charset charset)
       throws ZipException {
 
@@ -195,29 +432,54 @@ public abstract class AbstractAddFileToZipTask<T> extends AsyncZipTask<T> {
       return filesToAdd;
     }
 
+    List<FileHeader> fileHeadersToRemove = new ArrayList<>();
+    Set<File> filesToSkip = new HashSet<>();
     for (File file : files) {
       String fileName = getRelativeFileName(file.getAbsolutePath(), zipParameters);
 
       FileHeader fileHeader = getFileHeader(zipModel, fileName);
       if (fileHeader != null) {
         if (zipParameters.isOverrideExistingFilesInZip()) {
-          progressMonitor.setCurrentTask(REMOVE_ENTRY);
-          removeFile(fileHeader, progressMonitor, charset);
-          verifyIfTaskIsCancelled();
-          progressMonitor.setCurrentTask(ADD_ENTRY);
+          fileHeadersToRemove.add(fileHeader);
         } else {
-          filesToAdd.remove(file);
+          filesToSkip.add(file);
         }
       }
     }
 
+    if (!filesToSkip.isEmpty()) {
+      filesToAdd.removeIf(filesToSkip::contains);
+    }
+
+    if (!fileHeadersToRemove.isEmpty()) {
+      // All overridden entries are removed in one go, so that the zip file is rewritten once and not once per entry
+      progressMonitor.setCurrentTask(REMOVE_ENTRY);
+      removeFiles(fileHeadersToRemove, zipParameters.isOverrideExistingFilesInPlace(), progressMonitor, charset);
+      verifyIfTaskIsCancelled();
+      progressMonitor.setCurrentTask(ADD_ENTRY);
+    }
+
     return filesToAdd;
   }
 
-  private void removeFile(FileHeader fileHeader, ProgressMonitor progressMonitor, Charset charset) throws ZipException {
+  private void removeFiles(List<FileHeader> fileHeaders, boolean compactInPlace, ProgressMonitor progressMonitor,
+                           Charset charset) throws ZipException {
     RemoveEntryFromZipFileTask removeEntryFromZipFileTask = new RemoveEntryFromZipFileTask(progressMonitor, false,
         zipModel);
-    removeEntryFromZipFileTask.execute(new RemoveEntryFromZipFileTaskParameters(fileHeader, charset));
+    removeEntryFromZipFileTask.executeAsPartOfTask(new RemoveEntryFromZipFileTaskParameters(fileHeaders, compactInPlace,
+        charset));
+  }
+
+  private static class PreparedEntry {
+    private File file;
+    private FileHeader fileHeader;
+    private SpillingOutputStream entryData;
+
+    PreparedEntry(File file, FileHeader fileHeader, SpillingOutputStream entryData) {
+      this.file = file;
+      this.fileHeader = fileHeader;
+      this.entryData = entryData;
+    }
   }
 
   @Override
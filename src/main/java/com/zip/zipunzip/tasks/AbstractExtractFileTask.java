@@ -21,7 +21,6 @@ import static com.zip.zipunzip.util.InternalZipConstants.FILE_SEPARATOR;
 public abstract class AbstractExtractFileTask<T> extends AsyncZipTask<T> {
 
   private ZipModel zipModel;
-  private byte[] buff = new byte[BUFF_SIZE];
 
   public AbstractExtractFileTask(ProgressMonitor progressMonitor, boolean runInThread, ZipModel zipModel) {
     super(progressMonitor, runInThread);
@@ -48,10 +47,9 @@ public abstract class AbstractExtractFileTask<T> extends AsyncZipTask<T> {
     verifyNextEntry(zipInputStream, fileHeader);
 
     if (fileHeader.isDirectory()) {
-      if (!outputFile.exists()) {
-        if (!outputFile.mkdirs()) {
-          throw new ZipException("Could not create directory: " + outputFile);
-        }
+      // Checked again after mkdirs as the directory may be created concurrently when extracting in parallel
+      if (!outputFile.exists() && !outputFile.mkdirs() && !outputFile.isDirectory()) {
+        throw new ZipException("Could not create directory: " + outputFile);
       }
     } else {
       checkOutputDirectoryStructure(outputFile);
@@ -61,6 +59,7 @@ public abstract class AbstractExtractFileTask<T> extends AsyncZipTask<T> {
 
   private void unzipFile(ZipInputStream inputStream, FileHeader fileHeader, File outputFile,
                          ProgressMonitor progressMonitor) throws IOException {
+    byte[] buff = new byte[BUFF_SIZE];
     int readLength;
     try (OutputStream outputStream = new FileOutputStream(outputFile)) {
       while ((readLength = inputStream.read(buff)) != -1) {
@@ -92,7 +91,8 @@ public abstract class AbstractExtractFileTask<T> extends AsyncZipTask<T> {
   }
 
   private void checkOutputDirectoryStructure(File outputFile) throws ZipException {
-    if (!outputFile.getParentFile().exists() && !outputFile.getParentFile().mkdirs()) {
+    if (!outputFile.getParentFile().exists() && !outputFile.getParentFile().mkdirs()
+        && !outputFile.getParentFile().isDirectory()) {
       throw new ZipException("Unable to create parent directories: " + outputFile.getParentFile());
     }
   }
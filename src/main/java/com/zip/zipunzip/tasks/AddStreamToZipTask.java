@@ -17,6 +17,7 @@ import com.zip.zipunzip.util.ZipUtil;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Collections;
 
 import static com.zip.zipunzip.util.InternalZipConstants.BUFF_SIZE;
 
@@ -37,7 +38,7 @@ public class AddStreamToZipTask extends AbstractAddFileToZipTask<AddStreamToZipT
       throw new ZipException("fileNameInZip has to be set in zipParameters when adding stream");
     }
 
-    removeFileIfExists(getZipModel(), taskParameters.charset, taskParameters.zipParameters.getFileNameInZip(), progressMonitor);
+    removeFileIfExists(getZipModel(), taskParameters.charset, taskParameters.zipParameters, progressMonitor);
 
     // For streams, it is necessary to write extended local file header because of Zip standard encryption.
     // If we do not write extended local file header, zip standard encryption needs a crc upfront for key,
@@ -79,14 +80,15 @@ public class AddStreamToZipTask extends AbstractAddFileToZipTask<AddStreamToZipT
     return 0;
   }
 
-  private void removeFileIfExists(ZipModel zipModel, Charset charset, String fileNameInZip, ProgressMonitor progressMonitor)
-      throws ZipException {
+  private void removeFileIfExists(ZipModel zipModel, Charset charset, ZipParameters zipParameters,
+                                  ProgressMonitor progressMonitor) throws ZipException {
 
-    FileHeader fileHeader = HeaderUtil.getFileHeader(zipModel, fileNameInZip);
+    FileHeader fileHeader = HeaderUtil.getFileHeader(zipModel, zipParameters.getFileNameInZip());
     if (fileHeader  != null) {
       RemoveEntryFromZipFileTask removeEntryFromZipFileTask = new RemoveEntryFromZipFileTask(progressMonitor, false,
           zipModel);
-      removeEntryFromZipFileTask.execute(new RemoveEntryFromZipFileTaskParameters(fileHeader, charset));
+      removeEntryFromZipFileTask.executeAsPartOfTask(new RemoveEntryFromZipFileTaskParameters(
+          Collections.singletonList(fileHeader), zipParameters.isOverrideExistingFilesInPlace(), charset));
     }
   }
 
@@ -3,7 +3,9 @@ package com.zip.zipunzip.tasks;
 
 
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.zip.zipunzip.exception.ZipException;
 import com.zip.zipunzip.progress.ProgressMonitor;
@@ -19,9 +21,9 @@ public abstract class AsyncZipTask<T> {
   }
 
   public void execute(T taskParameters) throws ZipException {
-    progressMonitor.fullReset();
-    progressMonitor.setState(ProgressMonitor.State.BUSY);
-    progressMonitor.setCurrentTask(getTask());
+    if (!progressMonitor.startTask(getTask())) {
+      throw new ZipException("invalid operation - Zip4j is in busy state");
+    }
 
     if (runInThread) {
       long totalWorkToBeDone = calculateTotalWork(taskParameters);
@@ -39,6 +41,20 @@ public abstract class AsyncZipTask<T> {
     }
   }
 
+  /**
+   * Runs the task in the calling thread as a step of another task which is busy on the same progress monitor,
+   * without starting or ending the monitor
+   */
+  public void executeAsPartOfTask(T taskParameters) throws ZipException {
+    try {
+      executeTask(taskParameters, progressMonitor);
+    } catch (ZipException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ZipException(e);
+    }
+  }
+
   private void performTaskWithErrorHandling(T taskParameters, ProgressMonitor progressMonitor) throws ZipException {
     try {
       executeTask(taskParameters, progressMonitor);
@@ -63,6 +79,24 @@ public abstract class AsyncZipTask<T> {
     throw new ZipException("Task cancelled", ZipException.Type.TASK_CANCELLED_EXCEPTION);
   }
 
+  /**
+   * Waits for the result of work submitted to an executor and rethrows its failure as the IOException
+   * the work itself threw, so that worker threads surface errors the same way as the calling thread.
+   */
+  protected <R> R waitForResult(Future<R> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ZipException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new ZipException(e.getCause().getMessage(), e.getCause(), ZipException.Type.UNKNOWN);
+    }
+  }
+
   protected abstract void executeTask(T taskParameters, ProgressMonitor progressMonitor) throws IOException;
 
   protected abstract long calculateTotalWork(T taskParameters) throws ZipException;
@@ -1,19 +1,37 @@
 package com.zip.zipunzip.tasks;
 
+import com.zip.zipunzip.crypto.AesKeyPrefetcher;
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.headers.HeaderSignature;
+import com.zip.zipunzip.io.inputstream.MappedSplitInputStream;
 import com.zip.zipunzip.io.inputstream.SplitInputStream;
 import com.zip.zipunzip.io.inputstream.ZipInputStream;
 import com.zip.zipunzip.model.FileHeader;
 import com.zip.zipunzip.model.ZipModel;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
 import com.zip.zipunzip.progress.ProgressMonitor;
 import com.zip.zipunzip.tasks.ExtractAllFilesTask.ExtractAllFilesTaskParameters;
+import com.zip.zipunzip.util.RawIO;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.zip.zipunzip.util.ZipUtil.readFully;
 
 public class ExtractAllFilesTask extends AbstractExtractFileTask<ExtractAllFilesTaskParameters> {
 
   private char[] password;
   private SplitInputStream splitInputStream;
+  private RawIO rawIO = new RawIO();
 
   public ExtractAllFilesTask(ProgressMonitor progressMonitor, boolean runInThread, ZipModel zipModel, char[] password) {
     super(progressMonitor, runInThread, zipModel);
@@ -23,11 +41,33 @@ public class ExtractAllFilesTask extends AbstractExtractFileTask<ExtractAllFiles
   @Override
   protected void executeTask(ExtractAllFilesTaskParameters taskParameters, ProgressMonitor progressMonitor)
       throws IOException {
-    try (ZipInputStream zipInputStream = prepareZipInputStream(taskParameters.charset)) {
-      for (FileHeader fileHeader : getZipModel().getCentralDirectory().getFileHeaders()) {
-        if (fileHeader.getFileName().startsWith("__MACOSX")) {
-          progressMonitor.updateWorkCompleted(fileHeader.getUncompressedSize());
-          continue;
+    List<FileHeader> fileHeadersToExtract = new ArrayList<>();
+    for (FileHeader fileHeader : getZipModel().getCentralDirectory().getFileHeaders()) {
+      if (fileHeader.getFileName().startsWith("__MACOSX")) {
+        progressMonitor.updateWorkCompleted(fileHeader.getUncompressedSize());
+        continue;
+      }
+      fileHeadersToExtract.add(fileHeader);
+    }
+
+    try (AesKeyLookAhead aesKeyLookAhead = startAesKeyLookAhead(fileHeadersToExtract, taskParameters)) {
+      if (taskParameters.numberOfThreads > 1) {
+        extractAllFilesInParallel(fileHeadersToExtract, taskParameters, aesKeyLookAhead, progressMonitor);
+      } else {
+        extractAllFiles(fileHeadersToExtract, taskParameters, aesKeyLookAhead, progressMonitor);
+      }
+    }
+  }
+
+  private void extractAllFiles(List<FileHeader> fileHeadersToExtract, ExtractAllFilesTaskParameters taskParameters,
+                               AesKeyLookAhead aesKeyLookAhead, ProgressMonitor progressMonitor) throws IOException {
+    try (ZipInputStream zipInputStream = prepareZipInputStream(taskParameters)) {
+      zipInputStream.setAesKeyPrefetcher(aesKeyLookAhead == null ? null : aesKeyLookAhead.aesKeyPrefetcher);
+
+      for (int i = 0; i < fileHeadersToExtract.size(); i++) {
+        FileHeader fileHeader = fileHeadersToExtract.get(i);
+        if (aesKeyLookAhead != null) {
+          aesKeyLookAhead.advanceTo(i);
         }
 
         splitInputStream.prepareExtractionForFileHeader(fileHeader);
@@ -43,6 +83,116 @@ public class ExtractAllFilesTask extends AbstractExtractFileTask<ExtractAllFiles
     }
   }
 
+  /**
+   * Extracts entries on a pool of worker threads. Every worker reads through its own {@link SplitInputStream},
+   * positioned on the local header (and volume, for split archives) of each entry it picks up, so entries are
+   * read, decrypted, inflated and written independently of each other.
+   */
+  private void extractAllFilesInParallel(List<FileHeader> fileHeadersToExtract,
+                                         ExtractAllFilesTaskParameters taskParameters,
+                                         AesKeyLookAhead aesKeyLookAhead, ProgressMonitor progressMonitor)
+      throws IOException {
+    AtomicInteger nextFileHeaderIndex = new AtomicInteger();
+    int numberOfWorkers = Math.min(taskParameters.numberOfThreads, Math.max(fileHeadersToExtract.size(), 1));
+    ExecutorService executorService = Executors.newFixedThreadPool(numberOfWorkers);
+    AtomicBoolean stopWorkers = new AtomicBoolean(false);
+    List<Future<Void>> workers = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < numberOfWorkers; i++) {
+        workers.add(executorService.submit(() -> {
+          extractFileHeaders(fileHeadersToExtract, nextFileHeaderIndex, stopWorkers, taskParameters, aesKeyLookAhead,
+              progressMonitor);
+          return null;
+        }));
+      }
+
+      for (Future<Void> worker : workers) {
+        try {
+          waitForResult(worker);
+        } catch (IOException e) {
+          stopWorkers.set(true);
+          throw e;
+        }
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  private void extractFileHeaders(List<FileHeader> fileHeadersToExtract, AtomicInteger nextFileHeaderIndex,
+                                  AtomicBoolean stopWorkers, ExtractAllFilesTaskParameters taskParameters,
+                                  AesKeyLookAhead aesKeyLookAhead, ProgressMonitor progressMonitor)
+      throws IOException {
+    try (SplitInputStream workerSplitInputStream = createSplitInputStream(taskParameters)) {
+      int fileHeaderIndex;
+      while (!stopWorkers.get() && (fileHeaderIndex = nextFileHeaderIndex.getAndIncrement())
+          < fileHeadersToExtract.size()) {
+        FileHeader fileHeader = fileHeadersToExtract.get(fileHeaderIndex);
+        if (aesKeyLookAhead != null) {
+          aesKeyLookAhead.advanceTo(fileHeaderIndex);
+        }
+
+        workerSplitInputStream.prepareExtractionForFileHeader(fileHeader);
+
+        // A new ZipInputStream per entry, as data buffered for one entry does not belong to the next one
+        // picked up by this worker
+        ZipInputStream zipInputStream = new ZipInputStream(workerSplitInputStream, password, taskParameters.charset);
+        zipInputStream.setAesKeyPrefetcher(aesKeyLookAhead == null ? null : aesKeyLookAhead.aesKeyPrefetcher);
+        extractFile(zipInputStream, fileHeader, taskParameters.outputPath, null, progressMonitor);
+        verifyIfTaskIsCancelled();
+      }
+    } catch (IOException | RuntimeException e) {
+      stopWorkers.set(true);
+      throw e;
+    }
+  }
+
+  /**
+   * Starts deriving the keys of AES encrypted entries in the background ahead of their extraction, if enabled
+   *
+   * @return the look ahead to move along with the extraction, or null if keys are derived as each entry is extracted
+   */
+  private AesKeyLookAhead startAesKeyLookAhead(List<FileHeader> fileHeadersToExtract,
+                                               ExtractAllFilesTaskParameters taskParameters) throws IOException {
+    if (taskParameters.numberOfKeyDerivationThreads < 1 || password == null || password.length == 0) {
+      return null;
+    }
+
+    for (FileHeader fileHeader : fileHeadersToExtract) {
+      if (isAesEncrypted(fileHeader)) {
+        return new AesKeyLookAhead(fileHeadersToExtract, createSplitInputStream(taskParameters),
+            new AesKeyPrefetcher(password, taskParameters.numberOfKeyDerivationThreads));
+      }
+    }
+    return null;
+  }
+
+  private boolean isAesEncrypted(FileHeader fileHeader) {
+    return fileHeader.isEncrypted() && fileHeader.getEncryptionMethod() == EncryptionMethod.AES
+        && fileHeader.getAesExtraDataRecord() != null;
+  }
+
+  private byte[] readSalt(SplitInputStream saltInputStream, FileHeader fileHeader, int saltLength)
+      throws IOException {
+    saltInputStream.prepareExtractionForFileHeader(fileHeader);
+
+    byte[] localFileHeader = new byte[30];
+    readFully(saltInputStream, localFileHeader);
+    if (rawIO.readIntLittleEndian(localFileHeader, 0) != HeaderSignature.LOCAL_FILE_HEADER.getValue()) {
+      throw new ZipException("Expected local file header not found for entry: " + fileHeader.getFileName());
+    }
+
+    // salt is the first data of the entry, after file name and extra field
+    int fileNameAndExtraFieldLength = rawIO.readShortLittleEndian(localFileHeader, 26)
+        + rawIO.readShortLittleEndian(localFileHeader, 28);
+    readFully(saltInputStream, new byte[fileNameAndExtraFieldLength]);
+
+    byte[] salt = new byte[saltLength];
+    readFully(saltInputStream, salt);
+    return salt;
+  }
+
   @Override
   protected long calculateTotalWork(ExtractAllFilesTaskParameters taskParameters) {
     long totalWork = 0;
@@ -59,16 +209,25 @@ public class ExtractAllFilesTask extends AbstractExtractFileTask<ExtractAllFiles
     return totalWork;
   }
 
-  private ZipInputStream prepareZipInputStream(Charset charset) throws IOException {
-    splitInputStream = new SplitInputStream(getZipModel().getZipFile(),
-        getZipModel().isSplitArchive(), getZipModel().getEndOfCentralDirectoryRecord().getNumberOfThisDisk());
+  private ZipInputStream prepareZipInputStream(ExtractAllFilesTaskParameters taskParameters) throws IOException {
+    splitInputStream = createSplitInputStream(taskParameters);
 
     FileHeader fileHeader = getFirstFileHeader(getZipModel());
     if (fileHeader != null) {
       splitInputStream.prepareExtractionForFileHeader(fileHeader);
     }
 
-    return new ZipInputStream(splitInputStream, password, charset);
+    return new ZipInputStream(splitInputStream, password, taskParameters.charset);
+  }
+
+  private SplitInputStream createSplitInputStream(ExtractAllFilesTaskParameters taskParameters) throws IOException {
+    if (taskParameters.readWithMemoryMapping) {
+      return new MappedSplitInputStream(getZipModel().getZipFile(), getZipModel().isSplitArchive(),
+          getZipModel().getEndOfCentralDirectoryRecord().getNumberOfThisDisk());
+    }
+
+    return new SplitInputStream(getZipModel().getZipFile(), getZipModel().isSplitArchive(),
+        getZipModel().getEndOfCentralDirectoryRecord().getNumberOfThisDisk());
   }
 
   private FileHeader getFirstFileHeader(ZipModel zipModel) {
@@ -81,12 +240,68 @@ public class ExtractAllFilesTask extends AbstractExtractFileTask<ExtractAllFiles
     return zipModel.getCentralDirectory().getFileHeaders().get(0);
   }
 
+  /**
+   * Reads the salts of the AES encrypted entries among the next few from the one being extracted and has their keys
+   * derived in the background, so that neither the reads of local headers nor the derivations run further ahead of
+   * the extraction than a window of {@link AesKeyPrefetcher#getNumberOfKeysAhead()} entries
+   */
+  private class AesKeyLookAhead implements Closeable {
+    private final List<FileHeader> fileHeaders;
+    private final SplitInputStream saltInputStream;
+    private final AesKeyPrefetcher aesKeyPrefetcher;
+    private int nextFileHeaderIndex;
+
+    private AesKeyLookAhead(List<FileHeader> fileHeaders, SplitInputStream saltInputStream,
+                            AesKeyPrefetcher aesKeyPrefetcher) {
+      this.fileHeaders = fileHeaders;
+      this.saltInputStream = saltInputStream;
+      this.aesKeyPrefetcher = aesKeyPrefetcher;
+    }
+
+    /**
+     * Moves the window on to start at the entry about to be extracted
+     */
+    synchronized void advanceTo(int fileHeaderIndex) throws IOException {
+      int endIndex = (int) Math.min(fileHeaders.size(),
+          (long) fileHeaderIndex + aesKeyPrefetcher.getNumberOfKeysAhead());
+      for (; nextFileHeaderIndex < endIndex; nextFileHeaderIndex++) {
+        FileHeader fileHeader = fileHeaders.get(nextFileHeaderIndex);
+        if (isAesEncrypted(fileHeader)) {
+          AesKeyStrength aesKeyStrength = fileHeader.getAesExtraDataRecord().getAesKeyStrength();
+          aesKeyPrefetcher.prefetchKey(aesKeyStrength, readSalt(saltInputStream, fileHeader,
+              aesKeyStrength.getSaltLength()));
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      aesKeyPrefetcher.close();
+      saltInputStream.close();
+    }
+  }
+
   public static class ExtractAllFilesTaskParameters extends AbstractZipTaskParameters {
     private String outputPath;
+    private int numberOfThreads;
+    private int numberOfKeyDerivationThreads;
+    private boolean readWithMemoryMapping;
 
     public ExtractAllFilesTaskParameters(String outputPath, Charset charset) {
+      this(outputPath, 1, charset);
+    }
+
+    public ExtractAllFilesTaskParameters(String outputPath, int numberOfThreads, Charset charset) {
+      this(outputPath, numberOfThreads, 0, false, charset);
+    }
+
+    public ExtractAllFilesTaskParameters(String outputPath, int numberOfThreads, int numberOfKeyDerivationThreads,
+                                         boolean readWithMemoryMapping, Charset charset) {
       super(charset);
       this.outputPath = outputPath;
+      this.numberOfThreads = numberOfThreads;
+      this.numberOfKeyDerivationThreads = numberOfKeyDerivationThreads;
+      this.readWithMemoryMapping = readWithMemoryMapping;
     }
   }
 
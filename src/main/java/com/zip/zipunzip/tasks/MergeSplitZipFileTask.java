@@ -15,17 +15,24 @@ import com.zip.zipunzip.util.RawIO;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
-
-import static com.zip.zipunzip.util.FileUtils.copyFile;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MergeSplitZipFileTask extends AsyncZipTask<MergeSplitZipFileTaskParameters> {
 
+  private static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+
   private ZipModel zipModel;
   private RawIO rawIO = new RawIO();
 
@@ -42,40 +49,27 @@ public class MergeSplitZipFileTask extends AsyncZipTask<MergeSplitZipFileTaskPar
       throw e;
     }
 
-    try (OutputStream outputStream = new FileOutputStream(taskParameters.outputZipFile)) {
+    int totalNumberOfSplitFiles = zipModel.getEndOfCentralDirectoryRecord().getNumberOfThisDisk();
+    if (totalNumberOfSplitFiles <= 0) {
+      throw new ZipException("zip archive not a split zip file");
+    }
+
+    try (FileChannel outputChannel = FileChannel.open(taskParameters.outputZipFile.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+      List<SplitFileRange> splitFileRanges = getSplitFileRanges(totalNumberOfSplitFiles);
+      copySplitFiles(splitFileRanges, outputChannel, taskParameters.numberOfThreads, progressMonitor);
+
       long totalBytesWritten = 0;
-      int totalNumberOfSplitFiles = zipModel.getEndOfCentralDirectoryRecord().getNumberOfThisDisk();
-      if (totalNumberOfSplitFiles <= 0) {
-        throw new ZipException("zip archive not a split zip file");
+      for (SplitFileRange splitFileRange : splitFileRanges) {
+        updateFileHeaderOffsetsForIndex(zipModel.getCentralDirectory().getFileHeaders(),
+            splitFileRange.outputPosition - splitFileRange.start, splitFileRange.index);
+        totalBytesWritten += splitFileRange.end - splitFileRange.start;
       }
 
-      int splitSignatureOverhead = 0;
-      for (int i = 0; i <= totalNumberOfSplitFiles; i++) {
-        try (RandomAccessFile randomAccessFile = createSplitZipFileStream(zipModel, i)) {
-          int start = 0;
-          long end = randomAccessFile.length();
-
-          if (i == 0) {
-            if (rawIO.readIntLittleEndian(randomAccessFile) == HeaderSignature.SPLIT_ZIP.getValue()) {
-              splitSignatureOverhead = 4;
-              start = 4;
-            } else {
-              randomAccessFile.seek(0);
-            }
-          }
-
-          if (i == totalNumberOfSplitFiles) {
-            end = zipModel.getEndOfCentralDirectoryRecord().getOffsetOfStartOfCentralDirectory();
-          }
-
-          copyFile(randomAccessFile, outputStream, start, end, progressMonitor);
-          totalBytesWritten += (end - start);
-          updateFileHeaderOffsetsForIndex(zipModel.getCentralDirectory().getFileHeaders(),
-              i == 0 ? 0 : totalBytesWritten, i, splitSignatureOverhead);
-          verifyIfTaskIsCancelled();
-        }
-      }
-      updateHeadersForMergeSplitFileAction(zipModel, totalBytesWritten, outputStream, taskParameters.charset);
+      outputChannel.position(totalBytesWritten);
+      updateHeadersForMergeSplitFileAction(zipModel, totalBytesWritten, Channels.newOutputStream(outputChannel),
+          taskParameters.charset);
       progressMonitor.endProgressMonitor();
     } catch (CloneNotSupportedException e) {
       throw new ZipException(e);
@@ -95,11 +89,106 @@ public class MergeSplitZipFileTask extends AsyncZipTask<MergeSplitZipFileTaskPar
     return totalSize;
   }
 
-  private void updateFileHeaderOffsetsForIndex(List<FileHeader> fileHeaders, long offsetToAdd, int index,
-                                               int splitSignatureOverhead) {
+  /**
+   * Works out the range of every split file that goes into the merged file and where it goes, so that the split
+   * files can be copied in any order. The split signature at the start of the first split file and the central
+   * directory at the end of the last one are left out.
+   */
+  private List<SplitFileRange> getSplitFileRanges(int totalNumberOfSplitFiles) throws IOException {
+    List<SplitFileRange> splitFileRanges = new ArrayList<>();
+    long outputPosition = 0;
+
+    for (int i = 0; i <= totalNumberOfSplitFiles; i++) {
+      try (RandomAccessFile randomAccessFile = createSplitZipFileStream(zipModel, i)) {
+        long start = 0;
+        long end = randomAccessFile.length();
+
+        if (i == 0 && rawIO.readIntLittleEndian(randomAccessFile) == HeaderSignature.SPLIT_ZIP.getValue()) {
+          start = 4;
+        }
+
+        if (i == totalNumberOfSplitFiles) {
+          end = zipModel.getEndOfCentralDirectoryRecord().getOffsetOfStartOfCentralDirectory();
+        }
+
+        if (start > end) {
+          throw new ZipException("invalid offsets");
+        }
+
+        splitFileRanges.add(new SplitFileRange(i, start, end, outputPosition));
+        outputPosition += end - start;
+      }
+    }
+
+    return splitFileRanges;
+  }
+
+  private void copySplitFiles(List<SplitFileRange> splitFileRanges, FileChannel outputChannel, int numberOfThreads,
+                              ProgressMonitor progressMonitor) throws IOException {
+    if (numberOfThreads <= 1) {
+      for (SplitFileRange splitFileRange : splitFileRanges) {
+        copySplitFile(splitFileRange, outputChannel, progressMonitor);
+      }
+      return;
+    }
+
+    // Split files end up at disjoint positions of the output file, so each one can be copied on its own thread.
+    // transferFrom copies nothing to a position past the end of the file, so the output is first extended to the
+    // length of all split files together.
+    SplitFileRange lastSplitFileRange = splitFileRanges.get(splitFileRanges.size() - 1);
+    long totalLength = lastSplitFileRange.outputPosition + lastSplitFileRange.end - lastSplitFileRange.start;
+    if (totalLength > 0) {
+      outputChannel.write(ByteBuffer.wrap(new byte[1]), totalLength - 1);
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(numberOfThreads, splitFileRanges.size()));
+    List<Future<Void>> copies = new ArrayList<>();
+
+    try {
+      for (SplitFileRange splitFileRange : splitFileRanges) {
+        copies.add(executorService.submit(() -> {
+          copySplitFile(splitFileRange, outputChannel, progressMonitor);
+          return null;
+        }));
+      }
+
+      for (Future<Void> copy : copies) {
+        waitForResult(copy);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void copySplitFile(SplitFileRange splitFileRange, FileChannel outputChannel,
+                             ProgressMonitor progressMonitor) throws IOException {
+    try (RandomAccessFile randomAccessFile = createSplitZipFileStream(zipModel, splitFileRange.index)) {
+      FileChannel splitFileChannel = randomAccessFile.getChannel();
+      splitFileChannel.position(splitFileRange.start);
+
+      long bytesToCopy = splitFileRange.end - splitFileRange.start;
+      long outputPosition = splitFileRange.outputPosition;
+
+      while (bytesToCopy > 0) {
+        // transferFrom lets the kernel copy the data without it passing through a java buffer
+        long bytesCopied = outputChannel.transferFrom(splitFileChannel, outputPosition,
+            Math.min(TRANSFER_CHUNK_SIZE, bytesToCopy));
+        if (bytesCopied <= 0) {
+          throw new ZipException("unexpected end of split file: " + getNextSplitZipFile(zipModel, splitFileRange.index));
+        }
+
+        bytesToCopy -= bytesCopied;
+        outputPosition += bytesCopied;
+        progressMonitor.updateWorkCompleted(bytesCopied);
+        verifyIfTaskIsCancelled();
+      }
+    }
+  }
+
+  private void updateFileHeaderOffsetsForIndex(List<FileHeader> fileHeaders, long offsetToAdd, int index) {
     for (FileHeader fileHeader : fileHeaders) {
       if (fileHeader.getDiskNumberStart() == index) {
-        fileHeader.setOffsetLocalHeader(fileHeader.getOffsetLocalHeader() + offsetToAdd - splitSignatureOverhead);
+        fileHeader.setOffsetLocalHeader(fileHeader.getOffsetLocalHeader() + offsetToAdd);
         fileHeader.setDiskNumberStart(0);
       }
     }
@@ -189,12 +278,32 @@ public class MergeSplitZipFileTask extends AsyncZipTask<MergeSplitZipFileTaskPar
     return ProgressMonitor.Task.MERGE_ZIP_FILES;
   }
 
+  private static class SplitFileRange {
+    private final int index;
+    private final long start;
+    private final long end;
+    private final long outputPosition;
+
+    private SplitFileRange(int index, long start, long end, long outputPosition) {
+      this.index = index;
+      this.start = start;
+      this.end = end;
+      this.outputPosition = outputPosition;
+    }
+  }
+
   public static class MergeSplitZipFileTaskParameters extends AbstractZipTaskParameters {
     private File outputZipFile;
+    private int numberOfThreads;
 
     public MergeSplitZipFileTaskParameters(File outputZipFile, Charset charset) {
+      this(outputZipFile, 1, charset);
+    }
+
+    public MergeSplitZipFileTaskParameters(File outputZipFile, int numberOfThreads, Charset charset) {
       super(charset);
       this.outputZipFile = outputZipFile;
+      this.numberOfThreads = numberOfThreads;
     }
   }
 }
@@ -6,22 +6,31 @@ import com.zip.zipunzip.io.outputstream.SplitOutputStream;
 import com.zip.zipunzip.model.EndOfCentralDirectoryRecord;
 import com.zip.zipunzip.model.FileHeader;
 import com.zip.zipunzip.model.ZipModel;
-import com.zip.zipunzip.model.enums.RandomAccessFileMode;
 import com.zip.zipunzip.progress.ProgressMonitor;
 import com.zip.zipunzip.tasks.RemoveEntryFromZipFileTask.RemoveEntryFromZipFileTaskParameters;
+import com.zip.zipunzip.util.ZipFileCompactor;
+import com.zip.zipunzip.util.ZipFileCompactor.Move;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
-import static com.zip.zipunzip.headers.HeaderUtil.getIndexOfFileHeader;
-import static com.zip.zipunzip.util.FileUtils.copyFile;
+import static com.zip.zipunzip.util.ZipUtil.isStringNotNullAndNotEmpty;
 
 public class RemoveEntryFromZipFileTask extends AsyncZipTask<RemoveEntryFromZipFileTaskParameters>  {
 
+  private static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+
   private ZipModel zipModel;
 
   public RemoveEntryFromZipFileTask(ProgressMonitor progressMonitor, boolean runInThread, ZipModel zipModel) {
@@ -36,68 +45,148 @@ public class RemoveEntryFromZipFileTask extends AsyncZipTask<RemoveEntryFromZipF
       throw new ZipException("This is a split archive. Zip file format does not allow updating split/spanned files");
     }
 
+    Set<String> fileNamesToRemove = getFileNamesToRemove(taskParameters.fileHeaders);
+    if (fileNamesToRemove.isEmpty()) {
+      return;
+    }
+
+    RemovalPlan removalPlan = planRemoval(fileNamesToRemove);
+
+    if (taskParameters.compactInPlace) {
+      compactInPlace(removalPlan, fileNamesToRemove, taskParameters.charset, progressMonitor);
+      return;
+    }
+
     File temporaryZipFile = getTemporaryFile(zipModel.getZipFile().getPath());
     boolean successFlag = false;
 
-    try (SplitOutputStream outputStream = new SplitOutputStream(temporaryZipFile);
-         RandomAccessFile inputStream = new RandomAccessFile(zipModel.getZipFile(),
-             RandomAccessFileMode.READ.getValue())){
-
-      int indexOfFileHeader = getIndexOfFileHeader(zipModel, taskParameters.fileHeader);
-      long offsetLocalFileHeader = getOffsetLocalFileHeader(taskParameters.fileHeader);
-      long offsetStartOfCentralDirectory = getOffsetOfStartOfCentralDirectory(zipModel);
-      List<FileHeader> fileHeaders = zipModel.getCentralDirectory().getFileHeaders();
-      long offsetEndOfCompressedData = getOffsetEndOfCompressedData(indexOfFileHeader,
-          offsetStartOfCentralDirectory, fileHeaders);
-
-      if (indexOfFileHeader == 0) {
-        if (zipModel.getCentralDirectory().getFileHeaders().size() > 1) {
-          // if this is the only file and it is deleted then no need to do this
-        	copyFile(inputStream, outputStream, offsetEndOfCompressedData + 1,
-              offsetStartOfCentralDirectory, progressMonitor);
-        }
-      } else if (indexOfFileHeader == fileHeaders.size() - 1) {
-        copyFile(inputStream, outputStream, 0, offsetLocalFileHeader, progressMonitor);
-      } else {
-        copyFile(inputStream, outputStream, 0, offsetLocalFileHeader, progressMonitor);
-        copyFile(inputStream, outputStream, offsetEndOfCompressedData + 1,
-            offsetStartOfCentralDirectory, progressMonitor);
-      }
+    try {
+      copyRetainedRanges(removalPlan, temporaryZipFile, progressMonitor);
 
       verifyIfTaskIsCancelled();
 
-      updateHeaders(zipModel, outputStream, indexOfFileHeader, offsetEndOfCompressedData, offsetLocalFileHeader, taskParameters.charset);
+      try (SplitOutputStream outputStream = new SplitOutputStream(temporaryZipFile)) {
+        outputStream.seek(removalPlan.offsetStartOfCentralDirectory);
+        updateHeaders(zipModel, fileNamesToRemove, removalPlan, outputStream.getFilePointer());
+        new HeaderWriter().finalizeZipFile(zipModel, outputStream, taskParameters.charset);
+      }
       successFlag = true;
     } finally {
       cleanupFile(successFlag, zipModel.getZipFile(), temporaryZipFile);
     }
   }
 
-  private long getOffsetOfStartOfCentralDirectory(ZipModel zipModel) {
-    long offsetStartCentralDir = zipModel.getEndOfCentralDirectoryRecord().getOffsetOfStartOfCentralDirectory();
+  private Set<String> getFileNamesToRemove(List<FileHeader> fileHeaders) {
+    Set<String> fileNamesToRemove = new HashSet<>();
+    for (FileHeader fileHeader : fileHeaders) {
+      if (fileHeader != null && isStringNotNullAndNotEmpty(fileHeader.getFileName())) {
+        fileNamesToRemove.add(fileHeader.getFileName());
+      }
+    }
+    return fileNamesToRemove;
+  }
 
-    if (zipModel.isZip64Format() && zipModel.getZip64EndOfCentralDirectoryRecord() != null) {
-      offsetStartCentralDir = zipModel.getZip64EndOfCentralDirectoryRecord()
-          .getOffsetStartCentralDirectoryWRTStartDiskNumber();
+  /**
+   * Works out which ranges of the zip file are kept and where they go. Entries are visited in the order of their
+   * local headers, and a run of kept entries between two removed ones forms one range. The new local header offset
+   * of every kept entry is collected, to be applied once the data has been moved.
+   */
+  private RemovalPlan planRemoval(Set<String> fileNamesToRemove) {
+    List<FileHeader> fileHeaders = new ArrayList<>(zipModel.getCentralDirectory().getFileHeaders());
+    fileHeaders.sort(Comparator.comparingLong(this::getOffsetLocalFileHeader));
+    long offsetStartOfCentralDirectory = getOffsetOfStartOfCentralDirectory(zipModel);
+
+    RemovalPlan removalPlan = new RemovalPlan();
+    long offsetStartOfRetainedRange = 0;
+    long bytesRemoved = 0;
+
+    for (int i = 0; i < fileHeaders.size(); i++) {
+      FileHeader fileHeader = fileHeaders.get(i);
+      long offsetLocalFileHeader = getOffsetLocalFileHeader(fileHeader);
+
+      if (!fileNamesToRemove.contains(fileHeader.getFileName())) {
+        removalPlan.retainedFileHeaders.add(fileHeader);
+        removalPlan.retainedOffsetsLocalFileHeader.add(offsetLocalFileHeader - bytesRemoved);
+        continue;
+      }
+
+      long offsetEndOfEntry = i + 1 < fileHeaders.size() ? getOffsetLocalFileHeader(fileHeaders.get(i + 1))
+          : offsetStartOfCentralDirectory;
+      removalPlan.addRetainedRange(offsetStartOfRetainedRange, offsetLocalFileHeader, bytesRemoved);
+      bytesRemoved += offsetEndOfEntry - offsetLocalFileHeader;
+      offsetStartOfRetainedRange = offsetEndOfEntry;
     }
 
-    return offsetStartCentralDir;
+    removalPlan.addRetainedRange(offsetStartOfRetainedRange, offsetStartOfCentralDirectory, bytesRemoved);
+    removalPlan.offsetStartOfCentralDirectory = offsetStartOfCentralDirectory - bytesRemoved;
+    return removalPlan;
+  }
+
+  private void copyRetainedRanges(RemovalPlan removalPlan, File temporaryZipFile, ProgressMonitor progressMonitor)
+      throws IOException {
+    try (FileChannel inputChannel = FileChannel.open(zipModel.getZipFile().toPath(), StandardOpenOption.READ);
+         FileChannel outputChannel = FileChannel.open(temporaryZipFile.toPath(), StandardOpenOption.CREATE_NEW,
+             StandardOpenOption.WRITE)) {
+      for (Move retainedRange : removalPlan.retainedRanges) {
+        copyRange(inputChannel, outputChannel, retainedRange.getPosition(),
+            retainedRange.getPosition() + retainedRange.getLength(), progressMonitor);
+      }
+    }
+  }
+
+  /**
+   * Removes the entries without a temporary file. Ranges in front of the first removed entry stay where they are,
+   * all later ranges are moved down over the removed entries and the new central directory is written behind them.
+   * The zip model is updated before the file is changed, as a compaction that fails halfway is completed the next
+   * time the zip file is read.
+   */
+  private void compactInPlace(RemovalPlan removalPlan, Set<String> fileNamesToRemove, Charset charset,
+                              ProgressMonitor progressMonitor) throws IOException {
+    List<Move> moves = new ArrayList<>();
+    for (Move retainedRange : removalPlan.retainedRanges) {
+      if (retainedRange.getPosition() != retainedRange.getNewPosition()) {
+        moves.add(retainedRange);
+      }
+    }
+
+    verifyIfTaskIsCancelled();
+
+    updateHeaders(zipModel, fileNamesToRemove, removalPlan, removalPlan.offsetStartOfCentralDirectory);
+    try (ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream()) {
+      new HeaderWriter().finalizeZipFile(zipModel, centralDirectory, charset);
+      ZipFileCompactor.compact(zipModel.getZipFile(), moves, removalPlan.offsetStartOfCentralDirectory,
+          centralDirectory.toByteArray(), progressMonitor);
+    }
   }
 
-  private long getOffsetEndOfCompressedData(int indexOfFileHeader, long offsetStartOfCentralDirectory,
-                                            List<FileHeader> fileHeaders) {
-    if (indexOfFileHeader == fileHeaders.size() - 1) {
-      return offsetStartOfCentralDirectory - 1;
+  private void copyRange(FileChannel inputChannel, FileChannel outputChannel, long start, long end,
+                         ProgressMonitor progressMonitor) throws IOException {
+    if (start < 0 || start > end) {
+      throw new ZipException("invalid offsets");
     }
 
-    FileHeader nextFileHeader = fileHeaders.get(indexOfFileHeader + 1);
-    long offsetEndOfCompressedFile = nextFileHeader.getOffsetLocalHeader() - 1;
-    if (nextFileHeader.getZip64ExtendedInfo() != null
-        && nextFileHeader.getZip64ExtendedInfo().getOffsetLocalHeader() != -1) {
-      offsetEndOfCompressedFile = nextFileHeader.getZip64ExtendedInfo().getOffsetLocalHeader() - 1;
+    while (start < end) {
+      // transferTo lets the kernel copy the data without it passing through a java buffer
+      long bytesCopied = inputChannel.transferTo(start, Math.min(TRANSFER_CHUNK_SIZE, end - start), outputChannel);
+      if (bytesCopied <= 0) {
+        throw new ZipException("unexpected end of zip file");
+      }
+
+      start += bytesCopied;
+      progressMonitor.updateWorkCompleted(bytesCopied);
+      verifyIfTaskIsCancelled();
     }
+  }
 
-    return offsetEndOfCompressedFile;
+  private long getOffsetOfStartOfCentralDirectory(ZipModel zipModel) {
+    long offsetStartCentralDir = zipModel.getEndOfCentralDirectoryRecord().getOffsetOfStartOfCentralDirectory();
+
+    if (zipModel.isZip64Format() && zipModel.getZip64EndOfCentralDirectoryRecord() != null) {
+      offsetStartCentralDir = zipModel.getZip64EndOfCentralDirectoryRecord()
+          .getOffsetStartCentralDirectoryWRTStartDiskNumber();
+    }
+
+    return offsetStartCentralDir;
   }
 
   private File getTemporaryFile(String zipPathWithName) {
@@ -121,45 +210,30 @@ public class RemoveEntryFromZipFileTask extends AsyncZipTask<RemoveEntryFromZipF
     return offsetLocalFileHeader;
   }
 
-  private void updateHeaders(ZipModel zipModel, SplitOutputStream splitOutputStream, int indexOfFileHeader, long
-      offsetEndOfCompressedFile, long offsetLocalFileHeader, Charset charset) throws IOException {
+  private void updateHeaders(ZipModel zipModel, Set<String> fileNamesToRemove, RemovalPlan removalPlan,
+                             long offsetStartOfCentralDirectory) {
+    List<FileHeader> fileHeaders = zipModel.getCentralDirectory().getFileHeaders();
+    int numberOfFileHeadersRemoved = fileHeaders.size() - removalPlan.retainedFileHeaders.size();
+    fileHeaders.removeIf(fileHeader -> fileNamesToRemove.contains(fileHeader.getFileName()));
 
-    updateEndOfCentralDirectoryRecord(zipModel, splitOutputStream);
-    zipModel.getCentralDirectory().getFileHeaders().remove(indexOfFileHeader);
-    updateFileHeadersWithLocalHeaderOffsets(zipModel.getCentralDirectory().getFileHeaders(), offsetEndOfCompressedFile,
-        offsetLocalFileHeader);
+    for (int i = 0; i < removalPlan.retainedFileHeaders.size(); i++) {
+      removalPlan.retainedFileHeaders.get(i).setOffsetLocalHeader(removalPlan.retainedOffsetsLocalFileHeader.get(i));
+    }
 
-    HeaderWriter headerWriter = new HeaderWriter();
-    headerWriter.finalizeZipFile(zipModel, splitOutputStream, charset);
+    updateEndOfCentralDirectoryRecord(zipModel, offsetStartOfCentralDirectory, numberOfFileHeadersRemoved);
   }
 
-  private void updateEndOfCentralDirectoryRecord(ZipModel zipModel, SplitOutputStream splitOutputStream)
-      throws IOException {
+  private void updateEndOfCentralDirectoryRecord(ZipModel zipModel, long offsetStartOfCentralDirectory,
+                                                 int numberOfFileHeadersRemoved) {
     EndOfCentralDirectoryRecord endOfCentralDirectoryRecord = zipModel.getEndOfCentralDirectoryRecord();
-    endOfCentralDirectoryRecord.setOffsetOfStartOfCentralDirectory(splitOutputStream.getFilePointer());
+    endOfCentralDirectoryRecord.setOffsetOfStartOfCentralDirectory(offsetStartOfCentralDirectory);
     endOfCentralDirectoryRecord.setTotalNumberOfEntriesInCentralDirectory(
-        endOfCentralDirectoryRecord.getTotalNumberOfEntriesInCentralDirectory() - 1);
+        endOfCentralDirectoryRecord.getTotalNumberOfEntriesInCentralDirectory() - numberOfFileHeadersRemoved);
     endOfCentralDirectoryRecord.setTotalNumberOfEntriesInCentralDirectoryOnThisDisk(
-        endOfCentralDirectoryRecord.getTotalNumberOfEntriesInCentralDirectoryOnThisDisk() - 1);
+        endOfCentralDirectoryRecord.getTotalNumberOfEntriesInCentralDirectoryOnThisDisk() - numberOfFileHeadersRemoved);
     zipModel.setEndOfCentralDirectoryRecord(endOfCentralDirectoryRecord);
   }
 
-  private void updateFileHeadersWithLocalHeaderOffsets(List<FileHeader> fileHeaders, long offsetEndOfCompressedFile,
-                                                       long offsetLocalFileHeader) {
-    for (int i = 0; i < fileHeaders.size(); i ++) {
-      FileHeader fileHeader = fileHeaders.get(i);
-      long offsetLocalHdr = fileHeader.getOffsetLocalHeader();
-
-      if (fileHeader.getZip64ExtendedInfo() != null && fileHeader.getZip64ExtendedInfo().getOffsetLocalHeader() != -1) {
-        offsetLocalHdr = fileHeader.getZip64ExtendedInfo().getOffsetLocalHeader();
-      }
-
-      if (offsetLocalHdr > offsetLocalFileHeader) {
-        fileHeader.setOffsetLocalHeader(offsetLocalHdr - (offsetEndOfCompressedFile - offsetLocalFileHeader) - 1);
-      }
-    }
-  }
-
   private void cleanupFile(boolean successFlag, File zipFile, File temporaryZipFile) throws ZipException {
     if (successFlag) {
       restoreFileName(zipFile, temporaryZipFile);
@@ -180,7 +254,11 @@ public class RemoveEntryFromZipFileTask extends AsyncZipTask<RemoveEntryFromZipF
 
   @Override
   protected long calculateTotalWork(RemoveEntryFromZipFileTaskParameters taskParameters) {
-    return zipModel.getZipFile().length() - taskParameters.fileHeader.getCompressedSize();
+    long totalWork = zipModel.getZipFile().length();
+    for (FileHeader fileHeader : taskParameters.fileHeaders) {
+      totalWork -= fileHeader.getCompressedSize();
+    }
+    return totalWork;
   }
 
   @Override
@@ -188,12 +266,43 @@ public class RemoveEntryFromZipFileTask extends AsyncZipTask<RemoveEntryFromZipF
     return ProgressMonitor.Task.REMOVE_ENTRY;
   }
 
+  private static class RemovalPlan {
+    private List<FileHeader> retainedFileHeaders = new ArrayList<>();
+    private List<Long> retainedOffsetsLocalFileHeader = new ArrayList<>();
+    private List<Move> retainedRanges = new ArrayList<>();
+    private long offsetStartOfCentralDirectory;
+
+    private void addRetainedRange(long start, long end, long bytesRemoved) {
+      if (end > start) {
+        retainedRanges.add(new Move(start, start - bytesRemoved, end - start));
+      }
+    }
+  }
+
   public static class RemoveEntryFromZipFileTaskParameters extends AbstractZipTaskParameters {
-    private FileHeader fileHeader;
+    private List<FileHeader> fileHeaders;
+    private boolean compactInPlace;
 
     public RemoveEntryFromZipFileTaskParameters(FileHeader fileHeader, Charset charset) {
+      this(Collections.singletonList(fileHeader), charset);
+    }
+
+    /**
+     * Parameters to remove several entries at once, which rewrites the zip file only once for all of them
+     */
+    public RemoveEntryFromZipFileTaskParameters(List<FileHeader> fileHeaders, Charset charset) {
+      this(fileHeaders, false, charset);
+    }
+
+    /**
+     * @param compactInPlace if true, entries are removed by moving the data after them within the zip file instead
+     *                       of copying the whole zip file to a temporary file
+     */
+    public RemoveEntryFromZipFileTaskParameters(List<FileHeader> fileHeaders, boolean compactInPlace,
+                                                Charset charset) {
       super(charset);
-      this.fileHeader = fileHeader;
+      this.fileHeaders = fileHeaders;
+      this.compactInPlace = compactInPlace;
     }
   }
 }
@@ -0,0 +1,455 @@
+package com.zip.zipunzip.util;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.headers.HeaderReader;
+import com.zip.zipunzip.model.ZipModel;
+import com.zip.zipunzip.model.enums.RandomAccessFileMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Process wide cache of open archives, so that archives which are opened again and again have their headers read
+ * only once. An archive is cached by the canonical path of its zip file and the charset of its names, together with
+ * the parsed zip model and a channel for reading each of its volumes. A cached archive is used again only while the
+ * length and the last modified time of its zip file are the ones it was read with.
+ *
+ * <p>The least recently used archives are evicted once the cache holds more archives, or more file headers over all
+ * archives, than allowed. Archives are reference counted: every {@link #acquire(File, Charset)} has to be matched by
+ * a {@link CachedArchive#release()}, and the channels of an evicted archive are only closed once its last user has
+ * released it.
+ *
+ * <p>The zip model of a cached archive is shared by all its users and must not be changed. Its list of file headers
+ * is made read only before the archive is published to other threads. Archives that are about to be changed are read
+ * without the cache, and {@link #invalidate(File)} drops the cached copy afterwards.
+ */
+public class ArchiveCache {
+
+  public static final int DEFAULT_MAXIMUM_NUMBER_OF_ARCHIVES = 32;
+  public static final long DEFAULT_MAXIMUM_NUMBER_OF_FILE_HEADERS = 2_000_000;
+
+  private static final ArchiveCache DEFAULT_ARCHIVE_CACHE = new ArchiveCache(DEFAULT_MAXIMUM_NUMBER_OF_ARCHIVES,
+      DEFAULT_MAXIMUM_NUMBER_OF_FILE_HEADERS);
+
+  // in access order, so that the eldest entry is the least recently used archive
+  private Map<Key, CachedArchive> archives = new LinkedHashMap<>(16, 0.75f, true);
+  private int maximumNumberOfArchives;
+  private long maximumNumberOfFileHeaders;
+  private long numberOfFileHeaders;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public ArchiveCache(int maximumNumberOfArchives, long maximumNumberOfFileHeaders) {
+    this.maximumNumberOfArchives = maximumNumberOfArchives;
+    this.maximumNumberOfFileHeaders = maximumNumberOfFileHeaders;
+  }
+
+  public static ArchiveCache getDefault() {
+    return DEFAULT_ARCHIVE_CACHE;
+  }
+
+  /**
+   * Returns the cached archive for the zip file, reading its headers first if it is not cached or has changed since
+   * it was cached. The headers are read outside of the lock of the cache, so that a large archive does not hold up
+   * the users of other archives.
+   *
+   * @param zipFile zip file, or the last volume of a split archive
+   * @param charset charset of the names in the zip file
+   * @return the archive, which has to be released when it is no longer used
+   * @throws ZipException if the zip file cannot be read
+   */
+  public CachedArchive acquire(File zipFile, Charset charset) throws ZipException {
+    File canonicalFile;
+    try {
+      canonicalFile = zipFile.getCanonicalFile();
+    } catch (IOException e) {
+      throw new ZipException(e);
+    }
+
+    Key key = new Key(canonicalFile.getPath(), charset.name());
+    // taken before the headers are read, so that a zip file changed while they are read looks out of date later
+    long length = canonicalFile.length();
+    long lastModified = canonicalFile.lastModified();
+
+    synchronized (this) {
+      CachedArchive cachedArchive = getIfUpToDate(key, length, lastModified);
+      if (cachedArchive != null) {
+        hitCount++;
+        return cachedArchive;
+      }
+      missCount++;
+    }
+
+    ZipModel zipModel = readZipModel(canonicalFile, charset);
+    if (zipModel.getCentralDirectory() != null) {
+      zipModel.getCentralDirectory().setReadOnly();
+    }
+    CachedArchive loadedArchive = new CachedArchive(this, zipModel, length, lastModified);
+
+    synchronized (this) {
+      // another thread may have read the same archive in the meantime
+      CachedArchive cachedArchive = getIfUpToDate(key, length, lastModified);
+      if (cachedArchive != null) {
+        return cachedArchive;
+      }
+
+      loadedArchive.referenceCount = 1;
+      archives.put(key, loadedArchive);
+      numberOfFileHeaders += loadedArchive.numberOfFileHeaders;
+      evictIfNecessary();
+      return loadedArchive;
+    }
+  }
+
+  /**
+   * Opens an archive outside of any cache, to read a zip model which is not shared through its channels. The archive
+   * starts with one use, and its channels are closed when that use is released.
+   *
+   * @param zipModel zip model of the archive, which is used as it is
+   * @return the archive, which has to be released when it is no longer used
+   * @throws ZipException if the volumes of the archive cannot be found
+   */
+  public static CachedArchive openUncached(ZipModel zipModel) throws ZipException {
+    CachedArchive uncachedArchive = new CachedArchive(new ArchiveCache(0, 0), zipModel, -1, -1);
+    uncachedArchive.referenceCount = 1;
+    uncachedArchive.detached = true;
+    return uncachedArchive;
+  }
+
+  /**
+   * Drops the cached copies of the zip file, whatever the charset they were read with. Channels of copies that are
+   * in use are closed once they are released.
+   */
+  public void invalidate(File zipFile) throws ZipException {
+    String canonicalPath;
+    try {
+      canonicalPath = zipFile.getCanonicalPath();
+    } catch (IOException e) {
+      throw new ZipException(e);
+    }
+
+    synchronized (this) {
+      Iterator<Map.Entry<Key, CachedArchive>> iterator = archives.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Key, CachedArchive> entry = iterator.next();
+        if (entry.getKey().canonicalPath.equals(canonicalPath)) {
+          iterator.remove();
+          detach(entry.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops all cached archives
+   */
+  public synchronized void clear() {
+    for (CachedArchive cachedArchive : archives.values()) {
+      detach(cachedArchive);
+    }
+    archives.clear();
+  }
+
+  public synchronized int getNumberOfArchives() {
+    return archives.size();
+  }
+
+  public synchronized long getNumberOfFileHeaders() {
+    return numberOfFileHeaders;
+  }
+
+  public synchronized int getMaximumNumberOfArchives() {
+    return maximumNumberOfArchives;
+  }
+
+  public synchronized void setMaximumNumberOfArchives(int maximumNumberOfArchives) {
+    this.maximumNumberOfArchives = maximumNumberOfArchives;
+    evictIfNecessary();
+  }
+
+  public synchronized long getMaximumNumberOfFileHeaders() {
+    return maximumNumberOfFileHeaders;
+  }
+
+  /**
+   * Bounds the number of file headers over all cached archives, which is what most of the memory of the cache is
+   * spent on. An archive with more file headers than this is still cached until the next archive is.
+   *
+   * @param maximumNumberOfFileHeaders
+   */
+  public synchronized void setMaximumNumberOfFileHeaders(long maximumNumberOfFileHeaders) {
+    this.maximumNumberOfFileHeaders = maximumNumberOfFileHeaders;
+    evictIfNecessary();
+  }
+
+  /**
+   * @return number of archives that were found in the cache and up to date
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return number of archives whose headers had to be read, because they were not cached or had changed
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return number of archives dropped to keep the cache within its bounds
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  private CachedArchive getIfUpToDate(Key key, long length, long lastModified) {
+    CachedArchive cachedArchive = archives.get(key);
+    if (cachedArchive == null) {
+      return null;
+    }
+
+    if (cachedArchive.length != length || cachedArchive.lastModified != lastModified) {
+      archives.remove(key);
+      detach(cachedArchive);
+      return null;
+    }
+
+    cachedArchive.referenceCount++;
+    return cachedArchive;
+  }
+
+  private void evictIfNecessary() {
+    Iterator<CachedArchive> iterator = archives.values().iterator();
+    // the most recently used archive stays, even if it is over the bounds on its own
+    while (archives.size() > 1 && (archives.size() > maximumNumberOfArchives
+        || numberOfFileHeaders > maximumNumberOfFileHeaders)) {
+      CachedArchive eldestArchive = iterator.next();
+      iterator.remove();
+      detach(eldestArchive);
+      evictionCount++;
+    }
+  }
+
+  private void detach(CachedArchive cachedArchive) {
+    numberOfFileHeaders -= cachedArchive.numberOfFileHeaders;
+    cachedArchive.detached = true;
+    if (cachedArchive.referenceCount == 0) {
+      cachedArchive.closeChannels();
+    }
+  }
+
+  private static ZipModel readZipModel(File zipFile, Charset charset) throws ZipException {
+    if (!zipFile.exists()) {
+      throw new ZipException("zip file does not exist: " + zipFile);
+    }
+
+    if (!zipFile.canRead()) {
+      throw new ZipException("no read access for the input zip file");
+    }
+
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(zipFile, RandomAccessFileMode.READ.getValue())) {
+      ZipModel zipModel = new HeaderReader().readAllHeaders(randomAccessFile, charset);
+      zipModel.setZipFile(zipFile);
+      return zipModel;
+    } catch (ZipException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new ZipException(e);
+    }
+  }
+
+  /**
+   * An archive in the cache: its zip model and one channel for each of its volumes, which all its users read from at
+   * once
+   */
+  public static class CachedArchive {
+
+    private ArchiveCache archiveCache;
+    private ZipModel zipModel;
+    private List<File> volumes;
+    // read without a lock, a channel is only opened or closed under the lock of the cached archive
+    private AtomicReferenceArray<FileChannel> channels;
+    private long length;
+    private long lastModified;
+    private long numberOfFileHeaders;
+    private int referenceCount;
+    private boolean detached;
+
+    private CachedArchive(ArchiveCache archiveCache, ZipModel zipModel, long length, long lastModified)
+        throws ZipException {
+      this.archiveCache = archiveCache;
+      this.zipModel = zipModel;
+      this.length = length;
+      this.lastModified = lastModified;
+
+      volumes = FileUtils.getSplitZipFiles(zipModel);
+      if (volumes == null) {
+        volumes = new ArrayList<>();
+        volumes.add(zipModel.getZipFile());
+      }
+      channels = new AtomicReferenceArray<>(volumes.size());
+
+      numberOfFileHeaders = 1;
+      if (zipModel.getCentralDirectory() != null && zipModel.getCentralDirectory().getFileHeaders() != null) {
+        numberOfFileHeaders += zipModel.getCentralDirectory().getFileHeaders().size();
+      }
+    }
+
+    /**
+     * @return zip model of the archive, which is shared and must not be changed. The list of file headers of a cached
+     * archive cannot be changed
+     */
+    public ZipModel getZipModel() {
+      return zipModel;
+    }
+
+    public int getNumberOfVolumes() {
+      return volumes.size();
+    }
+
+    /**
+     * @param diskNumber number of the volume, which is 0 for an archive that is not split
+     * @return current size of the volume
+     * @throws IOException if the volume cannot be opened
+     */
+    public long getVolumeSize(int diskNumber) throws IOException {
+      return getChannel(diskNumber).size();
+    }
+
+    /**
+     * Reads from a volume at a position, without a file pointer that readers would have to share, so that any number
+     * of threads can read the archive at once. A channel closed because another reader was interrupted during a read
+     * is opened again.
+     *
+     * @param diskNumber number of the volume, which is 0 for an archive that is not split
+     * @param buffer buffer to read into, up to its limit
+     * @param position position in the volume to read from
+     * @return number of bytes read, or -1 at the end of the volume
+     * @throws IOException if the volume cannot be read
+     */
+    public int read(int diskNumber, ByteBuffer buffer, long position) throws IOException {
+      for (int attempt = 1; ; attempt++) {
+        FileChannel fileChannel = getChannel(diskNumber);
+        try {
+          return fileChannel.read(buffer, position);
+        } catch (ClosedByInterruptException e) {
+          throw e;
+        } catch (ClosedChannelException e) {
+          if (attempt == 2) {
+            throw e;
+          }
+        }
+      }
+    }
+
+    /**
+     * Starts one more use of an archive that is already in use, such as a stream reading an entry for longer than
+     * the user who acquired the archive. Has to be matched by a {@link #release()} like an acquire.
+     */
+    public void retain() {
+      synchronized (archiveCache) {
+        if (referenceCount <= 0) {
+          throw new IllegalStateException("cached archive retained after it was released");
+        }
+
+        referenceCount++;
+      }
+    }
+
+    /**
+     * Ends one use of the archive, which has to be the last call on it by that user. Closes the channels if the
+     * archive was dropped from the cache and this was its last user.
+     */
+    public void release() {
+      synchronized (archiveCache) {
+        if (referenceCount <= 0) {
+          throw new IllegalStateException("cached archive released more often than it was acquired");
+        }
+
+        referenceCount--;
+        if (referenceCount == 0 && detached) {
+          closeChannels();
+        }
+      }
+    }
+
+    private FileChannel getChannel(int diskNumber) throws IOException {
+      if (diskNumber < 0 || diskNumber >= volumes.size()) {
+        throw new ZipException("invalid disk number: " + diskNumber + ", archive has " + volumes.size()
+            + " volumes");
+      }
+
+      FileChannel fileChannel = channels.get(diskNumber);
+      if (fileChannel != null && fileChannel.isOpen()) {
+        return fileChannel;
+      }
+
+      synchronized (this) {
+        fileChannel = channels.get(diskNumber);
+        if (fileChannel == null || !fileChannel.isOpen()) {
+          fileChannel = FileChannel.open(volumes.get(diskNumber).toPath(), StandardOpenOption.READ);
+          channels.set(diskNumber, fileChannel);
+        }
+        return fileChannel;
+      }
+    }
+
+    private void closeChannels() {
+      synchronized (this) {
+        for (int i = 0; i < channels.length(); i++) {
+          FileChannel fileChannel = channels.getAndSet(i, null);
+          if (fileChannel != null) {
+            try {
+              fileChannel.close();
+            } catch (IOException e) {
+              // nothing is lost when closing a channel that was only read fails
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static class Key {
+    private String canonicalPath;
+    private String charsetName;
+
+    private Key(String canonicalPath, String charsetName) {
+      this.canonicalPath = canonicalPath;
+      this.charsetName = charsetName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return canonicalPath.equals(key.canonicalPath) && charsetName.equals(key.charsetName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(canonicalPath, charsetName);
+    }
+  }
+}
@@ -8,18 +8,27 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.CRC32;
 
 public class CrcUtil {
 
   private static final int BUF_SIZE = 1 << 14; //16384
+  private static final long MIN_FILE_SIZE_FOR_PARALLEL_CRC = 8 * 1024 * 1024;
+  private static final long MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+  private static final int MAPPED_SLICE_SIZE = 1024 * 1024;
 
   public static long computeFileCrc(File inputFile, ProgressMonitor progressMonitor) throws IOException {
 
-    if (inputFile == null || !inputFile.exists() || !inputFile.canRead()) {
-      throw new ZipException("input file is null or does not exist or cannot read. " +
-          "Cannot calculate CRC for the file");
-    }
+    verifyInputFile(inputFile);
 
     byte[] buff = new byte[BUF_SIZE];
     CRC32 crc32 = new CRC32();
@@ -42,4 +51,177 @@ public class CrcUtil {
     }
   }
 
+  /**
+   * Computes the crc of a file by splitting it into disjoint ranges which are memory mapped and checksummed on the
+   * given executor, and combining the crc of each range. Small files, a single range and a missing executor use
+   * {@link #computeFileCrc(File, ProgressMonitor)}. The executor is owned by the caller, which shares it between all
+   * the files it checksums, and must only run tasks which do not wait for others of it.
+   *
+   * @param inputFile file to compute the crc for
+   * @param progressMonitor optional, updated with the bytes checksummed and checked for cancellation
+   * @param executorService executor to checksum the ranges of the file on, or null to checksum it on this thread
+   * @param numberOfRanges number of ranges to split the file into, usually the number of threads of the executor
+   * @return crc of the file, or 0 if the task was cancelled
+   * @throws IOException
+   */
+  public static long computeFileCrc(File inputFile, ProgressMonitor progressMonitor, ExecutorService executorService,
+                                    int numberOfRanges) throws IOException {
+
+    verifyInputFile(inputFile);
+
+    long fileLength = inputFile.length();
+    if (executorService == null || numberOfRanges <= 1 || fileLength < MIN_FILE_SIZE_FOR_PARALLEL_CRC) {
+      return computeFileCrc(inputFile, progressMonitor);
+    }
+
+    long rangeLength = (fileLength + numberOfRanges - 1) / numberOfRanges;
+    List<Future<Long>> rangeCrcs = new ArrayList<>();
+
+    try (FileChannel fileChannel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+      for (long position = 0; position < fileLength; position += rangeLength) {
+        long rangeStart = position;
+        long rangeEnd = Math.min(position + rangeLength, fileLength);
+        rangeCrcs.add(executorService.submit(() -> computeRangeCrc(fileChannel, rangeStart, rangeEnd,
+            progressMonitor)));
+      }
+
+      long crc = 0;
+      long position = 0;
+      for (Future<Long> rangeCrc : rangeCrcs) {
+        long length = Math.min(rangeLength, fileLength - position);
+        crc = combineCrc32(crc, waitForRangeCrc(rangeCrc), length);
+        position += length;
+      }
+
+      if (progressMonitor != null && progressMonitor.isCancelAllTasks()) {
+        progressMonitor.setResult(ProgressMonitor.Result.CANCELLED);
+        progressMonitor.setState(ProgressMonitor.State.READY);
+        return 0;
+      }
+
+      return crc;
+    } finally {
+      // ranges still queued when one failed are not run on the shared executor
+      for (Future<Long> rangeCrc : rangeCrcs) {
+        rangeCrc.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Combines the CRC32 of two consecutive blocks of data into the CRC32 of the concatenated data, the same way
+   * zlib's crc32_combine does
+   *
+   * @param crc1 CRC32 of the first block
+   * @param crc2 CRC32 of the second block
+   * @param len2 length of the second block in bytes
+   * @return CRC32 of the first block followed by the second block
+   */
+  public static long combineCrc32(long crc1, long crc2, long len2) {
+    if (len2 <= 0) {
+      return crc1;
+    }
+
+    long[] even = new long[32]; // operator for even powers of two zeros
+    long[] odd = new long[32];  // operator for odd powers of two zeros
+
+    odd[0] = 0xedb88320L; // CRC-32 polynomial
+    long row = 1;
+    for (int n = 1; n < 32; n++) {
+      odd[n] = row;
+      row <<= 1;
+    }
+
+    gf2MatrixSquare(even, odd); // operator for two zero bits
+    gf2MatrixSquare(odd, even); // operator for four zero bits
+
+    // apply len2 zeros to crc1 (first square will put the operator for one zero byte, eight zero bits, in even)
+    do {
+      gf2MatrixSquare(even, odd);
+      if ((len2 & 1) != 0) {
+        crc1 = gf2MatrixTimes(even, crc1);
+      }
+      len2 >>= 1;
+
+      if (len2 == 0) {
+        break;
+      }
+
+      gf2MatrixSquare(odd, even);
+      if ((len2 & 1) != 0) {
+        crc1 = gf2MatrixTimes(odd, crc1);
+      }
+      len2 >>= 1;
+    } while (len2 != 0);
+
+    return crc1 ^ crc2;
+  }
+
+  private static long gf2MatrixTimes(long[] mat, long vec) {
+    long sum = 0;
+    int i = 0;
+    while (vec != 0) {
+      if ((vec & 1) != 0) {
+        sum ^= mat[i];
+      }
+      vec >>>= 1;
+      i++;
+    }
+    return sum;
+  }
+
+  private static void gf2MatrixSquare(long[] square, long[] mat) {
+    for (int n = 0; n < 32; n++) {
+      square[n] = gf2MatrixTimes(mat, mat[n]);
+    }
+  }
+
+  private static long computeRangeCrc(FileChannel fileChannel, long rangeStart, long rangeEnd,
+                                      ProgressMonitor progressMonitor) throws IOException {
+    CRC32 crc32 = new CRC32();
+
+    for (long position = rangeStart; position < rangeEnd; position += MAPPED_WINDOW_SIZE) {
+      MappedByteBuffer window = fileChannel.map(FileChannel.MapMode.READ_ONLY, position,
+          Math.min(MAPPED_WINDOW_SIZE, rangeEnd - position));
+
+      // Checksum the window in slices so that progress and cancellation are reported as often as when streaming
+      while (window.hasRemaining()) {
+        int sliceLength = Math.min(MAPPED_SLICE_SIZE, window.remaining());
+        ByteBuffer slice = window.slice();
+        slice.limit(sliceLength);
+        crc32.update(slice);
+        window.position(window.position() + sliceLength);
+
+        if (progressMonitor != null) {
+          progressMonitor.updateWorkCompleted(sliceLength);
+          if (progressMonitor.isCancelAllTasks()) {
+            return 0;
+          }
+        }
+      }
+    }
+
+    return crc32.getValue();
+  }
+
+  private static long waitForRangeCrc(Future<Long> rangeCrc) throws IOException {
+    try {
+      return rangeCrc.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ZipException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new ZipException(e.getCause().getMessage(), e.getCause(), ZipException.Type.UNKNOWN);
+    }
+  }
+
+  private static void verifyInputFile(File inputFile) throws ZipException {
+    if (inputFile == null || !inputFile.exists() || !inputFile.canRead()) {
+      throw new ZipException("input file is null or does not exist or cannot read. " +
+          "Cannot calculate CRC for the file");
+    }
+  }
 }
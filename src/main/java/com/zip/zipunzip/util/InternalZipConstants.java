@@ -10,6 +10,10 @@ public final class InternalZipConstants {
   }
 
   public static final int ENDHDR = 22;	// END header size
+  public static final int LOCHDR = 30;	// LOC header size
+  public static final int CENHDR = 46;	// CEN header size
+  public static final int ZIP64_ENDHDR = 56;	// ZIP64 END header size
+  public static final int ZIP64_ENDLOCHDR = 20;	// ZIP64 END locator header size
   public static final int STD_DEC_HDR_SIZE = 12;
 
   //AES Constants
@@ -1,13 +1,16 @@
 package com.zip.zipunzip.util;
 
 import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.io.inputstream.CachedArchiveInputStream;
 import com.zip.zipunzip.io.inputstream.SplitInputStream;
 import com.zip.zipunzip.io.inputstream.ZipInputStream;
 import com.zip.zipunzip.model.FileHeader;
 import com.zip.zipunzip.model.ZipModel;
+import com.zip.zipunzip.util.ArchiveCache.CachedArchive;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 
 import static com.zip.zipunzip.util.FileUtils.setFileAttributes;
@@ -18,11 +21,21 @@ public class UnzipUtil {
 
   public static ZipInputStream createZipInputStream(ZipModel zipModel, FileHeader fileHeader, char[] password)
       throws IOException {
+    return createZipInputStream(zipModel.getZipFile(), zipModel.isSplitArchive(),
+        zipModel.getEndOfCentralDirectoryRecord().getNumberOfThisDisk(), fileHeader, password);
+  }
+
+  /**
+   * Creates a stream for the entry from its file header and the split files of the zip file alone, without a zip model
+   *
+   * @param numberOfThisDisk number of the disk of the end of central directory record, which is the last split file
+   */
+  public static ZipInputStream createZipInputStream(File zipFile, boolean splitArchive, int numberOfThisDisk,
+                                                    FileHeader fileHeader, char[] password) throws IOException {
 
     SplitInputStream splitInputStream = null;
     try {
-      splitInputStream = new SplitInputStream(zipModel.getZipFile(), zipModel.isSplitArchive(),
-          zipModel.getEndOfCentralDirectoryRecord().getNumberOfThisDisk());
+      splitInputStream = new SplitInputStream(zipFile, splitArchive, numberOfThisDisk);
       splitInputStream.prepareExtractionForFileHeader(fileHeader);
 
       ZipInputStream zipInputStream = new ZipInputStream(splitInputStream, password);
@@ -39,6 +52,30 @@ public class UnzipUtil {
     }
   }
 
+  /**
+   * Creates a stream for the entry which reads with positional reads on the channels of the cached archive. The
+   * stream takes over one use of the archive, which it releases when it is closed, also if creating it fails.
+   */
+  public static ZipInputStream createZipInputStream(CachedArchive cachedArchive, FileHeader fileHeader,
+                                                    char[] password) throws IOException {
+    ZipModel zipModel = cachedArchive.getZipModel();
+    int diskNumber = zipModel.isSplitArchive() ? fileHeader.getDiskNumberStart() : 0;
+
+    InputStream inputStream = new CachedArchiveInputStream(cachedArchive, diskNumber,
+        fileHeader.getOffsetLocalHeader());
+    try {
+      ZipInputStream zipInputStream = new ZipInputStream(inputStream, password);
+      if (zipInputStream.getNextEntry(fileHeader) == null) {
+        throw new ZipException("Could not locate local file header for corresponding file header");
+      }
+
+      return zipInputStream;
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+  }
+
   public static void applyFileAttributes(FileHeader fileHeader, File file) {
 
     try {
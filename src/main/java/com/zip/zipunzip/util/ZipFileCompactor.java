@@ -0,0 +1,520 @@
+package com.zip.zipunzip.util;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.progress.ProgressMonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Compacts a zip file in place. Ranges of data are moved towards the start of the file, a new tail (central
+ * directory and end of central directory record) is written behind them and the file is truncated. Data in front
+ * of the first moved range is not touched.
+ * <p>
+ * Each step is recorded in a journal file next to the zip file, so that a compaction interrupted by a crash can be
+ * completed with {@link #recoverIfNecessary(File)}. The journal holds the moves and the new tail, followed by two
+ * progress records that are written alternately. A window of data is moved only after its progress record has been
+ * synced, and the record of the next window is written only after the zip file has been synced, so the latest valid
+ * record always names the only window that may have been written partially. A window whose destination overlaps its
+ * own source is copied into the journal before it is moved, as its source is lost once the move starts. Any other
+ * window can be moved again from its source.
+ * <p>
+ * When all windows have been moved, a last progress record saying so is synced before the tail is written. The tail
+ * may overwrite the source of the last window, so a compaction interrupted after that record only has its tail written
+ * and the file truncated again.
+ * <p>
+ * The journal is locked for as long as the compaction runs, so that a reader of the zip file in another process, or
+ * another ZipFile in this one, does not take the journal of a running compaction for that of an interrupted one.
+ */
+public class ZipFileCompactor {
+
+  private static final String JOURNAL_EXTENSION = ".compact";
+  private static final int JOURNAL_SIGNATURE = 0x4a43505a;
+  private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+  private static final int PROGRESS_RECORD_SIZE = 40;
+  private static final int DATA_IN_ZIP_FILE = 0;
+  private static final int DATA_IN_JOURNAL = 1;
+  private static final int MOVES_COMPLETE = 2;
+  // journals of compactions running in this JVM, which readers in it must not open, see recoverIfNecessary
+  private static final Set<File> JOURNALS_IN_USE = ConcurrentHashMap.newKeySet();
+
+  private FileChannel zipChannel;
+  private FileChannel journalChannel;
+  private List<Move> moves;
+  private long offsetOfTail;
+  private byte[] tail;
+  private long journalHeaderLength;
+  private long sequence;
+  private ByteBuffer window;
+
+  private ZipFileCompactor(FileChannel zipChannel, FileChannel journalChannel, List<Move> moves, long offsetOfTail,
+                           byte[] tail) {
+    this.zipChannel = zipChannel;
+    this.journalChannel = journalChannel;
+    this.moves = moves;
+    this.offsetOfTail = offsetOfTail;
+    this.tail = tail;
+  }
+
+  /**
+   * Moves the given ranges of the zip file, which have to be sorted by position and may only move data towards the
+   * start of the file, then writes the tail at the given offset and truncates the file after it.
+   *
+   * @param zipFile zip file to compact
+   * @param moves ranges of data to move, in the order of their position
+   * @param offsetOfTail offset to write the tail at
+   * @param tail bytes that end the compacted file
+   * @param progressMonitor optional, updated with the number of bytes moved
+   * @throws IOException if the file could not be compacted. The journal is kept in that case, and the compaction
+   * is completed the next time the zip file is read
+   */
+  public static void compact(File zipFile, List<Move> moves, long offsetOfTail, byte[] tail,
+                             ProgressMonitor progressMonitor) throws IOException {
+    compact(zipFile, moves, offsetOfTail, tail, progressMonitor, true);
+  }
+
+  /**
+   * Compacts the zip file and leaves the journal behind, as a crash right before the journal is deleted would
+   */
+  static void compactKeepingJournal(File zipFile, List<Move> moves, long offsetOfTail, byte[] tail,
+                                    ProgressMonitor progressMonitor) throws IOException {
+    compact(zipFile, moves, offsetOfTail, tail, progressMonitor, false);
+  }
+
+  private static void compact(File zipFile, List<Move> moves, long offsetOfTail, byte[] tail,
+                              ProgressMonitor progressMonitor, boolean deleteJournal) throws IOException {
+    File journalFile = getJournalFile(zipFile).getAbsoluteFile();
+    if (journalFile.exists() || !JOURNALS_IN_USE.add(journalFile)) {
+      throw new ZipException("an earlier compaction of " + zipFile + " has not been completed or is still running");
+    }
+
+    try (FileChannel zipChannel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+         FileChannel journalChannel = createLockedJournal(journalFile)) {
+      ZipFileCompactor zipFileCompactor = new ZipFileCompactor(zipChannel, journalChannel, moves, offsetOfTail, tail);
+      zipFileCompactor.writeJournalHeader();
+      zipFileCompactor.moveFrom(0, progressMonitor);
+      zipFileCompactor.writeMovesComplete();
+      zipFileCompactor.writeTail();
+
+      if (deleteJournal) {
+        // deleted while it is still locked, so that no reader takes it for the journal of an interrupted compaction
+        Files.delete(journalFile.toPath());
+      }
+    } finally {
+      JOURNALS_IN_USE.remove(journalFile);
+    }
+  }
+
+  /**
+   * Completes a compaction of the zip file that was interrupted, if there is one
+   *
+   * @param zipFile zip file to check
+   * @return true if an interrupted compaction was completed
+   * @throws IOException if the compaction could not be completed
+   * @throws ZipException if the zip file is being compacted right now, by this or another process
+   */
+  public static boolean recoverIfNecessary(File zipFile) throws IOException {
+    File journalFile = getJournalFile(zipFile).getAbsoluteFile();
+    if (!journalFile.exists()) {
+      return false;
+    }
+    if (JOURNALS_IN_USE.contains(journalFile)) {
+      // not even opened, as closing a channel over the journal would drop the lock of the compaction with it
+      throw new ZipException("entries of " + zipFile + " are being removed, it cannot be read until that is done");
+    }
+
+    boolean recovered = false;
+    try (FileChannel journalChannel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      if (!tryLock(journalChannel)) {
+        throw new ZipException("entries of " + zipFile + " are being removed, it cannot be read until that is done");
+      }
+      if (!journalFile.exists()) {
+        // the compaction was completed and its journal deleted before the lock was taken
+        return false;
+      }
+
+      try (FileChannel zipChannel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        ZipFileCompactor zipFileCompactor = readJournalHeader(zipChannel, journalChannel);
+
+        // Without a complete journal header, the compaction stopped before any data was moved
+        if (zipFileCompactor != null) {
+          zipFileCompactor.resume();
+          recovered = true;
+        }
+      }
+
+      Files.delete(journalFile.toPath());
+    } catch (NoSuchFileException e) {
+      // the compaction was completed and its journal deleted before it could be opened
+      return false;
+    }
+
+    return recovered;
+  }
+
+  public static File getJournalFile(File zipFile) {
+    return new File(zipFile.getPath() + JOURNAL_EXTENSION);
+  }
+
+  /**
+   * Creates the journal and locks it for the whole compaction. It is created under a temporary name and renamed once
+   * it is locked, so that a reader never finds it unlocked while the compaction runs, and the directory is synced
+   * after the rename, so that the journal exists before any data of the zip file is overwritten.
+   */
+  private static FileChannel createLockedJournal(File journalFile) throws IOException {
+    File directory = journalFile.getParentFile();
+    File temporaryFile = File.createTempFile(journalFile.getName(), ".tmp", directory);
+    FileChannel journalChannel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      journalChannel.lock();
+      try {
+        Files.move(temporaryFile.toPath(), journalFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile.toPath(), journalFile.toPath());
+      }
+      syncDirectory(directory);
+      return journalChannel;
+    } catch (IOException | RuntimeException e) {
+      journalChannel.close();
+      Files.deleteIfExists(temporaryFile.toPath());
+      throw e;
+    }
+  }
+
+  /**
+   * @return false if the journal is locked by a compaction that is still running
+   */
+  private static boolean tryLock(FileChannel journalChannel) throws IOException {
+    try {
+      return journalChannel.tryLock() != null;
+    } catch (OverlappingFileLockException e) {
+      return false;
+    }
+  }
+
+  private static void syncDirectory(File directory) {
+    try (FileChannel directoryChannel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+      directoryChannel.force(true);
+    } catch (IOException e) {
+      // some platforms, such as windows, cannot open a directory as a channel, and give no other way to sync it
+    }
+  }
+
+  private void writeJournalHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(4 + 8 + 4 + moves.size() * 24 + 4 + tail.length + 8)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(JOURNAL_SIGNATURE);
+    header.putLong(offsetOfTail);
+    header.putInt(moves.size());
+    for (Move move : moves) {
+      header.putLong(move.position);
+      header.putLong(move.newPosition);
+      header.putLong(move.length);
+    }
+    header.putInt(tail.length);
+    header.put(tail);
+    header.putLong(crc(header.array(), 0, header.position()));
+    header.flip();
+
+    writeFully(journalChannel, header, 0);
+    journalChannel.force(true);
+    journalHeaderLength = header.limit();
+  }
+
+  private static ZipFileCompactor readJournalHeader(FileChannel zipChannel, FileChannel journalChannel)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate((int) Math.min(journalChannel.size(), Integer.MAX_VALUE))
+        .order(ByteOrder.LITTLE_ENDIAN);
+    readFully(journalChannel, header, 0);
+    header.flip();
+
+    try {
+      if (header.getInt() != JOURNAL_SIGNATURE) {
+        return null;
+      }
+
+      long offsetOfTail = header.getLong();
+      int numberOfMoves = header.getInt();
+      List<Move> moves = new ArrayList<>();
+      for (int i = 0; i < numberOfMoves; i++) {
+        moves.add(new Move(header.getLong(), header.getLong(), header.getLong()));
+      }
+      byte[] tail = new byte[header.getInt()];
+      header.get(tail);
+
+      int headerLength = header.position();
+      if (header.getLong() != crc(header.array(), 0, headerLength)) {
+        return null;
+      }
+
+      ZipFileCompactor zipFileCompactor = new ZipFileCompactor(zipChannel, journalChannel, moves, offsetOfTail, tail);
+      zipFileCompactor.journalHeaderLength = headerLength + 8;
+      return zipFileCompactor;
+    } catch (RuntimeException e) {
+      // BufferUnderflowException or a negative length of a partly written header
+      return null;
+    }
+  }
+
+  private void resume() throws IOException {
+    ProgressRecord progressRecord = readLatestProgressRecord();
+
+    if (progressRecord == null) {
+      moveFrom(0, null);
+      writeMovesComplete();
+    } else if (progressRecord.state != MOVES_COMPLETE) {
+      sequence = progressRecord.sequence;
+      ByteBuffer windowData = getWindow(progressRecord.length);
+
+      if (progressRecord.state == DATA_IN_JOURNAL) {
+        readFully(journalChannel, windowData, getDataSlotPosition(sequence));
+        windowData.flip();
+        if (crc(windowData) != progressRecord.dataCrc) {
+          throw new ZipException("journal of compaction is corrupt, cannot recover zip file");
+        }
+      } else {
+        readFully(zipChannel, windowData, getSourcePosition(progressRecord.position));
+        windowData.flip();
+      }
+
+      writeFully(zipChannel, windowData, getDestinationPosition(progressRecord.position));
+      zipChannel.force(false);
+      sequence++;
+      moveFrom(progressRecord.position + progressRecord.length, null);
+      writeMovesComplete();
+    }
+
+    writeTail();
+  }
+
+  /**
+   * Moves all data from the given position onwards, where a position counts the bytes of all moves one after the other
+   */
+  private void moveFrom(long startPosition, ProgressMonitor progressMonitor) throws IOException {
+    long moveStartPosition = 0;
+
+    for (Move move : moves) {
+      for (long offset = Math.max(0, startPosition - moveStartPosition); offset < move.length; offset += WINDOW_SIZE) {
+        int length = (int) Math.min(WINDOW_SIZE, move.length - offset);
+        moveWindow(moveStartPosition + offset, move.position + offset, move.newPosition + offset, length);
+
+        if (progressMonitor != null) {
+          progressMonitor.updateWorkCompleted(length);
+        }
+      }
+      moveStartPosition += move.length;
+    }
+  }
+
+  private void moveWindow(long position, long source, long destination, int length) throws IOException {
+    ByteBuffer windowData = getWindow(length);
+    readFully(zipChannel, windowData, source);
+    windowData.flip();
+
+    boolean dataInJournal = destination + length > source;
+    long dataCrc = 0;
+    if (dataInJournal) {
+      dataCrc = crc(windowData);
+      writeFully(journalChannel, windowData.duplicate(), getDataSlotPosition(sequence));
+    }
+
+    writeProgressRecord(position, length, dataInJournal ? DATA_IN_JOURNAL : DATA_IN_ZIP_FILE, dataCrc);
+
+    writeFully(zipChannel, windowData, destination);
+    zipChannel.force(false);
+    sequence++;
+  }
+
+  /**
+   * Records that all windows have been moved and synced, which has to be done before the tail is written
+   */
+  private void writeMovesComplete() throws IOException {
+    writeProgressRecord(0, 0, MOVES_COMPLETE, 0);
+    sequence++;
+  }
+
+  private void writeProgressRecord(long position, int length, int state, long dataCrc) throws IOException {
+    ByteBuffer progressRecord = ByteBuffer.allocate(PROGRESS_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    progressRecord.putLong(sequence);
+    progressRecord.putLong(position);
+    progressRecord.putInt(length);
+    progressRecord.putInt(state);
+    progressRecord.putLong(dataCrc);
+    progressRecord.putLong(crc(progressRecord.array(), 0, PROGRESS_RECORD_SIZE - 8));
+    progressRecord.flip();
+    writeFully(journalChannel, progressRecord, getProgressRecordPosition(sequence));
+    journalChannel.force(false);
+  }
+
+  private void writeTail() throws IOException {
+    writeFully(zipChannel, ByteBuffer.wrap(tail), offsetOfTail);
+    zipChannel.truncate(offsetOfTail + tail.length);
+    zipChannel.force(true);
+  }
+
+  private ProgressRecord readLatestProgressRecord() throws IOException {
+    ProgressRecord latestProgressRecord = null;
+
+    for (int slot = 0; slot < 2; slot++) {
+      ByteBuffer record = ByteBuffer.allocate(PROGRESS_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      long recordPosition = getProgressRecordPosition(slot);
+      if (journalChannel.size() < recordPosition + PROGRESS_RECORD_SIZE) {
+        continue;
+      }
+
+      readFully(journalChannel, record, recordPosition);
+      if (record.getLong(PROGRESS_RECORD_SIZE - 8) != crc(record.array(), 0, PROGRESS_RECORD_SIZE - 8)) {
+        continue;
+      }
+
+      ProgressRecord progressRecord = new ProgressRecord(record.getLong(0), record.getLong(8), record.getInt(16),
+          record.getInt(20), record.getLong(24));
+      if (latestProgressRecord == null || progressRecord.sequence > latestProgressRecord.sequence) {
+        latestProgressRecord = progressRecord;
+      }
+    }
+
+    return latestProgressRecord;
+  }
+
+  private long getSourcePosition(long position) throws ZipException {
+    return getMoveFor(position).position + (position - getMoveStartPosition(position));
+  }
+
+  private long getDestinationPosition(long position) throws ZipException {
+    return getMoveFor(position).newPosition + (position - getMoveStartPosition(position));
+  }
+
+  private Move getMoveFor(long position) throws ZipException {
+    long moveStartPosition = 0;
+    for (Move move : moves) {
+      if (position < moveStartPosition + move.length) {
+        return move;
+      }
+      moveStartPosition += move.length;
+    }
+    throw new ZipException("journal of compaction is corrupt, cannot recover zip file");
+  }
+
+  private long getMoveStartPosition(long position) {
+    long moveStartPosition = 0;
+    for (Move move : moves) {
+      if (position < moveStartPosition + move.length) {
+        break;
+      }
+      moveStartPosition += move.length;
+    }
+    return moveStartPosition;
+  }
+
+  private long getProgressRecordPosition(long sequence) {
+    return journalHeaderLength + (sequence % 2) * PROGRESS_RECORD_SIZE;
+  }
+
+  private long getDataSlotPosition(long sequence) {
+    return journalHeaderLength + 2 * PROGRESS_RECORD_SIZE + (sequence % 2) * (long) WINDOW_SIZE;
+  }
+
+  private ByteBuffer getWindow(int length) {
+    if (window == null) {
+      long largestMove = 0;
+      for (Move move : moves) {
+        largestMove = Math.max(largestMove, move.length);
+      }
+      window = ByteBuffer.allocateDirect((int) Math.min(WINDOW_SIZE, Math.max(largestMove, 1)));
+    }
+
+    window.clear();
+    window.limit(length);
+    return window;
+  }
+
+  private static void readFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int readLen = fileChannel.read(buffer, position);
+      if (readLen == -1) {
+        throw new ZipException("unexpected end of file while compacting zip file");
+      }
+      position += readLen;
+    }
+  }
+
+  private static void writeFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += fileChannel.write(buffer, position);
+    }
+  }
+
+  private static long crc(byte[] buff, int offset, int length) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(buff, offset, length);
+    return crc32.getValue();
+  }
+
+  private static long crc(ByteBuffer buffer) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(buffer.duplicate());
+    return crc32.getValue();
+  }
+
+  /**
+   * A range of the zip file that is moved to a new position
+   */
+  public static class Move {
+    private final long position;
+    private final long newPosition;
+    private final long length;
+
+    public Move(long position, long newPosition, long length) {
+      this.position = position;
+      this.newPosition = newPosition;
+      this.length = length;
+    }
+
+    public long getPosition() {
+      return position;
+    }
+
+    public long getNewPosition() {
+      return newPosition;
+    }
+
+    public long getLength() {
+      return length;
+    }
+  }
+
+  private static class ProgressRecord {
+    private final long sequence;
+    private final long position;
+    private final int length;
+    private final int state;
+    private final long dataCrc;
+
+    private ProgressRecord(long sequence, long position, int length, int state, long dataCrc) {
+      this.sequence = sequence;
+      this.position = position;
+      this.length = length;
+      this.state = state;
+      this.dataCrc = dataCrc;
+    }
+  }
+}
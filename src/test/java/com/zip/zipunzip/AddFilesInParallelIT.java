@@ -0,0 +1,133 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
+import com.zip.zipunzip.testutils.ZipFileVerifier;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AddFilesInParallelIT extends AbstractIT {
+
+  @Test
+  public void testAddFilesInParallelKeepsOrderOfFiles() throws IOException {
+    List<File> filesToAdd = createFilesToAdd(30, 5000);
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setNumberOfThreads(4);
+
+    new ZipFile(generatedZipFile).addFiles(filesToAdd, zipParameters);
+
+    verifyFileHeadersInOrder(new ZipFile(generatedZipFile), filesToAdd);
+    verifyExtractedFiles(new ZipFile(generatedZipFile), filesToAdd);
+  }
+
+  @Test
+  public void testAddFilesInParallelSpillsEntriesOverMemoryBudget() throws IOException {
+    List<File> filesToAdd = createFilesToAdd(8, 200_000);
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setNumberOfThreads(2);
+    zipParameters.setParallelCompressionMemoryBudget(64 * 1024);
+
+    new ZipFile(generatedZipFile).addFiles(filesToAdd, zipParameters);
+
+    // Temporary files of spilled entries are created next to the zip file and deleted once written
+    String[] filesNextToZipFile = temporaryFolder.getRoot().list();
+    Arrays.sort(filesNextToZipFile);
+    assertThat(filesNextToZipFile).containsExactly("output.zip", "source");
+    verifyExtractedFiles(new ZipFile(generatedZipFile), filesToAdd);
+  }
+
+  @Test
+  public void testAddFilesInParallelWithStoreCompression() throws IOException {
+    List<File> filesToAdd = createFilesToAdd(10, 3000);
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setCompressionMethod(CompressionMethod.STORE);
+    zipParameters.setNumberOfThreads(3);
+
+    new ZipFile(generatedZipFile).addFiles(filesToAdd, zipParameters);
+
+    verifyExtractedFiles(new ZipFile(generatedZipFile), filesToAdd);
+  }
+
+  @Test
+  public void testAddFilesInParallelWithAesEncryption() throws IOException {
+    List<File> filesToAdd = createFilesToAdd(10, 3000);
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.AES, AesKeyStrength.KEY_STRENGTH_128);
+    zipParameters.setNumberOfThreads(3);
+
+    new ZipFile(generatedZipFile, PASSWORD).addFiles(filesToAdd, zipParameters);
+
+    verifyExtractedFiles(new ZipFile(generatedZipFile, PASSWORD), filesToAdd);
+  }
+
+  @Test
+  public void testAddFilesInParallelWithPrecomputedCrcForZipStandard() throws IOException {
+    List<File> filesToAdd = createFilesToAdd(4, 1000);
+    // Large enough for its crc to be computed on several threads
+    filesToAdd.add(createTestFile(new File(temporaryFolder.getRoot(), "source"), "large.bin", 9 * 1024 * 1024));
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.ZIP_STANDARD, null);
+    zipParameters.setPrecomputeCrcForZipStandard(true);
+    zipParameters.setNumberOfThreads(3);
+
+    new ZipFile(generatedZipFile, PASSWORD).addFiles(filesToAdd, zipParameters);
+
+    ZipFile zipFile = new ZipFile(generatedZipFile, PASSWORD);
+    for (FileHeader fileHeader : zipFile.getFileHeaders()) {
+      assertThat(fileHeader.isDataDescriptorExists()).as(fileHeader.getFileName()).isFalse();
+    }
+    verifyExtractedFiles(zipFile, filesToAdd);
+  }
+
+  @Test
+  public void testAddFilesInParallelToExistingZipFile() throws IOException {
+    List<File> filesToAdd = createFilesToAdd(12, 2000);
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setNumberOfThreads(3);
+
+    new ZipFile(generatedZipFile).addFiles(filesToAdd.subList(0, 5), zipParameters);
+    new ZipFile(generatedZipFile).addFiles(filesToAdd.subList(5, 12), zipParameters);
+
+    verifyFileHeadersInOrder(new ZipFile(generatedZipFile), filesToAdd);
+    verifyExtractedFiles(new ZipFile(generatedZipFile), filesToAdd);
+  }
+
+  private List<File> createFilesToAdd(int numberOfFiles, int sizeStep) throws IOException {
+    File sourceFolder = new File(temporaryFolder.getRoot(), "source");
+    if (!sourceFolder.exists()) {
+      sourceFolder = temporaryFolder.newFolder("source");
+    }
+
+    List<File> filesToAdd = new ArrayList<>();
+    for (int i = 0; i < numberOfFiles; i++) {
+      // sizes go down and up again, so that workers finish out of order
+      int size = sizeStep * ((i * 7) % numberOfFiles);
+      filesToAdd.add(createTestFile(sourceFolder, "file" + i + ".bin", size));
+    }
+    return filesToAdd;
+  }
+
+  private void verifyFileHeadersInOrder(ZipFile zipFile, List<File> filesToAdd) throws IOException {
+    List<FileHeader> fileHeaders = zipFile.getFileHeaders();
+    assertThat(fileHeaders).hasSize(filesToAdd.size());
+    for (int i = 0; i < filesToAdd.size(); i++) {
+      assertThat(fileHeaders.get(i).getFileName()).isEqualTo(filesToAdd.get(i).getName());
+    }
+  }
+
+  private void verifyExtractedFiles(ZipFile zipFile, List<File> filesToAdd) throws IOException {
+    zipFile.extractAll(outputFolder.getPath());
+    for (File fileToAdd : filesToAdd) {
+      ZipFileVerifier.verifyFileContent(fileToAdd, new File(outputFolder, fileToAdd.getName()));
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
+import com.zip.zipunzip.testutils.ZipFileVerifier;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+
+public class AesKeyPrefetchIT extends AbstractIT {
+
+  private static final int NUMBER_OF_FILES = 20;
+
+  @Test
+  public void testAddAndExtractWithKeyDerivationThreads() throws IOException {
+    testAddAndExtractWithKeyDerivationThreads(1);
+  }
+
+  @Test
+  public void testAddAndExtractInParallelWithKeyDerivationThreads() throws IOException {
+    testAddAndExtractWithKeyDerivationThreads(3);
+  }
+
+  private void testAddAndExtractWithKeyDerivationThreads(int numberOfThreads) throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    for (int i = 0; i < NUMBER_OF_FILES; i++) {
+      createTestFile(sourceFolder, "file" + i + ".bin", 1000 * i);
+    }
+    temporaryFolder.newFolder("source", "empty");
+
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.AES, AesKeyStrength.KEY_STRENGTH_256);
+    zipParameters.setNumberOfThreads(numberOfThreads);
+    zipParameters.setNumberOfKeyDerivationThreads(2);
+    new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+    ZipFile zipFile = new ZipFile(generatedZipFile, PASSWORD);
+    zipFile.setNumberOfThreads(numberOfThreads);
+    zipFile.setNumberOfKeyDerivationThreads(2);
+    zipFile.extractAll(outputFolder.getPath());
+
+    for (File sourceFile : sourceFolder.listFiles()) {
+      if (sourceFile.isFile()) {
+        ZipFileVerifier.verifyFileContent(sourceFile, new File(outputFolder, "source/" + sourceFile.getName()));
+      }
+    }
+  }
+}
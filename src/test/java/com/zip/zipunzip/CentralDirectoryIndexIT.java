@@ -0,0 +1,102 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.headers.CentralDirectoryIndex;
+import com.zip.zipunzip.io.inputstream.ZipInputStream;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipParameters;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CentralDirectoryIndexIT extends AbstractIT {
+
+  @Test
+  public void testGetFileHeaderWritesSidecarAndFindsEntries() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    ZipFile zipFile = new ZipFile(generatedZipFile);
+    zipFile.setUseCentralDirectoryIndex(true);
+
+    assertThat(zipFile.getFileHeader("source/file2.bin").getUncompressedSize()).isEqualTo(20000L);
+    assertThat(zipFile.getFileHeader("SOURCE\\FILE2.BIN").getFileName()).isEqualTo("source/file2.bin");
+    assertThat(zipFile.getFileHeader("source/missing.bin")).isNull();
+    assertThat(CentralDirectoryIndex.getIndexFile(generatedZipFile)).exists();
+  }
+
+  @Test
+  public void testGetInputStreamOfEntryLookedUpThroughIndex() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    verifyEntriesReadThroughIndex(sourceFolder);
+  }
+
+  @Test
+  public void testGetInputStreamOfEntryLookedUpThroughIndexOfSplitZipFile() throws IOException {
+    File sourceFolder = createSourceFolder();
+    createTestFile(sourceFolder, "large.bin", 300000);
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), true, 65536);
+
+    verifyEntriesReadThroughIndex(sourceFolder);
+  }
+
+  @Test
+  public void testSidecarIsRebuiltWhenZipFileChanges() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    ZipFile zipFile = new ZipFile(generatedZipFile);
+    zipFile.setUseCentralDirectoryIndex(true);
+    assertThat(zipFile.getFileHeader("added.bin")).isNull();
+
+    File fileToAdd = createTestFile(temporaryFolder.getRoot(), "added.bin", 5000);
+    new ZipFile(generatedZipFile).addFiles(Collections.singletonList(fileToAdd));
+
+    assertThat(zipFile.getFileHeader("added.bin")).isNotNull();
+
+    ZipFile reopenedZipFile = new ZipFile(generatedZipFile);
+    reopenedZipFile.setUseCentralDirectoryIndex(true);
+    try (InputStream inputStream = reopenedZipFile.getInputStream("added.bin")) {
+      assertThat(readAllBytes(inputStream)).isEqualTo(Files.readAllBytes(fileToAdd.toPath()));
+    }
+  }
+
+  private void verifyEntriesReadThroughIndex(File sourceFolder) throws IOException {
+    ZipFile zipFile = new ZipFile(generatedZipFile);
+    zipFile.setUseCentralDirectoryIndex(true);
+
+    for (File sourceFile : sourceFolder.listFiles()) {
+      FileHeader fileHeader = zipFile.getFileHeader("source/" + sourceFile.getName());
+      try (ZipInputStream inputStream = zipFile.getInputStream(fileHeader)) {
+        assertThat(readAllBytes(inputStream)).isEqualTo(Files.readAllBytes(sourceFile.toPath()));
+      }
+    }
+  }
+
+  private File createSourceFolder() throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    createTestFile(sourceFolder, "file1.bin", 10000);
+    createTestFile(sourceFolder, "file2.bin", 20000);
+    createTestFile(sourceFolder, "file3.bin", 0);
+    return sourceFolder;
+  }
+
+  private byte[] readAllBytes(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] buff = new byte[4096];
+    int readLen;
+    while ((readLen = inputStream.read(buff)) != -1) {
+      outputStream.write(buff, 0, readLen);
+    }
+    return outputStream.toByteArray();
+  }
+}
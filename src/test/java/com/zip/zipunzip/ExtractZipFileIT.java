@@ -1,5 +1,6 @@
 package com.zip.zipunzip;
 
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
@@ -9,6 +10,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
 import com.zip.zipunzip.testutils.ZipFileVerifier;
 
 public class ExtractZipFileIT extends AbstractIT {
@@ -27,6 +33,107 @@ public class ExtractZipFileIT extends AbstractIT {
 		verifyNumberOfFilesInOutputFolder(outputFolder, 3);
 	}
 
+	@Test
+	public void testExtractAllInParallel() throws IOException {
+		File sourceFolder = createSourceFolder();
+		new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+		ZipFile zipFile = new ZipFile(generatedZipFile);
+		zipFile.setNumberOfThreads(4);
+		zipFile.extractAll(outputFolder.getPath());
+
+		verifyFolderContentsSameAsSource(sourceFolder, new File(outputFolder, sourceFolder.getName()));
+	}
+
+	@Test
+	public void testExtractAllInParallelWithMemoryMapping() throws IOException {
+		File sourceFolder = createSourceFolder();
+		ZipParameters zipParameters = new ZipParameters();
+		zipParameters.setCompressionMethod(CompressionMethod.STORE);
+		new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+		ZipFile zipFile = new ZipFile(generatedZipFile);
+		zipFile.setNumberOfThreads(3);
+		zipFile.setReadWithMemoryMapping(true);
+		zipFile.extractAll(outputFolder.getPath());
+
+		verifyFolderContentsSameAsSource(sourceFolder, new File(outputFolder, sourceFolder.getName()));
+	}
+
+	@Test
+	public void testExtractAllInParallelFromSplitZipFile() throws IOException {
+		File sourceFolder = createSourceFolder();
+		new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), true, 65536);
+
+		ZipFile zipFile = new ZipFile(generatedZipFile);
+		zipFile.setNumberOfThreads(4);
+		zipFile.extractAll(outputFolder.getPath());
+
+		verifyFolderContentsSameAsSource(sourceFolder, new File(outputFolder, sourceFolder.getName()));
+	}
+
+	@Test
+	public void testExtractAllInParallelWithZipStandardEncryption() throws IOException {
+		testExtractAllInParallelWithEncryption(createZipParameters(EncryptionMethod.ZIP_STANDARD, null));
+	}
+
+	@Test
+	public void testExtractAllInParallelWithAesEncryption() throws IOException {
+		testExtractAllInParallelWithEncryption(createZipParameters(EncryptionMethod.AES, AesKeyStrength.KEY_STRENGTH_256));
+	}
+
+	@Test
+	public void testExtractAllInParallelWithWrongPasswordThrowsException() throws IOException {
+		File sourceFolder = createSourceFolder();
+		new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder,
+				createZipParameters(EncryptionMethod.AES, AesKeyStrength.KEY_STRENGTH_128), false, 0);
+
+		ZipFile zipFile = new ZipFile(generatedZipFile, "wrong".toCharArray());
+		zipFile.setNumberOfThreads(4);
+
+		expectedException.expect(ZipException.class);
+		zipFile.extractAll(outputFolder.getPath());
+	}
+
+	private void testExtractAllInParallelWithEncryption(ZipParameters zipParameters) throws IOException {
+		File sourceFolder = createSourceFolder();
+		new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+		ZipFile zipFile = new ZipFile(generatedZipFile, PASSWORD);
+		zipFile.setNumberOfThreads(4);
+		zipFile.extractAll(outputFolder.getPath());
+
+		verifyFolderContentsSameAsSource(sourceFolder, new File(outputFolder, sourceFolder.getName()));
+	}
+
+	private File createSourceFolder() throws IOException {
+		File sourceFolder = temporaryFolder.newFolder("source");
+		File subFolder = new File(sourceFolder, "sub");
+		subFolder.mkdir();
+		new File(sourceFolder, "empty_folder").mkdir();
+
+		createTestFile(sourceFolder, "empty.bin", 0);
+		for (int i = 0; i < 12; i++) {
+			createTestFile(i % 3 == 0 ? subFolder : sourceFolder, "file" + i + ".bin", 7000 * ((i * 5) % 12));
+		}
+		return sourceFolder;
+	}
+
+	private void verifyFolderContentsSameAsSource(File sourceFolder, File extractedFolder) throws IOException {
+		assertThat(extractedFolder).exists();
+		File[] sourceFiles = sourceFolder.listFiles();
+		assertThat(extractedFolder.listFiles()).hasSize(sourceFiles.length);
+
+		for (File sourceFile : sourceFiles) {
+			File extractedFile = new File(extractedFolder, sourceFile.getName());
+			if (sourceFile.isDirectory()) {
+				verifyFolderContentsSameAsSource(sourceFile, extractedFile);
+			} else {
+				ZipFileVerifier.verifyFileContent(sourceFile, extractedFile);
+			}
+		}
+	}
+
 	private void verifyNumberOfFilesInOutputFolder(File outputFolder, int numberOfExpectedFiles) {
 		assertThat(outputFolder.listFiles()).hasSize(numberOfExpectedFiles);
 	}
@@ -0,0 +1,224 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.io.inputstream.ZipInputStream;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
+import com.zip.zipunzip.util.ArchiveCache;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GetInputStreamIT extends AbstractIT {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @After
+  public void after() {
+    ArchiveCache.getDefault().clear();
+  }
+
+  @Test
+  public void testReadEntriesFromManyThreadsOfCachedArchive() throws Exception {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile)) {
+      zipFile.setUseArchiveCache(true);
+      verifyEntriesReadFromManyThreads(zipFile, sourceFolder);
+    }
+  }
+
+  @Test
+  public void testReadEntriesFromManyThreadsWithoutArchiveCache() throws Exception {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile)) {
+      verifyEntriesReadFromManyThreads(zipFile, sourceFolder);
+    }
+  }
+
+  @Test
+  public void testReadEntriesOfSplitZipFile() throws Exception {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), true, 65536);
+    assertThat(new File(temporaryFolder.getRoot(), "output.z02")).exists();
+
+    for (boolean useArchiveCache : new boolean[] {false, true}) {
+      try (ZipFile zipFile = new ZipFile(generatedZipFile)) {
+        zipFile.setUseArchiveCache(useArchiveCache);
+        verifyEntriesReadFromManyThreads(zipFile, sourceFolder);
+      }
+    }
+  }
+
+  @Test
+  public void testReadAesEncryptedEntries() throws Exception {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder,
+        createZipParameters(EncryptionMethod.AES, AesKeyStrength.KEY_STRENGTH_256), false, 0);
+
+    for (boolean useArchiveCache : new boolean[] {false, true}) {
+      try (ZipFile zipFile = new ZipFile(generatedZipFile, PASSWORD)) {
+        zipFile.setUseArchiveCache(useArchiveCache);
+        verifyEntriesReadFromManyThreads(zipFile, sourceFolder);
+      }
+    }
+  }
+
+  @Test
+  public void testReadZipStandardEncryptedEntriesOfSplitZipFile() throws Exception {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder,
+        createZipParameters(EncryptionMethod.ZIP_STANDARD, null), true, 65536);
+
+    for (boolean useArchiveCache : new boolean[] {false, true}) {
+      try (ZipFile zipFile = new ZipFile(generatedZipFile, PASSWORD)) {
+        zipFile.setUseArchiveCache(useArchiveCache);
+        verifyEntriesReadFromManyThreads(zipFile, sourceFolder);
+      }
+    }
+  }
+
+  @Test
+  public void testStreamOpenedBeforeCloseReadsAfterCachedArchiveIsReleased() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), true, 65536);
+    byte[] expectedContent = Files.readAllBytes(new File(sourceFolder, "big.bin").toPath());
+
+    ZipFile zipFile = new ZipFile(generatedZipFile);
+    zipFile.setUseArchiveCache(true);
+    try (ZipInputStream inputStream = zipFile.getInputStream("source/big.bin")) {
+      byte[] b = new byte[1000];
+      assertThat(inputStream.read(b)).isEqualTo(1000);
+
+      zipFile.close();
+      // the archive is evicted from the cache, the stream still holds it
+      ArchiveCache.getDefault().clear();
+
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      content.write(b);
+      content.write(readFully(inputStream));
+      assertThat(content.toByteArray()).isEqualTo(expectedContent);
+    }
+
+    // headers are read again after close
+    try (InputStream inputStream = zipFile.getInputStream("source/first.txt")) {
+      assertThat(readFully(inputStream)).isEqualTo(Files.readAllBytes(new File(sourceFolder, "first.txt").toPath()));
+    }
+    zipFile.close();
+  }
+
+  @Test
+  public void testGetInputStreamOfMissingEntryThrowsException() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    expectedException.expect(ZipException.class);
+    expectedException.expectMessage("No file header found for file: source/missing.bin");
+    new ZipFile(generatedZipFile).getInputStream("source/missing.bin");
+  }
+
+  /**
+   * Reads every entry from four threads at once, each entry once to the end and once closing the stream early
+   */
+  private void verifyEntriesReadFromManyThreads(ZipFile zipFile, File sourceFolder) throws Exception {
+    List<FileHeader> fileHeaders = new ArrayList<>();
+    for (FileHeader fileHeader : zipFile.getFileHeaders()) {
+      if (!fileHeader.isDirectory()) {
+        fileHeaders.add(fileHeader);
+      }
+    }
+    assertThat(fileHeaders).hasSize(5);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int round = 0; round < 2; round++) {
+        for (FileHeader fileHeader : fileHeaders) {
+          File sourceFile = new File(sourceFolder.getParentFile(), fileHeader.getFileName());
+          byte[] expectedContent = Files.readAllBytes(sourceFile.toPath());
+          futures.add(executorService.submit(() -> {
+            verifyEntryContent(zipFile, fileHeader, expectedContent);
+            return null;
+          }));
+          futures.add(executorService.submit(() -> {
+            verifyStartOfEntryContent(zipFile, fileHeader.getFileName(), expectedContent);
+            return null;
+          }));
+        }
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void verifyEntryContent(ZipFile zipFile, FileHeader fileHeader, byte[] expectedContent)
+      throws IOException {
+    try (InputStream inputStream = zipFile.getInputStream(fileHeader)) {
+      assertThat(readFully(inputStream)).as("content of %s", fileHeader.getFileName()).isEqualTo(expectedContent);
+    }
+  }
+
+  private void verifyStartOfEntryContent(ZipFile zipFile, String fileName, byte[] expectedContent)
+      throws IOException {
+    try (InputStream inputStream = zipFile.getInputStream(fileName)) {
+      byte[] b = new byte[Math.min(expectedContent.length, 777)];
+      int readLen = 0;
+      int n;
+      while (readLen < b.length && (n = inputStream.read(b, readLen, b.length - readLen)) != -1) {
+        readLen += n;
+      }
+      assertThat(readLen).isEqualTo(b.length);
+
+      byte[] expectedStart = new byte[b.length];
+      System.arraycopy(expectedContent, 0, expectedStart, 0, b.length);
+      assertThat(b).as("start of %s", fileName).isEqualTo(expectedStart);
+    }
+  }
+
+  private byte[] readFully(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] b = new byte[4096];
+    int readLen;
+    while ((readLen = inputStream.read(b)) != -1) {
+      outputStream.write(b, 0, readLen);
+    }
+    return outputStream.toByteArray();
+  }
+
+  private File createSourceFolder() throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    File subFolder = new File(sourceFolder, "sub");
+    subFolder.mkdirs();
+    createTestFile(sourceFolder, "first.txt", 1000);
+    createTestFile(sourceFolder, "big.bin", 300000);
+    createTestFile(sourceFolder, "empty.bin", 0);
+    createTestFile(subFolder, "inner.bin", 70000);
+    createTestFile(subFolder, "small.txt", 10);
+    return sourceFolder;
+  }
+}
@@ -0,0 +1,57 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.testutils.ZipFileVerifier;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MergeSplitZipFileIT extends AbstractIT {
+
+  @Test
+  public void testMergeSplitZipFileWithOneThread() throws IOException {
+    testMergeSplitZipFile(1);
+  }
+
+  @Test
+  public void testMergeSplitZipFileWithThreadsCopyingSplitFilesAtOnce() throws IOException {
+    testMergeSplitZipFile(4);
+  }
+
+  private void testMergeSplitZipFile(int numberOfThreads) throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    for (int i = 1; i <= 4; i++) {
+      createTestFile(sourceFolder, "file" + i + ".bin", 1000000);
+    }
+
+    ZipFile splitZipFile = new ZipFile(generatedZipFile);
+    splitZipFile.createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), true, 65536);
+    assertThat(getSplitFile(3)).as("split file .z03").exists();
+
+    File mergedZipFile = new File(temporaryFolder.getRoot(), "merged.zip");
+    splitZipFile = new ZipFile(generatedZipFile);
+    splitZipFile.setNumberOfThreads(numberOfThreads);
+    splitZipFile.mergeSplitFiles(mergedZipFile);
+
+    ZipFile zipFile = new ZipFile(mergedZipFile);
+    for (FileHeader fileHeader : zipFile.getFileHeaders()) {
+      assertThat(fileHeader.getDiskNumberStart()).isEqualTo(0);
+    }
+
+    zipFile.extractAll(outputFolder.getPath());
+    for (File sourceFile : sourceFolder.listFiles()) {
+      ZipFileVerifier.verifyFileContent(sourceFile, new File(outputFolder, "source/" + sourceFile.getName()));
+    }
+  }
+
+  private File getSplitFile(int number) {
+    String zipFileName = generatedZipFile.getName();
+    return new File(generatedZipFile.getParentFile(),
+        zipFileName.substring(0, zipFileName.lastIndexOf('.')) + ".z0" + number);
+  }
+}
@@ -0,0 +1,99 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.io.outputstream.ZipOutputStream;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
+import com.zip.zipunzip.testutils.ZipFileVerifier;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+
+public class ParallelDeflateIT extends AbstractIT {
+
+  private static final int BLOCK_SIZE = 64 * 1024;
+
+  @Test
+  public void testAddFilesWithDeflateThreads() throws IOException {
+    File sourceFolder = createSourceFolder();
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setNumberOfDeflateThreads(3);
+    zipParameters.setDeflateBlockSize(BLOCK_SIZE);
+
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+    ZipFileVerifier.verifyZipFileWithExternalUnzip(generatedZipFile, null);
+    verifyExtractedFiles(new ZipFile(generatedZipFile), sourceFolder);
+  }
+
+  @Test
+  public void testAddFilesInParallelWithDeflateThreads() throws IOException {
+    File sourceFolder = createSourceFolder();
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setNumberOfThreads(2);
+    zipParameters.setNumberOfDeflateThreads(3);
+    zipParameters.setDeflateBlockSize(BLOCK_SIZE);
+
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+    ZipFileVerifier.verifyZipFileWithExternalUnzip(generatedZipFile, null);
+    verifyExtractedFiles(new ZipFile(generatedZipFile), sourceFolder);
+  }
+
+  @Test
+  public void testAddFilesWithDeflateThreadsAndZipStandardEncryption() throws IOException {
+    File sourceFolder = createSourceFolder();
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.ZIP_STANDARD, null);
+    zipParameters.setNumberOfDeflateThreads(3);
+    zipParameters.setDeflateBlockSize(BLOCK_SIZE);
+
+    new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+    ZipFileVerifier.verifyZipFileWithExternalUnzip(generatedZipFile, PASSWORD);
+    verifyExtractedFiles(new ZipFile(generatedZipFile, PASSWORD), sourceFolder);
+  }
+
+  @Test
+  public void testZipOutputStreamWithDeflateThreads() throws IOException {
+    File sourceFolder = createSourceFolder();
+
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(generatedZipFile))) {
+      for (File fileToAdd : sourceFolder.listFiles()) {
+        ZipParameters zipParameters = new ZipParameters();
+        zipParameters.setFileNameInZip(fileToAdd.getName());
+        zipParameters.setNumberOfDeflateThreads(3);
+        zipParameters.setDeflateBlockSize(BLOCK_SIZE);
+        zipOutputStream.putNextEntry(zipParameters);
+        zipOutputStream.write(Files.readAllBytes(fileToAdd.toPath()));
+        zipOutputStream.closeEntry();
+      }
+    }
+
+    ZipFileVerifier.verifyZipFileWithExternalUnzip(generatedZipFile, null);
+    ZipFile zipFile = new ZipFile(generatedZipFile);
+    zipFile.extractAll(outputFolder.getPath());
+    for (File sourceFile : sourceFolder.listFiles()) {
+      ZipFileVerifier.verifyFileContent(sourceFile, new File(outputFolder, sourceFile.getName()));
+    }
+  }
+
+  private File createSourceFolder() throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    createTestFile(sourceFolder, "empty.bin", 0);
+    createTestFile(sourceFolder, "one_block.bin", BLOCK_SIZE);
+    createTestFile(sourceFolder, "partial_block.bin", 5 * BLOCK_SIZE + 123);
+    createTestFile(sourceFolder, "many_blocks.bin", 40 * BLOCK_SIZE);
+    return sourceFolder;
+  }
+
+  private void verifyExtractedFiles(ZipFile zipFile, File sourceFolder) throws IOException {
+    zipFile.extractAll(outputFolder.getPath());
+    for (File sourceFile : sourceFolder.listFiles()) {
+      ZipFileVerifier.verifyFileContent(sourceFile, new File(outputFolder, "source/" + sourceFile.getName()));
+    }
+  }
+}
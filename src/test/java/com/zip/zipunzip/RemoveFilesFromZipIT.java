@@ -0,0 +1,111 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.testutils.ZipFileVerifier;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RemoveFilesFromZipIT extends AbstractIT {
+
+  @Test
+  public void testOverrideExistingFilesReplacesAllOfThem() throws IOException {
+    testOverrideExistingFiles(new ZipParameters());
+  }
+
+  @Test
+  public void testOverrideExistingFilesInParallelReplacesAllOfThem() throws IOException {
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setNumberOfThreads(3);
+    testOverrideExistingFiles(zipParameters);
+  }
+
+  @Test
+  public void testOverrideExistingFilesInPlaceReplacesAllOfThem() throws IOException {
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setOverrideExistingFilesInPlace(true);
+    testOverrideExistingFiles(zipParameters);
+  }
+
+  @Test
+  public void testOverrideExistingFilesInPlaceInParallelReplacesAllOfThem() throws IOException {
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setOverrideExistingFilesInPlace(true);
+    zipParameters.setNumberOfThreads(3);
+    testOverrideExistingFiles(zipParameters);
+  }
+
+  @Test
+  public void testOverrideExistingFilesWithoutChangingOtherEntries() throws IOException {
+    List<File> filesToAdd = createFilesToAdd(6);
+    new ZipFile(generatedZipFile).addFiles(filesToAdd);
+    List<File> filesToOverride = Arrays.asList(filesToAdd.get(1), filesToAdd.get(4));
+    for (File fileToOverride : filesToOverride) {
+      createTestFile(fileToOverride.getParentFile(), fileToOverride.getName(), 12_345);
+    }
+
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setOverrideExistingFilesInZip(true);
+    new ZipFile(generatedZipFile).addFiles(filesToOverride, zipParameters);
+
+    // Overridden entries are removed and added again after the entries that were kept
+    List<FileHeader> fileHeaders = new ZipFile(generatedZipFile).getFileHeaders();
+    assertThat(fileHeaders).hasSize(6);
+    assertThat(fileHeaders.get(4).getFileName()).isEqualTo(filesToAdd.get(1).getName());
+    assertThat(fileHeaders.get(5).getFileName()).isEqualTo(filesToAdd.get(4).getName());
+    verifyExtractedFiles(filesToAdd);
+    verifyNoTemporaryFilesLeft();
+  }
+
+  private void testOverrideExistingFiles(ZipParameters zipParameters) throws IOException {
+    List<File> filesToAdd = createFilesToAdd(10);
+    new ZipFile(generatedZipFile).addFiles(filesToAdd);
+
+    List<File> filesToOverride = new ArrayList<>();
+    for (int i = 0; i < filesToAdd.size(); i += 3) {
+      File fileToOverride = filesToAdd.get(i);
+      createTestFile(fileToOverride.getParentFile(), fileToOverride.getName(), 1000 + i);
+      filesToOverride.add(fileToOverride);
+    }
+
+    zipParameters.setOverrideExistingFilesInZip(true);
+    new ZipFile(generatedZipFile).addFiles(filesToOverride, zipParameters);
+
+    assertThat(new ZipFile(generatedZipFile).getFileHeaders()).hasSize(filesToAdd.size());
+    verifyExtractedFiles(filesToAdd);
+    verifyNoTemporaryFilesLeft();
+  }
+
+  private List<File> createFilesToAdd(int numberOfFiles) throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    List<File> filesToAdd = new ArrayList<>();
+    for (int i = 0; i < numberOfFiles; i++) {
+      filesToAdd.add(createTestFile(sourceFolder, "file" + i + ".bin", 20_000 * (i + 1)));
+    }
+    return filesToAdd;
+  }
+
+  private void verifyExtractedFiles(List<File> filesToAdd) throws IOException {
+    new ZipFile(generatedZipFile).extractAll(outputFolder.getPath());
+    for (File fileToAdd : filesToAdd) {
+      ZipFileVerifier.verifyFileContent(fileToAdd, new File(outputFolder, fileToAdd.getName()));
+    }
+  }
+
+  /**
+   * Neither a temporary zip file nor the journal of an in place removal may be left next to the zip file
+   */
+  private void verifyNoTemporaryFilesLeft() {
+    String[] filesNextToZipFile = temporaryFolder.getRoot().list();
+    Arrays.sort(filesNextToZipFile);
+    assertThat(filesNextToZipFile).containsExactly("output", "output.zip", "source");
+  }
+}
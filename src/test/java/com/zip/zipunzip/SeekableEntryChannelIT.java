@@ -0,0 +1,400 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.io.inputstream.DeflateCheckpointIndex;
+import com.zip.zipunzip.io.inputstream.EntryChannel;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SeekableEntryChannelIT extends AbstractIT {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void testStoredEntryReadsAtRandomPositions() throws IOException {
+    File fileToAdd = createFileToAdd("stored.bin", 300_000);
+    addFiles(Collections.singletonList(fileToAdd), CompressionMethod.STORE);
+    byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile);
+         EntryChannel channel = zipFile.getSeekableByteChannel("stored.bin")) {
+      verifyReadsAtRandomPositions(channel, expectedContent, new Random(1));
+    }
+  }
+
+  @Test
+  public void testStoredEntryRelativeReadsFollowPosition() throws IOException {
+    File fileToAdd = createFileToAdd("stored.bin", 100_000);
+    addFiles(Collections.singletonList(fileToAdd), CompressionMethod.STORE);
+    byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile);
+         EntryChannel channel = zipFile.getSeekableByteChannel("stored.bin")) {
+      assertThat(channel.size()).isEqualTo((long) expectedContent.length);
+      assertThat(channel.position()).isEqualTo(0L);
+
+      ByteBuffer buffer = ByteBuffer.allocate(1000);
+      assertThat(channel.read(buffer)).isEqualTo(1000);
+      assertThat(channel.position()).isEqualTo(1000L);
+      assertThat(buffer.array()).isEqualTo(Arrays.copyOfRange(expectedContent, 0, 1000));
+
+      channel.position(50_000);
+      buffer.clear();
+      assertThat(channel.read(buffer)).isEqualTo(1000);
+      assertThat(channel.position()).isEqualTo(51_000L);
+      assertThat(buffer.array()).isEqualTo(Arrays.copyOfRange(expectedContent, 50_000, 51_000));
+
+      // a positional read leaves the position of the channel where it is
+      buffer.clear();
+      assertThat(channel.read(buffer, 10)).isEqualTo(1000);
+      assertThat(channel.position()).isEqualTo(51_000L);
+      assertThat(buffer.array()).isEqualTo(Arrays.copyOfRange(expectedContent, 10, 1010));
+    }
+  }
+
+  @Test
+  public void testStoredEntryReadsUpToEndAndThenReturnsEndOfStream() throws IOException {
+    File fileToAdd = createFileToAdd("stored.bin", 10_000);
+    addFiles(Collections.singletonList(fileToAdd), CompressionMethod.STORE);
+    byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile);
+         EntryChannel channel = zipFile.getSeekableByteChannel("stored.bin")) {
+      channel.position(9_900);
+      ByteBuffer buffer = ByteBuffer.allocate(1000);
+      assertThat(channel.read(buffer)).isEqualTo(100);
+      assertThat(Arrays.copyOf(buffer.array(), 100)).isEqualTo(Arrays.copyOfRange(expectedContent, 9_900, 10_000));
+
+      buffer.clear();
+      assertThat(channel.read(buffer)).isEqualTo(-1);
+      assertThat(channel.read(buffer, 20_000)).isEqualTo(-1);
+      assertThat(channel.position()).isEqualTo(10_000L);
+    }
+  }
+
+  @Test
+  public void testStoredEntryOfSplitZipFileReadsAcrossVolumes() throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    File fileToAdd = createTestFile(sourceFolder, "stored.bin", 200_000);
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setCompressionMethod(CompressionMethod.STORE);
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, zipParameters, true, 65536);
+    byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+
+    assertThat(new File(temporaryFolder.getRoot(), "output.z03")).exists();
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile);
+         EntryChannel channel = zipFile.getSeekableByteChannel("source/stored.bin")) {
+      assertThat(channel.size()).isEqualTo((long) expectedContent.length);
+
+      // reads that start in one volume and end in the next
+      for (int volumeEnd = 65536; volumeEnd < expectedContent.length; volumeEnd += 65536) {
+        verifyRead(channel, expectedContent, volumeEnd - 1000, 2000);
+      }
+      verifyRead(channel, expectedContent, 0, expectedContent.length);
+      verifyReadsAtRandomPositions(channel, expectedContent, new Random(2));
+    }
+  }
+
+  @Test
+  public void testStoredEntryWithEncryptionThrowsException() throws IOException {
+    File fileToAdd = createFileToAdd("stored.bin", 10_000);
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.AES, AesKeyStrength.KEY_STRENGTH_256);
+    zipParameters.setCompressionMethod(CompressionMethod.STORE);
+    new ZipFile(generatedZipFile, PASSWORD).addFiles(Collections.singletonList(fileToAdd), zipParameters);
+
+    expectedException.expect(ZipException.class);
+    expectedException.expectMessage("Entry stored.bin is compressed or encrypted");
+    new ZipFile(generatedZipFile, PASSWORD).getSeekableByteChannel("stored.bin");
+  }
+
+  @Test
+  public void testStoredEntryCannotBeWrittenTo() throws IOException {
+    File fileToAdd = createFileToAdd("stored.bin", 10_000);
+    addFiles(Collections.singletonList(fileToAdd), CompressionMethod.STORE);
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile);
+         EntryChannel channel = zipFile.getSeekableByteChannel("stored.bin")) {
+      expectedException.expect(NonWritableChannelException.class);
+      channel.write(ByteBuffer.allocate(10));
+    }
+  }
+
+  @Test
+  public void testStoredEntryCannotBeTruncated() throws IOException {
+    File fileToAdd = createFileToAdd("stored.bin", 10_000);
+    addFiles(Collections.singletonList(fileToAdd), CompressionMethod.STORE);
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile);
+         EntryChannel channel = zipFile.getSeekableByteChannel("stored.bin")) {
+      expectedException.expect(NonWritableChannelException.class);
+      channel.truncate(10);
+    }
+  }
+
+  @Test
+  public void testStoredEntryReadsFromManyThreadsAtOnce() throws Exception {
+    List<File> filesToAdd = Arrays.asList(createFileToAdd("first.bin", 200_000),
+        createFileToAdd("second.bin", 150_000));
+    addFiles(filesToAdd, CompressionMethod.STORE);
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile)) {
+      for (File fileToAdd : filesToAdd) {
+        try (EntryChannel channel = zipFile.getSeekableByteChannel(fileToAdd.getName())) {
+          verifyReadsFromManyThreads(channel, Files.readAllBytes(fileToAdd.toPath()));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDeflatedEntryReadsAtRandomPositions() throws IOException {
+    File fileToAdd = createFileToAdd("deflated.bin", 300_000);
+    addFiles(Collections.singletonList(fileToAdd), CompressionMethod.DEFLATE);
+    byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile)) {
+      zipFile.setDeflateCheckpointSpacing(16 * 1024);
+      try (EntryChannel channel = zipFile.getSeekableByteChannel("deflated.bin")) {
+        assertThat(channel.size()).isEqualTo((long) expectedContent.length);
+        verifyReadsAtRandomPositions(channel, expectedContent, new Random(3));
+
+        // reads backwards, so that each one goes back to an earlier checkpoint
+        for (int position = expectedContent.length - 5000; position >= 0; position -= 17_000) {
+          verifyRead(channel, expectedContent, position, 5000);
+        }
+        verifyRead(channel, expectedContent, 0, expectedContent.length);
+      }
+    }
+
+    // without a sidecar, nothing is written next to the zip file
+    assertThat(DeflateCheckpointIndex.getIndexFile(generatedZipFile)).doesNotExist();
+  }
+
+  @Test
+  public void testDeflatedEntryRelativeReadsUpToEnd() throws IOException {
+    File fileToAdd = createFileToAdd("deflated.bin", 100_000);
+    addFiles(Collections.singletonList(fileToAdd), CompressionMethod.DEFLATE);
+    byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile)) {
+      zipFile.setDeflateCheckpointSpacing(8 * 1024);
+      try (EntryChannel channel = zipFile.getSeekableByteChannel("deflated.bin")) {
+        channel.position(99_000);
+        ByteBuffer buffer = ByteBuffer.allocate(2000);
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+          // read until the end of the entry
+        }
+
+        assertThat(buffer.position()).isEqualTo(1000);
+        assertThat(Arrays.copyOf(buffer.array(), 1000))
+            .isEqualTo(Arrays.copyOfRange(expectedContent, 99_000, 100_000));
+        assertThat(channel.position()).isEqualTo(100_000L);
+        assertThat(channel.read(buffer)).isEqualTo(-1);
+      }
+    }
+  }
+
+  @Test
+  public void testDeflatedEntryOfSplitZipFileReadsAcrossVolumes() throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    File fileToAdd = createTestFile(sourceFolder, "deflated.bin", 400_000);
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), true, 65536);
+    byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+
+    assertThat(new File(temporaryFolder.getRoot(), "output.z02")).exists();
+
+    try (ZipFile zipFile = new ZipFile(generatedZipFile)) {
+      zipFile.setDeflateCheckpointSpacing(32 * 1024);
+      try (EntryChannel channel = zipFile.getSeekableByteChannel("source/deflated.bin")) {
+        verifyReadsAtRandomPositions(channel, expectedContent, new Random(4));
+        verifyRead(channel, expectedContent, 0, expectedContent.length);
+      }
+    }
+  }
+
+  @Test
+  public void testDeflatedEntryWithEncryptionThrowsException() throws IOException {
+    File fileToAdd = createFileToAdd("deflated.bin", 10_000);
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.ZIP_STANDARD, null);
+    new ZipFile(generatedZipFile, PASSWORD).addFiles(Collections.singletonList(fileToAdd), zipParameters);
+
+    expectedException.expect(ZipException.class);
+    expectedException.expectMessage("Entry deflated.bin is compressed or encrypted");
+    new ZipFile(generatedZipFile, PASSWORD).getSeekableByteChannel("deflated.bin");
+  }
+
+  @Test
+  public void testDeflatedEntryIndexIsWrittenToSidecarAndReused() throws IOException {
+    File fileToAdd = createFileToAdd("deflated.bin", 300_000);
+    addFiles(Collections.singletonList(fileToAdd), CompressionMethod.DEFLATE);
+    byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+    File indexFile = DeflateCheckpointIndex.getIndexFile(generatedZipFile);
+
+    try (ZipFile zipFile = createZipFileWithIndexFile(16 * 1024);
+         EntryChannel channel = zipFile.getSeekableByteChannel("deflated.bin")) {
+      verifyRead(channel, expectedContent, 200_000, 1000);
+    }
+
+    assertThat(indexFile).exists();
+    List<DeflateCheckpointIndex> indexes = DeflateCheckpointIndex.readIndexFile(generatedZipFile);
+    assertThat(indexes).hasSize(1);
+    assertThat(indexes.get(0).getSpacing()).isEqualTo(16 * 1024L);
+    assertThat(indexes.get(0).getUncompressedSize()).isEqualTo((long) expectedContent.length);
+    assertThat(indexes.get(0).getNumberOfCheckpoints()).isGreaterThan(1);
+
+    // the next ZipFile of the archive takes the index from the sidecar and does not write it again
+    long lastModifiedOfIndexFile = indexFile.lastModified() - 10_000;
+    assertThat(indexFile.setLastModified(lastModifiedOfIndexFile)).isTrue();
+    try (ZipFile zipFile = createZipFileWithIndexFile(16 * 1024);
+         EntryChannel channel = zipFile.getSeekableByteChannel("deflated.bin")) {
+      verifyReadsAtRandomPositions(channel, expectedContent, new Random(5));
+    }
+    assertThat(indexFile.lastModified()).isEqualTo(lastModifiedOfIndexFile);
+
+    // an index with other spacing is built again
+    try (ZipFile zipFile = createZipFileWithIndexFile(64 * 1024);
+         EntryChannel channel = zipFile.getSeekableByteChannel("deflated.bin")) {
+      verifyReadsAtRandomPositions(channel, expectedContent, new Random(6));
+    }
+    indexes = DeflateCheckpointIndex.readIndexFile(generatedZipFile);
+    assertThat(indexes).hasSize(1);
+    assertThat(indexes.get(0).getSpacing()).isEqualTo(64 * 1024L);
+  }
+
+  @Test
+  public void testDeflatedEntryIndexInSidecarIsIgnoredOnceZipFileChanges() throws IOException {
+    File firstFile = createFileToAdd("first.bin", 200_000);
+    addFiles(Collections.singletonList(firstFile), CompressionMethod.DEFLATE);
+
+    try (ZipFile zipFile = createZipFileWithIndexFile(16 * 1024);
+         EntryChannel channel = zipFile.getSeekableByteChannel("first.bin")) {
+      verifyRead(channel, Files.readAllBytes(firstFile.toPath()), 100_000, 1000);
+    }
+    assertThat(DeflateCheckpointIndex.readIndexFile(generatedZipFile)).hasSize(1);
+
+    File secondFile = createFileToAdd("second.bin", 150_000);
+    addFiles(Collections.singletonList(secondFile), CompressionMethod.DEFLATE);
+    assertThat(DeflateCheckpointIndex.readIndexFile(generatedZipFile)).hasSize(0);
+
+    try (ZipFile zipFile = createZipFileWithIndexFile(16 * 1024)) {
+      for (File file : Arrays.asList(firstFile, secondFile)) {
+        try (EntryChannel channel = zipFile.getSeekableByteChannel(file.getName())) {
+          verifyReadsAtRandomPositions(channel, Files.readAllBytes(file.toPath()), new Random(7));
+        }
+      }
+    }
+    assertThat(DeflateCheckpointIndex.readIndexFile(generatedZipFile)).hasSize(2);
+  }
+
+  @Test
+  public void testDeflatedEntryReadsThroughArchiveCacheFromManyThreadsAtOnce() throws Exception {
+    List<File> filesToAdd = Arrays.asList(createFileToAdd("first.bin", 200_000),
+        createFileToAdd("second.bin", 150_000));
+    addFiles(filesToAdd, CompressionMethod.DEFLATE);
+
+    // two ZipFiles of the archive read through the channels of the same cached archive
+    try (ZipFile firstZipFile = createZipFileWithArchiveCache();
+         ZipFile secondZipFile = createZipFileWithArchiveCache()) {
+      for (File fileToAdd : filesToAdd) {
+        byte[] expectedContent = Files.readAllBytes(fileToAdd.toPath());
+        try (EntryChannel firstChannel = firstZipFile.getSeekableByteChannel(fileToAdd.getName());
+             EntryChannel secondChannel = secondZipFile.getSeekableByteChannel(fileToAdd.getName())) {
+          verifyReadsFromManyThreads(firstChannel, expectedContent);
+          verifyReadsFromManyThreads(secondChannel, expectedContent);
+        }
+      }
+    }
+  }
+
+  private void verifyReadsFromManyThreads(EntryChannel channel, byte[] expectedContent) throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        Random random = new Random(i);
+        futures.add(executorService.submit(() -> {
+          verifyReadsAtRandomPositions(channel, expectedContent, random);
+          return null;
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void verifyReadsAtRandomPositions(EntryChannel channel, byte[] expectedContent, Random random)
+      throws IOException {
+    for (int i = 0; i < 50; i++) {
+      int position = random.nextInt(expectedContent.length);
+      int length = 1 + random.nextInt(Math.min(20_000, expectedContent.length - position));
+      verifyRead(channel, expectedContent, position, length);
+    }
+  }
+
+  private void verifyRead(EntryChannel channel, byte[] expectedContent, int position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      int readLen = channel.read(buffer, position + buffer.position());
+      assertThat(readLen).isGreaterThan(0);
+    }
+
+    assertThat(buffer.array()).as("read of %d bytes at %d", length, position)
+        .isEqualTo(Arrays.copyOfRange(expectedContent, position, position + length));
+  }
+
+  private ZipFile createZipFileWithIndexFile(long deflateCheckpointSpacing) {
+    ZipFile zipFile = new ZipFile(generatedZipFile);
+    zipFile.setDeflateCheckpointSpacing(deflateCheckpointSpacing);
+    zipFile.setUseDeflateCheckpointIndexFile(true);
+    return zipFile;
+  }
+
+  private ZipFile createZipFileWithArchiveCache() {
+    ZipFile zipFile = new ZipFile(generatedZipFile);
+    zipFile.setUseArchiveCache(true);
+    zipFile.setDeflateCheckpointSpacing(16 * 1024);
+    return zipFile;
+  }
+
+  private void addFiles(List<File> filesToAdd, CompressionMethod compressionMethod) throws IOException {
+    ZipParameters zipParameters = new ZipParameters();
+    zipParameters.setCompressionMethod(compressionMethod);
+    new ZipFile(generatedZipFile).addFiles(filesToAdd, zipParameters);
+  }
+
+  private File createFileToAdd(String fileName, int size) throws IOException {
+    File sourceFolder = new File(temporaryFolder.getRoot(), "source");
+    if (!sourceFolder.exists()) {
+      sourceFolder = temporaryFolder.newFolder("source");
+    }
+    return createTestFile(sourceFolder, fileName, size);
+  }
+}
@@ -0,0 +1,100 @@
+package com.zip.zipunzip;
+
+import com.zip.zipunzip.io.outputstream.ZipOutputStream;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.CompressionMethod;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
+import com.zip.zipunzip.testutils.ZipFileVerifier;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZipStandardEncryptionIT extends AbstractIT {
+
+  @Test
+  public void testAddFilesInSinglePassWritesDataDescriptors() throws IOException {
+    File sourceFolder = createSourceFolder();
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.ZIP_STANDARD, null);
+
+    new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+    verifyDataDescriptors(true);
+    ZipFileVerifier.verifyZipFileWithExternalUnzip(generatedZipFile, PASSWORD);
+    verifyExtractedFiles(sourceFolder);
+  }
+
+  @Test
+  public void testAddFilesInSinglePassWithStoreCompression() throws IOException {
+    File sourceFolder = createSourceFolder();
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.ZIP_STANDARD, null);
+    zipParameters.setCompressionMethod(CompressionMethod.STORE);
+
+    new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+    verifyDataDescriptors(true);
+    ZipFileVerifier.verifyZipFileWithExternalUnzip(generatedZipFile, PASSWORD);
+    verifyExtractedFiles(sourceFolder);
+  }
+
+  @Test
+  public void testAddFilesWithPrecomputedCrcWritesNoDataDescriptors() throws IOException {
+    File sourceFolder = createSourceFolder();
+    ZipParameters zipParameters = createZipParameters(EncryptionMethod.ZIP_STANDARD, null);
+    zipParameters.setPrecomputeCrcForZipStandard(true);
+
+    new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder, zipParameters, false, 0);
+
+    verifyDataDescriptors(false);
+    ZipFileVerifier.verifyZipFileWithExternalUnzip(generatedZipFile, PASSWORD);
+    verifyExtractedFiles(sourceFolder);
+  }
+
+  @Test
+  public void testZipOutputStreamWithoutCrcWritesDataDescriptors() throws IOException {
+    File sourceFolder = createSourceFolder();
+
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(generatedZipFile), PASSWORD)) {
+      for (File fileToAdd : sourceFolder.listFiles()) {
+        ZipParameters zipParameters = createZipParameters(EncryptionMethod.ZIP_STANDARD, null);
+        zipParameters.setFileNameInZip("source/" + fileToAdd.getName());
+        zipOutputStream.putNextEntry(zipParameters);
+        zipOutputStream.write(Files.readAllBytes(fileToAdd.toPath()));
+        zipOutputStream.closeEntry();
+      }
+    }
+
+    ZipFileVerifier.verifyZipFileWithExternalUnzip(generatedZipFile, PASSWORD);
+    verifyExtractedFiles(sourceFolder);
+  }
+
+  private File createSourceFolder() throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    createTestFile(sourceFolder, "empty.bin", 0);
+    createTestFile(sourceFolder, "small.bin", 100);
+    createTestFile(sourceFolder, "large.bin", 300_000);
+    return sourceFolder;
+  }
+
+  private void verifyDataDescriptors(boolean dataDescriptorsExpected) throws IOException {
+    for (FileHeader fileHeader : new ZipFile(generatedZipFile, PASSWORD).getFileHeaders()) {
+      if (fileHeader.isEncrypted()) {
+        assertThat(fileHeader.isDataDescriptorExists()).as(fileHeader.getFileName())
+            .isEqualTo(dataDescriptorsExpected);
+      }
+    }
+  }
+
+  private void verifyExtractedFiles(File sourceFolder) throws IOException {
+    new ZipFile(generatedZipFile, PASSWORD).extractAll(outputFolder.getPath());
+    for (File sourceFile : sourceFolder.listFiles()) {
+      ZipFileVerifier.verifyFileContent(sourceFile, new File(outputFolder, "source/" + sourceFile.getName()));
+    }
+  }
+}
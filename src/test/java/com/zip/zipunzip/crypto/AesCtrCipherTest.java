@@ -0,0 +1,233 @@
+package com.zip.zipunzip.crypto;
+
+import com.zip.zipunzip.crypto.PBKDF2.MacBasedPRF;
+import com.zip.zipunzip.crypto.engine.AESEngine;
+import com.zip.zipunzip.crypto.engine.AesCipherBackend;
+import com.zip.zipunzip.exception.ZipException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.zip.zipunzip.util.InternalZipConstants.AES_BLOCK_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AesCtrCipherTest {
+
+  private static final int[] KEY_LENGTHS = {16, 24, 32};
+  // lengths of the data of each call, only the last of which may end in a partial block
+  private static final int[][] CHUNK_LENGTHS = {
+      {1},
+      {15},
+      {16},
+      {17},
+      {16, 32, 48, 5},
+      {4096, 4096, 4095},
+      {65536, 65536 + 16, 100},
+      {16 * 1024 * 3 + 16, 16 * 1024 + 7},
+      {200000}
+  };
+  private static final int[] START_OFFSETS = {0, 1, 7, 16, 21};
+
+  private final Random random = new Random(1);
+
+  @Test
+  public void testEncryptMatchesBlockByBlockEncryption() throws ZipException {
+    for (AesCipherBackend aesCipherBackend : AesCipherBackend.values()) {
+      for (int[] chunkLengths : CHUNK_LENGTHS) {
+        for (int startOffset : START_OFFSETS) {
+          assertEncryptMatchesBlockByBlockEncryption(aesCipherBackend, chunkLengths, startOffset, false);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDecryptMatchesBlockByBlockDecryption() throws ZipException {
+    for (AesCipherBackend aesCipherBackend : AesCipherBackend.values()) {
+      for (int[] chunkLengths : CHUNK_LENGTHS) {
+        for (int startOffset : START_OFFSETS) {
+          assertDecryptMatchesBlockByBlockDecryption(aesCipherBackend, chunkLengths, startOffset, false);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEncryptInSegmentsMatchesBlockByBlockEncryption() throws ZipException {
+    for (AesCipherBackend aesCipherBackend : AesCipherBackend.values()) {
+      for (int[] chunkLengths : CHUNK_LENGTHS) {
+        for (int startOffset : START_OFFSETS) {
+          assertEncryptMatchesBlockByBlockEncryption(aesCipherBackend, chunkLengths, startOffset, true);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDecryptInSegmentsMatchesBlockByBlockDecryption() throws ZipException {
+    for (AesCipherBackend aesCipherBackend : AesCipherBackend.values()) {
+      for (int[] chunkLengths : CHUNK_LENGTHS) {
+        for (int startOffset : START_OFFSETS) {
+          assertDecryptMatchesBlockByBlockDecryption(aesCipherBackend, chunkLengths, startOffset, true);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEncryptInSegmentsMatchesSerialEncryption() throws ZipException {
+    byte[] aesKey = randomBytes(32);
+    byte[] macKey = randomBytes(32);
+    byte[] data = randomBytes(300000);
+
+    byte[] serialData = data.clone();
+    MacBasedPRF serialMac = createMac(macKey);
+    AesCtrCipher serialCipher = new AesCtrCipher(aesKey, AesCipherBackend.JCE, Integer.MAX_VALUE, 1);
+    serialCipher.encrypt(serialData, 0, 100000, serialMac);
+    serialCipher.encrypt(serialData, 100000, 200000, serialMac);
+
+    byte[] segmentedData = data.clone();
+    MacBasedPRF segmentedMac = createMac(macKey);
+    AesCtrCipher segmentedCipher = new AesCtrCipher(aesKey, AesCipherBackend.JCE, AES_BLOCK_SIZE, 4);
+    segmentedCipher.encrypt(segmentedData, 0, 100000, segmentedMac);
+    segmentedCipher.encrypt(segmentedData, 100000, 200000, segmentedMac);
+
+    assertThat(segmentedData).isEqualTo(serialData);
+    assertThat(segmentedMac.doFinal()).isEqualTo(serialMac.doFinal());
+
+    AesCtrCipher decryptingCipher = new AesCtrCipher(aesKey, AesCipherBackend.JCE, AES_BLOCK_SIZE, 4);
+    MacBasedPRF decryptingMac = createMac(macKey);
+    decryptingCipher.decrypt(segmentedData, 0, 100000, decryptingMac);
+    decryptingCipher.decrypt(segmentedData, 100000, 200000, decryptingMac);
+
+    assertThat(segmentedData).isEqualTo(data);
+    assertThat(decryptingMac.doFinal()).isEqualTo(createMac(macKey).doFinal(serialData));
+  }
+
+  private void assertEncryptMatchesBlockByBlockEncryption(AesCipherBackend aesCipherBackend, int[] chunkLengths,
+                                                          int startOffset, boolean segmented) throws ZipException {
+    byte[] aesKey = randomBytes(KEY_LENGTHS[random.nextInt(KEY_LENGTHS.length)]);
+    byte[] macKey = randomBytes(32);
+    byte[] data = randomBytes(startOffset + sum(chunkLengths) + 3);
+
+    byte[] expectedData = data.clone();
+    MacBasedPRF expectedMac = createMac(macKey);
+    BlockByBlockCipher blockByBlockCipher = new BlockByBlockCipher(aesKey);
+
+    byte[] actualData = data.clone();
+    MacBasedPRF actualMac = createMac(macKey);
+    AesCtrCipher aesCtrCipher = createAesCtrCipher(aesKey, aesCipherBackend, segmented);
+
+    int start = startOffset;
+    for (int chunkLength : chunkLengths) {
+      blockByBlockCipher.encrypt(expectedData, start, chunkLength, expectedMac);
+      aesCtrCipher.encrypt(actualData, start, chunkLength, actualMac);
+      start += chunkLength;
+    }
+
+    String description = describe(aesCipherBackend, aesKey, chunkLengths, startOffset, segmented);
+    assertThat(actualData).as(description).isEqualTo(expectedData);
+    assertThat(actualMac.doFinal()).as(description).isEqualTo(expectedMac.doFinal());
+  }
+
+  private void assertDecryptMatchesBlockByBlockDecryption(AesCipherBackend aesCipherBackend, int[] chunkLengths,
+                                                          int startOffset, boolean segmented) throws ZipException {
+    byte[] aesKey = randomBytes(KEY_LENGTHS[random.nextInt(KEY_LENGTHS.length)]);
+    byte[] macKey = randomBytes(32);
+    byte[] data = randomBytes(startOffset + sum(chunkLengths) + 3);
+
+    byte[] expectedData = data.clone();
+    MacBasedPRF expectedMac = createMac(macKey);
+    BlockByBlockCipher blockByBlockCipher = new BlockByBlockCipher(aesKey);
+
+    byte[] actualData = data.clone();
+    MacBasedPRF actualMac = createMac(macKey);
+    AesCtrCipher aesCtrCipher = createAesCtrCipher(aesKey, aesCipherBackend, segmented);
+
+    int start = startOffset;
+    for (int chunkLength : chunkLengths) {
+      blockByBlockCipher.decrypt(expectedData, start, chunkLength, expectedMac);
+      aesCtrCipher.decrypt(actualData, start, chunkLength, actualMac);
+      start += chunkLength;
+    }
+
+    String description = describe(aesCipherBackend, aesKey, chunkLengths, startOffset, segmented);
+    assertThat(actualData).as(description).isEqualTo(expectedData);
+    assertThat(actualMac.doFinal()).as(description).isEqualTo(expectedMac.doFinal());
+  }
+
+  private AesCtrCipher createAesCtrCipher(byte[] aesKey, AesCipherBackend aesCipherBackend, boolean segmented)
+      throws ZipException {
+    if (segmented) {
+      // segments are made for every buffer of a block or more, even on a machine with a single cpu
+      return new AesCtrCipher(aesKey, aesCipherBackend, AES_BLOCK_SIZE, 4);
+    }
+    return new AesCtrCipher(aesKey, aesCipherBackend, Integer.MAX_VALUE, 1);
+  }
+
+  private String describe(AesCipherBackend aesCipherBackend, byte[] aesKey, int[] chunkLengths, int startOffset,
+                          boolean segmented) {
+    return aesCipherBackend + " " + aesKey.length * 8 + " bit key, chunks " + Arrays.toString(chunkLengths) + " from "
+        + startOffset + (segmented ? " in segments" : "");
+  }
+
+  private MacBasedPRF createMac(byte[] macKey) {
+    MacBasedPRF mac = new MacBasedPRF("HmacSHA1");
+    mac.init(macKey);
+    return mac;
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private int sum(int[] values) {
+    int sum = 0;
+    for (int value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  /**
+   * Counter mode one block at a time, as AESEncrpyter and AESDecrypter did before keystream was generated in bulk
+   */
+  private static class BlockByBlockCipher {
+
+    private final AESEngine aesEngine;
+    private final byte[] iv = new byte[AES_BLOCK_SIZE];
+    private final byte[] counterBlock = new byte[AES_BLOCK_SIZE];
+    private int nonce = 1;
+
+    BlockByBlockCipher(byte[] aesKey) throws ZipException {
+      aesEngine = new AESEngine(aesKey);
+    }
+
+    void encrypt(byte[] buff, int start, int len, MacBasedPRF mac) throws ZipException {
+      for (int j = start; j < start + len; j += AES_BLOCK_SIZE) {
+        int loopCount = Math.min(AES_BLOCK_SIZE, start + len - j);
+        xorCounterBlock(buff, j, loopCount);
+        mac.update(buff, j, loopCount);
+      }
+    }
+
+    void decrypt(byte[] buff, int start, int len, MacBasedPRF mac) throws ZipException {
+      for (int j = start; j < start + len; j += AES_BLOCK_SIZE) {
+        int loopCount = Math.min(AES_BLOCK_SIZE, start + len - j);
+        mac.update(buff, j, loopCount);
+        xorCounterBlock(buff, j, loopCount);
+      }
+    }
+
+    private void xorCounterBlock(byte[] buff, int start, int len) throws ZipException {
+      AesCipherUtil.prepareBuffAESIVBytes(iv, nonce++);
+      aesEngine.processBlock(iv, counterBlock);
+      for (int k = 0; k < len; k++) {
+        buff[start + k] ^= counterBlock[k];
+      }
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.zip.zipunzip.crypto;
+
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AesKeyPrefetcherTest {
+
+  private static final char[] PASSWORD = "test123!".toCharArray();
+
+  @Test
+  public void testPreGenerateKeysTopsUpToNumberOfKeys() throws Exception {
+    try (AesKeyPrefetcher aesKeyPrefetcher = new AesKeyPrefetcher(PASSWORD, 2)) {
+      aesKeyPrefetcher.preGenerateKeys(AesKeyStrength.KEY_STRENGTH_128, 2);
+      aesKeyPrefetcher.preGenerateKeys(AesKeyStrength.KEY_STRENGTH_128, 2);
+      assertThat(aesKeyPrefetcher.takePreGeneratedKey(PASSWORD, AesKeyStrength.KEY_STRENGTH_128)).isNotNull();
+
+      aesKeyPrefetcher.preGenerateKeys(AesKeyStrength.KEY_STRENGTH_128, 2);
+      assertThat(aesKeyPrefetcher.takePreGeneratedKey(PASSWORD, AesKeyStrength.KEY_STRENGTH_128)).isNotNull();
+      assertThat(aesKeyPrefetcher.takePreGeneratedKey(PASSWORD, AesKeyStrength.KEY_STRENGTH_128)).isNotNull();
+      assertThat(aesKeyPrefetcher.takePreGeneratedKey(PASSWORD, AesKeyStrength.KEY_STRENGTH_128)).isNull();
+    }
+  }
+
+  @Test
+  public void testPreGeneratedKeyMatchesDerivedKey() throws Exception {
+    try (AesKeyPrefetcher aesKeyPrefetcher = new AesKeyPrefetcher(PASSWORD, 1)) {
+      aesKeyPrefetcher.preGenerateKeys(AesKeyStrength.KEY_STRENGTH_256, 1);
+      AesKeyPrefetcher.PreGeneratedKey preGeneratedKey = aesKeyPrefetcher.takePreGeneratedKey(PASSWORD,
+          AesKeyStrength.KEY_STRENGTH_256);
+
+      byte[] derivedKey = AESDecrypter.deriveKey(preGeneratedKey.getSalt(), PASSWORD,
+          AesKeyStrength.KEY_STRENGTH_256.getKeyLength(), AesKeyStrength.KEY_STRENGTH_256.getMacLength());
+      assertThat(preGeneratedKey.getDerivedKey()).isEqualTo(derivedKey);
+    }
+  }
+
+  @Test
+  public void testPreGeneratedKeysAreNotGivenForOtherPassword() throws Exception {
+    try (AesKeyPrefetcher aesKeyPrefetcher = new AesKeyPrefetcher(PASSWORD, 1)) {
+      aesKeyPrefetcher.preGenerateKeys(AesKeyStrength.KEY_STRENGTH_128, 1);
+      assertThat(aesKeyPrefetcher.takePreGeneratedKey("other".toCharArray(), AesKeyStrength.KEY_STRENGTH_128))
+          .isNull();
+    }
+  }
+
+  @Test
+  public void testNumberOfKeysAheadGrowsWithThreads() {
+    try (AesKeyPrefetcher oneThread = new AesKeyPrefetcher(PASSWORD, 1);
+         AesKeyPrefetcher fourThreads = new AesKeyPrefetcher(PASSWORD, 4)) {
+      assertThat(fourThreads.getNumberOfKeysAhead()).isEqualTo(4 * oneThread.getNumberOfKeysAhead());
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package com.zip.zipunzip.crypto.PBKDF2;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PBKDF2EngineTest {
+
+  private static final int[] PASSWORD_LENGTHS = {1, 8, 55, 63, 64, 65, 100, 200};
+  private static final int[] SALT_LENGTHS = {0, 8, 16, 51, 52, 55, 56, 63, 64, 100};
+  // lengths of keys for AES-128, 192 and 256, and lengths that are not multiples of the 20 byte hash
+  private static final int[] DERIVED_KEY_LENGTHS = {1, 19, 20, 21, 34, 40, 50, 66, 101};
+
+  @After
+  public void after() {
+    PBKDF2Engine.setJdkKeyDerivationEnabled(false);
+  }
+
+  @Test
+  public void testDeriveKeyMatchesMacBasedPrf() {
+    Random random = new Random(1);
+
+    for (int passwordLength : PASSWORD_LENGTHS) {
+      for (int saltLength : SALT_LENGTHS) {
+        char[] password = createPassword(random, passwordLength, 0x100);
+        byte[] salt = createSalt(random, saltLength);
+        int dkLen = DERIVED_KEY_LENGTHS[random.nextInt(DERIVED_KEY_LENGTHS.length)];
+        int iterationCount = 1 + random.nextInt(50);
+
+        assertThat(deriveKey(password, salt, iterationCount, dkLen))
+            .as("password of %d chars, salt of %d bytes, %d bytes of key", passwordLength, saltLength, dkLen)
+            .isEqualTo(deriveKeyWithMacBasedPrf(password, salt, iterationCount, dkLen));
+      }
+    }
+  }
+
+  @Test
+  public void testDeriveKeyMatchesMacBasedPrfForAllKeyLengths() {
+    Random random = new Random(2);
+    char[] password = createPassword(random, 12, 0x80);
+    byte[] salt = createSalt(random, 16);
+
+    for (int dkLen : DERIVED_KEY_LENGTHS) {
+      assertThat(deriveKey(password, salt, 1000, dkLen)).as("%d bytes of key", dkLen)
+          .isEqualTo(deriveKeyWithMacBasedPrf(password, salt, 1000, dkLen));
+    }
+  }
+
+  @Test
+  public void testDeriveKeyMatchesJdkPbkdf2() throws GeneralSecurityException {
+    Random random = new Random(3);
+    SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+
+    for (int i = 0; i < 100; i++) {
+      // the jdk encodes passwords as utf-8, which is the same as this engine only for ascii
+      char[] password = createPassword(random, 1 + random.nextInt(100), 0x80);
+      byte[] salt = createSalt(random, 1 + random.nextInt(64));
+      int dkLen = 1 + random.nextInt(100);
+      int iterationCount = 1 + random.nextInt(1000);
+
+      byte[] expectedKey = secretKeyFactory.generateSecret(new PBEKeySpec(password, salt, iterationCount, dkLen * 8))
+          .getEncoded();
+      assertThat(deriveKey(password, salt, iterationCount, dkLen)).isEqualTo(expectedKey);
+    }
+  }
+
+  @Test
+  public void testDeriveKeyWithJdkKeyDerivationEnabledMatchesMacBasedPrf() {
+    PBKDF2Engine.setJdkKeyDerivationEnabled(true);
+    Random random = new Random(4);
+
+    for (int passwordLength : PASSWORD_LENGTHS) {
+      // chars above 0x7f are derived without the jdk
+      char[] password = createPassword(random, passwordLength, random.nextBoolean() ? 0x80 : 0x100);
+      byte[] salt = createSalt(random, 16);
+
+      assertThat(deriveKey(password, salt, 1000, 66))
+          .isEqualTo(deriveKeyWithMacBasedPrf(password, salt, 1000, 66));
+    }
+  }
+
+  @Test
+  public void testDeriveKeyWithPasswordsInTurn() {
+    Random random = new Random(5);
+    char[] firstPassword = createPassword(random, 10, 0x80);
+    char[] secondPassword = createPassword(random, 10, 0x80);
+    byte[] salt = createSalt(random, 16);
+    byte[] firstKey = deriveKeyWithMacBasedPrf(firstPassword, salt, 1000, 34);
+    byte[] secondKey = deriveKeyWithMacBasedPrf(secondPassword, salt, 1000, 34);
+
+    // the pad states kept for the last password are not used for another one
+    for (int i = 0; i < 3; i++) {
+      assertThat(deriveKey(firstPassword, salt, 1000, 34)).isEqualTo(firstKey);
+      assertThat(deriveKey(secondPassword, salt, 1000, 34)).isEqualTo(secondKey);
+    }
+  }
+
+  @Test
+  public void testDeriveKeyFromManyThreadsAtOnce() throws Exception {
+    Random random = new Random(6);
+    List<char[]> passwords = new ArrayList<>();
+    List<byte[]> salts = new ArrayList<>();
+    List<byte[]> expectedKeys = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      passwords.add(createPassword(random, 1 + random.nextInt(20), 0x80));
+      salts.add(createSalt(random, 16));
+      expectedKeys.add(deriveKeyWithMacBasedPrf(passwords.get(i), salts.get(i), 1000, 66));
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<byte[]>> keys = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        int index = i % passwords.size();
+        keys.add(executorService.submit(() -> deriveKey(passwords.get(index), salts.get(index), 1000, 66)));
+      }
+
+      for (int i = 0; i < keys.size(); i++) {
+        assertThat(keys.get(i).get()).isEqualTo(expectedKeys.get(i % passwords.size()));
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private byte[] deriveKey(char[] password, byte[] salt, int iterationCount, int dkLen) {
+    PBKDF2Parameters parameters = new PBKDF2Parameters("HmacSHA1", "ISO-8859-1", salt, iterationCount);
+    return new PBKDF2Engine(parameters).deriveKey(password, dkLen);
+  }
+
+  private byte[] deriveKeyWithMacBasedPrf(char[] password, byte[] salt, int iterationCount, int dkLen) {
+    PBKDF2Parameters parameters = new PBKDF2Parameters("HmacSHA1", "ISO-8859-1", salt, iterationCount);
+    return new PBKDF2Engine(parameters, new MacBasedPRF("HmacSHA1")).deriveKey(password, dkLen);
+  }
+
+  private char[] createPassword(Random random, int length, int charLimit) {
+    char[] password = new char[length];
+    for (int i = 0; i < length; i++) {
+      password[i] = (char) (1 + random.nextInt(charLimit - 1));
+    }
+    return password;
+  }
+
+  private byte[] createSalt(Random random, int length) {
+    byte[] salt = new byte[length];
+    random.nextBytes(salt);
+    return salt;
+  }
+}
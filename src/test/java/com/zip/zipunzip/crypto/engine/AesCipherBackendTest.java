@@ -0,0 +1,124 @@
+package com.zip.zipunzip.crypto.engine;
+
+import com.zip.zipunzip.exception.ZipException;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.zip.zipunzip.util.InternalZipConstants.AES_BLOCK_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AesCipherBackendTest {
+
+  private static final int[] KEY_LENGTHS = {16, 24, 32};
+  private static final int[] NUMBER_OF_BLOCKS = {1, 2, 3, 7, 64, 1000};
+  // FIPS-197 appendix C, plaintext 00112233445566778899aabbccddeeff with the keys 000102...
+  private static final String[] FIPS_197_CIPHERTEXTS = {
+      "69c4e0d86a7b0430d8cdb78070b4c55a",
+      "dda97ca4864cdfe06eaf70a0ec0d7191",
+      "8ea2b7ca516745bfeafc49904b496089"
+  };
+
+  private final Random random = new Random(1);
+
+  @Test
+  public void testEncryptBlocksOfAllBackendsMatchesProcessBlock() throws Exception {
+    for (int keyLength : KEY_LENGTHS) {
+      for (int numberOfBlocks : NUMBER_OF_BLOCKS) {
+        byte[] key = randomBytes(keyLength);
+        byte[] counterBlocks = randomBytes(numberOfBlocks * AES_BLOCK_SIZE);
+        byte[] expected = encryptBlockByBlock(key, counterBlocks);
+
+        assertThat(encryptBlocks(new JceAesBlockCipher(key), counterBlocks))
+            .as("jce, %d bit key, %d blocks", keyLength * 8, numberOfBlocks).isEqualTo(expected);
+        for (AesCipherBackend aesCipherBackend : AesCipherBackend.values()) {
+          assertThat(encryptBlocks(aesCipherBackend.createBlockCipher(key), counterBlocks))
+              .as("%s, %d bit key, %d blocks", aesCipherBackend, keyLength * 8, numberOfBlocks).isEqualTo(expected);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEncryptBlocksInPlaceAtOffsetMatchesProcessBlock() throws Exception {
+    for (int keyLength : KEY_LENGTHS) {
+      byte[] key = randomBytes(keyLength);
+      byte[] counterBlocks = randomBytes(17 * AES_BLOCK_SIZE);
+      byte[] expected = encryptBlockByBlock(key, counterBlocks);
+
+      for (AesCipherBackend aesCipherBackend : AesCipherBackend.values()) {
+        int offset = 1 + random.nextInt(AES_BLOCK_SIZE);
+        byte[] buffer = new byte[offset + counterBlocks.length + 5];
+        System.arraycopy(counterBlocks, 0, buffer, offset, counterBlocks.length);
+
+        aesCipherBackend.createBlockCipher(key).encryptBlocks(buffer, offset, counterBlocks.length, buffer, offset);
+
+        byte[] actual = new byte[counterBlocks.length];
+        System.arraycopy(buffer, offset, actual, 0, actual.length);
+        assertThat(actual).as("%s, %d bit key", aesCipherBackend, keyLength * 8).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  public void testEncryptBlocksKeepsStateAcrossCalls() throws Exception {
+    byte[] key = randomBytes(32);
+    byte[] counterBlocks = randomBytes(10 * AES_BLOCK_SIZE);
+    byte[] expected = encryptBlockByBlock(key, counterBlocks);
+
+    for (AesCipherBackend aesCipherBackend : AesCipherBackend.values()) {
+      AesBlockCipher aesBlockCipher = aesCipherBackend.createBlockCipher(key);
+      byte[] actual = new byte[counterBlocks.length];
+      aesBlockCipher.encryptBlocks(counterBlocks, 0, 3 * AES_BLOCK_SIZE, actual, 0);
+      aesBlockCipher.encryptBlocks(counterBlocks, 3 * AES_BLOCK_SIZE, 7 * AES_BLOCK_SIZE, actual, 3 * AES_BLOCK_SIZE);
+
+      assertThat(actual).as(aesCipherBackend.toString()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testEncryptBlocksMatchesFips197Vectors() throws Exception {
+    byte[] plaintext = fromHex("00112233445566778899aabbccddeeff");
+
+    for (int i = 0; i < KEY_LENGTHS.length; i++) {
+      byte[] key = new byte[KEY_LENGTHS[i]];
+      for (int j = 0; j < key.length; j++) {
+        key[j] = (byte) j;
+      }
+
+      for (AesCipherBackend aesCipherBackend : AesCipherBackend.values()) {
+        assertThat(encryptBlocks(aesCipherBackend.createBlockCipher(key), plaintext))
+            .as("%s, %d bit key", aesCipherBackend, key.length * 8).isEqualTo(fromHex(FIPS_197_CIPHERTEXTS[i]));
+      }
+    }
+  }
+
+  private byte[] encryptBlocks(AesBlockCipher aesBlockCipher, byte[] blocks) throws ZipException {
+    byte[] encrypted = new byte[blocks.length];
+    aesBlockCipher.encryptBlocks(blocks, 0, blocks.length, encrypted, 0);
+    return encrypted;
+  }
+
+  private byte[] encryptBlockByBlock(byte[] key, byte[] blocks) throws ZipException {
+    AESEngine aesEngine = new AESEngine(key);
+    byte[] encrypted = new byte[blocks.length];
+    for (int offset = 0; offset < blocks.length; offset += AES_BLOCK_SIZE) {
+      aesEngine.processBlock(blocks, offset, encrypted, offset);
+    }
+    return encrypted;
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private byte[] fromHex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,219 @@
+package com.zip.zipunzip.crypto.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZipCryptoEngineTest {
+
+  private static final char[] PASSWORD = "test123!".toCharArray();
+  private static final int[] LENGTHS = {0, 1, 2, 12, 100, 4096, 10000};
+  private static final int[] OFFSETS = {0, 1, 5, 13};
+
+  private final Random random = new Random(1);
+
+  @Test
+  public void testEncryptMatchesEncryptionByteByByte() {
+    for (int length : LENGTHS) {
+      for (int offset : OFFSETS) {
+        byte[] data = randomBytes(offset + length + 7);
+        byte[] expected = data.clone();
+        ZipCryptoEngine byteByByteEngine = createEngine();
+        encryptByteByByte(byteByByteEngine, expected, offset, length);
+
+        byte[] actual = data.clone();
+        ZipCryptoEngine zipCryptoEngine = createEngine();
+        zipCryptoEngine.encrypt(actual, offset, length);
+
+        assertThat(actual).as("%d bytes from %d", length, offset).isEqualTo(expected);
+        assertSameKeys(zipCryptoEngine, byteByByteEngine);
+      }
+    }
+  }
+
+  @Test
+  public void testDecryptMatchesDecryptionByteByByte() {
+    for (int length : LENGTHS) {
+      for (int offset : OFFSETS) {
+        byte[] data = randomBytes(offset + length + 7);
+        byte[] expected = data.clone();
+        ZipCryptoEngine byteByByteEngine = createEngine();
+        decryptByteByByte(byteByByteEngine, expected, offset, length);
+
+        byte[] actual = data.clone();
+        ZipCryptoEngine zipCryptoEngine = createEngine();
+        zipCryptoEngine.decrypt(actual, offset, length);
+
+        assertThat(actual).as("%d bytes from %d", length, offset).isEqualTo(expected);
+        assertSameKeys(zipCryptoEngine, byteByByteEngine);
+      }
+    }
+  }
+
+  @Test
+  public void testEncryptInChunksThenDecryptReturnsData() {
+    byte[] data = randomBytes(10000);
+    byte[] encrypted = data.clone();
+    ZipCryptoEngine encryptingEngine = createEngine();
+    for (int offset = 0, chunkLength = 1; offset < encrypted.length; offset += chunkLength, chunkLength *= 2) {
+      encryptingEngine.encrypt(encrypted, offset, Math.min(chunkLength, encrypted.length - offset));
+    }
+
+    byte[] expected = data.clone();
+    encryptByteByByte(createEngine(), expected, 0, expected.length);
+    assertThat(encrypted).isEqualTo(expected);
+
+    ZipCryptoEngine decryptingEngine = createEngine();
+    decryptingEngine.decrypt(encrypted, 0, 3);
+    decryptingEngine.decrypt(encrypted, 3, encrypted.length - 3);
+    assertThat(encrypted).isEqualTo(data);
+  }
+
+  @Test
+  public void testEncryptOfHeapBufferMatchesEncryptionByteByByte() {
+    for (int length : LENGTHS) {
+      for (int offset : OFFSETS) {
+        byte[] data = randomBytes(2 * offset + length + 7);
+        byte[] expected = data.clone();
+        ZipCryptoEngine byteByByteEngine = createEngine();
+        // the buffer is a slice starting at offset, whose remaining bytes start at another offset
+        encryptByteByByte(byteByByteEngine, expected, 2 * offset, length);
+
+        byte[] actual = data.clone();
+        ByteBuffer buffer = createHeapBuffer(actual, offset, length);
+        ZipCryptoEngine zipCryptoEngine = createEngine();
+        zipCryptoEngine.encrypt(buffer);
+
+        assertThat(actual).as("%d bytes from %d", length, offset).isEqualTo(expected);
+        assertThat(buffer.position()).isEqualTo(buffer.limit());
+        assertSameKeys(zipCryptoEngine, byteByByteEngine);
+      }
+    }
+  }
+
+  @Test
+  public void testDecryptOfHeapBufferMatchesDecryptionByteByByte() {
+    for (int length : LENGTHS) {
+      for (int offset : OFFSETS) {
+        byte[] data = randomBytes(2 * offset + length + 7);
+        byte[] expected = data.clone();
+        ZipCryptoEngine byteByByteEngine = createEngine();
+        decryptByteByByte(byteByByteEngine, expected, 2 * offset, length);
+
+        byte[] actual = data.clone();
+        ByteBuffer buffer = createHeapBuffer(actual, offset, length);
+        ZipCryptoEngine zipCryptoEngine = createEngine();
+        zipCryptoEngine.decrypt(buffer);
+
+        assertThat(actual).as("%d bytes from %d", length, offset).isEqualTo(expected);
+        assertThat(buffer.position()).isEqualTo(buffer.limit());
+        assertSameKeys(zipCryptoEngine, byteByByteEngine);
+      }
+    }
+  }
+
+  @Test
+  public void testEncryptOfDirectBufferMatchesEncryptionByteByByte() {
+    for (int length : LENGTHS) {
+      for (int offset : OFFSETS) {
+        byte[] data = randomBytes(offset + length + 7);
+        byte[] expected = data.clone();
+        ZipCryptoEngine byteByByteEngine = createEngine();
+        encryptByteByByte(byteByByteEngine, expected, offset, length);
+
+        ByteBuffer buffer = createDirectBuffer(data, offset, length);
+        ZipCryptoEngine zipCryptoEngine = createEngine();
+        zipCryptoEngine.encrypt(buffer);
+
+        assertThat(buffer.position()).isEqualTo(offset + length);
+        assertThat(contentOf(buffer)).as("%d bytes from %d", length, offset).isEqualTo(expected);
+        assertSameKeys(zipCryptoEngine, byteByByteEngine);
+      }
+    }
+  }
+
+  @Test
+  public void testDecryptOfDirectBufferMatchesDecryptionByteByByte() {
+    for (int length : LENGTHS) {
+      for (int offset : OFFSETS) {
+        byte[] data = randomBytes(offset + length + 7);
+        byte[] expected = data.clone();
+        ZipCryptoEngine byteByByteEngine = createEngine();
+        decryptByteByByte(byteByByteEngine, expected, offset, length);
+
+        ByteBuffer buffer = createDirectBuffer(data, offset, length);
+        ZipCryptoEngine zipCryptoEngine = createEngine();
+        zipCryptoEngine.decrypt(buffer);
+
+        assertThat(buffer.position()).isEqualTo(offset + length);
+        assertThat(contentOf(buffer)).as("%d bytes from %d", length, offset).isEqualTo(expected);
+        assertSameKeys(zipCryptoEngine, byteByByteEngine);
+      }
+    }
+  }
+
+  private ZipCryptoEngine createEngine() {
+    ZipCryptoEngine zipCryptoEngine = new ZipCryptoEngine();
+    zipCryptoEngine.initKeys(PASSWORD);
+    return zipCryptoEngine;
+  }
+
+  private void encryptByteByByte(ZipCryptoEngine zipCryptoEngine, byte[] buff, int start, int len) {
+    for (int i = start; i < start + len; i++) {
+      byte plain = buff[i];
+      buff[i] = (byte) (plain ^ zipCryptoEngine.decryptByte());
+      zipCryptoEngine.updateKeys(plain);
+    }
+  }
+
+  private void decryptByteByByte(ZipCryptoEngine zipCryptoEngine, byte[] buff, int start, int len) {
+    for (int i = start; i < start + len; i++) {
+      buff[i] = (byte) (buff[i] ^ zipCryptoEngine.decryptByte());
+      zipCryptoEngine.updateKeys(buff[i]);
+    }
+  }
+
+  /**
+   * Both engines have the same keys if they make the same keystream from here on
+   */
+  private void assertSameKeys(ZipCryptoEngine zipCryptoEngine, ZipCryptoEngine expectedZipCryptoEngine) {
+    for (int i = 0; i < 16; i++) {
+      assertThat(zipCryptoEngine.decryptByte()).isEqualTo(expectedZipCryptoEngine.decryptByte());
+      byte next = (byte) random.nextInt();
+      zipCryptoEngine.updateKeys(next);
+      expectedZipCryptoEngine.updateKeys(next);
+    }
+  }
+
+  private ByteBuffer createHeapBuffer(byte[] array, int offset, int length) {
+    ByteBuffer buffer = ByteBuffer.wrap(array, offset, array.length - offset).slice();
+    buffer.position(offset);
+    buffer.limit(offset + length);
+    return buffer;
+  }
+
+  private ByteBuffer createDirectBuffer(byte[] data, int offset, int length) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data);
+    buffer.position(offset);
+    buffer.limit(offset + length);
+    return buffer;
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private byte[] contentOf(ByteBuffer buffer) {
+    byte[] content = new byte[buffer.capacity()];
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.clear();
+    duplicate.get(content);
+    return content;
+  }
+}
@@ -0,0 +1,284 @@
+package com.zip.zipunzip.headers;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.model.ExtraDataRecord;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipModel;
+import com.zip.zipunzip.util.InternalZipConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reads archives written by java.util.zip, so that the headers do not depend on how this library writes them
+ */
+public class HeaderReaderTest {
+
+  private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void testReadAllHeadersWithoutComment() throws IOException {
+    File zipFile = createZipFile(3, null);
+
+    ZipModel zipModel = readAllHeaders(zipFile);
+
+    verifyEntries(zipModel, 3);
+    assertThat(zipModel.getEndOfCentralDirectoryRecord().getComment()).isEqualTo("");
+    assertThat(zipModel.isZip64Format()).isFalse();
+  }
+
+  @Test
+  public void testReadAllHeadersWithComment() throws IOException {
+    File zipFile = createZipFile(3, "a comment at the end of the zip file");
+
+    ZipModel zipModel = readAllHeaders(zipFile);
+
+    verifyEntries(zipModel, 3);
+    assertThat(zipModel.getEndOfCentralDirectoryRecord().getComment()).isEqualTo("a comment at the end of the zip file");
+  }
+
+  @Test
+  public void testReadAllHeadersWithCommentOfMaximumLength() throws IOException {
+    String comment = createComment(MAX_COMMENT_LENGTH);
+    File zipFile = createZipFile(3, comment);
+
+    ZipModel zipModel = readAllHeaders(zipFile);
+
+    verifyEntries(zipModel, 3);
+    assertThat(zipModel.getEndOfCentralDirectoryRecord().getComment()).isEqualTo(comment);
+  }
+
+  @Test
+  public void testReadAllHeadersWithEndOfCentralDirectorySignatureInComment() throws IOException {
+    // A record in the comment would claim a comment ending before the end of the file
+    String comment = "before PK\u0005\u0006" + createComment(30) + " after";
+    File zipFile = createZipFile(2, comment);
+
+    ZipModel zipModel = readAllHeaders(zipFile);
+
+    verifyEntries(zipModel, 2);
+    assertThat(zipModel.getEndOfCentralDirectoryRecord().getComment()).isEqualTo(comment);
+  }
+
+  @Test
+  public void testReadAllHeadersOfZip64File() throws IOException {
+    // More entries than fit into the end of central directory record
+    int numberOfEntries = 0x10000 + 10;
+    File zipFile = createZipFile(numberOfEntries, null);
+
+    ZipModel zipModel = readAllHeaders(zipFile);
+
+    assertThat(zipModel.isZip64Format()).isTrue();
+    assertThat(zipModel.getZip64EndOfCentralDirectoryRecord().getTotalNumberOfEntriesInCentralDirectory())
+        .isEqualTo((long) numberOfEntries);
+    verifyEntries(zipModel, numberOfEntries);
+  }
+
+  @Test
+  public void testReadAllHeadersOfZip64FileWithCommentOfMaximumLength() throws IOException {
+    // The zip64 locator is in front of the bytes read in one go from the end of the file
+    int numberOfEntries = 0x10000 + 10;
+    String comment = createComment(MAX_COMMENT_LENGTH);
+    File zipFile = createZipFile(numberOfEntries, comment);
+
+    ZipModel zipModel = readAllHeaders(zipFile);
+
+    assertThat(zipModel.isZip64Format()).isTrue();
+    assertThat(zipModel.getEndOfCentralDirectoryRecord().getComment()).isEqualTo(comment);
+    verifyEntries(zipModel, numberOfEntries);
+  }
+
+  @Test
+  public void testReadAllHeadersOfFileWithoutEndOfCentralDirectoryThrowsException() throws IOException {
+    File notAZipFile = temporaryFolder.newFile("not_a_zip.zip");
+    byte[] content = new byte[1000];
+    Arrays.fill(content, (byte) 'P');
+    Files.write(notAZipFile.toPath(), content);
+
+    expectedException.expect(ZipException.class);
+    readAllHeaders(notAZipFile);
+  }
+
+  @Test
+  public void testReadAllHeadersWithExtraFieldsAndFileComments() throws IOException {
+    File zipFile = createZipFileWithExtraFieldsAndFileComments(20);
+
+    ZipModel zipModel = readAllHeaders(zipFile);
+
+    verifyExtraFieldsAndFileComments(zipModel.getCentralDirectory().getFileHeaders(), 20);
+    verifyOffsetsAndCrcs(zipModel.getCentralDirectory().getFileHeaders(), zipFile);
+  }
+
+  @Test
+  public void testMapCentralDirectoryReadsSameHeadersAsReadAllHeaders() throws IOException {
+    File zipFile = createZipFileWithExtraFieldsAndFileComments(20);
+
+    List<FileHeader> fileHeaders = readAllHeaders(zipFile).getCentralDirectory().getFileHeaders();
+    List<FileHeader> mappedFileHeaders = new ArrayList<>();
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(zipFile, "r")) {
+      MappedCentralDirectory mappedCentralDirectory = new HeaderReader().mapCentralDirectory(randomAccessFile,
+          InternalZipConstants.CHARSET_UTF_8);
+      assertThat(mappedCentralDirectory.getNumberOfEntries()).isEqualTo(20L);
+      for (FileHeader fileHeader : mappedCentralDirectory) {
+        mappedFileHeaders.add(fileHeader);
+      }
+    }
+
+    verifyExtraFieldsAndFileComments(mappedFileHeaders, 20);
+    assertThat(mappedFileHeaders).hasSize(fileHeaders.size());
+    for (int i = 0; i < fileHeaders.size(); i++) {
+      FileHeader fileHeader = fileHeaders.get(i);
+      FileHeader mappedFileHeader = mappedFileHeaders.get(i);
+      assertThat(mappedFileHeader.getFileName()).isEqualTo(fileHeader.getFileName());
+      assertThat(mappedFileHeader.getOffsetLocalHeader()).isEqualTo(fileHeader.getOffsetLocalHeader());
+      assertThat(mappedFileHeader.getCompressedSize()).isEqualTo(fileHeader.getCompressedSize());
+      assertThat(mappedFileHeader.getUncompressedSize()).isEqualTo(fileHeader.getUncompressedSize());
+      assertThat(mappedFileHeader.getCrc()).isEqualTo(fileHeader.getCrc());
+    }
+  }
+
+  private ZipModel readAllHeaders(File zipFile) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(zipFile, "r")) {
+      return new HeaderReader().readAllHeaders(randomAccessFile, InternalZipConstants.CHARSET_UTF_8);
+    }
+  }
+
+  private void verifyEntries(ZipModel zipModel, int numberOfEntries) {
+    List<FileHeader> fileHeaders = zipModel.getCentralDirectory().getFileHeaders();
+    assertThat(fileHeaders).hasSize(numberOfEntries);
+    for (int i = 0; i < numberOfEntries; i += Math.max(1, numberOfEntries / 100)) {
+      assertThat(fileHeaders.get(i).getFileName()).isEqualTo(getEntryName(i));
+      assertThat(fileHeaders.get(i).getUncompressedSize()).isEqualTo((long) getEntryContent(i).length);
+    }
+  }
+
+  private File createZipFile(int numberOfEntries, String comment) throws IOException {
+    File zipFile = new File(temporaryFolder.getRoot(), "headers.zip");
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      for (int i = 0; i < numberOfEntries; i++) {
+        ZipEntry zipEntry = new ZipEntry(getEntryName(i));
+        zipEntry.setMethod(ZipEntry.DEFLATED);
+        zipOutputStream.putNextEntry(zipEntry);
+        zipOutputStream.write(getEntryContent(i));
+        zipOutputStream.closeEntry();
+      }
+
+      if (comment != null) {
+        zipOutputStream.setComment(comment);
+      }
+    }
+    return zipFile;
+  }
+
+  /**
+   * Entries with two extra data records, one of them of an unknown type, a file comment and a name which is not
+   * ascii, so that every variable length part of a central directory entry is used
+   */
+  private File createZipFileWithExtraFieldsAndFileComments(int numberOfEntries) throws IOException {
+    File zipFile = new File(temporaryFolder.getRoot(), "extra_fields.zip");
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      for (int i = 0; i < numberOfEntries; i++) {
+        ZipEntry zipEntry = new ZipEntry(getEntryNameWithUmlaut(i));
+        zipEntry.setExtra(getExtraField(i));
+        zipEntry.setComment("file comment " + i);
+        zipOutputStream.putNextEntry(zipEntry);
+        zipOutputStream.write(getEntryContent(i));
+        zipOutputStream.closeEntry();
+      }
+    }
+    return zipFile;
+  }
+
+  private void verifyExtraFieldsAndFileComments(List<FileHeader> fileHeaders, int numberOfEntries) {
+    assertThat(fileHeaders).hasSize(numberOfEntries);
+    for (int i = 0; i < numberOfEntries; i++) {
+      FileHeader fileHeader = fileHeaders.get(i);
+      assertThat(fileHeader.getFileName()).isEqualTo(getEntryNameWithUmlaut(i));
+      assertThat(fileHeader.getFileComment()).isEqualTo("file comment " + i);
+      assertThat(fileHeader.getExtraFieldLength()).isEqualTo(getExtraField(i).length);
+
+      List<ExtraDataRecord> extraDataRecords = fileHeader.getExtraDataRecords();
+      assertThat(extraDataRecords).hasSize(2);
+      assertThat(extraDataRecords.get(0).getHeader()).isEqualTo(0xCAFEL);
+      assertThat(extraDataRecords.get(0).getData()).isEqualTo(new byte[] {1, 2, 3, (byte) i});
+      assertThat(extraDataRecords.get(1).getHeader()).isEqualTo(0x6B6AL);
+      assertThat(extraDataRecords.get(1).getSizeOfData()).isEqualTo(i);
+    }
+  }
+
+  private void verifyOffsetsAndCrcs(List<FileHeader> fileHeaders, File zipFile) throws IOException {
+    try (java.util.zip.ZipFile jdkZipFile = new java.util.zip.ZipFile(zipFile)) {
+      for (FileHeader fileHeader : fileHeaders) {
+        ZipEntry zipEntry = jdkZipFile.getEntry(fileHeader.getFileName());
+        assertThat(fileHeader.getCrc()).isEqualTo(zipEntry.getCrc());
+        assertThat(fileHeader.getCompressedSize()).isEqualTo(zipEntry.getCompressedSize());
+      }
+    }
+
+    // every offset points at a local file header signature
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(zipFile, "r")) {
+      for (FileHeader fileHeader : fileHeaders) {
+        randomAccessFile.seek(fileHeader.getOffsetLocalHeader());
+        assertThat(Integer.reverseBytes(randomAccessFile.readInt()))
+            .isEqualTo((int) HeaderSignature.LOCAL_FILE_HEADER.getValue());
+      }
+    }
+  }
+
+  private byte[] getExtraField(int index) {
+    // 0xCAFE with four bytes of data, then 0x6B6A with as many bytes as the index
+    byte[] extraField = new byte[8 + 4 + index];
+    extraField[0] = (byte) 0xFE;
+    extraField[1] = (byte) 0xCA;
+    extraField[2] = 4;
+    extraField[4] = 1;
+    extraField[5] = 2;
+    extraField[6] = 3;
+    extraField[7] = (byte) index;
+    extraField[8] = 0x6A;
+    extraField[9] = 0x6B;
+    extraField[10] = (byte) index;
+    return extraField;
+  }
+
+  private String getEntryNameWithUmlaut(int index) {
+    return "f\u00FCr/entry" + index + ".txt";
+  }
+
+  private String getEntryName(int index) {
+    return "entry" + index + ".txt";
+  }
+
+  private byte[] getEntryContent(int index) {
+    return ("content of entry " + index).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private String createComment(int length) {
+    char[] comment = new char[length];
+    for (int i = 0; i < length; i++) {
+      comment[i] = (char) ('a' + i % 26);
+    }
+    return new String(comment);
+  }
+}
@@ -0,0 +1,191 @@
+package com.zip.zipunzip.io.inputstream;
+
+import com.zip.zipunzip.ZipFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InflaterPoolTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Before
+  public void before() {
+    // the pool is shared by everything in the jvm, so each test starts with an empty one
+    while (InflaterPool.getNumberOfIdleInflaters() > 0) {
+      InflaterPool.borrowInflater().end();
+    }
+  }
+
+  @Test
+  public void testReturnedInflaterIsResetAndBorrowedAgain() throws DataFormatException {
+    byte[] data = createData(10000);
+    byte[] deflatedData = deflate(data);
+
+    Inflater inflater = InflaterPool.borrowInflater();
+    inflater.setInput(deflatedData, 0, deflatedData.length / 2);
+    inflater.inflate(new byte[100]);
+    InflaterPool.returnInflater(inflater);
+    assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(1);
+
+    Inflater borrowedAgain = InflaterPool.borrowInflater();
+    assertThat(borrowedAgain == inflater).isTrue();
+    assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(0);
+    assertThat(inflate(borrowedAgain, deflatedData, data.length)).isEqualTo(data);
+    borrowedAgain.end();
+  }
+
+  @Test
+  public void testInflatersBeyondMaximumAreEnded() {
+    int maximumNumberOfIdleInflaters = InflaterPool.getMaximumNumberOfIdleInflaters();
+    List<Inflater> inflaters = new ArrayList<>();
+    for (int i = 0; i < maximumNumberOfIdleInflaters + 3; i++) {
+      inflaters.add(InflaterPool.borrowInflater());
+    }
+
+    for (Inflater inflater : inflaters) {
+      InflaterPool.returnInflater(inflater);
+    }
+    assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(maximumNumberOfIdleInflaters);
+
+    List<Inflater> idleInflaters = new ArrayList<>();
+    for (int i = 0; i < maximumNumberOfIdleInflaters; i++) {
+      idleInflaters.add(InflaterPool.borrowInflater());
+    }
+    int numberOfEndedInflaters = 0;
+    for (Inflater inflater : inflaters) {
+      if (!containsSameInstance(idleInflaters, inflater)) {
+        assertThat(isEnded(inflater)).isTrue();
+        numberOfEndedInflaters++;
+      }
+    }
+    assertThat(numberOfEndedInflaters).isEqualTo(3);
+
+    for (Inflater inflater : idleInflaters) {
+      assertThat(isEnded(inflater)).isFalse();
+      inflater.end();
+    }
+  }
+
+  @Test
+  public void testStreamClosedEarlyReturnsItsInflaterOnce() throws IOException, DataFormatException {
+    ZipFile zipFile = createZipFile();
+
+    ZipInputStream inputStream = zipFile.getInputStream("large.bin");
+    assertThat(inputStream.read(new byte[1000])).isEqualTo(1000);
+    assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(0);
+
+    inputStream.close();
+    assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(1);
+    inputStream.close();
+    assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(1);
+
+    // given back once only, so no two borrowers get the same inflater
+    Inflater first = InflaterPool.borrowInflater();
+    Inflater second = InflaterPool.borrowInflater();
+    assertThat(first == second).isFalse();
+    byte[] data = createData(5000);
+    assertThat(inflate(first, deflate(data), data.length)).isEqualTo(data);
+    first.end();
+    second.end();
+  }
+
+  @Test
+  public void testStreamReadToTheEndReturnsItsInflaterBeforeClose() throws IOException {
+    ZipFile zipFile = createZipFile();
+
+    ZipInputStream inputStream = zipFile.getInputStream("large.bin");
+    byte[] b = new byte[4096];
+    while (inputStream.read(b) != -1) {
+      // read to the end of the entry
+    }
+    assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(1);
+
+    inputStream.close();
+    assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(1);
+  }
+
+  @Test
+  public void testInflaterOfClosedStreamIsReusedByTheNextStream() throws IOException {
+    ZipFile zipFile = createZipFile();
+
+    for (int i = 0; i < 5; i++) {
+      try (ZipInputStream inputStream = zipFile.getInputStream("large.bin")) {
+        assertThat(inputStream.read(new byte[100])).isEqualTo(100);
+        assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(0);
+      }
+      assertThat(InflaterPool.getNumberOfIdleInflaters()).isEqualTo(1);
+    }
+  }
+
+  private ZipFile createZipFile() throws IOException {
+    File fileToAdd = createTestFile(temporaryFolder.getRoot(), "large.bin", 200000);
+    ZipFile zipFile = new ZipFile(new File(temporaryFolder.getRoot(), "test.zip"));
+    zipFile.addFiles(Collections.singletonList(fileToAdd));
+    return zipFile;
+  }
+
+  private boolean containsSameInstance(List<Inflater> inflaters, Inflater inflater) {
+    for (Inflater inflaterInList : inflaters) {
+      if (inflaterInList == inflater) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isEnded(Inflater inflater) {
+    try {
+      inflater.getAdler();
+      return false;
+    } catch (NullPointerException e) {
+      // thrown by an inflater that has been ended
+      return true;
+    }
+  }
+
+  private byte[] createData(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i % 251 ^ i / 97);
+    }
+    return data;
+  }
+
+  private byte[] deflate(byte[] data) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] buffer = new byte[data.length + 1000];
+    int length = deflater.deflate(buffer);
+    deflater.end();
+
+    byte[] deflatedData = new byte[length];
+    System.arraycopy(buffer, 0, deflatedData, 0, length);
+    return deflatedData;
+  }
+
+  private byte[] inflate(Inflater inflater, byte[] deflatedData, int length) throws DataFormatException {
+    inflater.setInput(deflatedData);
+    byte[] data = new byte[length];
+    int offset = 0;
+    while (offset < length && !inflater.finished()) {
+      offset += inflater.inflate(data, offset, length - offset);
+    }
+    return data;
+  }
+}
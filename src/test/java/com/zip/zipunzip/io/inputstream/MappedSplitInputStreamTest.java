@@ -0,0 +1,232 @@
+package com.zip.zipunzip.io.inputstream;
+
+import com.zip.zipunzip.model.FileHeader;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedSplitInputStreamTest {
+
+  private static final int[] VOLUME_SIZES = {1000, 777, 1500};
+  private static final long WINDOW_SIZE = 256;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private List<File> volumes = new ArrayList<>();
+  private byte[] content;
+
+  @Before
+  public void before() throws IOException {
+    Random random = new Random(1);
+    ByteArrayOutputStream allVolumes = new ByteArrayOutputStream();
+    for (int i = 0; i < VOLUME_SIZES.length; i++) {
+      String name = i == VOLUME_SIZES.length - 1 ? "split.zip" : "split.z0" + (i + 1);
+      byte[] volumeContent = new byte[VOLUME_SIZES[i]];
+      random.nextBytes(volumeContent);
+      File volume = temporaryFolder.newFile(name);
+      Files.write(volume.toPath(), volumeContent);
+      allVolumes.write(volumeContent);
+      volumes.add(volume);
+    }
+    content = allVolumes.toByteArray();
+  }
+
+  @Test
+  public void testReadAcrossWindowBoundaries() throws IOException {
+    File volume = volumes.get(0);
+    byte[] volumeContent = Files.readAllBytes(volume.toPath());
+
+    try (MappedSplitInputStream inputStream = new MappedSplitInputStream(volume, false, 0, WINDOW_SIZE)) {
+      // 100 byte reads end and start in the middle of the 256 byte windows
+      assertThat(readAll(inputStream, 100)).isEqualTo(volumeContent);
+    }
+  }
+
+  @Test
+  public void testReadOfWholeFileInOneCallReadsAllWindows() throws IOException {
+    File volume = volumes.get(0);
+    byte[] volumeContent = Files.readAllBytes(volume.toPath());
+
+    try (MappedSplitInputStream inputStream = new MappedSplitInputStream(volume, false, 0, WINDOW_SIZE)) {
+      byte[] b = new byte[volumeContent.length + 10];
+      assertThat(inputStream.read(b, 5, volumeContent.length + 5)).isEqualTo(volumeContent.length);
+      assertThat(copyOfRange(b, 5, volumeContent.length)).isEqualTo(volumeContent);
+      assertThat(inputStream.read(b, 0, 1)).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  public void testReadAcrossVolumes() throws IOException {
+    for (long windowSize : new long[] {WINDOW_SIZE, Integer.MAX_VALUE}) {
+      try (MappedSplitInputStream inputStream = openSplitArchive(windowSize)) {
+        inputStream.prepareExtractionForFileHeader(createFileHeader(0, 0));
+        assertThat(readAll(inputStream, 333)).as("window of %d bytes", windowSize).isEqualTo(content);
+      }
+    }
+  }
+
+  @Test
+  public void testSeekThenReadFromOneVolumeIntoTheNext() throws IOException {
+    try (MappedSplitInputStream inputStream = openSplitArchive(WINDOW_SIZE)) {
+      inputStream.prepareExtractionForFileHeader(createFileHeader(1, 700));
+
+      byte[] b = new byte[200];
+      assertThat(inputStream.read(b, 0, b.length)).isEqualTo(b.length);
+      // the last 77 bytes of the second volume and the first 123 bytes of the last one
+      assertThat(b).isEqualTo(copyOfRange(content, VOLUME_SIZES[0] + 700, b.length));
+
+      // back to the first volume, then within the current window and behind it
+      inputStream.prepareExtractionForFileHeader(createFileHeader(0, 990));
+      assertThat(inputStream.read(b, 0, 20)).isEqualTo(20);
+      assertThat(copyOfRange(b, 0, 20)).isEqualTo(copyOfRange(content, 990, 20));
+
+      inputStream.prepareExtractionForFileHeader(createFileHeader(1, 10));
+      assertThat(inputStream.read(b, 0, 50)).isEqualTo(50);
+      inputStream.prepareExtractionForFileHeader(createFileHeader(1, 30));
+      assertThat(inputStream.read(b, 0, 50)).isEqualTo(50);
+      assertThat(copyOfRange(b, 0, 50)).isEqualTo(copyOfRange(content, VOLUME_SIZES[0] + 30, 50));
+
+      inputStream.prepareExtractionForFileHeader(createFileHeader(1, 600));
+      assertThat(inputStream.read(b, 0, 50)).isEqualTo(50);
+      assertThat(copyOfRange(b, 0, 50)).isEqualTo(copyOfRange(content, VOLUME_SIZES[0] + 600, 50));
+    }
+  }
+
+  @Test
+  public void testSkipAcrossWindowsAndVolumes() throws IOException {
+    try (MappedSplitInputStream inputStream = openSplitArchive(WINDOW_SIZE)) {
+      inputStream.prepareExtractionForFileHeader(createFileHeader(0, 0));
+
+      assertThat(inputStream.skip(300)).isEqualTo(300L);
+      assertThat(readByte(inputStream)).isEqualTo(content[300] & 0xff);
+
+      // to the end of the first volume, then into the last one
+      assertThat(inputStream.skip(VOLUME_SIZES[0] - 301)).isEqualTo((long) VOLUME_SIZES[0] - 301);
+      assertThat(inputStream.skip(VOLUME_SIZES[1] + 10)).isEqualTo((long) VOLUME_SIZES[1] + 10);
+      assertThat(readByte(inputStream)).isEqualTo(content[VOLUME_SIZES[0] + VOLUME_SIZES[1] + 10] & 0xff);
+
+      assertThat(inputStream.skip(10000)).isEqualTo((long) VOLUME_SIZES[2] - 11);
+      assertThat(inputStream.skip(1)).isEqualTo(0L);
+      assertThat(readByte(inputStream)).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  public void testAvailableIsTheRestOfTheCurrentVolume() throws IOException {
+    try (MappedSplitInputStream inputStream = openSplitArchive(WINDOW_SIZE)) {
+      inputStream.prepareExtractionForFileHeader(createFileHeader(0, 0));
+      assertThat(inputStream.available()).isEqualTo(VOLUME_SIZES[0]);
+
+      byte[] b = new byte[VOLUME_SIZES[0] - 10];
+      assertThat(inputStream.read(b, 0, b.length)).isEqualTo(b.length);
+      assertThat(inputStream.available()).isEqualTo(10);
+
+      // at the end of a volume until a read moves on to the next one
+      assertThat(inputStream.skip(10)).isEqualTo(10L);
+      assertThat(inputStream.available()).isEqualTo(0);
+      assertThat(readByte(inputStream)).isEqualTo(content[VOLUME_SIZES[0]] & 0xff);
+      assertThat(inputStream.available()).isEqualTo(VOLUME_SIZES[1] - 1);
+
+      inputStream.prepareExtractionForFileHeader(createFileHeader(2, VOLUME_SIZES[2]));
+      assertThat(inputStream.available()).isEqualTo(0);
+      assertThat(readByte(inputStream)).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  public void testCloseReleasesMappingsSoVolumesCanBeDeleted() throws IOException {
+    File procSelfMaps = new File("/proc/self/maps");
+
+    MappedSplitInputStream inputStream = openSplitArchive(WINDOW_SIZE);
+    inputStream.prepareExtractionForFileHeader(createFileHeader(0, 0));
+    byte[] b = new byte[VOLUME_SIZES[0] + 10];
+    assertThat(inputStream.read(b, 0, b.length)).isEqualTo(b.length);
+
+    if (procSelfMaps.exists()) {
+      assertThat(readMappings(procSelfMaps)).contains(volumes.get(1).getCanonicalPath());
+    }
+
+    inputStream.close();
+
+    if (procSelfMaps.exists()) {
+      String mappings = readMappings(procSelfMaps);
+      for (File volume : volumes) {
+        assertThat(mappings.contains(volume.getCanonicalPath())).as(volume.getName()).isFalse();
+      }
+    }
+
+    for (File volume : volumes) {
+      Files.delete(volume.toPath());
+      assertThat(volume).doesNotExist();
+    }
+  }
+
+  @Test
+  public void testMovingToAnotherVolumeReleasesTheMappingOfTheLastOne() throws IOException {
+    File procSelfMaps = new File("/proc/self/maps");
+    Assume.assumeTrue(procSelfMaps.exists());
+
+    try (MappedSplitInputStream inputStream = openSplitArchive(WINDOW_SIZE)) {
+      inputStream.prepareExtractionForFileHeader(createFileHeader(0, 0));
+      assertThat(inputStream.read(new byte[10], 0, 10)).isEqualTo(10);
+      assertThat(readMappings(procSelfMaps)).contains(volumes.get(0).getCanonicalPath());
+
+      inputStream.prepareExtractionForFileHeader(createFileHeader(2, 0));
+      assertThat(inputStream.read(new byte[10], 0, 10)).isEqualTo(10);
+      String mappings = readMappings(procSelfMaps);
+      assertThat(mappings.contains(volumes.get(0).getCanonicalPath())).isFalse();
+      assertThat(mappings).contains(volumes.get(2).getCanonicalPath());
+    }
+  }
+
+  private MappedSplitInputStream openSplitArchive(long windowSize) throws IOException {
+    return new MappedSplitInputStream(volumes.get(volumes.size() - 1), true, volumes.size() - 1, windowSize);
+  }
+
+  private FileHeader createFileHeader(int diskNumberStart, long offsetLocalHeader) {
+    FileHeader fileHeader = new FileHeader();
+    fileHeader.setDiskNumberStart(diskNumberStart);
+    fileHeader.setOffsetLocalHeader(offsetLocalHeader);
+    return fileHeader;
+  }
+
+  private byte[] readAll(MappedSplitInputStream inputStream, int bufferSize) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] b = new byte[bufferSize];
+    int readLen;
+    while ((readLen = inputStream.read(b, 0, b.length)) != -1) {
+      outputStream.write(b, 0, readLen);
+    }
+    return outputStream.toByteArray();
+  }
+
+  private int readByte(MappedSplitInputStream inputStream) throws IOException {
+    byte[] b = new byte[1];
+    return inputStream.read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+  }
+
+  private byte[] copyOfRange(byte[] bytes, int from, int length) {
+    byte[] copy = new byte[length];
+    System.arraycopy(bytes, from, copy, 0, length);
+    return copy;
+  }
+
+  private String readMappings(File procSelfMaps) throws IOException {
+    return new String(Files.readAllBytes(Paths.get(procSelfMaps.getPath())), StandardCharsets.UTF_8);
+  }
+}
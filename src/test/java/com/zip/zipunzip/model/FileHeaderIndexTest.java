@@ -0,0 +1,385 @@
+package com.zip.zipunzip.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileHeaderIndexTest {
+
+  // few segments which differ in case only, so that names collide often
+  private static final String[] SEGMENTS = {"a", "A", "b", "bc", "B.txt", "b.txt", "c-d", "c"};
+  private static final String[] SEPARATORS = {"/", "\\"};
+
+  private final Random random = new Random(1);
+
+  @Test
+  public void testLookupsAfterChangesWithIndexAndTrieBuiltFirst() {
+    for (int round = 0; round < 20; round++) {
+      CentralDirectory centralDirectory = createCentralDirectory(30);
+      // builds the index and the trie before the changes, which then update both
+      centralDirectory.getFileHeaderIndex().getFileHeadersInDirectory("");
+
+      applyRandomChangesAndVerify(centralDirectory, true);
+    }
+  }
+
+  @Test
+  public void testLookupsAfterChangesWithOnlyIndexBuiltFirst() {
+    for (int round = 0; round < 20; round++) {
+      CentralDirectory centralDirectory = createCentralDirectory(30);
+      centralDirectory.getFileHeaderIndex().getByExactName("a");
+
+      applyRandomChangesAndVerify(centralDirectory, false);
+      verifyIndex(centralDirectory);
+    }
+  }
+
+  @Test
+  public void testLookupsWithIndexBuiltAfterChanges() {
+    for (int round = 0; round < 20; round++) {
+      CentralDirectory centralDirectory = createCentralDirectory(30);
+      List<FileHeader> fileHeaders = centralDirectory.getFileHeaders();
+      fileHeaders.remove(3);
+      fileHeaders.add(0, createFileHeader("A/b.txt"));
+      fileHeaders.set(5, createFileHeader("a\\B.txt"));
+      fileHeaders.removeIf(fileHeader -> fileHeader.getFileName().startsWith("c"));
+
+      verifyIndex(centralDirectory);
+    }
+  }
+
+  @Test
+  public void testFirstOfNamesDifferingInCaseWins() {
+    FileHeader upperCase = createFileHeader("Dir/File.txt");
+    FileHeader lowerCase = createFileHeader("dir/file.txt");
+    CentralDirectory centralDirectory = new CentralDirectory();
+    centralDirectory.setFileHeaders(Arrays.asList(upperCase, lowerCase));
+    FileHeaderIndex fileHeaderIndex = centralDirectory.getFileHeaderIndex();
+
+    assertThat(fileHeaderIndex.getByExactName("dir/file.txt")).isEqualTo(lowerCase);
+    assertThat(fileHeaderIndex.getByNameIgnoreCase("dir/file.txt")).isEqualTo(upperCase);
+    assertThat(fileHeaderIndex.getByNormalizedName("DIR\\FILE.TXT")).isEqualTo(upperCase);
+
+    // a file header inserted in front takes over the names it shares
+    FileHeader inserted = createFileHeader("DIR/FILE.TXT");
+    centralDirectory.getFileHeaders().add(0, inserted);
+    assertThat(fileHeaderIndex.getByNameIgnoreCase("dir/file.txt")).isEqualTo(inserted);
+    assertThat(fileHeaderIndex.getByExactName("Dir/File.txt")).isEqualTo(upperCase);
+  }
+
+  @Test
+  public void testFirstOfNamesDifferingInSeparatorsWins() {
+    FileHeader backslashes = createFileHeader("dir\\file.txt");
+    FileHeader slashes = createFileHeader("dir/file.txt");
+    CentralDirectory centralDirectory = new CentralDirectory();
+    centralDirectory.setFileHeaders(Arrays.asList(backslashes, slashes));
+    FileHeaderIndex fileHeaderIndex = centralDirectory.getFileHeaderIndex();
+
+    assertThat(fileHeaderIndex.getByExactName("dir/file.txt")).isEqualTo(slashes);
+    assertThat(fileHeaderIndex.getByNameIgnoreCase("dir/file.txt")).isEqualTo(slashes);
+    assertThat(fileHeaderIndex.getByNormalizedName("dir/file.txt")).isEqualTo(backslashes);
+    assertThat(fileHeaderIndex.getFileHeadersInDirectory("dir")).containsExactly(backslashes);
+    assertThat(fileHeaderIndex.getFileHeadersWithPrefix("dir/f")).containsExactly(backslashes);
+  }
+
+  @Test
+  public void testRemovalOfFirstCollidingFileHeaderFallsBackToTheNextOne() {
+    FileHeader first = createFileHeader("dir\\File.txt");
+    FileHeader second = createFileHeader("DIR/file.txt");
+    FileHeader third = createFileHeader("dir/FILE.TXT");
+    CentralDirectory centralDirectory = new CentralDirectory();
+    centralDirectory.setFileHeaders(Arrays.asList(createFileHeader("other.txt"), first, second, third));
+    FileHeaderIndex fileHeaderIndex = centralDirectory.getFileHeaderIndex();
+    assertThat(fileHeaderIndex.getFileHeadersWithPrefix("")).hasSize(4);
+
+    centralDirectory.getFileHeaders().remove(first);
+    assertThat(fileHeaderIndex.getByNormalizedName("dir/file.txt")).isEqualTo(second);
+    assertThat(fileHeaderIndex.getFileHeadersInDirectory("DIR")).containsExactly(second);
+
+    centralDirectory.getFileHeaders().remove(1);
+    assertThat(fileHeaderIndex.getByNormalizedName("dir/file.txt")).isEqualTo(third);
+    assertThat(fileHeaderIndex.getByNameIgnoreCase("dir/file.txt")).isEqualTo(third);
+    assertThat(fileHeaderIndex.getFileHeadersInDirectory("dir")).containsExactly(third);
+
+    centralDirectory.getFileHeaders().remove(third);
+    assertThat(fileHeaderIndex.getByNormalizedName("dir/file.txt")).isNull();
+    assertThat(fileHeaderIndex.hasPath("dir")).isFalse();
+    assertThat(fileHeaderIndex.getNamesInDirectory("")).containsExactly("other.txt");
+  }
+
+  @Test
+  public void testListingsOfDirectoriesWithoutEntries() {
+    CentralDirectory centralDirectory = new CentralDirectory();
+    centralDirectory.setFileHeaders(Arrays.asList(createFileHeader("a/b/c.txt"), createFileHeader("a/d/"),
+        createFileHeader("a/b.txt"), createFileHeader("e.txt")));
+    FileHeaderIndex fileHeaderIndex = centralDirectory.getFileHeaderIndex();
+
+    assertThat(fileHeaderIndex.getNamesInDirectory("")).containsExactly("a", "e.txt");
+    assertThat(fileHeaderIndex.getNamesInDirectory("a/")).containsExactly("b", "b.txt", "d");
+    assertThat(fileHeaderIndex.getFileHeadersInDirectory("a")).hasSize(2);
+    assertThat(fileHeaderIndex.getFileHeadersInDirectory("a/b")).hasSize(1);
+    assertThat(fileHeaderIndex.hasPath("a\\b")).isTrue();
+    assertThat(fileHeaderIndex.hasPath("a/c")).isFalse();
+    assertThat(fileHeaderIndex.getFileHeadersWithPrefix("a/b")).hasSize(2);
+    assertThat(fileHeaderIndex.getFileHeadersInDirectory("missing")).hasSize(0);
+  }
+
+  @Test
+  public void testIndexOfFollowsChanges() {
+    CentralDirectory centralDirectory = createCentralDirectory(10);
+    List<FileHeader> fileHeaders = centralDirectory.getFileHeaders();
+    FileHeaderIndex fileHeaderIndex = centralDirectory.getFileHeaderIndex();
+    FileHeader notInCentralDirectory = createFileHeader(fileHeaders.get(0).getFileName());
+
+    assertThat(fileHeaderIndex.indexOf(fileHeaders.get(4))).isEqualTo(4);
+    assertThat(fileHeaderIndex.indexOf(notInCentralDirectory)).isEqualTo(-1);
+    assertThat(fileHeaders.contains(notInCentralDirectory)).isFalse();
+
+    FileHeader appended = createFileHeader("appended.txt");
+    fileHeaders.add(appended);
+    assertThat(fileHeaderIndex.indexOf(appended)).isEqualTo(10);
+
+    FileHeader removed = fileHeaders.remove(2);
+    assertThat(fileHeaderIndex.indexOf(removed)).isEqualTo(-1);
+    assertThat(fileHeaderIndex.indexOf(appended)).isEqualTo(9);
+    assertThat(fileHeaders.indexOf(appended)).isEqualTo(9);
+
+    fileHeaders.add(0, removed);
+    assertThat(fileHeaderIndex.indexOf(removed)).isEqualTo(0);
+    assertThat(fileHeaderIndex.indexOf(appended)).isEqualTo(10);
+  }
+
+  private void applyRandomChangesAndVerify(CentralDirectory centralDirectory, boolean verifyAfterEachChange) {
+    List<FileHeader> fileHeaders = centralDirectory.getFileHeaders();
+
+    for (int change = 0; change < 40; change++) {
+      switch (random.nextInt(9)) {
+        case 0:
+          fileHeaders.add(createFileHeader(randomName()));
+          break;
+        case 1:
+          fileHeaders.add(random.nextInt(fileHeaders.size() + 1), createFileHeader(randomName()));
+          break;
+        case 2:
+          if (!fileHeaders.isEmpty()) {
+            fileHeaders.set(random.nextInt(fileHeaders.size()), createFileHeader(randomName()));
+          }
+          break;
+        case 3:
+          if (!fileHeaders.isEmpty()) {
+            fileHeaders.remove(random.nextInt(fileHeaders.size()));
+          }
+          break;
+        case 4:
+          if (!fileHeaders.isEmpty()) {
+            fileHeaders.remove(fileHeaders.get(random.nextInt(fileHeaders.size())));
+          }
+          break;
+        case 5:
+          String segment = SEGMENTS[random.nextInt(SEGMENTS.length)];
+          fileHeaders.removeIf(fileHeader -> fileHeader.getFileName().startsWith(segment));
+          break;
+        case 6:
+          List<FileHeader> fileHeadersToAdd = new ArrayList<>();
+          for (int i = 0; i < 5; i++) {
+            fileHeadersToAdd.add(createFileHeader(randomName()));
+          }
+          fileHeaders.addAll(fileHeadersToAdd);
+          break;
+        case 7:
+          if (random.nextInt(4) == 0) {
+            fileHeaders.clear();
+          }
+          break;
+        default:
+          // the same file header object, with the same name, twice
+          if (!fileHeaders.isEmpty()) {
+            fileHeaders.add(fileHeaders.get(random.nextInt(fileHeaders.size())));
+          }
+      }
+
+      if (verifyAfterEachChange) {
+        verifyIndex(centralDirectory);
+      }
+    }
+  }
+
+  /**
+   * Compares every lookup of the index with a scan of the file headers
+   */
+  private void verifyIndex(CentralDirectory centralDirectory) {
+    List<FileHeader> fileHeaders = centralDirectory.getFileHeaders();
+    FileHeaderIndex fileHeaderIndex = centralDirectory.getFileHeaderIndex();
+    List<String> names = new ArrayList<>();
+    for (FileHeader fileHeader : fileHeaders) {
+      names.add(fileHeader.getFileName());
+    }
+    names.add("missing");
+
+    for (String name : names) {
+      FileHeader firstExact = null;
+      FileHeader firstIgnoringCase = null;
+      FileHeader firstNormalized = null;
+      for (FileHeader fileHeader : fileHeaders) {
+        String fileName = fileHeader.getFileName();
+        if (firstExact == null && fileName.equals(name)) {
+          firstExact = fileHeader;
+        }
+        if (firstIgnoringCase == null && fileName.equalsIgnoreCase(name)) {
+          firstIgnoringCase = fileHeader;
+        }
+        if (firstNormalized == null && fileName.replace('\\', '/').equalsIgnoreCase(name.replace('\\', '/'))) {
+          firstNormalized = fileHeader;
+        }
+      }
+
+      assertThat(fileHeaderIndex.getByExactName(name)).as(name).isEqualTo(firstExact);
+      assertThat(fileHeaderIndex.getByNameIgnoreCase(name)).as(name).isEqualTo(firstIgnoringCase);
+      assertThat(fileHeaderIndex.getByNormalizedName(name)).as(name).isEqualTo(firstNormalized);
+    }
+
+    for (int i = 0; i < fileHeaders.size(); i++) {
+      assertThat(fileHeaderIndex.indexOf(fileHeaders.get(i))).isEqualTo(fileHeaders.indexOf(fileHeaders.get(i)));
+      assertThat(fileHeaders.indexOf(fileHeaders.get(i))).isEqualTo(indexOfByScan(fileHeaders, fileHeaders.get(i)));
+    }
+
+    List<String> directories = new ArrayList<>(Arrays.asList("", "a", "A/", "b\\", "a/b", "A\\bc", "missing"));
+    for (String directory : directories) {
+      assertThat(fileHeaderIndex.getFileHeadersInDirectory(directory)).as(directory)
+          .isEqualTo(getFileHeadersInDirectoryByScan(fileHeaders, directory));
+      assertThat(fileHeaderIndex.getNamesInDirectory(directory)).as(directory)
+          .isEqualTo(getNamesInDirectoryByScan(fileHeaders, directory));
+      assertThat(fileHeaderIndex.hasPath(directory)).as(directory).isEqualTo(hasPathByScan(fileHeaders, directory));
+    }
+
+    for (String prefix : Arrays.asList("", "a", "a/", "A\\b", "b.", "c", "c-", "a/b/c")) {
+      assertThat(fileHeaderIndex.getFileHeadersWithPrefix(prefix)).as(prefix)
+          .isEqualTo(getFileHeadersWithPrefixByScan(fileHeaders, prefix));
+    }
+  }
+
+  private int indexOfByScan(List<FileHeader> fileHeaders, FileHeader fileHeader) {
+    for (int i = 0; i < fileHeaders.size(); i++) {
+      if (fileHeaders.get(i) == fileHeader) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private List<FileHeader> getFileHeadersInDirectoryByScan(List<FileHeader> fileHeaders, String directory) {
+    List<String> directorySegments = splitPath(directory);
+    List<FileHeader> fileHeadersInDirectory = new ArrayList<>();
+    List<List<String>> paths = new ArrayList<>();
+    for (FileHeader fileHeader : fileHeaders) {
+      List<String> segments = splitPath(fileHeader.getFileName());
+      if (segments.size() == directorySegments.size() + 1 && isUnder(segments, directorySegments)
+          && !paths.contains(segments)) {
+        paths.add(segments);
+        fileHeadersInDirectory.add(fileHeader);
+      }
+    }
+    fileHeadersInDirectory.sort(Comparator.comparing(fileHeader -> splitPath(fileHeader.getFileName()),
+        FileHeaderIndexTest::comparePaths));
+    return fileHeadersInDirectory;
+  }
+
+  private List<String> getNamesInDirectoryByScan(List<FileHeader> fileHeaders, String directory) {
+    List<String> directorySegments = splitPath(directory);
+    TreeSet<String> names = new TreeSet<>();
+    for (FileHeader fileHeader : fileHeaders) {
+      List<String> segments = splitPath(fileHeader.getFileName());
+      if (segments.size() > directorySegments.size() && isUnder(segments, directorySegments)) {
+        names.add(segments.get(directorySegments.size()));
+      }
+    }
+    return new ArrayList<>(names);
+  }
+
+  private boolean hasPathByScan(List<FileHeader> fileHeaders, String path) {
+    List<String> pathSegments = splitPath(path);
+    if (pathSegments.isEmpty()) {
+      return true;
+    }
+    for (FileHeader fileHeader : fileHeaders) {
+      if (isUnder(splitPath(fileHeader.getFileName()), pathSegments)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<FileHeader> getFileHeadersWithPrefixByScan(List<FileHeader> fileHeaders, String prefix) {
+    String normalizedPrefix = prefix.replace('\\', '/');
+    List<FileHeader> fileHeadersWithPrefix = new ArrayList<>();
+    List<List<String>> paths = new ArrayList<>();
+    for (FileHeader fileHeader : fileHeaders) {
+      List<String> segments = splitPath(fileHeader.getFileName());
+      // names made by this test have no leading, trailing or doubled separators
+      if (String.join("/", segments).startsWith(normalizedPrefix) && !paths.contains(segments)) {
+        paths.add(segments);
+        fileHeadersWithPrefix.add(fileHeader);
+      }
+    }
+    fileHeadersWithPrefix.sort(Comparator.comparing(fileHeader -> splitPath(fileHeader.getFileName()),
+        FileHeaderIndexTest::comparePaths));
+    return fileHeadersWithPrefix;
+  }
+
+  private static int comparePaths(List<String> path, List<String> otherPath) {
+    for (int i = 0; i < Math.min(path.size(), otherPath.size()); i++) {
+      int comparison = path.get(i).compareTo(otherPath.get(i));
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return Integer.compare(path.size(), otherPath.size());
+  }
+
+  private boolean isUnder(List<String> segments, List<String> directorySegments) {
+    return segments.size() >= directorySegments.size()
+        && segments.subList(0, directorySegments.size()).equals(directorySegments);
+  }
+
+  private List<String> splitPath(String path) {
+    List<String> segments = new ArrayList<>();
+    for (String segment : path.split("[/\\\\]")) {
+      if (!segment.isEmpty()) {
+        segments.add(segment);
+      }
+    }
+    return segments;
+  }
+
+  private CentralDirectory createCentralDirectory(int numberOfFileHeaders) {
+    List<FileHeader> fileHeaders = new ArrayList<>();
+    for (int i = 0; i < numberOfFileHeaders; i++) {
+      fileHeaders.add(createFileHeader(randomName()));
+    }
+    CentralDirectory centralDirectory = new CentralDirectory();
+    centralDirectory.setFileHeaders(fileHeaders);
+    return centralDirectory;
+  }
+
+  private String randomName() {
+    int depth = 1 + random.nextInt(3);
+    StringBuilder name = new StringBuilder(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+    for (int i = 1; i < depth; i++) {
+      name.append(SEPARATORS[random.nextInt(SEPARATORS.length)]).append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+    }
+    return name.toString();
+  }
+
+  private FileHeader createFileHeader(String fileName) {
+    FileHeader fileHeader = new FileHeader();
+    fileHeader.setFileName(fileName);
+    return fileHeader;
+  }
+}
@@ -0,0 +1,363 @@
+package com.zip.zipunzip.nio;
+
+import com.zip.zipunzip.AbstractIT;
+import com.zip.zipunzip.ZipFile;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.model.enums.AesKeyStrength;
+import com.zip.zipunzip.model.enums.EncryptionMethod;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZipFileSystemIT extends AbstractIT {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void testWalkListsAllEntries() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      assertThat(walk(fileSystem.getPath("/"))).containsExactly("/", "/source", "/source/big.bin",
+          "/source/first.txt", "/source/sub", "/source/sub/deeper", "/source/sub/deeper/last.txt",
+          "/source/sub/inner.bin");
+      verifyFileSystemContentsSameAsSource(fileSystem, sourceFolder);
+    }
+  }
+
+  @Test
+  public void testDirectoriesWithoutEntriesAreListed() throws IOException {
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(generatedZipFile))) {
+      zipOutputStream.putNextEntry(new ZipEntry("a/b/c.txt"));
+      zipOutputStream.write("content of c".getBytes());
+      zipOutputStream.putNextEntry(new ZipEntry("a/d.txt"));
+      zipOutputStream.write("content of d".getBytes());
+    }
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      assertThat(walk(fileSystem.getPath("/"))).containsExactly("/", "/a", "/a/b", "/a/b/c.txt", "/a/d.txt");
+      assertThat(Files.isDirectory(fileSystem.getPath("/a/b"))).isTrue();
+      assertThat(Files.isRegularFile(fileSystem.getPath("/a/d.txt"))).isTrue();
+      assertThat(new String(Files.readAllBytes(fileSystem.getPath("a", "b", "c.txt")))).isEqualTo("content of c");
+      assertThat(Files.exists(fileSystem.getPath("/a/d.txt/e"))).isFalse();
+      assertThat(Files.exists(fileSystem.getPath("/a/b/x"))).isFalse();
+    }
+  }
+
+  @Test
+  public void testEntriesWithBackslashesInNamesAreRead() throws IOException {
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(generatedZipFile))) {
+      zipOutputStream.putNextEntry(new ZipEntry("dir\\file.txt"));
+      zipOutputStream.write("content of file".getBytes());
+      zipOutputStream.putNextEntry(new ZipEntry("dir\\sub\\"));
+      zipOutputStream.putNextEntry(new ZipEntry("dir\\sub\\inner.txt"));
+      zipOutputStream.write("content of inner".getBytes());
+    }
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      assertThat(walk(fileSystem.getPath("/"))).containsExactly("/", "/dir", "/dir/file.txt", "/dir/sub",
+          "/dir/sub/inner.txt");
+      assertThat(new String(Files.readAllBytes(fileSystem.getPath("/dir/file.txt")))).isEqualTo("content of file");
+      assertThat(new String(Files.readAllBytes(fileSystem.getPath("dir", "sub", "inner.txt"))))
+          .isEqualTo("content of inner");
+      assertThat(Files.isRegularFile(fileSystem.getPath("/dir/file.txt"))).isTrue();
+      assertThat(Files.size(fileSystem.getPath("/dir/sub/inner.txt"))).isEqualTo(16L);
+      assertThat(Files.isDirectory(fileSystem.getPath("/dir/sub"))).isTrue();
+      // names differing in case are still different entries
+      assertThat(Files.exists(fileSystem.getPath("/DIR/FILE.TXT"))).isFalse();
+    }
+  }
+
+  @Test
+  public void testNewFileSystemOfEmptyZipFile() throws IOException {
+    new ZipOutputStream(new FileOutputStream(generatedZipFile)).close();
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      assertThat(walk(fileSystem.getPath("/"))).containsExactly("/");
+    }
+  }
+
+  @Test
+  public void testNewFileSystemOfFileWhichIsNotAZipFileThrowsException() throws IOException {
+    File textFile = createTestFile(temporaryFolder.getRoot(), "not-a-zip.txt", 100000);
+
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("not a zip file");
+    new ZipFileSystemProvider().newFileSystem(textFile.toPath(), null);
+  }
+
+  @Test
+  public void testNewFileSystemOfShortFileThrowsException() throws IOException {
+    Files.write(generatedZipFile.toPath(), "PK".getBytes());
+
+    expectedException.expect(UnsupportedOperationException.class);
+    newFileSystem(null);
+  }
+
+  @Test
+  public void testReadEncryptedEntriesWithPasswordInEnvironment() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile, PASSWORD).createSplitZipFileFromFolder(sourceFolder,
+        createZipParameters(EncryptionMethod.AES, AesKeyStrength.KEY_STRENGTH_256), false, 0);
+
+    Map<String, Object> env = new HashMap<>();
+    env.put(ZipFileSystem.PASSWORD, new String(PASSWORD));
+    try (FileSystem fileSystem = newFileSystem(env)) {
+      verifyFileSystemContentsSameAsSource(fileSystem, sourceFolder);
+    }
+  }
+
+  @Test
+  public void testReadSplitZipFile() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), true, 65536);
+
+    assertThat(new File(temporaryFolder.getRoot(), "output.z01")).exists();
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      verifyFileSystemContentsSameAsSource(fileSystem, sourceFolder);
+    }
+  }
+
+  @Test
+  public void testByteChannelReadsAtAnyPosition() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+    byte[] expectedContent = Files.readAllBytes(new File(sourceFolder, "big.bin").toPath());
+
+    try (FileSystem fileSystem = newFileSystem(null);
+         SeekableByteChannel channel = Files.newByteChannel(fileSystem.getPath("/source/big.bin"))) {
+      assertThat(channel.size()).isEqualTo((long) expectedContent.length);
+
+      Random random = new Random(1);
+      for (int i = 0; i < 30; i++) {
+        int position = random.nextInt(expectedContent.length);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + random.nextInt(20_000));
+        channel.position(position);
+        int readLen = channel.read(buffer);
+
+        assertThat(readLen).isGreaterThan(0);
+        assertThat(Arrays.copyOf(buffer.array(), readLen))
+            .isEqualTo(Arrays.copyOfRange(expectedContent, position, position + readLen));
+      }
+    }
+  }
+
+  @Test
+  public void testDirectoryStreamAndPathMatcherWithGlob() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      List<String> fileNames = new ArrayList<>();
+      try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(fileSystem.getPath("/source"), "*.bin")) {
+        for (Path path : directoryStream) {
+          fileNames.add(path.getFileName().toString());
+        }
+      }
+      assertThat(fileNames).containsExactly("big.bin");
+
+      PathMatcher pathMatcher = fileSystem.getPathMatcher("glob:/source/**.{bin,txt}");
+      assertThat(pathMatcher.matches(fileSystem.getPath("/source/sub/deeper/last.txt"))).isTrue();
+      assertThat(pathMatcher.matches(fileSystem.getPath("/source/sub"))).isFalse();
+    }
+  }
+
+  @Test
+  public void testPathOperations() throws IOException {
+    new ZipFile(generatedZipFile).addFiles(Collections.singletonList(new File(createSourceFolder(), "first.txt")));
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      assertThat(fileSystem.getPath("/a/b/../c/./d").normalize().toString()).isEqualTo("/a/c/d");
+      assertThat(fileSystem.getPath("/a/b").relativize(fileSystem.getPath("/a/c/d")).toString()).isEqualTo("../c/d");
+      assertThat(fileSystem.getPath("a/b/c").getParent().toString()).isEqualTo("a/b");
+      assertThat(fileSystem.getPath("/a").getParent().toString()).isEqualTo("/");
+      assertThat(fileSystem.getPath("a").getParent()).isNull();
+      assertThat(fileSystem.getPath("/a/b/c").subpath(1, 3).toString()).isEqualTo("b/c");
+      assertThat(fileSystem.getPath("/a/b/c").getNameCount()).isEqualTo(3);
+      assertThat(fileSystem.getPath("/a/b").startsWith("/a")).isTrue();
+      assertThat(fileSystem.getPath("/a/b").startsWith("a")).isFalse();
+      assertThat(fileSystem.getPath("/a/b").endsWith("b")).isTrue();
+    }
+  }
+
+  @Test
+  public void testFileSystemFromUriIsKeptByProviderUntilClosed() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+    URI uri = getUri();
+
+    FileSystem fileSystem = FileSystems.newFileSystem(uri, Collections.emptyMap());
+    try {
+      assertThat(fileSystem).isInstanceOf(ZipFileSystem.class);
+      assertThat(FileSystems.getFileSystem(uri) == fileSystem).isTrue();
+
+      Path path = fileSystem.getPath("/source/first.txt");
+      assertThat(Paths.get(path.toUri())).isEqualTo(path);
+    } finally {
+      fileSystem.close();
+    }
+
+    expectedException.expect(FileSystemNotFoundException.class);
+    FileSystems.getFileSystem(uri);
+  }
+
+  @Test
+  public void testSecondFileSystemFromSameUriThrowsException() throws IOException {
+    new ZipFile(generatedZipFile).addFiles(Collections.singletonList(new File(createSourceFolder(), "first.txt")));
+
+    try (FileSystem fileSystem = FileSystems.newFileSystem(getUri(), Collections.emptyMap())) {
+      expectedException.expect(FileSystemAlreadyExistsException.class);
+      FileSystems.newFileSystem(getUri(), Collections.emptyMap());
+    }
+  }
+
+  @Test
+  public void testReadOfMissingEntryThrowsException() throws IOException {
+    new ZipFile(generatedZipFile).addFiles(Collections.singletonList(new File(createSourceFolder(), "first.txt")));
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      expectedException.expect(NoSuchFileException.class);
+      Files.newInputStream(fileSystem.getPath("/missing.txt"));
+    }
+  }
+
+  @Test
+  public void testWriteThrowsException() throws IOException {
+    new ZipFile(generatedZipFile).addFiles(Collections.singletonList(new File(createSourceFolder(), "first.txt")));
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      assertThat(fileSystem.isReadOnly()).isTrue();
+      expectedException.expect(ReadOnlyFileSystemException.class);
+      Files.write(fileSystem.getPath("/new.txt"), new byte[1]);
+    }
+  }
+
+  @Test
+  public void testDeleteThrowsException() throws IOException {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      expectedException.expect(ReadOnlyFileSystemException.class);
+      Files.delete(fileSystem.getPath("/source/first.txt"));
+    }
+  }
+
+  @Test
+  public void testReadsFromManyThreadsAtOnce() throws Exception {
+    File sourceFolder = createSourceFolder();
+    new ZipFile(generatedZipFile).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+    byte[] expectedContent = Files.readAllBytes(new File(sourceFolder, "big.bin").toPath());
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try (FileSystem fileSystem = newFileSystem(null)) {
+      List<Future<byte[]>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executorService.submit(() -> Files.readAllBytes(fileSystem.getPath("/source/big.bin"))));
+      }
+
+      for (Future<byte[]> future : futures) {
+        assertThat(future.get()).isEqualTo(expectedContent);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void verifyFileSystemContentsSameAsSource(FileSystem fileSystem, File sourceFolder) throws IOException {
+    Path sourcePath = sourceFolder.toPath();
+    List<Path> sourceFiles;
+    try (Stream<Path> paths = Files.walk(sourcePath)) {
+      sourceFiles = paths.collect(Collectors.toList());
+    }
+
+    for (Path sourceFile : sourceFiles) {
+      Path path = fileSystem.getPath("/" + sourceFolder.getName(), sourcePath.relativize(sourceFile).toString());
+      assertThat(Files.isDirectory(path)).as("%s is a directory", path).isEqualTo(Files.isDirectory(sourceFile));
+      if (Files.isDirectory(sourceFile)) {
+        continue;
+      }
+
+      byte[] expectedContent = Files.readAllBytes(sourceFile);
+      assertThat(Files.size(path)).isEqualTo((long) expectedContent.length);
+      assertThat(Files.readAllBytes(path)).as("content of %s", path).isEqualTo(expectedContent);
+      try (InputStream inputStream = Files.newInputStream(path)) {
+        assertThat(readFully(inputStream)).as("content of %s", path).isEqualTo(expectedContent);
+      }
+    }
+  }
+
+  private List<String> walk(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      return paths.map(Path::toString).sorted().collect(Collectors.toList());
+    }
+  }
+
+  private byte[] readFully(InputStream inputStream) throws IOException {
+    byte[] buffer = new byte[8192];
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    int readLen;
+    while ((readLen = inputStream.read(buffer)) != -1) {
+      outputStream.write(buffer, 0, readLen);
+    }
+    return outputStream.toByteArray();
+  }
+
+  private FileSystem newFileSystem(Map<String, ?> env) throws IOException {
+    return new ZipFileSystemProvider().newFileSystem(generatedZipFile.toPath(), env);
+  }
+
+  private URI getUri() {
+    return URI.create(ZipFileSystemProvider.SCHEME + ":" + generatedZipFile.toURI());
+  }
+
+  private File createSourceFolder() throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    File deeperFolder = new File(sourceFolder, "sub/deeper");
+    assertThat(deeperFolder.mkdirs()).isTrue();
+    createTestFile(sourceFolder, "first.txt", 1000);
+    createTestFile(sourceFolder, "big.bin", 300_000);
+    createTestFile(new File(sourceFolder, "sub"), "inner.bin", 50_000);
+    createTestFile(deeperFolder, "last.txt", 0);
+    return sourceFolder;
+  }
+}
@@ -0,0 +1,144 @@
+package com.zip.zipunzip.tasks;
+
+import com.zip.zipunzip.ZipFile;
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.headers.HeaderReader;
+import com.zip.zipunzip.model.FileHeader;
+import com.zip.zipunzip.model.ZipModel;
+import com.zip.zipunzip.progress.ProgressMonitor;
+import com.zip.zipunzip.tasks.RemoveEntryFromZipFileTask.RemoveEntryFromZipFileTaskParameters;
+import com.zip.zipunzip.testutils.ZipFileVerifier;
+import com.zip.zipunzip.util.InternalZipConstants;
+import com.zip.zipunzip.util.ZipFileCompactor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RemoveEntryFromZipFileTaskTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File zipFile;
+  private List<File> filesAdded;
+
+  @Before
+  public void before() throws IOException {
+    File sourceFolder = temporaryFolder.newFolder("source");
+    filesAdded = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      filesAdded.add(createTestFile(sourceFolder, "file" + i + ".bin", 30_000 * (i + 1)));
+    }
+
+    zipFile = new File(temporaryFolder.getRoot(), "remove.zip");
+    new ZipFile(zipFile).addFiles(filesAdded);
+  }
+
+  @Test
+  public void testRemoveEntriesInPlace() throws IOException {
+    ZipModel zipModel = readZipModel();
+
+    removeEntries(zipModel, new ProgressMonitor(), "file0.bin", "file3.bin");
+
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).doesNotExist();
+    verifyRemainingEntries("file1.bin", "file2.bin", "file4.bin", "file5.bin");
+  }
+
+  @Test
+  public void testRemoveEntriesInPlaceIsCompletedAfterCrash() throws IOException {
+    ZipModel zipModel = readZipModel();
+    // Fails once the first window of data has been moved, leaving the zip file half compacted
+    ProgressMonitor crashingProgressMonitor = new ProgressMonitor() {
+      @Override
+      public void updateWorkCompleted(long workCompleted) {
+        throw new IllegalStateException("crash");
+      }
+    };
+
+    try {
+      removeEntries(zipModel, crashingProgressMonitor, "file0.bin", "file3.bin");
+    } catch (ZipException e) {
+      assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).exists();
+
+    // Reading the zip file again completes the compaction
+    verifyRemainingEntries("file1.bin", "file2.bin", "file4.bin", "file5.bin");
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).doesNotExist();
+  }
+
+  @Test
+  public void testReadOfZipFileWhileEntriesAreRemovedInPlaceThrowsException() throws IOException {
+    ZipModel zipModel = readZipModel();
+    List<Exception> exceptionsOfRead = new ArrayList<>();
+    // reads the zip file with another ZipFile while the data is being moved, which must not take over the compaction
+    ProgressMonitor readingProgressMonitor = new ProgressMonitor() {
+      @Override
+      public void updateWorkCompleted(long workCompleted) {
+        try {
+          new ZipFile(zipFile).getFileHeaders();
+        } catch (ZipException e) {
+          exceptionsOfRead.add(e);
+        }
+      }
+    };
+
+    removeEntries(zipModel, readingProgressMonitor, "file0.bin", "file3.bin");
+
+    // once for each range of data moved
+    assertThat(exceptionsOfRead).hasSize(2);
+    for (Exception exceptionOfRead : exceptionsOfRead) {
+      assertThat(exceptionOfRead.getMessage()).contains("are being removed");
+    }
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).doesNotExist();
+    verifyRemainingEntries("file1.bin", "file2.bin", "file4.bin", "file5.bin");
+  }
+
+  private void removeEntries(ZipModel zipModel, ProgressMonitor progressMonitor, String... fileNames)
+      throws ZipException {
+    List<FileHeader> fileHeadersToRemove = new ArrayList<>();
+    for (FileHeader fileHeader : zipModel.getCentralDirectory().getFileHeaders()) {
+      if (Arrays.asList(fileNames).contains(fileHeader.getFileName())) {
+        fileHeadersToRemove.add(fileHeader);
+      }
+    }
+
+    new RemoveEntryFromZipFileTask(progressMonitor, false, zipModel).execute(
+        new RemoveEntryFromZipFileTaskParameters(fileHeadersToRemove, true, InternalZipConstants.CHARSET_UTF_8));
+  }
+
+  private ZipModel readZipModel() throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(zipFile, "r")) {
+      ZipModel zipModel = new HeaderReader().readAllHeaders(randomAccessFile, InternalZipConstants.CHARSET_UTF_8);
+      zipModel.setZipFile(zipFile);
+      return zipModel;
+    }
+  }
+
+  private void verifyRemainingEntries(String... fileNames) throws IOException {
+    ZipFile zipFileToVerify = new ZipFile(zipFile);
+    List<FileHeader> fileHeaders = zipFileToVerify.getFileHeaders();
+    assertThat(fileHeaders).hasSize(fileNames.length);
+    for (int i = 0; i < fileNames.length; i++) {
+      assertThat(fileHeaders.get(i).getFileName()).isEqualTo(fileNames[i]);
+    }
+
+    File outputFolder = temporaryFolder.newFolder("output");
+    zipFileToVerify.extractAll(outputFolder.getPath());
+    for (String fileName : fileNames) {
+      ZipFileVerifier.verifyFileContent(new File(temporaryFolder.getRoot(), "source/" + fileName),
+          new File(outputFolder, fileName));
+    }
+  }
+}
@@ -2,8 +2,11 @@ package com.zip.zipunzip.testutils;
 
 
 import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.util.Random;
 
 import com.zip.zipunzip.util.InternalZipConstants;
 
@@ -20,6 +23,23 @@ public class TestUtils {
    return getFileFromResources(TEST_ARCHIVES_FOLDER_NAME, fileName);
   }
 
+  /**
+   * Creates a file of the given size. Half of its content is random and half repeats, so that it can be compressed, but
+   * only to about half its size.
+   */
+  public static File createTestFile(File parentFolder, String fileName, int size) throws IOException {
+    Random random = new Random(fileName.hashCode());
+    byte[] content = new byte[size];
+    random.nextBytes(content);
+    for (int i = 0; i + 64 <= size; i += 128) {
+      System.arraycopy(content, 0, content, i, 64);
+    }
+
+    File file = new File(parentFolder, fileName);
+    Files.write(file.toPath(), content);
+    return file;
+  }
+
   public static Boolean isWindows() {
     String os = System.getProperty("os.name").toLowerCase();
     return (os.contains("win"));
@@ -2,11 +2,15 @@ package com.zip.zipunzip.testutils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.List;
 
+import org.junit.Assume;
+
 import com.zip.zipunzip.ZipFile;
 import com.zip.zipunzip.progress.ProgressMonitor;
 import com.zip.zipunzip.util.CrcUtil;
@@ -73,6 +77,43 @@ public class ZipFileVerifier {
     }
   }
 
+  /**
+   * Tests the archive with the unzip command, which inflates and checks the crc of every entry independently of
+   * this library. Skipped where unzip is not installed.
+   */
+  public static void verifyZipFileWithExternalUnzip(File zipFile, char[] password) throws IOException {
+    ProcessBuilder processBuilder = password == null
+        ? new ProcessBuilder("unzip", "-t", zipFile.getPath())
+        : new ProcessBuilder("unzip", "-t", "-P", new String(password), zipFile.getPath());
+    processBuilder.redirectErrorStream(true);
+
+    Process process;
+    try {
+      process = processBuilder.start();
+    } catch (IOException e) {
+      Assume.assumeNoException("unzip is not available", e);
+      return;
+    }
+
+    String output = readOutput(process.getInputStream());
+    try {
+      assertThat(process.waitFor()).as(output).isEqualTo(0);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+  }
+
+  private static String readOutput(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buff = new byte[4096];
+    int readLen;
+    while ((readLen = inputStream.read(buff)) != -1) {
+      output.write(buff, 0, readLen);
+    }
+    return output.toString();
+  }
+
   private static void verifyFileCrc(File sourceFile, File extractedFile) throws IOException {
     ProgressMonitor progressMonitor = new ProgressMonitor();
     long sourceFileCrc = CrcUtil.computeFileCrc(sourceFile, progressMonitor);
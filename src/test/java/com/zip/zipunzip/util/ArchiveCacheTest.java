@@ -0,0 +1,228 @@
+package com.zip.zipunzip.util;
+
+import com.zip.zipunzip.ZipFile;
+import com.zip.zipunzip.model.ZipParameters;
+import com.zip.zipunzip.util.ArchiveCache.CachedArchive;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArchiveCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ArchiveCache archiveCache;
+  private File zipFile;
+
+  @Before
+  public void before() throws IOException {
+    archiveCache = new ArchiveCache(ArchiveCache.DEFAULT_MAXIMUM_NUMBER_OF_ARCHIVES,
+        ArchiveCache.DEFAULT_MAXIMUM_NUMBER_OF_FILE_HEADERS);
+    zipFile = createZipFile("cached.zip", "first.bin", "second.bin");
+  }
+
+  @Test
+  public void testConcurrentReadsFromOneArchive() throws Exception {
+    byte[] zipFileContent = Files.readAllBytes(zipFile.toPath());
+    CachedArchive cachedArchive = archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8);
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        int chunkSize = 100 + i * 37;
+        results.add(executorService.submit(() -> readsMatch(cachedArchive, zipFileContent, chunkSize)));
+      }
+
+      for (Future<Boolean> result : results) {
+        assertThat(result.get()).isTrue();
+      }
+    } finally {
+      executorService.shutdownNow();
+      cachedArchive.release();
+    }
+  }
+
+  @Test
+  public void testChannelClosedByInterruptedReaderIsReopened() throws IOException {
+    byte[] zipFileContent = Files.readAllBytes(zipFile.toPath());
+    CachedArchive cachedArchive = archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8);
+
+    try {
+      Thread.currentThread().interrupt();
+      try {
+        cachedArchive.read(0, ByteBuffer.allocate(10), 0);
+      } catch (ClosedByInterruptException e) {
+        // expected, the interrupt closes the shared channel
+      } finally {
+        Thread.interrupted();
+      }
+
+      assertThat(readsMatch(cachedArchive, zipFileContent, 1000)).isTrue();
+    } finally {
+      cachedArchive.release();
+    }
+  }
+
+  @Test
+  public void testAcquireUpToDateArchiveAgainIsHit() throws IOException {
+    CachedArchive cachedArchive = archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8);
+    cachedArchive.release();
+
+    CachedArchive cachedArchiveAgain = archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8);
+    cachedArchiveAgain.release();
+
+    assertThat(cachedArchiveAgain == cachedArchive).isTrue();
+    assertThat(archiveCache.getMissCount()).isEqualTo(1L);
+    assertThat(archiveCache.getHitCount()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testChangedZipFileIsReadAgain() throws IOException {
+    CachedArchive cachedArchive = archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8);
+
+    File sourceFolder = temporaryFolder.newFolder("more_source");
+    new ZipFile(zipFile).addFiles(Collections.singletonList(createTestFile(sourceFolder, "third.bin", 5000)));
+
+    CachedArchive changedArchive = archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8);
+    try {
+      assertThat(changedArchive == cachedArchive).isFalse();
+      assertThat(changedArchive.getZipModel().getCentralDirectory().getFileHeaders()).hasSize(4);
+      assertThat(archiveCache.getMissCount()).isEqualTo(2L);
+      assertThat(archiveCache.getNumberOfArchives()).isEqualTo(1);
+
+      // the outdated archive stays readable for the user who still holds it
+      assertThat(cachedArchive.getZipModel().getCentralDirectory().getFileHeaders()).hasSize(3);
+      assertThat(cachedArchive.read(0, ByteBuffer.allocate(4), 0)).isEqualTo(4);
+    } finally {
+      changedArchive.release();
+      cachedArchive.release();
+    }
+  }
+
+  @Test
+  public void testInvalidateDropsCachedArchive() throws IOException {
+    archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8).release();
+    archiveCache.acquire(zipFile, StandardCharsets.ISO_8859_1).release();
+    assertThat(archiveCache.getNumberOfArchives()).isEqualTo(2);
+
+    archiveCache.invalidate(zipFile);
+
+    assertThat(archiveCache.getNumberOfArchives()).isEqualTo(0);
+    assertThat(archiveCache.getNumberOfFileHeaders()).isEqualTo(0L);
+    archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8).release();
+    assertThat(archiveCache.getMissCount()).isEqualTo(3L);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedArchiveIsEvicted() throws IOException {
+    File secondZipFile = createZipFile("second.zip", "a.bin");
+    File thirdZipFile = createZipFile("third.zip", "b.bin");
+    archiveCache.setMaximumNumberOfArchives(2);
+
+    archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8).release();
+    archiveCache.acquire(secondZipFile, InternalZipConstants.CHARSET_UTF_8).release();
+    archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8).release();
+    archiveCache.acquire(thirdZipFile, InternalZipConstants.CHARSET_UTF_8).release();
+
+    assertThat(archiveCache.getNumberOfArchives()).isEqualTo(2);
+    assertThat(archiveCache.getEvictionCount()).isEqualTo(1L);
+    long missCount = archiveCache.getMissCount();
+    archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8).release();
+    assertThat(archiveCache.getMissCount()).isEqualTo(missCount);
+    archiveCache.acquire(secondZipFile, InternalZipConstants.CHARSET_UTF_8).release();
+    assertThat(archiveCache.getMissCount()).isEqualTo(missCount + 1);
+  }
+
+  @Test
+  public void testArchivesAreEvictedOverMaximumNumberOfFileHeaders() throws IOException {
+    File secondZipFile = createZipFile("second.zip", "a.bin", "b.bin");
+    // Each archive has a folder and two files, and counts one more for its end of central directory record
+    archiveCache.setMaximumNumberOfFileHeaders(5);
+
+    archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8).release();
+    archiveCache.acquire(secondZipFile, InternalZipConstants.CHARSET_UTF_8).release();
+
+    assertThat(archiveCache.getNumberOfArchives()).isEqualTo(1);
+    assertThat(archiveCache.getNumberOfFileHeaders()).isEqualTo(4L);
+  }
+
+  @Test
+  public void testEvictedArchiveInUseCanStillBeRead() throws IOException {
+    byte[] zipFileContent = Files.readAllBytes(zipFile.toPath());
+    File secondZipFile = createZipFile("second.zip", "a.bin");
+    archiveCache.setMaximumNumberOfArchives(1);
+
+    CachedArchive cachedArchive = archiveCache.acquire(zipFile, InternalZipConstants.CHARSET_UTF_8);
+    try {
+      archiveCache.acquire(secondZipFile, InternalZipConstants.CHARSET_UTF_8).release();
+      assertThat(archiveCache.getEvictionCount()).isEqualTo(1L);
+
+      assertThat(readsMatch(cachedArchive, zipFileContent, 4096)).isTrue();
+    } finally {
+      cachedArchive.release();
+    }
+  }
+
+  @Test
+  public void testZipFileWithArchiveCacheSeesAddedFiles() throws IOException {
+    ZipFile cachedZipFile = new ZipFile(zipFile);
+    cachedZipFile.setUseArchiveCache(true);
+    assertThat(cachedZipFile.getFileHeaders()).hasSize(3);
+    cachedZipFile.close();
+
+    File sourceFolder = temporaryFolder.newFolder("more_source");
+    new ZipFile(zipFile).addFiles(Collections.singletonList(createTestFile(sourceFolder, "third.bin", 5000)));
+
+    ZipFile cachedZipFileAgain = new ZipFile(zipFile);
+    cachedZipFileAgain.setUseArchiveCache(true);
+    try {
+      assertThat(cachedZipFileAgain.getFileHeaders()).hasSize(4);
+    } finally {
+      cachedZipFileAgain.close();
+    }
+  }
+
+  private boolean readsMatch(CachedArchive cachedArchive, byte[] expectedContent, int chunkSize) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+    for (long position = 0; position < expectedContent.length; position += chunkSize) {
+      buffer.clear();
+      int readLen = cachedArchive.read(0, buffer, position);
+      for (int i = 0; i < readLen; i++) {
+        if (buffer.get(i) != expectedContent[(int) position + i]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private File createZipFile(String zipFileName, String... fileNames) throws IOException {
+    File sourceFolder = temporaryFolder.newFolder(zipFileName + "_source");
+    for (int i = 0; i < fileNames.length; i++) {
+      createTestFile(sourceFolder, fileNames[i], 10_000 * (i + 1));
+    }
+
+    File zipFileToCreate = new File(temporaryFolder.getRoot(), zipFileName);
+    new ZipFile(zipFileToCreate).createSplitZipFileFromFolder(sourceFolder, new ZipParameters(), false, 0);
+    return zipFileToCreate;
+  }
+}
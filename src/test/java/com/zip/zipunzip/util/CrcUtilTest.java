@@ -0,0 +1,97 @@
+package com.zip.zipunzip.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import static com.zip.zipunzip.testutils.TestUtils.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CrcUtilTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testComputeFileCrcOnThreadsMatchesSingleThread() throws IOException {
+    // Above the minimum size for a parallel crc, and not a multiple of the number of ranges
+    File file = createTestFile(temporaryFolder.getRoot(), "large.bin", 9 * 1024 * 1024 + 7);
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    try {
+      long crc = CrcUtil.computeFileCrc(file, null);
+      assertThat(CrcUtil.computeFileCrc(file, null, executorService, 3)).isEqualTo(crc);
+      assertThat(CrcUtil.computeFileCrc(file, null, executorService, 4)).isEqualTo(crc);
+      // more ranges than threads, which queue on the executor
+      assertThat(CrcUtil.computeFileCrc(file, null, executorService, 7)).isEqualTo(crc);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testComputeFileCrcOnThreadsLeavesExecutorToCaller() throws Exception {
+    List<File> files = Arrays.asList(createTestFile(temporaryFolder.getRoot(), "first.bin", 9 * 1024 * 1024),
+        createTestFile(temporaryFolder.getRoot(), "second.bin", 10 * 1024 * 1024 + 3));
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+    try {
+      // files checksummed at once from several threads share the executor
+      List<Future<Long>> crcs = new ArrayList<>();
+      ExecutorService callers = Executors.newFixedThreadPool(2);
+      for (File file : files) {
+        crcs.add(callers.submit(() -> CrcUtil.computeFileCrc(file, null, executorService, 2)));
+      }
+      callers.shutdown();
+
+      for (int i = 0; i < files.size(); i++) {
+        assertThat(crcs.get(i).get()).isEqualTo(CrcUtil.computeFileCrc(files.get(i), null));
+      }
+      assertThat(executorService.isShutdown()).isFalse();
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testComputeFileCrcOnThreadsForSmallFile() throws IOException {
+    File file = createTestFile(temporaryFolder.getRoot(), "small.bin", 1000);
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    try {
+      assertThat(CrcUtil.computeFileCrc(file, null, executorService, 4)).isEqualTo(CrcUtil.computeFileCrc(file, null));
+      assertThat(CrcUtil.computeFileCrc(file, null, null, 4)).isEqualTo(CrcUtil.computeFileCrc(file, null));
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCombineCrc32MatchesCrcOfConcatenatedData() {
+    byte[] data = new byte[10_000];
+    new Random(7).nextBytes(data);
+
+    for (int split : new int[] {0, 1, 4999, 9999, 10_000}) {
+      CRC32 first = new CRC32();
+      first.update(data, 0, split);
+      CRC32 second = new CRC32();
+      second.update(data, split, data.length - split);
+      CRC32 whole = new CRC32();
+      whole.update(data);
+
+      assertThat(CrcUtil.combineCrc32(first.getValue(), second.getValue(), data.length - split))
+          .isEqualTo(whole.getValue());
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.zip.zipunzip.util;
+
+import com.zip.zipunzip.exception.ZipException;
+import com.zip.zipunzip.progress.ProgressMonitor;
+import com.zip.zipunzip.util.ZipFileCompactor.Move;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZipFileCompactorTest {
+
+  private static final int FILE_LENGTH = 700;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File zipFile;
+  private byte[] originalContent;
+
+  @Before
+  public void before() throws IOException {
+    originalContent = new byte[FILE_LENGTH];
+    new Random(42).nextBytes(originalContent);
+    zipFile = temporaryFolder.newFile("compact.zip");
+    Files.write(zipFile.toPath(), originalContent);
+  }
+
+  @Test
+  public void testCompactMovesDataAndWritesTail() throws IOException {
+    byte[] tail = createTail(250);
+
+    ZipFileCompactor.compact(zipFile, moveSecondRange(), 300, tail, null);
+
+    assertThat(Files.readAllBytes(zipFile.toPath())).isEqualTo(expectedContent(tail));
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).doesNotExist();
+  }
+
+  @Test
+  public void testRecoverIfNecessaryWithoutJournalReturnsFalse() throws IOException {
+    assertThat(ZipFileCompactor.recoverIfNecessary(zipFile)).isFalse();
+    assertThat(Files.readAllBytes(zipFile.toPath())).isEqualTo(originalContent);
+  }
+
+  @Test
+  public void testRecoverCompactionInterruptedWhileMovingData() throws IOException {
+    byte[] tail = createTail(250);
+
+    compactAndCrashAfterFirstWindow(moveSecondRange(), 300, tail);
+
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).exists();
+    assertThat(ZipFileCompactor.recoverIfNecessary(zipFile)).isTrue();
+    assertThat(Files.readAllBytes(zipFile.toPath())).isEqualTo(expectedContent(tail));
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).doesNotExist();
+  }
+
+  @Test
+  public void testRecoverCompactionInterruptedWhileMovingDataOverlappingItsSource() throws IOException {
+    // moves 200 bytes by 50 bytes, so the source of the window is overwritten while it is moved
+    List<Move> moves = Collections.singletonList(new Move(150, 100, 200));
+    byte[] tail = createTail(50);
+
+    compactAndCrashAfterFirstWindow(moves, 300, tail);
+
+    assertThat(ZipFileCompactor.recoverIfNecessary(zipFile)).isTrue();
+    byte[] expectedContent = concat(Arrays.copyOfRange(originalContent, 0, 100),
+        Arrays.copyOfRange(originalContent, 150, 350), tail);
+    assertThat(Files.readAllBytes(zipFile.toPath())).isEqualTo(expectedContent);
+  }
+
+  @Test
+  public void testRecoverCompactionInterruptedBeforeJournalWasDeleted() throws IOException {
+    byte[] tail = createTail(250);
+
+    ZipFileCompactor.compactKeepingJournal(zipFile, moveSecondRange(), 300, tail, null);
+
+    assertThat(ZipFileCompactor.recoverIfNecessary(zipFile)).isTrue();
+    assertThat(Files.readAllBytes(zipFile.toPath())).isEqualTo(expectedContent(tail));
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).doesNotExist();
+  }
+
+  @Test
+  public void testRecoverCompactionInterruptedBeforeFileWasTruncated() throws IOException {
+    // the tail overwrites part of the source of the moved range, which must not be moved again on recovery
+    byte[] tail = createTail(250);
+    ZipFileCompactor.compactKeepingJournal(zipFile, moveSecondRange(), 300, tail, null);
+    Files.write(zipFile.toPath(), Arrays.copyOfRange(originalContent, 550, FILE_LENGTH), StandardOpenOption.APPEND);
+
+    assertThat(ZipFileCompactor.recoverIfNecessary(zipFile)).isTrue();
+    assertThat(Files.readAllBytes(zipFile.toPath())).isEqualTo(expectedContent(tail));
+  }
+
+  @Test
+  public void testRecoverIfNecessaryWhileCompactionRunsThrowsException() throws IOException {
+    byte[] tail = createTail(250);
+    List<Exception> exceptionsOfRecovery = new ArrayList<>();
+    // tries to recover while the compaction is between two windows, as a reader of the zip file would
+    ProgressMonitor recoveringProgressMonitor = new ProgressMonitor() {
+      @Override
+      public void updateWorkCompleted(long workCompleted) {
+        try {
+          ZipFileCompactor.recoverIfNecessary(zipFile);
+        } catch (IOException e) {
+          exceptionsOfRecovery.add(e);
+        }
+      }
+    };
+
+    ZipFileCompactor.compact(zipFile, moveSecondRange(), 300, tail, recoveringProgressMonitor);
+
+    assertThat(exceptionsOfRecovery).hasSize(1);
+    assertThat(exceptionsOfRecovery.get(0)).isInstanceOf(ZipException.class);
+    assertThat(Files.readAllBytes(zipFile.toPath())).isEqualTo(expectedContent(tail));
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).doesNotExist();
+  }
+
+  @Test
+  public void testRecoverIfNecessaryWithLockedJournalThrowsException() throws IOException {
+    byte[] tail = createTail(250);
+    ZipFileCompactor.compactKeepingJournal(zipFile, moveSecondRange(), 300, tail, null);
+
+    // the journal is locked as by a compaction running in another process
+    ZipException exceptionOfRecovery = null;
+    try (FileChannel journalChannel = FileChannel.open(ZipFileCompactor.getJournalFile(zipFile).toPath(),
+        StandardOpenOption.WRITE);
+         FileLock ignored = journalChannel.lock()) {
+      ZipFileCompactor.recoverIfNecessary(zipFile);
+    } catch (ZipException e) {
+      exceptionOfRecovery = e;
+    }
+
+    assertThat(exceptionOfRecovery).isNotNull();
+    assertThat(exceptionOfRecovery.getMessage()).contains("are being removed");
+
+    assertThat(ZipFileCompactor.getJournalFile(zipFile)).exists();
+    assertThat(ZipFileCompactor.recoverIfNecessary(zipFile)).isTrue();
+    assertThat(Files.readAllBytes(zipFile.toPath())).isEqualTo(expectedContent(tail));
+  }
+
+  /**
+   * Removes bytes 100 to 400 by moving bytes 400 to 600 to 100
+   */
+  private List<Move> moveSecondRange() {
+    return Collections.singletonList(new Move(400, 100, 200));
+  }
+
+  private byte[] expectedContent(byte[] tail) {
+    return concat(Arrays.copyOfRange(originalContent, 0, 100), Arrays.copyOfRange(originalContent, 400, 600), tail);
+  }
+
+  private void compactAndCrashAfterFirstWindow(List<Move> moves, long offsetOfTail, byte[] tail) throws IOException {
+    ProgressMonitor crashingProgressMonitor = new ProgressMonitor() {
+      @Override
+      public void updateWorkCompleted(long workCompleted) {
+        throw new IllegalStateException("crash");
+      }
+    };
+
+    try {
+      ZipFileCompactor.compact(zipFile, moves, offsetOfTail, tail, crashingProgressMonitor);
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("crash");
+    }
+  }
+
+  private byte[] createTail(int length) {
+    byte[] tail = new byte[length];
+    Arrays.fill(tail, (byte) 0x50);
+    return tail;
+  }
+
+  private byte[] concat(byte[]... parts) {
+    int length = 0;
+    for (byte[] part : parts) {
+      length += part.length;
+    }
+
+    byte[] content = new byte[length];
+    int offset = 0;
+    for (byte[] part : parts) {
+      System.arraycopy(part, 0, content, offset, part.length);
+      offset += part.length;
+    }
+    return content;
+  }
+}